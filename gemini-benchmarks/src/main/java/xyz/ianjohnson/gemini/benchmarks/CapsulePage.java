@@ -0,0 +1,158 @@
+package xyz.ianjohnson.gemini.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Kinds of synthetic Gemini documents modelled on pages commonly found on real capsules. Documents
+ * are generated from a fixed seed, so every run of a benchmark sees the same input.
+ */
+public enum CapsulePage {
+  /** A directory or gemlog index, consisting mostly of links. */
+  INDEX {
+    @Override
+    void appendSection(final StringBuilder sb, final Random random) {
+      sb.append("## ").append(words(random, 2, 4)).append("\n\n");
+      final var links = 10 + random.nextInt(20);
+      for (var i = 0; i < links; i++) {
+        appendLink(sb, random);
+      }
+      sb.append('\n');
+    }
+  },
+  /** A long-form article, consisting mostly of paragraphs of text. */
+  ARTICLE {
+    @Override
+    void appendSection(final StringBuilder sb, final Random random) {
+      sb.append("## ").append(words(random, 3, 8)).append("\n\n");
+      final var paragraphs = 2 + random.nextInt(4);
+      for (var i = 0; i < paragraphs; i++) {
+        sb.append(sentences(random, 3, 10)).append("\n\n");
+      }
+      if (random.nextInt(4) == 0) {
+        sb.append("> ").append(sentences(random, 1, 3)).append("\n\n");
+      }
+      if (random.nextInt(3) == 0) {
+        appendLink(sb, random);
+        sb.append('\n');
+      }
+    }
+  },
+  /** A page mixing all kinds of content, including preformatted blocks and lists. */
+  MIXED {
+    @Override
+    void appendSection(final StringBuilder sb, final Random random) {
+      sb.append(random.nextBoolean() ? "## " : "### ").append(words(random, 2, 6)).append("\n\n");
+      sb.append(sentences(random, 2, 5)).append("\n\n");
+      final var items = 2 + random.nextInt(6);
+      for (var i = 0; i < items; i++) {
+        sb.append("* ").append(words(random, 3, 10)).append('\n');
+      }
+      sb.append('\n');
+      if (random.nextBoolean()) {
+        sb.append("```").append(words(random, 1, 2)).append('\n');
+        final var lines = 3 + random.nextInt(12);
+        for (var i = 0; i < lines; i++) {
+          sb.append("    ").append(words(random, 1, 8)).append('\n');
+        }
+        sb.append("```\n\n");
+      }
+      final var links = random.nextInt(6);
+      for (var i = 0; i < links; i++) {
+        appendLink(sb, random);
+      }
+      sb.append('\n');
+    }
+  };
+
+  private static final String[] WORDS =
+      ("gemini capsule protocol the a of and to in is that for with on as small internet "
+              + "text server client request response document link page simple privacy "
+              + "certificate status header line reading writing about from this was were have "
+              + "more than élan café naïve über 日本語 ok")
+          .split(" ");
+
+  private static final long SEED = 1965;
+
+  /**
+   * Generates a document of this kind of approximately the given size.
+   *
+   * @param size the approximate size of the document in UTF-8 bytes
+   * @return the generated document
+   */
+  public String generate(final int size) {
+    final var random = new Random(SEED);
+    final var sb = new StringBuilder(size + 1024);
+    sb.append("# ").append(words(random, 2, 5)).append("\n\n");
+    while (sb.length() < size) {
+      appendSection(sb, random);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Generates a document of this kind of approximately the given size, encoded as UTF-8.
+   *
+   * @param size the approximate size of the document in bytes
+   * @return the generated document
+   */
+  public byte[] generateBytes(final int size) {
+    return generate(size).getBytes(StandardCharsets.UTF_8);
+  }
+
+  abstract void appendSection(StringBuilder sb, Random random);
+
+  private static void appendLink(final StringBuilder sb, final Random random) {
+    sb.append("=> ");
+    switch (random.nextInt(4)) {
+      case 0:
+        sb.append("gemini://").append(word(random)).append(".example/");
+        break;
+      case 1:
+        sb.append("/gemlog/2020-").append(10 + random.nextInt(3)).append('-');
+        sb.append(10 + random.nextInt(18)).append('-').append(word(random)).append(".gmi");
+        break;
+      case 2:
+        sb.append("https://").append(word(random)).append(".example/");
+        sb.append(word(random)).append("?q=").append(random.nextInt(1000));
+        break;
+      default:
+        sb.append(word(random)).append('/');
+        break;
+    }
+    if (random.nextInt(8) != 0) {
+      sb.append(' ').append(words(random, 1, 8));
+    }
+    sb.append('\n');
+  }
+
+  private static String sentences(final Random random, final int min, final int max) {
+    final var sb = new StringBuilder();
+    final var n = min + random.nextInt(max - min + 1);
+    for (var i = 0; i < n; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      final var sentence = words(random, 5, 25);
+      sb.append(Character.toUpperCase(sentence.charAt(0))).append(sentence, 1, sentence.length());
+      sb.append('.');
+    }
+    return sb.toString();
+  }
+
+  private static String words(final Random random, final int min, final int max) {
+    final var sb = new StringBuilder();
+    final var n = min + random.nextInt(max - min + 1);
+    for (var i = 0; i < n; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      sb.append(word(random));
+    }
+    return sb.toString();
+  }
+
+  private static String word(final Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
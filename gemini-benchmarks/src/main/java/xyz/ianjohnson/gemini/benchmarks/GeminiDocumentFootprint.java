@@ -0,0 +1,41 @@
+package xyz.ianjohnson.gemini.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jol.info.GraphLayout;
+import xyz.ianjohnson.gemini.GeminiDocument;
+
+/**
+ * Compares the retained heap size of documents returned by {@link GeminiDocument#parse} and {@link
+ * GeminiDocument#parseCompact} for each kind of {@link CapsulePage}.
+ *
+ * <p>Run with {@code java -cp gemini-benchmarks/target/benchmarks.jar
+ * xyz.ianjohnson.gemini.benchmarks.GeminiDocumentFootprint [size in bytes]}.
+ */
+public final class GeminiDocumentFootprint {
+  private static final int DEFAULT_SIZE = 16 * 1024 * 1024;
+
+  private GeminiDocumentFootprint() {}
+
+  public static void main(final String[] args) {
+    final var size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+    System.out.printf(
+        "%-8s %12s %14s %14s %8s %8s%n",
+        "page", "input", "parse", "parseCompact", "ratio", "items");
+    for (final var page : CapsulePage.values()) {
+      final var document = page.generate(size);
+      final var inputSize = document.getBytes(StandardCharsets.UTF_8).length;
+      final var parsed = GeminiDocument.parse(document);
+      final var parsedSize = GraphLayout.parseInstance(parsed).totalSize();
+      final var compact = GeminiDocument.parseCompact(document);
+      final var compactSize = GraphLayout.parseInstance(compact).totalSize();
+      System.out.printf(
+          "%-8s %12d %14d %14d %8.2f %8d%n",
+          page,
+          inputSize,
+          parsedSize,
+          compactSize,
+          (double) parsedSize / compactSize,
+          parsed.content().size());
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package xyz.ianjohnson.gemini.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import xyz.ianjohnson.gemini.GeminiContent;
+import xyz.ianjohnson.gemini.GeminiDocument;
+import xyz.ianjohnson.gemini.GeminiLinkLine;
+import xyz.ianjohnson.gemini.GeminiParser;
+
+/**
+ * Measures the throughput of parsing Gemini documents. In addition to the number of operations per
+ * second, the {@code megabytes} secondary result reports the parsing throughput in MB/s of UTF-8
+ * input. Memory use of the parsed documents is compared separately by {@link
+ * GeminiDocumentFootprint}.
+ *
+ * <p>Run with {@code java -jar gemini-benchmarks/target/benchmarks.jar GeminiDocumentParse}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiDocumentParseBenchmark {
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  @Param({"INDEX", "ARTICLE", "MIXED"})
+  public CapsulePage page;
+
+  @Param({"4096", "1048576"})
+  public int size;
+
+  private String document;
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    document = page.generate(size);
+    bytes = document.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public GeminiDocument parseString(final Throughput throughput) {
+    throughput.megabytes += bytes.length / 1e6;
+    return GeminiDocument.parse(document);
+  }
+
+  @Benchmark
+  public GeminiDocument parseStringCompact(final Throughput throughput) {
+    throughput.megabytes += bytes.length / 1e6;
+    return GeminiDocument.parseCompact(document);
+  }
+
+  @Benchmark
+  public void parseStringCompactAndAccessContent(
+      final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    for (final GeminiContent content : GeminiDocument.parseCompact(document).content()) {
+      blackhole.consume(content);
+    }
+  }
+
+  @Benchmark
+  public void parseBytesIncrementally(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    final var parser = new GeminiParser(blackhole::consume, StandardCharsets.UTF_8);
+    for (var i = 0; i < bytes.length; i += CHUNK_SIZE) {
+      parser.feed(ByteBuffer.wrap(bytes, i, Math.min(CHUNK_SIZE, bytes.length - i)));
+    }
+    parser.finish();
+  }
+
+  @Benchmark
+  public void parseStringAndResolveLinks(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    for (final GeminiContent content : GeminiDocument.parse(document).content()) {
+      if (content instanceof GeminiLinkLine) {
+        blackhole.consume(((GeminiLinkLine) content).uri());
+      }
+    }
+  }
+
+  /** Counts the number of megabytes of input parsed, reported as a rate. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Throughput {
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      megabytes = 0;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package xyz.ianjohnson.gemini.benchmarks;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import xyz.ianjohnson.gemini.GeminiContent;
+import xyz.ianjohnson.gemini.GeminiDocument;
+import xyz.ianjohnson.gemini.GeminiLinkLine;
+import xyz.ianjohnson.gemini.GeminiLinkScanner;
+import xyz.ianjohnson.gemini.benchmarks.GeminiDocumentParseBenchmark.Throughput;
+
+/**
+ * Compares extracting the resolved link URIs of a document using {@link GeminiLinkScanner} to
+ * parsing the whole document and filtering its content for links.
+ *
+ * <p>Run with {@code java -jar gemini-benchmarks/target/benchmarks.jar GeminiLinkScan}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiLinkScanBenchmark {
+  private static final URI BASE = URI.create("gemini://gemini.example/gemlog/index.gmi");
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  @Param({"INDEX", "ARTICLE", "MIXED"})
+  public CapsulePage page;
+
+  @Param({"4096", "1048576"})
+  public int size;
+
+  private String document;
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    document = page.generate(size);
+    bytes = document.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void parseAndFilter(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    for (final GeminiContent content : GeminiDocument.parse(document).content()) {
+      if (content instanceof GeminiLinkLine) {
+        blackhole.consume(BASE.resolve(((GeminiLinkLine) content).uri()));
+      }
+    }
+  }
+
+  @Benchmark
+  public void scanString(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    GeminiLinkScanner.of(document, BASE).forEachRemaining(blackhole::consume);
+  }
+
+  @Benchmark
+  public void scanBytes(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    GeminiLinkScanner.of(bytes, StandardCharsets.UTF_8, BASE).forEachRemaining(blackhole::consume);
+  }
+
+  @Benchmark
+  public void scanBytesIncrementally(final Throughput throughput, final Blackhole blackhole) {
+    throughput.megabytes += bytes.length / 1e6;
+    final var scanner =
+        GeminiLinkScanner.incremental(blackhole::consume, StandardCharsets.UTF_8, BASE);
+    for (var i = 0; i < bytes.length; i += CHUNK_SIZE) {
+      scanner.feed(ByteBuffer.wrap(bytes, i, Math.min(CHUNK_SIZE, bytes.length - i)));
+    }
+    scanner.finish();
+  }
+}
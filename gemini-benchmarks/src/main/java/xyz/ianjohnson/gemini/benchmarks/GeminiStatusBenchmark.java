@@ -0,0 +1,46 @@
+package xyz.ianjohnson.gemini.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.ianjohnson.gemini.GeminiStatus;
+
+/**
+ * Measures the cost of looking up a {@link GeminiStatus} from a response status code, as done for
+ * every response header decoded by the client.
+ *
+ * <p>Run with {@code java -jar gemini-benchmarks/target/benchmarks.jar GeminiStatus} (adding {@code
+ * -prof gc} reports allocation per lookup).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiStatusBenchmark {
+  /**
+   * The status code to look up: a common standard code, a late standard code and a non-standard
+   * one.
+   */
+  @Param({"20", "62", "25"})
+  public int code;
+
+  @Benchmark
+  public GeminiStatus valueOf() {
+    return GeminiStatus.valueOf(code);
+  }
+
+  @Benchmark
+  public GeminiStatus.Kind kindValueOf() {
+    return GeminiStatus.Kind.valueOf(code / 10);
+  }
+}
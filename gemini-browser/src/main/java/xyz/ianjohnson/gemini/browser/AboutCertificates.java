@@ -11,8 +11,8 @@ import java.util.Optional;
 import javax.swing.text.StyledDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.client.CertificateManager;
 import xyz.ianjohnson.gemini.client.Certificates;
-import xyz.ianjohnson.gemini.client.KeyStoreManager;
 
 public class AboutCertificates implements AboutPage {
   private static final Logger log = LoggerFactory.getLogger(AboutCertificates.class);
@@ -26,18 +26,18 @@ public class AboutCertificates implements AboutPage {
   public StyledDocument display(final String path, final Browser browser) {
     final var doc = new BrowserDocument(browser.theme());
     if (path.isBlank()) {
-      displayCertificateOverview(doc, browser.keyStoreManager());
+      displayCertificateOverview(doc, browser.certificateManager());
     } else {
-      displayCertificate(doc, browser.keyStoreManager(), path);
+      displayCertificate(doc, browser.certificateManager(), path);
     }
     return doc;
   }
 
   private void displayCertificate(
-      final BrowserDocument doc, final KeyStoreManager keyStoreManager, final String host) {
+      final BrowserDocument doc, final CertificateManager certificateManager, final String host) {
     final Optional<X509Certificate> cert;
     try {
-      cert = keyStoreManager.getCertificate(host);
+      cert = certificateManager.getCertificate(host);
     } catch (final KeyStoreException e) {
       log.error("Key store error", e);
       return;
@@ -60,12 +60,12 @@ public class AboutCertificates implements AboutPage {
   }
 
   private void displayCertificateOverview(
-      final BrowserDocument doc, final KeyStoreManager keyStoreManager) {
+      final BrowserDocument doc, final CertificateManager certificateManager) {
     doc.appendHeadingText("Certificates", 1);
     doc.appendText("\n\n");
     final List<String> hosts;
     try {
-      hosts = keyStoreManager.hosts().stream().sorted().collect(toList());
+      hosts = certificateManager.hosts().stream().sorted().collect(toList());
     } catch (final KeyStoreException e) {
       log.error("Key store error", e);
       return;
@@ -9,6 +9,7 @@ import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyStoreException;
@@ -34,27 +35,36 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import xyz.ianjohnson.gemini.MimeType;
 import xyz.ianjohnson.gemini.client.CertificateChangedException;
+import xyz.ianjohnson.gemini.client.CertificateManager;
 import xyz.ianjohnson.gemini.client.Certificates;
 import xyz.ianjohnson.gemini.client.GeminiClient;
 import xyz.ianjohnson.gemini.client.GeminiResponse;
 import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
-import xyz.ianjohnson.gemini.client.KeyStoreManager;
+import xyz.ianjohnson.gemini.client.LogCertificateManager;
+import xyz.ianjohnson.gemini.client.RequestOptions;
+import xyz.ianjohnson.gemini.client.RequestPriority;
 import xyz.ianjohnson.gemini.client.TofuClientTrustManager;
 
 public class Browser extends JFrame {
   private static final ProjectDirectories PROJECT_DIRECTORIES =
       ProjectDirectories.from("xyz", "Ian Johnson", "Gemini Browser");
+  private static final Path KNOWN_HOSTS_PATH =
+      Paths.get(PROJECT_DIRECTORIES.dataDir).resolve("known-hosts.log");
+  // The key store used to store known hosts before they were stored in a LogCertificateManager
   private static final Path KEY_STORE_PATH =
       Paths.get(PROJECT_DIRECTORIES.dataDir).resolve("keystore.p12");
   // I'd rather have no password at all, but that didn't work when I was experimenting with it, so
   // here's a worthless constant password
   private static final String KEY_STORE_PASSWORD = "password";
+  /** Pages are loaded at high priority, since the user is waiting for them. */
+  private static final RequestOptions PAGE_LOAD_OPTIONS =
+      RequestOptions.newBuilder().priority(RequestPriority.HIGH).build();
   private static final Logger log = LoggerFactory.getLogger(Browser.class);
 
   private final ExecutorService executorService;
   private final UserKeyStoreManager userKeyStoreManager =
       new UserKeyStoreManager(KEY_STORE_PATH, KEY_STORE_PASSWORD);
-  private final KeyStoreManager keyStoreManager;
+  private final LogCertificateManager certificateManager;
   private final TofuClientTrustManager trustManager;
   private final GeminiClient client;
   private final BrowserTheme theme;
@@ -66,11 +76,11 @@ public class Browser extends JFrame {
   public Browser() {
     executorService = Executors.newCachedThreadPool();
     try {
-      keyStoreManager = userKeyStoreManager.loadIfPresent();
+      certificateManager = openCertificateManager();
     } catch (final IOException e) {
       throw new UncheckedIOException(e);
     }
-    trustManager = new TofuClientTrustManager(keyStoreManager);
+    trustManager = new TofuClientTrustManager(certificateManager);
     client = GeminiClient.newBuilder().executor(executorService).trustManager(trustManager).build();
     theme = BrowserTheme.defaultTheme();
 
@@ -84,9 +94,9 @@ public class Browser extends JFrame {
             client.close();
             executorService.shutdownNow();
             try {
-              userKeyStoreManager.store(keyStoreManager);
+              certificateManager.close();
             } catch (final IOException ex) {
-              log.error("Error saving user key store", ex);
+              log.error("Error saving known hosts", ex);
             }
           }
         });
@@ -118,6 +128,27 @@ public class Browser extends JFrame {
     SwingUtilities.invokeLater(() -> new Browser().setVisible(true));
   }
 
+  /**
+   * Opens the user's known hosts log, first migrating the known hosts from the user's key store if
+   * the log does not yet exist.
+   */
+  private LogCertificateManager openCertificateManager() throws IOException {
+    final var migrate = !Files.exists(KNOWN_HOSTS_PATH) && Files.exists(KEY_STORE_PATH);
+    final var manager = LogCertificateManager.open(KNOWN_HOSTS_PATH);
+    if (migrate) {
+      log.info("Migrating known hosts from {} to {}", KEY_STORE_PATH, KNOWN_HOSTS_PATH);
+      try {
+        manager.importFrom(userKeyStoreManager.loadIfPresent());
+        manager.flush();
+      } catch (final IOException | KeyStoreException e) {
+        manager.close();
+        Files.delete(KNOWN_HOSTS_PATH);
+        throw new IOException("Could not migrate known hosts from key store", e);
+      }
+    }
+    return manager;
+  }
+
   private static void setNimbusLookAndFeel() {
     try {
       for (final var laf : UIManager.getInstalledLookAndFeels()) {
@@ -132,8 +163,8 @@ public class Browser extends JFrame {
     }
   }
 
-  public KeyStoreManager keyStoreManager() {
-    return keyStoreManager;
+  public CertificateManager certificateManager() {
+    return certificateManager;
   }
 
   public BrowserTheme theme() {
@@ -183,7 +214,7 @@ public class Browser extends JFrame {
 
     statusBar.setText("Loading...");
     client
-        .sendAsync(uri, this::render)
+        .sendAsync(uri, this::render, PAGE_LOAD_OPTIONS)
         .whenComplete(
             (response, error) -> {
               if (response != null) {
@@ -270,7 +301,8 @@ public class Browser extends JFrame {
           final var lock = trustManager.hostLock(host);
           lock.lock();
           try {
-            keyStoreManager.setCertificate(host, newCert);
+            certificateManager.setCertificate(host, newCert);
+            trustManager.invalidate(host);
           } catch (final KeyStoreException kse) {
             log.error("Error updating key store", kse);
             statusBar.setText("Error updating key store: " + kse);
@@ -1,6 +1,6 @@
 package xyz.ianjohnson.gemini.browser;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import javax.swing.text.StyledDocument;
 import xyz.ianjohnson.gemini.GeminiDocument;
@@ -23,8 +23,7 @@ public final class GeminiDocumentRenderer implements DocumentRenderer {
     }
     return Optional.of(
         BodySubscribers.mapping(
-            BodySubscribers.ofString(
-                Charset.forName(mimeType.parameter("charset").orElse("utf-8"))),
+            BodySubscribers.ofString(mimeType.charset(StandardCharsets.UTF_8)),
             text -> render(text, theme)));
   }
 
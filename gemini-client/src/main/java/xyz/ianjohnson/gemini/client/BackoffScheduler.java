@@ -0,0 +1,85 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.util.concurrent.EventExecutorGroup;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of hosts which have asked the client to slow down, and delays requests to them until
+ * they may be sent again.
+ *
+ * <p>Delays are implemented using the timer of an event loop, so no thread is blocked while a
+ * request waits.
+ */
+final class BackoffScheduler {
+  private final EventExecutorGroup executor;
+  /** The {@link System#nanoTime()} until which requests to each host must wait. */
+  private final ConcurrentHashMap<String, Long> parkedUntil = new ConcurrentHashMap<>();
+
+  BackoffScheduler(final EventExecutorGroup executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Parks the given host for the given delay, so that requests to it wait until the delay has
+   * passed. If the host is already parked for longer, this has no effect.
+   *
+   * @param host the host to park
+   * @param delay the time for which to park the host
+   */
+  void park(final String host, final Duration delay) {
+    final var until = System.nanoTime() + delay.toNanos();
+    parkedUntil.merge(
+        host, until, (current, requested) -> current - requested >= 0 ? current : requested);
+  }
+
+  /**
+   * Returns a future which completes once requests to the given host may be sent. Cancelling the
+   * returned future cancels the wait.
+   *
+   * @param host the host to which a request is to be sent
+   * @return a future which completes once requests to the host may be sent
+   */
+  CompletableFuture<Void> await(final String host) {
+    final var future = new CompletableFuture<Void>();
+    await(host, future);
+    return future;
+  }
+
+  private void await(final String host, final CompletableFuture<Void> future) {
+    if (future.isDone()) {
+      return;
+    }
+    final var until = parkedUntil.get(host);
+    if (until == null) {
+      future.complete(null);
+      return;
+    }
+    final var remaining = until - System.nanoTime();
+    if (remaining <= 0) {
+      parkedUntil.remove(host, until);
+      future.complete(null);
+      return;
+    }
+    // The host may be parked again while waiting, so check again once the delay has passed
+    final var task = executor.schedule(() -> await(host, future), remaining, TimeUnit.NANOSECONDS);
+    future.whenComplete((v, e) -> task.cancel(false));
+  }
+
+  /**
+   * Returns a future which completes after the given delay. Cancelling the returned future cancels
+   * the delay.
+   *
+   * @param delay the delay
+   * @return a future which completes after the given delay
+   */
+  CompletableFuture<Void> delay(final Duration delay) {
+    final var future = new CompletableFuture<Void>();
+    final var task =
+        executor.schedule(() -> future.complete(null), delay.toNanos(), TimeUnit.NANOSECONDS);
+    future.whenComplete((v, e) -> task.cancel(false));
+    return future;
+  }
+}
@@ -1,12 +1,25 @@
 package xyz.ianjohnson.gemini.client;
 
+import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import xyz.ianjohnson.gemini.GeminiContent;
+import xyz.ianjohnson.gemini.GeminiLinkScanner;
+import xyz.ianjohnson.gemini.GeminiParser;
 import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
 
 final class BodySubscriberImpls {
@@ -90,6 +103,52 @@ final class BodySubscriberImpls {
     }
   }
 
+  static final class OfLinks implements BodySubscriber<List<URI>> {
+    private final List<URI> links = new ArrayList<>();
+    private final GeminiLinkScanner.Incremental scanner;
+    private final CompletableFuture<List<URI>> future = new CompletableFuture<>();
+    private Subscription subscription;
+
+    OfLinks(final Charset charset, final URI base) {
+      scanner = GeminiLinkScanner.incremental(links::add, charset, base);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      this.subscription = subscription;
+      this.subscription.request(1);
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> item) {
+      for (final var buf : item) {
+        scanner.feed(buf);
+      }
+      this.subscription.request(1);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      future.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      scanner.finish();
+      future.complete(Collections.unmodifiableList(links));
+    }
+
+    @Override
+    public CompletionStage<List<URI>> getBody() {
+      return future.minimalCompletionStage();
+    }
+
+    @Override
+    public String toString() {
+      return "OfLinks{}";
+    }
+  }
+
   static final class Mapping<T, U> implements BodySubscriber<U> {
     private final BodySubscriber<T> upstream;
     private final Function<? super T, ? extends U> finisher;
@@ -129,4 +188,148 @@ final class BodySubscriberImpls {
       return "Mapping{" + "upstream=" + upstream + ", finisher=" + finisher + '}';
     }
   }
+
+  /**
+   * A {@link BodySubscriber} exposing the body as a {@link Publisher} of parsed {@link
+   * GeminiContent}. The body future completes as soon as the response body is subscribed to, and
+   * the body is only read from upstream as fast as the single downstream subscriber requests
+   * content.
+   */
+  static final class OfGeminiContent
+      implements BodySubscriber<Publisher<GeminiContent>>, Publisher<GeminiContent> {
+    private final GeminiParser parser;
+    private final Queue<GeminiContent> items = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<Publisher<GeminiContent>> future = new CompletableFuture<>();
+    private final AtomicReference<Subscriber<? super GeminiContent>> downstream =
+        new AtomicReference<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Subscription upstream;
+    private volatile boolean upstreamRequested;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean terminated;
+
+    OfGeminiContent(final Charset charset) {
+      parser = new GeminiParser(items::add, charset);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      upstream = subscription;
+      future.complete(this);
+      drain();
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> item) {
+      for (final var buf : item) {
+        parser.feed(buf);
+      }
+      upstreamRequested = false;
+      drain();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      error = throwable;
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      parser.finish();
+      done = true;
+      drain();
+    }
+
+    @Override
+    public CompletionStage<Publisher<GeminiContent>> getBody() {
+      return future.minimalCompletionStage();
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super GeminiContent> subscriber) {
+      if (!downstream.compareAndSet(null, subscriber)) {
+        subscriber.onSubscribe(
+            new Subscription() {
+              @Override
+              public void request(final long n) {}
+
+              @Override
+              public void cancel() {}
+            });
+        subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+        return;
+      }
+
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(final long n) {
+              if (n <= 0) {
+                error = new IllegalArgumentException("Requested items must be positive");
+                done = true;
+                items.clear();
+                cancelUpstream();
+              } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+              }
+              drain();
+            }
+
+            @Override
+            public void cancel() {
+              terminated = true;
+              items.clear();
+              cancelUpstream();
+            }
+          });
+      drain();
+    }
+
+    private void cancelUpstream() {
+      final var subscription = upstream;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      var missed = 1;
+      do {
+        final var subscriber = downstream.get();
+        if (subscriber != null && !terminated) {
+          GeminiContent item;
+          while (demand.get() > 0 && (item = items.poll()) != null) {
+            demand.decrementAndGet();
+            subscriber.onNext(item);
+          }
+          if (items.isEmpty()) {
+            if (done) {
+              terminated = true;
+              if (error != null) {
+                subscriber.onError(error);
+              } else {
+                subscriber.onComplete();
+              }
+            } else if (demand.get() > 0 && !upstreamRequested && upstream != null) {
+              upstreamRequested = true;
+              upstream.request(1);
+            }
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    @Override
+    public String toString() {
+      return "OfGeminiContent{}";
+    }
+  }
 }
@@ -0,0 +1,291 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandler;
+
+/**
+ * A publisher of the results of fetching each URI published by a source publisher.
+ *
+ * <p>A request is only started once the subscriber has requested its result, so results never pile
+ * up waiting for the subscriber, and no more than the maximum number of requests (in total and to
+ * each host) are in flight at once. URIs are pulled from the source ahead of demand into a small
+ * buffer, so that requests to other hosts can be started while some host is at its limit. Results
+ * are published in the order in which they complete. The failure of a single request is published
+ * as a failed {@link FetchResult} and does not affect the rest of the fetch.
+ *
+ * <p>The fetch can only be published to a single subscriber. Cancelling the subscription cancels
+ * the source subscription and any requests in flight.
+ */
+final class BulkFetch<T> implements Publisher<FetchResult<T>> {
+  private final GeminiClient client;
+  private final Publisher<URI> source;
+  private final BodyHandler<T> responseBodyHandler;
+  private final BulkFetchOptions options;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  BulkFetch(
+      final GeminiClient client,
+      final Publisher<URI> source,
+      final BodyHandler<T> responseBodyHandler,
+      final BulkFetchOptions options) {
+    this.client = client;
+    this.source = source;
+    this.responseBodyHandler = responseBodyHandler;
+    this.options = options;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super FetchResult<T>> subscriber) {
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(final long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("Bulk fetch can only be published once"));
+      return;
+    }
+    final var subscription = new BulkFetchSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    source.subscribe(subscription.sourceSubscriber());
+  }
+
+  private final class BulkFetchSubscription implements Subscription {
+    private final Subscriber<? super FetchResult<T>> subscriber;
+    private final AtomicInteger draining = new AtomicInteger();
+
+    // All the following state is guarded by this
+    private Subscription sourceSubscription;
+    private boolean sourceRequested;
+    private boolean sourceDone;
+    private Throwable sourceError;
+    /** URIs pulled from the source but not yet started, in the order they were received. */
+    private final ArrayDeque<URI> pending = new ArrayDeque<>();
+
+    private final Map<String, Integer> inFlightByHost = new HashMap<>();
+    private final Set<CompletableFuture<?>> requests = new HashSet<>();
+    private int inFlight;
+    private final ArrayDeque<FetchResult<T>> results = new ArrayDeque<>();
+    private long demand;
+    private boolean terminated;
+
+    private BulkFetchSubscription(final Subscriber<? super FetchResult<T>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    private Subscriber<URI> sourceSubscriber() {
+      return new Subscriber<>() {
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+          final boolean cancel;
+          synchronized (BulkFetchSubscription.this) {
+            sourceSubscription = subscription;
+            cancel = terminated;
+          }
+          if (cancel) {
+            subscription.cancel();
+          } else {
+            drain();
+          }
+        }
+
+        @Override
+        public void onNext(final URI item) {
+          synchronized (BulkFetchSubscription.this) {
+            sourceRequested = false;
+            pending.add(item);
+          }
+          drain();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+          synchronized (BulkFetchSubscription.this) {
+            sourceDone = true;
+            sourceError = throwable;
+          }
+          drain();
+        }
+
+        @Override
+        public void onComplete() {
+          synchronized (BulkFetchSubscription.this) {
+            sourceDone = true;
+          }
+          drain();
+        }
+      };
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        final boolean signal;
+        synchronized (this) {
+          signal = !terminated;
+        }
+        if (signal) {
+          cancel();
+          subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+        }
+        return;
+      }
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      final Subscription toCancel;
+      final List<CompletableFuture<?>> toCancelRequests;
+      synchronized (this) {
+        if (terminated) {
+          return;
+        }
+        terminated = true;
+        toCancel = sourceSubscription;
+        toCancelRequests = List.copyOf(requests);
+        requests.clear();
+        pending.clear();
+        results.clear();
+      }
+      if (toCancel != null) {
+        toCancel.cancel();
+      }
+      toCancelRequests.forEach(request -> request.cancel(true));
+    }
+
+    /**
+     * Performs whatever can be done in the current state: publishing results, starting requests,
+     * pulling URIs from the source and completing the fetch. Only one thread drains at a time; a
+     * drain requested while another is in progress is performed by that thread.
+     */
+    private void drain() {
+      if (draining.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        while (true) {
+          FetchResult<T> result = null;
+          URI start = null;
+          Subscription pull = null;
+          var complete = false;
+          Throwable error = null;
+          synchronized (this) {
+            if (terminated) {
+              break;
+            }
+            if (demand > 0 && !results.isEmpty()) {
+              result = results.poll();
+              demand--;
+            } else if ((start = nextStartable()) != null) {
+              inFlight++;
+              inFlightByHost.merge(hostKey(start), 1, Integer::sum);
+            } else if (!sourceDone
+                && !sourceRequested
+                && sourceSubscription != null
+                && pending.size() < options.maxParallelism()) {
+              sourceRequested = true;
+              pull = sourceSubscription;
+            } else if (sourceDone && pending.isEmpty() && inFlight == 0 && results.isEmpty()) {
+              terminated = true;
+              complete = true;
+              error = sourceError;
+            } else {
+              break;
+            }
+          }
+          if (result != null) {
+            subscriber.onNext(result);
+          } else if (start != null) {
+            start(start);
+          } else if (pull != null) {
+            pull.request(1);
+          } else if (complete) {
+            if (error != null) {
+              subscriber.onError(error);
+            } else {
+              subscriber.onComplete();
+            }
+          }
+        }
+      } while (draining.decrementAndGet() != 0);
+    }
+
+    /** Removes and returns the first pending URI which may be requested now, if any. */
+    private URI nextStartable() {
+      // Requests whose results have not yet been published count against the demand
+      if (inFlight + results.size() >= Math.min(demand, options.maxParallelism())) {
+        return null;
+      }
+      final var iterator = pending.iterator();
+      while (iterator.hasNext()) {
+        final var uri = iterator.next();
+        if (inFlightByHost.getOrDefault(hostKey(uri), 0) < options.maxParallelismPerHost()) {
+          iterator.remove();
+          return uri;
+        }
+      }
+      return null;
+    }
+
+    private void start(final URI uri) {
+      CompletableFuture<GeminiResponse<T>> request;
+      try {
+        request = client.sendAsync(uri, responseBodyHandler, options.requestOptions());
+      } catch (final RuntimeException e) {
+        request = CompletableFuture.failedFuture(e);
+      }
+      final var future = request;
+      final boolean cancelled;
+      synchronized (this) {
+        cancelled = terminated;
+        if (!cancelled) {
+          requests.add(future);
+        }
+      }
+      if (cancelled) {
+        future.cancel(true);
+        return;
+      }
+      future.whenComplete(
+          (response, e) -> {
+            synchronized (this) {
+              if (terminated) {
+                return;
+              }
+              requests.remove(future);
+              inFlight--;
+              inFlightByHost.computeIfPresent(hostKey(uri), (host, n) -> n > 1 ? n - 1 : null);
+              results.add(
+                  response != null
+                      ? FetchResult.success(uri, response)
+                      : FetchResult.failure(uri, e));
+            }
+            drain();
+          });
+    }
+  }
+
+  private static String hostKey(final URI uri) {
+    return uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+  }
+}
@@ -0,0 +1,80 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Options for a bulk fetch.
+ *
+ * @see GeminiClient#fetchAll(java.util.concurrent.Flow.Publisher, GeminiResponse.BodyHandler,
+ *     BulkFetchOptions)
+ */
+@AutoValue
+public abstract class BulkFetchOptions {
+  private static final BulkFetchOptions DEFAULTS = newBuilder().build();
+
+  BulkFetchOptions() {}
+
+  /**
+   * Returns the default options, allowing 64 requests in flight at once and 4 to any single host.
+   *
+   * @return the default options
+   */
+  public static BulkFetchOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * Returns a new {@link BulkFetchOptions.Builder}, initialized with the default options.
+   *
+   * @return a new {@link BulkFetchOptions.Builder}
+   */
+  public static Builder newBuilder() {
+    return new AutoValue_BulkFetchOptions.Builder()
+        .maxParallelism(64)
+        .maxParallelismPerHost(4)
+        .requestOptions(RequestOptions.defaults());
+  }
+
+  /** The maximum number of requests in flight at once. */
+  public abstract int maxParallelism();
+
+  /** The maximum number of requests to a single host in flight at once. */
+  public abstract int maxParallelismPerHost();
+
+  /** The options for each request. */
+  public abstract RequestOptions requestOptions();
+
+  /**
+   * Returns a new {@link BulkFetchOptions.Builder} initialized with these options.
+   *
+   * @return a new {@link BulkFetchOptions.Builder} initialized with these options
+   */
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    Builder() {}
+
+    public abstract Builder maxParallelism(int maxParallelism);
+
+    public abstract Builder maxParallelismPerHost(int maxParallelismPerHost);
+
+    public abstract Builder requestOptions(RequestOptions requestOptions);
+
+    abstract BulkFetchOptions autoBuild();
+
+    /**
+     * Builds a new {@link BulkFetchOptions} using the options set on this {@link Builder}.
+     *
+     * @return a new {@link BulkFetchOptions}
+     * @throws IllegalArgumentException if either parallelism is not positive
+     */
+    public BulkFetchOptions build() {
+      final var options = autoBuild();
+      if (options.maxParallelism() < 1 || options.maxParallelismPerHost() < 1) {
+        throw new IllegalArgumentException("Parallelism must be positive");
+      }
+      return options;
+    }
+  }
+}
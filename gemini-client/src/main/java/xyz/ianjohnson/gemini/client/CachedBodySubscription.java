@@ -0,0 +1,41 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+/** A subscription which delivers a body which is already fully available, such as a cached one. */
+final class CachedBodySubscription implements Subscription {
+  private final Subscriber<? super List<ByteBuffer>> subscriber;
+  private final ByteBuffer body;
+  private boolean done;
+
+  CachedBodySubscription(
+      final Subscriber<? super List<ByteBuffer>> subscriber, final ByteBuffer body) {
+    this.subscriber = subscriber;
+    this.body = body;
+  }
+
+  @Override
+  public synchronized void request(final long n) {
+    if (done) {
+      return;
+    }
+    done = true;
+    if (n <= 0) {
+      subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+      return;
+    }
+    if (body.hasRemaining()) {
+      // The body is shared by every subscriber to it, so none of them may modify it
+      subscriber.onNext(List.of(body.asReadOnlyBuffer()));
+    }
+    subscriber.onComplete();
+  }
+
+  @Override
+  public synchronized void cancel() {
+    done = true;
+  }
+}
@@ -0,0 +1,40 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * A successful response stored in a {@link ResponseCache}.
+ *
+ * @see ResponseCache
+ */
+@AutoValue
+public abstract class CachedResponse {
+  CachedResponse() {}
+
+  /**
+   * Returns a new {@link CachedResponse}.
+   *
+   * @param uri the URI of the request which received the response
+   * @param meta the meta of the response, which is its MIME type
+   * @param body the response body. Its contents between its position and limit are the body; it is
+   *     not modified.
+   * @return a new {@link CachedResponse}
+   */
+  public static CachedResponse of(final URI uri, final String meta, final ByteBuffer body) {
+    return new AutoValue_CachedResponse(uri, meta, body.asReadOnlyBuffer());
+  }
+
+  /** The URI of the request which received the response. */
+  public abstract URI uri();
+
+  /** The meta of the response, which is its MIME type. */
+  public abstract String meta();
+
+  /**
+   * The response body, as a read-only buffer. Callers reading the body should use a {@link
+   * ByteBuffer#duplicate() duplicate} of this buffer, so that it can be read more than once.
+   */
+  public abstract ByteBuffer body();
+}
@@ -0,0 +1,94 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
+
+/**
+ * A {@link BodySubscriber} which passes the body through to another subscriber while keeping a
+ * copy, and offers the complete body to a {@link ResponseCache} once it has been fully received.
+ * Bodies larger than the maximum size are passed through without being cached.
+ */
+final class CachingBodySubscriber<T> implements BodySubscriber<T> {
+  private final BodySubscriber<T> subscriber;
+  private final ResponseCache cache;
+  private final URI uri;
+  private final String meta;
+  private final int maxBytes;
+  private ByteBuffer copy = ByteBuffer.allocate(1024);
+  private boolean overflowed;
+
+  CachingBodySubscriber(
+      final BodySubscriber<T> subscriber,
+      final ResponseCache cache,
+      final URI uri,
+      final String meta,
+      final int maxBytes) {
+    this.subscriber = subscriber;
+    this.cache = cache;
+    this.uri = uri;
+    this.meta = meta;
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public CompletionStage<T> getBody() {
+    return subscriber.getBody();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    subscriber.onSubscribe(subscription);
+  }
+
+  @Override
+  public void onNext(final List<ByteBuffer> item) {
+    if (!overflowed) {
+      for (final var buffer : item) {
+        append(buffer.duplicate());
+      }
+    }
+    subscriber.onNext(item);
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    copy = null;
+    subscriber.onError(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    if (!overflowed) {
+      copy.flip();
+      // The copy may have grown to twice the size of the body, which would otherwise be kept alive
+      // by the cache without being counted against its limits
+      final var body =
+          copy.remaining() == copy.capacity()
+              ? copy
+              : ByteBuffer.allocate(copy.remaining()).put(copy).flip();
+      cache.put(CachedResponse.of(uri, meta, body));
+    }
+    copy = null;
+    subscriber.onComplete();
+  }
+
+  private void append(final ByteBuffer buffer) {
+    if (buffer.remaining() > copy.remaining()) {
+      final var required = (long) copy.position() + buffer.remaining();
+      if (required > maxBytes) {
+        overflowed = true;
+        copy = null;
+        return;
+      }
+      final var grown =
+          ByteBuffer.allocate((int) Math.min(maxBytes, Math.max(required, 2L * copy.capacity())));
+      grown.put(copy.flip());
+      copy = grown;
+    }
+    copy.put(buffer);
+  }
+}
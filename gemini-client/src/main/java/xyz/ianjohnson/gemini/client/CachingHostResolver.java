@@ -0,0 +1,107 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link HostResolver} which caches the results of another resolver.
+ *
+ * <p>Addresses are cached for the positive TTL of the cache, and hosts which do not exist (whose
+ * lookup fails with an {@link UnknownHostException}) for its negative TTL. Other failures, which
+ * may be transient, are not cached. Concurrent lookups of the same host share a single lookup by
+ * the underlying resolver. The cache holds a bounded number of hosts, evicting the least recently
+ * used one when it is full.
+ */
+final class CachingHostResolver implements HostResolver {
+  private static final int MAX_ENTRIES = 1024;
+
+  private final HostResolver resolver;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final LongSupplier nanoTime;
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  CachingHostResolver(final HostResolver resolver, final Duration ttl, final Duration negativeTtl) {
+    this(resolver, ttl, negativeTtl, System::nanoTime);
+  }
+
+  CachingHostResolver(
+      final HostResolver resolver,
+      final Duration ttl,
+      final Duration negativeTtl,
+      final LongSupplier nanoTime) {
+    this.resolver = resolver;
+    ttlNanos = ttl.toNanos();
+    negativeTtlNanos = negativeTtl.toNanos();
+    this.nanoTime = nanoTime;
+  }
+
+  @Override
+  public CompletableFuture<List<InetAddress>> resolve(final String host) {
+    final var key = host.toLowerCase(Locale.ROOT);
+    final Entry entry;
+    synchronized (this) {
+      final var existing = entries.get(key);
+      if (existing != null && (!existing.done || nanoTime.getAsLong() - existing.expiresAt < 0)) {
+        // Callers must not be able to complete the shared future
+        return existing.future.copy();
+      }
+      entry = new Entry();
+      entries.put(key, entry);
+    }
+
+    CompletableFuture<List<InetAddress>> lookup;
+    try {
+      lookup = resolver.resolve(host);
+    } catch (final RuntimeException e) {
+      lookup = CompletableFuture.failedFuture(e);
+    }
+    lookup.whenComplete(
+        (addresses, e) -> {
+          final var cause = e instanceof CompletionException ? e.getCause() : e;
+          if (cause == null && addresses.isEmpty()) {
+            completed(key, entry, negativeTtlNanos);
+            entry.future.completeExceptionally(new UnknownHostException(host));
+          } else if (cause == null) {
+            completed(key, entry, ttlNanos);
+            entry.future.complete(List.copyOf(addresses));
+          } else {
+            completed(key, entry, cause instanceof UnknownHostException ? negativeTtlNanos : 0);
+            entry.future.completeExceptionally(cause);
+          }
+        });
+    return entry.future.copy();
+  }
+
+  private synchronized void completed(final String key, final Entry entry, final long ttlNanos) {
+    if (entries.get(key) != entry) {
+      return;
+    }
+    if (ttlNanos > 0) {
+      entry.done = true;
+      entry.expiresAt = nanoTime.getAsLong() + ttlNanos;
+    } else {
+      entries.remove(key);
+    }
+  }
+
+  private static final class Entry {
+    private final CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+    private boolean done;
+    private long expiresAt;
+  }
+}
@@ -0,0 +1,217 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.SslHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * The JDK Flight Recorder events emitted by the client. Each event spans the phase it describes, so
+ * that its duration can be lined up against other events in the recording, such as garbage
+ * collections and lock contention.
+ *
+ * <p>An event is only allocated, begun and populated after checking that its type is enabled, so
+ * that a disabled event costs no more than the check. Events which span several callbacks are held
+ * by the state of the request or connection they describe.
+ */
+final class ClientEvents {
+  private static final String CATEGORY = "Gemini";
+  private static final String SUBCATEGORY = "Client";
+  private static final String PREFIX = "xyz.ianjohnson.gemini.client.";
+
+  static final EventType CONNECTION_OPENED = EventType.getEventType(ConnectionOpened.class);
+  static final EventType TLS_HANDSHAKE = EventType.getEventType(TlsHandshake.class);
+  static final EventType RESPONSE_HEADER_RECEIVED =
+      EventType.getEventType(ResponseHeaderReceived.class);
+  static final EventType BODY_COMPLETED = EventType.getEventType(BodyCompleted.class);
+  static final EventType TRUST_DECISION = EventType.getEventType(TrustDecision.class);
+
+  private ClientEvents() {}
+
+  /**
+   * Creates and begins an event of the given type if it is enabled.
+   *
+   * @param type the type of the event
+   * @param factory creates the event, which is only called if the type is enabled
+   * @return the event, or {@code null} if it is not enabled
+   */
+  static <E extends Event> @Nullable E begin(final EventType type, final Supplier<E> factory) {
+    if (!type.isEnabled()) {
+      return null;
+    }
+    final var event = factory.get();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Emits a {@link ConnectionOpened} event spanning from now until the given future of a connection
+   * completes.
+   */
+  static void connectionOpened(
+      final String host, final int port, final CompletableFuture<Channel> future) {
+    if (!CONNECTION_OPENED.isEnabled()) {
+      return;
+    }
+    final var event = new ConnectionOpened();
+    event.begin();
+    future.whenComplete(
+        (channel, e) -> {
+          event.end();
+          if (event.shouldCommit()) {
+            event.host = host;
+            event.port = port;
+            if (channel != null) {
+              event.remoteAddress = String.valueOf(channel.remoteAddress());
+            } else {
+              event.failure = String.valueOf(e);
+            }
+            event.commit();
+          }
+        });
+  }
+
+  /**
+   * Emits a {@link TlsHandshake} event spanning from now until the handshake of the given handler
+   * completes.
+   */
+  static void tlsHandshake(final SslHandler sslHandler, final String host, final int port) {
+    if (!TLS_HANDSHAKE.isEnabled()) {
+      return;
+    }
+    final var event = new TlsHandshake();
+    final var startedAtMillis = System.currentTimeMillis();
+    event.begin();
+    sslHandler
+        .handshakeFuture()
+        .addListener(
+            f -> {
+              event.end();
+              if (event.shouldCommit()) {
+                event.host = host;
+                event.port = port;
+                if (f.isSuccess()) {
+                  final var session = sslHandler.engine().getSession();
+                  event.protocol = session.getProtocol();
+                  event.cipherSuite = session.getCipherSuite();
+                  event.sessionResumed = session.getCreationTime() < startedAtMillis;
+                } else {
+                  event.failure = String.valueOf(f.cause());
+                }
+                event.commit();
+              }
+            });
+  }
+
+  @Name(PREFIX + "ConnectionOpened")
+  @Label("Connection Opened")
+  @Description("Resolution of a host and connection to one of its addresses")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class ConnectionOpened extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Port")
+    int port;
+
+    @Label("Remote Address")
+    String remoteAddress;
+
+    @Label("Failure")
+    String failure;
+  }
+
+  @Name(PREFIX + "TlsHandshake")
+  @Label("TLS Handshake")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class TlsHandshake extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Port")
+    int port;
+
+    @Label("Protocol")
+    String protocol;
+
+    @Label("Cipher Suite")
+    String cipherSuite;
+
+    @Label("Session Resumed")
+    boolean sessionResumed;
+
+    @Label("Failure")
+    String failure;
+  }
+
+  @Name(PREFIX + "ResponseHeaderReceived")
+  @Label("Response Header Received")
+  @Description("A request, from when it is sent until its response header is decoded")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class ResponseHeaderReceived extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Meta")
+    String meta;
+
+    @Label("Redirects")
+    int redirects;
+  }
+
+  @Name(PREFIX + "BodyCompleted")
+  @Label("Body Completed")
+  @Description("A response body, from the end of its header until the connection is closed")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class BodyCompleted extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes Received")
+    @DataAmount
+    long bytes;
+  }
+
+  @Name(PREFIX + "TrustDecision")
+  @Label("Trust Decision")
+  @Description("A decision by TofuClientTrustManager whether to trust the certificate of a host")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class TrustDecision extends Event {
+    /** The certificate matched the one cached in memory for the host. */
+    static final String CACHED = "cached";
+    /** The certificate matched the one stored in the certificate manager for the host. */
+    static final String KNOWN = "known";
+    /** The certificate was trusted on first use, or replaced an expired certificate. */
+    static final String NEW = "new";
+    /** The certificate did not match the valid certificate known for the host. */
+    static final String CHANGED = "changed";
+    /** The certificate was rejected for any other reason, such as being expired. */
+    static final String REJECTED = "rejected";
+
+    @Label("Host")
+    String host;
+
+    @Label("Fingerprint")
+    String fingerprint;
+
+    @Label("Decision")
+    String decision;
+  }
+}
@@ -0,0 +1,99 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A {@link RequestListener} which aggregates metrics about the requests made by a client: a
+ * histogram of the time to the response header for each host, and the number of failed requests by
+ * type of failure.
+ *
+ * <p>Only responses received from the network, which have {@link GeminiResponse#timings() timings},
+ * are counted in the histograms. Histograms are kept for a bounded number of hosts, evicting the
+ * least recently used host when there are too many.
+ */
+public final class ClientMetrics implements RequestListener {
+  private static final int MAX_HOSTS = 1024;
+
+  private final LinkedHashMap<String, Histogram> timeToHeaderByHost =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Histogram> eldest) {
+          return size() > MAX_HOSTS;
+        }
+      };
+  private final Map<String, Long> failuresByType = new HashMap<>();
+
+  @Override
+  public void onResponse(final GeminiResponse<?> response) {
+    final var timings = response.timings();
+    final var host = response.uri().getHost();
+    if (timings.isEmpty() || host == null) {
+      return;
+    }
+    final var nanos = timings.get().timeToHeader().toNanos();
+    synchronized (this) {
+      timeToHeaderByHost
+          .computeIfAbsent(host.toLowerCase(Locale.ROOT), h -> new Histogram())
+          .record(nanos);
+    }
+  }
+
+  @Override
+  public void onFailure(final URI uri, final Throwable failure) {
+    final var cause =
+        failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause()
+            : failure;
+    final var type =
+        cause instanceof CancellationException
+            ? CancellationException.class.getName()
+            : cause.getClass().getName();
+    synchronized (this) {
+      failuresByType.merge(type, 1L, Long::sum);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the histogram of the time to the response header for each host.
+   *
+   * @return the histogram of the time to the response header for each host, keyed by lowercase host
+   *     name
+   */
+  public synchronized Map<String, LatencyHistogram> timeToHeaderByHost() {
+    final var snapshot = new HashMap<String, LatencyHistogram>();
+    timeToHeaderByHost.forEach((host, histogram) -> snapshot.put(host, histogram.snapshot()));
+    return Map.copyOf(snapshot);
+  }
+
+  /**
+   * Returns the number of failed requests by type of failure.
+   *
+   * @return the number of failed requests, keyed by the class name of the exception with which they
+   *     failed
+   */
+  public synchronized Map<String, Long> failuresByType() {
+    return Map.copyOf(failuresByType);
+  }
+
+  private static final class Histogram {
+    private final long[] counts = new long[LatencyHistogram.BUCKETS];
+    private long totalNanos;
+    private long maxNanos;
+
+    private void record(final long nanos) {
+      counts[LatencyHistogram.bucket(nanos)]++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    private LatencyHistogram snapshot() {
+      return new LatencyHistogram(counts, totalNanos, maxNanos);
+    }
+  }
+}
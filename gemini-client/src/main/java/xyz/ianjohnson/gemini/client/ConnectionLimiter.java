@@ -0,0 +1,398 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * Limits the number of connections open at once, both in total and to each host.
+ *
+ * <p>A connection may only be opened once a {@link Permit} has been acquired for its host, and the
+ * permit must be released once the connection is closed. Requests for permits which cannot be
+ * granted immediately wait in a queue for their host, ordered by {@link RequestPriority priority}
+ * and then by arrival. When a connection is closed, the next permit is granted to the waiting
+ * request with the highest priority among hosts which are below their own limit. Hosts whose next
+ * requests have the same priority take turns in round-robin order, so that a large backlog of
+ * requests to one host does not starve requests to other hosts.
+ *
+ * <p>A waiting request is treated as one priority level higher for each aging interval it has
+ * waited, up to the highest priority, so that low priority requests are not starved by a steady
+ * stream of higher priority requests.
+ *
+ * <p>Hosts which are ready to be granted a permit are kept ordered by the effective priority of
+ * their next request and then by when they became ready, and waiting requests are kept in queues
+ * ordered by when they will next age, so that granting a permit does not need to look at every
+ * ready host.
+ */
+final class ConnectionLimiter {
+  private final int maxConnections;
+  private final int maxConnectionsPerHost;
+  private final int maxQueuedPerHost;
+  private final long agingNanos;
+  private final LongSupplier nanoTime;
+
+  private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+  private final Map<String, Host> hosts = new HashMap<>();
+  /** The hosts which are below their limit and have waiting requests, in order of service. */
+  private final TreeSet<Host> readyHosts =
+      new TreeSet<>(
+          Comparator.comparingInt((Host host) -> -host.level)
+              .thenComparingLong(host -> host.readySequence));
+  /**
+   * For each base priority and each higher priority, the requests of the base priority waiting to
+   * age to the higher priority, in order of arrival.
+   */
+  private final List<ArrayDeque<Waiter>> aging = new ArrayList<>();
+
+  private long nextReadySequence;
+  private int activeConnections;
+  private int queuedRequests;
+  private long waitedRequests;
+  private long rejectedRequests;
+  private long totalWaitNanos;
+  private long maxWaitNanos;
+  private final long[] waitedByPriority = new long[PRIORITIES.length];
+  private final long[] totalWaitNanosByPriority = new long[PRIORITIES.length];
+  private final long[] maxWaitNanosByPriority = new long[PRIORITIES.length];
+
+  ConnectionLimiter(
+      final int maxConnections,
+      final int maxConnectionsPerHost,
+      final int maxQueuedPerHost,
+      final Duration agingInterval) {
+    this(maxConnections, maxConnectionsPerHost, maxQueuedPerHost, agingInterval, System::nanoTime);
+  }
+
+  ConnectionLimiter(
+      final int maxConnections,
+      final int maxConnectionsPerHost,
+      final int maxQueuedPerHost,
+      final Duration agingInterval,
+      final LongSupplier nanoTime) {
+    this.maxConnections = maxConnections;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.maxQueuedPerHost = maxQueuedPerHost;
+    agingNanos = agingInterval.toNanos();
+    this.nanoTime = nanoTime;
+    for (var i = 0; i < PRIORITIES.length * PRIORITIES.length; i++) {
+      aging.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * Requests a permit to open a connection to the given host for a request of {@link
+   * RequestPriority#NORMAL normal} priority.
+   *
+   * @param host the host to which a connection is to be opened
+   * @return a future which completes with the permit when it is granted
+   * @see #acquire(String, RequestPriority)
+   */
+  CompletableFuture<Permit> acquire(final String host) {
+    return acquire(host, RequestPriority.NORMAL);
+  }
+
+  /**
+   * Requests a permit to open a connection to the given host. The returned future completes once
+   * the permit is granted, or completes exceptionally with a {@link RequestQueueFullException} if
+   * the host already has the maximum number of queued requests. Cancelling the returned future
+   * removes the request from the queue.
+   *
+   * @param host the host to which a connection is to be opened
+   * @param priority the priority of the request while it waits
+   * @return a future which completes with the permit when it is granted
+   */
+  CompletableFuture<Permit> acquire(final String host, final RequestPriority priority) {
+    final Waiter waiter;
+    synchronized (this) {
+      final var state = hosts.computeIfAbsent(host, Host::new);
+      if (state.queued == 0
+          && state.active < maxConnectionsPerHost
+          && activeConnections < maxConnections) {
+        state.active++;
+        activeConnections++;
+        return CompletableFuture.completedFuture(new Permit(state));
+      }
+      if (state.queued >= maxQueuedPerHost) {
+        rejectedRequests++;
+        removeIfIdle(state);
+        return CompletableFuture.failedFuture(new RequestQueueFullException(host));
+      }
+      final var now = nanoTime.getAsLong();
+      waiter = new Waiter(state, priority, now);
+      state.add(waiter);
+      queuedRequests++;
+      if (priority.ordinal() < PRIORITIES.length - 1) {
+        agingQueue(priority.ordinal(), priority.ordinal() + 1).add(waiter);
+      }
+      if (state.ready) {
+        raise(state, waiter.effectivePriority(now));
+      } else {
+        markReadyIfEligible(state, now);
+      }
+    }
+    waiter.future.whenComplete(
+        (permit, e) -> {
+          if (waiter.future.isCancelled()) {
+            cancel(waiter);
+          }
+        });
+    return waiter.future;
+  }
+
+  /**
+   * Returns statistics about the connections and queued requests of this limiter.
+   *
+   * @return statistics about the connections and queued requests of this limiter
+   */
+  synchronized ConnectionStatistics statistics() {
+    return ConnectionStatistics.newBuilder()
+        .activeConnections(activeConnections)
+        .queuedRequests(queuedRequests)
+        .waitedRequests(waitedRequests)
+        .rejectedRequests(rejectedRequests)
+        .totalQueueWait(Duration.ofNanos(totalWaitNanos))
+        .maxQueueWait(Duration.ofNanos(maxWaitNanos))
+        .waitedRequestsByPriority(byPriority(i -> waitedByPriority[i]))
+        .totalQueueWaitByPriority(byPriority(i -> Duration.ofNanos(totalWaitNanosByPriority[i])))
+        .maxQueueWaitByPriority(byPriority(i -> Duration.ofNanos(maxWaitNanosByPriority[i])))
+        .build();
+  }
+
+  private static <T> Map<RequestPriority, T> byPriority(final IntFunction<T> value) {
+    final var map = new EnumMap<RequestPriority, T>(RequestPriority.class);
+    for (final var priority : PRIORITIES) {
+      map.put(priority, value.apply(priority.ordinal()));
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private void release(final Host host) {
+    final List<Waiter> granted;
+    synchronized (this) {
+      host.active--;
+      activeConnections--;
+      markReadyIfEligible(host, nanoTime.getAsLong());
+      granted = dispatch();
+      removeIfIdle(host);
+    }
+    complete(granted);
+  }
+
+  private void cancel(final Waiter waiter) {
+    synchronized (this) {
+      final var host = waiter.host;
+      if (host.remove(waiter)) {
+        waiter.done = true;
+        queuedRequests--;
+        if (host.queued == 0 && host.ready) {
+          readyHosts.remove(host);
+          host.ready = false;
+        }
+        removeIfIdle(host);
+      }
+    }
+  }
+
+  /** Grants permits to waiting requests while connections are available. */
+  private List<Waiter> dispatch() {
+    final var granted = new ArrayList<Waiter>();
+    final var now = nanoTime.getAsLong();
+    promoteAged(now);
+    while (activeConnections < maxConnections && !readyHosts.isEmpty()) {
+      final var host = readyHosts.pollFirst();
+      host.ready = false;
+      final var waiter = host.next(now);
+      final var level = waiter.effectivePriority(now);
+      if (level < host.level) {
+        // The request which gave the host its place has been cancelled
+        host.level = level;
+        host.ready = true;
+        readyHosts.add(host);
+        continue;
+      }
+      host.remove(waiter);
+      waiter.done = true;
+      queuedRequests--;
+      host.active++;
+      activeConnections++;
+      final var waitNanos = now - waiter.enqueuedAt;
+      final var priority = waiter.priority.ordinal();
+      waitedRequests++;
+      totalWaitNanos += waitNanos;
+      maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+      waitedByPriority[priority]++;
+      totalWaitNanosByPriority[priority] += waitNanos;
+      maxWaitNanosByPriority[priority] = Math.max(maxWaitNanosByPriority[priority], waitNanos);
+      granted.add(waiter);
+      // The host goes to the back of the line for the priority of its next request
+      markReadyIfEligible(host, now);
+    }
+    return granted;
+  }
+
+  /** Raises the ready hosts whose waiting requests have aged to a higher effective priority. */
+  private void promoteAged(final long now) {
+    for (var base = 0; base < PRIORITIES.length - 1; base++) {
+      // Each level is visited after the one below it, so a request can age several levels at once
+      for (var level = base + 1; level < PRIORITIES.length; level++) {
+        final var queue = agingQueue(base, level);
+        Waiter waiter;
+        while ((waiter = queue.peek()) != null && waiter.effectivePriority(now) >= level) {
+          queue.remove();
+          if (waiter.done) {
+            continue;
+          }
+          raise(waiter.host, level);
+          if (level < PRIORITIES.length - 1) {
+            agingQueue(base, level + 1).add(waiter);
+          }
+        }
+      }
+    }
+  }
+
+  private ArrayDeque<Waiter> agingQueue(final int base, final int level) {
+    return aging.get(base * PRIORITIES.length + level);
+  }
+
+  /**
+   * Compares the effective priorities of two waiting requests, where a request which has waited
+   * longer wins a tie.
+   */
+  private int compare(final Waiter a, final Waiter b, final long now) {
+    final var byPriority = Integer.compare(a.effectivePriority(now), b.effectivePriority(now));
+    return byPriority != 0 ? byPriority : Long.compare(b.enqueuedAt - now, a.enqueuedAt - now);
+  }
+
+  private void markReadyIfEligible(final Host host, final long now) {
+    if (!host.ready && host.queued > 0 && host.active < maxConnectionsPerHost) {
+      host.ready = true;
+      host.level = host.next(now).effectivePriority(now);
+      host.readySequence = nextReadySequence++;
+      readyHosts.add(host);
+    }
+  }
+
+  /** Raises a ready host to the given level, keeping its place among hosts of that level. */
+  private void raise(final Host host, final int level) {
+    if (host.ready && level > host.level) {
+      readyHosts.remove(host);
+      host.level = level;
+      readyHosts.add(host);
+    }
+  }
+
+  private void removeIfIdle(final Host host) {
+    if (host.active == 0 && host.queued == 0 && !host.ready) {
+      hosts.remove(host.name);
+    }
+  }
+
+  /** Completes the futures of the given waiters. Must not be called while holding the lock. */
+  private void complete(final List<Waiter> granted) {
+    for (final var waiter : granted) {
+      final var permit = new Permit(waiter.host);
+      if (!waiter.future.complete(permit)) {
+        // The request was cancelled concurrently with being granted a permit
+        permit.release();
+      }
+    }
+  }
+
+  /** A permit to keep a single connection open. Releasing a permit more than once has no effect. */
+  final class Permit {
+    private final Host host;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(final Host host) {
+      this.host = host;
+    }
+
+    /** Releases this permit, allowing another connection to be opened. */
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        ConnectionLimiter.this.release(host);
+      }
+    }
+  }
+
+  private final class Host {
+    private final String name;
+    /** The waiting requests of each priority, in order of arrival. */
+    private final List<ArrayDeque<Waiter>> queues = new ArrayList<>(PRIORITIES.length);
+
+    private int queued;
+    private int active;
+    private boolean ready;
+    /** The effective priority of the next request of this host, while it is ready. */
+    private int level;
+    /** When this host last became ready, which orders hosts of the same level. */
+    private long readySequence;
+
+    private Host(final String name) {
+      this.name = name;
+      for (final var priority : PRIORITIES) {
+        queues.add(new ArrayDeque<>());
+      }
+    }
+
+    private void add(final Waiter waiter) {
+      queues.get(waiter.priority.ordinal()).add(waiter);
+      queued++;
+    }
+
+    private boolean remove(final Waiter waiter) {
+      if (queues.get(waiter.priority.ordinal()).remove(waiter)) {
+        queued--;
+        return true;
+      }
+      return false;
+    }
+
+    /** Returns the waiting request which should be granted the next permit for this host. */
+    private @Nullable Waiter next(final long now) {
+      Waiter next = null;
+      for (final var queue : queues) {
+        final var first = queue.peek();
+        if (first != null && (next == null || compare(first, next, now) > 0)) {
+          next = first;
+        }
+      }
+      return next;
+    }
+  }
+
+  private final class Waiter {
+    private final Host host;
+    private final RequestPriority priority;
+    private final long enqueuedAt;
+    private final CompletableFuture<Permit> future = new CompletableFuture<>();
+    /** Whether this request has been granted a permit or cancelled. */
+    private boolean done;
+
+    private Waiter(final Host host, final RequestPriority priority, final long enqueuedAt) {
+      this.host = host;
+      this.priority = priority;
+      this.enqueuedAt = enqueuedAt;
+    }
+
+    /** Returns the priority of this request, raised by one level for each aging interval waited. */
+    private int effectivePriority(final long now) {
+      final var aged = priority.ordinal() + (now - enqueuedAt) / agingNanos;
+      return (int) Math.min(aged, PRIORITIES.length - 1);
+    }
+  }
+}
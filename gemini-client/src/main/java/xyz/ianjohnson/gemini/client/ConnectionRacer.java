@@ -0,0 +1,205 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * Connects to a host with several addresses by racing connection attempts, in the manner of "Happy
+ * Eyeballs" (RFC 8305), so that a host with a broken address in one family (typically a broken IPv6
+ * address) does not hold up its connections until the connect timeout expires.
+ *
+ * <p>The addresses of the host are tried in turn, alternating between the IPv6 and IPv4 families,
+ * starting with the preferred family. Each attempt is given a head start of the attempt delay
+ * before the next one is started, unless it fails sooner. The first attempt to succeed wins, and
+ * all others are cancelled.
+ *
+ * <p>The preferred family of a host is the family of the address which won the last race to it, or,
+ * if there has not been one, the family of the first address returned by the resolver. A bounded
+ * number of hosts is remembered, evicting the least recently used one when it is full.
+ */
+final class ConnectionRacer {
+  private static final int MAX_PREFERENCES = 1024;
+
+  private final EventExecutorGroup executor;
+  private final Duration attemptDelay;
+  private final LinkedHashMap<String, Boolean> prefersIpv6 =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+          return size() > MAX_PREFERENCES;
+        }
+      };
+
+  /**
+   * @param executor the executor used to schedule the start of staggered attempts
+   * @param attemptDelay the head start given to each attempt before the next one is started
+   */
+  ConnectionRacer(final EventExecutorGroup executor, final Duration attemptDelay) {
+    this.executor = executor;
+    this.attemptDelay = attemptDelay;
+  }
+
+  /**
+   * Connects to one of the given addresses of a host. Cancelling the returned future cancels any
+   * attempts still in progress.
+   *
+   * @param host the key of the host, under which its preferred family is remembered
+   * @param addresses the addresses of the host, in the order returned by the resolver
+   * @param port the port to connect to
+   * @param connector the function which starts a connection attempt to an address
+   * @return a future which completes with the connected channel of the winning attempt, or
+   *     exceptionally with the failure of the last attempt if every attempt fails
+   */
+  CompletableFuture<Channel> connect(
+      final String host,
+      final List<InetAddress> addresses,
+      final int port,
+      final Function<SocketAddress, ChannelFuture> connector) {
+    final Boolean preference;
+    synchronized (this) {
+      preference = prefersIpv6.get(host);
+    }
+    final var race =
+        new Race(
+            host,
+            order(addresses, preference != null ? preference : isIpv6(addresses.get(0))),
+            port,
+            connector);
+    race.start();
+    return race.result;
+  }
+
+  /**
+   * Orders the given addresses for a race, alternating between families and starting with the
+   * preferred family, while keeping the order of the resolver within each family.
+   */
+  static List<InetAddress> order(final List<InetAddress> addresses, final boolean preferIpv6) {
+    final var preferred = new ArrayDeque<InetAddress>();
+    final var other = new ArrayDeque<InetAddress>();
+    for (final var address : addresses) {
+      (isIpv6(address) == preferIpv6 ? preferred : other).add(address);
+    }
+    final var ordered = new ArrayList<InetAddress>(addresses.size());
+    while (!preferred.isEmpty() || !other.isEmpty()) {
+      if (!preferred.isEmpty()) {
+        ordered.add(preferred.remove());
+      }
+      if (!other.isEmpty()) {
+        ordered.add(other.remove());
+      }
+    }
+    return ordered;
+  }
+
+  private static boolean isIpv6(final InetAddress address) {
+    return address instanceof Inet6Address;
+  }
+
+  private synchronized void remember(final String host, final InetAddress winner) {
+    prefersIpv6.put(host, isIpv6(winner));
+  }
+
+  /** The state of a single race. All state is guarded by the lock of the race. */
+  private final class Race {
+    private final String host;
+    private final ArrayDeque<InetAddress> remaining;
+    private final int port;
+    private final Function<SocketAddress, ChannelFuture> connector;
+    private final List<ChannelFuture> attempts = new ArrayList<>();
+    private final CompletableFuture<Channel> result = new CompletableFuture<>();
+    @Nullable private ScheduledFuture<?> nextAttempt;
+    @Nullable private Throwable lastFailure;
+    private int inProgress;
+
+    private Race(
+        final String host,
+        final List<InetAddress> addresses,
+        final int port,
+        final Function<SocketAddress, ChannelFuture> connector) {
+      this.host = host;
+      remaining = new ArrayDeque<>(addresses);
+      this.port = port;
+      this.connector = connector;
+    }
+
+    private void start() {
+      result.whenComplete(
+          (channel, e) -> {
+            // Losing attempts, or every attempt if the race was cancelled
+            final List<ChannelFuture> losers;
+            synchronized (this) {
+              if (nextAttempt != null) {
+                nextAttempt.cancel(false);
+              }
+              losers = new ArrayList<>(attempts);
+            }
+            for (final var attempt : losers) {
+              if (attempt.channel() != channel) {
+                attempt.cancel(false);
+                attempt.channel().close();
+              }
+            }
+          });
+      startNext();
+    }
+
+    private synchronized void startNext() {
+      nextAttempt = null;
+      final var address = remaining.poll();
+      if (result.isDone() || address == null) {
+        return;
+      }
+      inProgress++;
+      final var attempt = connector.apply(new InetSocketAddress(address, port));
+      attempts.add(attempt);
+      if (!remaining.isEmpty()) {
+        nextAttempt =
+            executor.schedule(this::startNext, attemptDelay.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      attempt.addListener(f -> completed(attempt, address));
+    }
+
+    private void completed(final ChannelFuture attempt, final InetAddress address) {
+      if (attempt.isSuccess()) {
+        if (result.complete(attempt.channel())) {
+          remember(host, address);
+        } else {
+          attempt.channel().close();
+        }
+        return;
+      }
+      synchronized (this) {
+        inProgress--;
+        lastFailure = attempt.cause();
+        if (result.isDone()) {
+          return;
+        }
+        if (!remaining.isEmpty()) {
+          // A failed attempt gives up the rest of its head start
+          if (nextAttempt != null) {
+            nextAttempt.cancel(false);
+          }
+          startNext();
+        } else if (inProgress == 0) {
+          result.completeExceptionally(lastFailure);
+        }
+      }
+    }
+  }
+}
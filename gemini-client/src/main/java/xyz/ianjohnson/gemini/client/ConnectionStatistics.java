@@ -0,0 +1,98 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * A snapshot of statistics about the connections opened by a {@link GeminiClient} and the requests
+ * waiting for a connection to become available.
+ *
+ * @see GeminiClient#connectionStatistics()
+ */
+@AutoValue
+public abstract class ConnectionStatistics {
+  ConnectionStatistics() {}
+
+  static Builder newBuilder() {
+    return new AutoValue_ConnectionStatistics.Builder();
+  }
+
+  /** The number of connections currently open. */
+  public abstract int activeConnections();
+
+  /** The number of requests currently waiting for a connection. */
+  public abstract int queuedRequests();
+
+  /** The total number of requests which have had to wait for a connection. */
+  public abstract long waitedRequests();
+
+  /**
+   * The total number of requests which have been rejected because too many requests were already
+   * waiting for a connection to their host.
+   */
+  public abstract long rejectedRequests();
+
+  /** The total time spent waiting for a connection by all the requests which have had to wait. */
+  public abstract Duration totalQueueWait();
+
+  /** The longest time any request has spent waiting for a connection. */
+  public abstract Duration maxQueueWait();
+
+  /** The total number of requests of each priority which have had to wait for a connection. */
+  public abstract Map<RequestPriority, Long> waitedRequestsByPriority();
+
+  /** The total time spent waiting for a connection by the requests of each priority. */
+  public abstract Map<RequestPriority, Duration> totalQueueWaitByPriority();
+
+  /** The longest time any request of each priority has spent waiting for a connection. */
+  public abstract Map<RequestPriority, Duration> maxQueueWaitByPriority();
+
+  /**
+   * Returns the average time spent waiting for a connection by the requests which have had to wait.
+   *
+   * @return the average time spent waiting for a connection, or zero if no request has had to wait
+   */
+  public Duration averageQueueWait() {
+    return waitedRequests() == 0 ? Duration.ZERO : totalQueueWait().dividedBy(waitedRequests());
+  }
+
+  /**
+   * Returns the average time spent waiting for a connection by the requests of the given priority
+   * which have had to wait.
+   *
+   * @param priority the priority of the requests
+   * @return the average time spent waiting for a connection by requests of the priority, or zero if
+   *     no such request has had to wait
+   */
+  public Duration averageQueueWait(final RequestPriority priority) {
+    final long waited = waitedRequestsByPriority().getOrDefault(priority, 0L);
+    return waited == 0 ? Duration.ZERO : totalQueueWaitByPriority().get(priority).dividedBy(waited);
+  }
+
+  @AutoValue.Builder
+  abstract static class Builder {
+    Builder() {}
+
+    abstract Builder activeConnections(int activeConnections);
+
+    abstract Builder queuedRequests(int queuedRequests);
+
+    abstract Builder waitedRequests(long waitedRequests);
+
+    abstract Builder rejectedRequests(long rejectedRequests);
+
+    abstract Builder totalQueueWait(Duration totalQueueWait);
+
+    abstract Builder maxQueueWait(Duration maxQueueWait);
+
+    abstract Builder waitedRequestsByPriority(Map<RequestPriority, Long> waitedRequestsByPriority);
+
+    abstract Builder totalQueueWaitByPriority(
+        Map<RequestPriority, Duration> totalQueueWaitByPriority);
+
+    abstract Builder maxQueueWaitByPriority(Map<RequestPriority, Duration> maxQueueWaitByPriority);
+
+    abstract ConnectionStatistics build();
+  }
+}
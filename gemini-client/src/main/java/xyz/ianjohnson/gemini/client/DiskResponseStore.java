@@ -0,0 +1,318 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The disk tier of a {@link TieredResponseCache}.
+ *
+ * <p>Response bodies are stored in content-addressed files named after the SHA-256 hash of their
+ * contents, so identical bodies cached for different URIs are stored only once. Each cached URI has
+ * a small metadata file, named after the hash of the URI, recording the meta, body hash and expiry
+ * time of its response; the index of cached URIs is rebuilt from these files when the store is
+ * opened. Bodies are read back by memory-mapping their files, so reading a cached body does not
+ * copy it onto the heap.
+ *
+ * <p>The total size of the stored bodies is bounded, and the least recently used entries are
+ * evicted to stay within the bound. Since this is only a cache, I/O errors while reading or writing
+ * an entry are logged and the entry treated as missing.
+ */
+final class DiskResponseStore {
+  private static final Logger log = LoggerFactory.getLogger(DiskResponseStore.class);
+  private static final String META_SUFFIX = ".meta";
+  private static final String BODY_SUFFIX = ".body";
+
+  private final Path directory;
+  private final long maxBytes;
+  private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  /** The number of entries referring to each stored body, by body hash. */
+  private final Map<String, Integer> bodyReferences = new HashMap<>();
+  /** The total size of the stored bodies. */
+  private long bytes;
+
+  private DiskResponseStore(final Path directory, final long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Opens the store in the given directory, creating the directory if it does not exist. Expired
+   * and unreadable entries, and bodies which are not referred to by any entry, are deleted.
+   *
+   * @param directory the directory in which to store responses
+   * @param maxBytes the maximum total size of the stored bodies
+   * @param now the current time, for discarding expired entries
+   * @return the opened store
+   * @throws IOException if the directory cannot be created or listed
+   */
+  static DiskResponseStore open(final Path directory, final long maxBytes, final Instant now)
+      throws IOException {
+    Files.createDirectories(directory);
+    final var store = new DiskResponseStore(directory, maxBytes);
+    try (final var files = Files.newDirectoryStream(directory, "*" + META_SUFFIX)) {
+      for (final var file : files) {
+        store.load(file, now);
+      }
+    }
+    try (final var files = Files.newDirectoryStream(directory, "*" + BODY_SUFFIX)) {
+      for (final var file : files) {
+        final var name = file.getFileName().toString();
+        if (!store.bodyReferences.containsKey(
+            name.substring(0, name.length() - BODY_SUFFIX.length()))) {
+          deleteQuietly(file);
+        }
+      }
+    }
+    synchronized (store) {
+      store.evict();
+    }
+    return store;
+  }
+
+  private void load(final Path metaFile, final Instant now) {
+    final var properties = new Properties();
+    try (final Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+      final var uri = new URI(properties.getProperty("uri"));
+      final var bodyHash = properties.getProperty("body");
+      final var size = Long.parseLong(properties.getProperty("size"));
+      final var expiresAt = Instant.ofEpochMilli(Long.parseLong(properties.getProperty("expires")));
+      final var meta = properties.getProperty("meta");
+      if (meta == null
+          || bodyHash == null
+          || !expiresAt.isAfter(now)
+          || Files.size(bodyFile(bodyHash)) != size) {
+        deleteQuietly(metaFile);
+        return;
+      }
+      entries.put(uri, new Entry(meta, bodyHash, size, expiresAt));
+      reference(bodyHash, size);
+    } catch (final IOException | URISyntaxException | RuntimeException e) {
+      log.debug("Discarding unreadable cache entry {}", metaFile, e);
+      deleteQuietly(metaFile);
+    }
+  }
+
+  /**
+   * Returns the response stored for the given URI, if there is one which has not expired.
+   *
+   * @param uri the URI
+   * @param now the current time
+   * @return the response stored for the URI, whose body is memory-mapped
+   */
+  synchronized Optional<CachedResponse> get(final URI uri, final Instant now) {
+    final var entry = entries.get(uri);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    if (!entry.expiresAt.isAfter(now)) {
+      remove(uri);
+      return Optional.empty();
+    }
+    if (entry.body == null) {
+      try (final var channel =
+          FileChannel.open(bodyFile(entry.bodyHash), StandardOpenOption.READ)) {
+        entry.body =
+            entry.size == 0
+                ? ByteBuffer.allocate(0)
+                : channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.size);
+      } catch (final IOException e) {
+        log.warn("Failed to read cached response for {}", uri, e);
+        remove(uri);
+        return Optional.empty();
+      }
+    }
+    return Optional.of(CachedResponse.of(uri, entry.meta, entry.body));
+  }
+
+  /**
+   * Stores a response, replacing any response already stored for its URI.
+   *
+   * @param response the response to store
+   * @param expiresAt the time after which the response may no longer be used
+   */
+  synchronized void put(final CachedResponse response, final Instant expiresAt) {
+    final var uri = response.uri();
+    final var body = response.body().duplicate();
+    final var size = body.remaining();
+    if (size > maxBytes) {
+      remove(uri);
+      return;
+    }
+    final var bodyHash = hash(body.duplicate());
+    try {
+      final var bodyFile = bodyFile(bodyHash);
+      if (!bodyReferences.containsKey(bodyHash)) {
+        writeAtomically(bodyFile, body);
+      }
+      final var properties = new Properties();
+      properties.setProperty("uri", uri.toString());
+      properties.setProperty("meta", response.meta());
+      properties.setProperty("body", bodyHash);
+      properties.setProperty("size", Long.toString(size));
+      properties.setProperty("expires", Long.toString(expiresAt.toEpochMilli()));
+      final var metaFile = metaFile(uri);
+      final var temporary = temporaryFile(metaFile);
+      try (final Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        properties.store(writer, null);
+      }
+      Files.move(
+          temporary, metaFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final IOException e) {
+      log.warn("Failed to store cached response for {}", uri, e);
+      return;
+    }
+    final var previous = entries.put(uri, new Entry(response.meta(), bodyHash, size, expiresAt));
+    reference(bodyHash, size);
+    if (previous != null) {
+      dereference(previous.bodyHash, previous.size);
+    }
+    evict();
+  }
+
+  /**
+   * Returns whether a response is stored for the given URI, without affecting its recency.
+   *
+   * @param uri the URI
+   * @return whether a response is stored for the URI
+   */
+  synchronized boolean contains(final URI uri) {
+    return entries.containsKey(uri);
+  }
+
+  /**
+   * Removes the response stored for the given URI, if any.
+   *
+   * @param uri the URI
+   */
+  synchronized void remove(final URI uri) {
+    final var entry = entries.remove(uri);
+    if (entry != null) {
+      deleteQuietly(metaFile(uri));
+      dereference(entry.bodyHash, entry.size);
+    }
+  }
+
+  /**
+   * Returns the total size of the stored bodies.
+   *
+   * @return the total size of the stored bodies
+   */
+  synchronized long bytes() {
+    return bytes;
+  }
+
+  private void evict() {
+    final var iterator = entries.entrySet().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      final var eldest = iterator.next();
+      iterator.remove();
+      deleteQuietly(metaFile(eldest.getKey()));
+      dereference(eldest.getValue().bodyHash, eldest.getValue().size);
+    }
+  }
+
+  private void reference(final String bodyHash, final long size) {
+    if (bodyReferences.merge(bodyHash, 1, Integer::sum) == 1) {
+      bytes += size;
+    }
+  }
+
+  private void dereference(final String bodyHash, final long size) {
+    if (bodyReferences.merge(bodyHash, -1, Integer::sum) == 0) {
+      bodyReferences.remove(bodyHash);
+      bytes -= size;
+      deleteQuietly(bodyFile(bodyHash));
+    }
+  }
+
+  private Path metaFile(final URI uri) {
+    return directory.resolve(
+        hash(ByteBuffer.wrap(uri.toString().getBytes(StandardCharsets.UTF_8))) + META_SUFFIX);
+  }
+
+  private Path bodyFile(final String bodyHash) {
+    return directory.resolve(bodyHash + BODY_SUFFIX);
+  }
+
+  private static Path temporaryFile(final Path file) {
+    return file.resolveSibling(file.getFileName() + ".tmp");
+  }
+
+  private static void writeAtomically(final Path file, final ByteBuffer contents)
+      throws IOException {
+    final var temporary = temporaryFile(file);
+    try (final var channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      while (contents.hasRemaining()) {
+        channel.write(contents);
+      }
+    }
+    Files.move(
+        temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void deleteQuietly(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      log.warn("Failed to delete cache file {}", file, e);
+    }
+  }
+
+  private static String hash(final ByteBuffer contents) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not supported", e);
+    }
+    digest.update(contents);
+    final var hash = new StringBuilder();
+    for (final var b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  private static final class Entry {
+    private final String meta;
+    private final String bodyHash;
+    private final long size;
+    private final Instant expiresAt;
+    /** The memory-mapped body, mapped when the entry is first read. */
+    private ByteBuffer body;
+
+    private Entry(
+        final String meta, final String bodyHash, final long size, final Instant expiresAt) {
+      this.meta = meta;
+      this.bodyHash = bodyHash;
+      this.size = size;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * The result of fetching a single URI as part of a bulk fetch: either a response or the error which
+ * prevented one from being received.
+ *
+ * @param <T> the type of the decoded response body
+ * @see GeminiClient#fetchAll(java.util.concurrent.Flow.Publisher, GeminiResponse.BodyHandler,
+ *     BulkFetchOptions)
+ */
+@AutoValue
+public abstract class FetchResult<T> {
+  FetchResult() {}
+
+  static <T> FetchResult<T> success(final URI uri, final GeminiResponse<T> response) {
+    return new AutoValue_FetchResult<>(uri, Optional.of(response), Optional.empty());
+  }
+
+  static <T> FetchResult<T> failure(final URI uri, final Throwable error) {
+    return new AutoValue_FetchResult<>(uri, Optional.empty(), Optional.of(error));
+  }
+
+  /** The URI which was fetched. */
+  public abstract URI uri();
+
+  /** The response, if one was received. */
+  public abstract Optional<GeminiResponse<T>> response();
+
+  /** The error which prevented a response from being received, if any. */
+  public abstract Optional<Throwable> error();
+
+  /**
+   * Returns whether a response was received.
+   *
+   * @return whether a response was received
+   */
+  public boolean isSuccess() {
+    return response().isPresent();
+  }
+}
@@ -1,34 +1,116 @@
 package xyz.ianjohnson.gemini.client;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
 import io.netty.util.ReferenceCountUtil;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Flow;
 import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Publishes the body of a response to a subscriber as it is received.
+ *
+ * <p>Chunks are handed to the subscriber through a bounded buffer without ever blocking the event
+ * loop. Once the buffer is full, reading from the connection is paused by turning off {@code
+ * AUTO_READ}, and resumed once the subscriber has taken enough of the buffered chunks. A subscriber
+ * which stops requesting the body therefore holds up only its own connection, which is eventually
+ * closed by the idle timeout, since nothing is read from it in the meantime.
+ *
+ * <p>Pending chunks are offered to the publisher both from the event loop, as they are read, and
+ * from the thread delivering them to the subscriber, as it frees space in the buffer. Only one
+ * thread offers them at a time, so they are published in order.
+ */
 final class GeminiBodyDecoder extends ChannelInboundHandlerAdapter {
   private final SubmissionPublisher<List<ByteBuffer>> publisher;
+  /** Chunks read from the connection which did not fit in the buffer of the publisher. */
+  private final Queue<List<ByteBuffer>> pending = new ConcurrentLinkedQueue<>();
+  /** The number of requests to offer pending chunks, of which only the first does so. */
+  private final AtomicInteger wip = new AtomicInteger();
 
-  GeminiBodyDecoder(final Subscriber<List<ByteBuffer>> subscriber, final Executor executor) {
+  private volatile Channel channel;
+  private volatile boolean paused;
+  private volatile boolean inputClosed;
+  private volatile Throwable failure;
+
+  /**
+   * Constructs a new {@link GeminiBodyDecoder}.
+   *
+   * @param subscriber the subscriber to which to publish the body
+   * @param executor the executor to use for publishing the body
+   * @param onCancel a callback invoked if the subscriber cancels its subscription, which should
+   *     close the connection, since the rest of the body is not wanted
+   */
+  GeminiBodyDecoder(
+      final Subscriber<List<ByteBuffer>> subscriber,
+      final Executor executor,
+      final Runnable onCancel) {
     publisher = new SubmissionPublisher<>(executor, Flow.defaultBufferSize());
-    publisher.subscribe(subscriber);
+    publisher.subscribe(
+        new Subscriber<>() {
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            subscriber.onSubscribe(
+                new Subscription() {
+                  @Override
+                  public void request(final long n) {
+                    subscription.request(n);
+                  }
+
+                  @Override
+                  public void cancel() {
+                    subscription.cancel();
+                    onCancel.run();
+                  }
+                });
+          }
+
+          @Override
+          public void onNext(final List<ByteBuffer> item) {
+            subscriber.onNext(item);
+            // Taking the item freed space in the buffer, so pending chunks may now fit
+            if (!pending.isEmpty()) {
+              deliverPending();
+            }
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            subscriber.onError(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            subscriber.onComplete();
+          }
+        });
+  }
+
+  @Override
+  public void handlerAdded(final ChannelHandlerContext ctx) {
+    channel = ctx.channel();
   }
 
   @Override
   public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
-    publisher.close();
+    inputClosed = true;
+    deliverPending();
     super.channelInactive(ctx);
   }
 
   @Override
   public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
-    publisher.closeExceptionally(cause);
+    failure = cause;
+    deliverPending();
     ctx.close();
   }
 
@@ -43,6 +125,48 @@ final class GeminiBodyDecoder extends ChannelInboundHandlerAdapter {
     final var chunk = ByteBuffer.allocate(buf.readableBytes());
     buf.readBytes(chunk);
     buf.release();
-    publisher.submit(List.of(chunk.flip().asReadOnlyBuffer()));
+    pending.add(List.of(chunk.flip().asReadOnlyBuffer()));
+    deliverPending();
+  }
+
+  /**
+   * Offers the pending chunks to the publisher, pausing reading if they do not all fit in its
+   * buffer and resuming it once they do. The publisher is closed once the connection is closed and
+   * every chunk has been offered, or straight away if the connection failed. The publisher is only
+   * ever used here, so that it is never closed while a chunk is being offered to it.
+   */
+  private void deliverPending() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    var missed = 1;
+    do {
+      final var failure = this.failure;
+      if (failure != null) {
+        pending.clear();
+        publisher.closeExceptionally(failure);
+      } else {
+        List<ByteBuffer> chunk;
+        while ((chunk = pending.peek()) != null && publisher.offer(chunk, null) >= 0) {
+          pending.poll();
+        }
+        if (chunk != null) {
+          if (!paused) {
+            paused = true;
+            channel.config().setAutoRead(false);
+          }
+        } else {
+          if (paused) {
+            paused = false;
+            // Turning AUTO_READ back on also requests the next read
+            channel.config().setAutoRead(true);
+          }
+          if (inputClosed) {
+            publisher.close();
+          }
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
   }
 }
@@ -3,36 +3,54 @@ package xyz.ianjohnson.gemini.client;
 import static java.util.Objects.requireNonNull;
 
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ConnectTimeoutException;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.KeyStore;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.GeminiException;
+import xyz.ianjohnson.gemini.GeminiStatus;
 import xyz.ianjohnson.gemini.GeminiStatus.Kind;
+import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.MimeTypeSyntaxException;
+import xyz.ianjohnson.gemini.Nullable;
 import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.client.ConnectionLimiter.Permit;
 import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandler;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
 import xyz.ianjohnson.gemini.client.GeminiResponse.Redirect;
+import xyz.ianjohnson.gemini.client.GeminiTimeoutException.Phase;
+import xyz.ianjohnson.gemini.client.PreconnectPool.ParkingHandler;
 
 /**
  * A Gemini client.
@@ -42,6 +60,8 @@ import xyz.ianjohnson.gemini.client.GeminiResponse.Redirect;
 public final class GeminiClient implements Closeable {
   public static final int GEMINI_PORT = 1965;
   static final String GEMINI_SCHEME = "gemini";
+  private static final String SSL_HANDLER = "ssl";
+  private static final String TIMEOUT_HANDLER = "timeout";
   private static final Logger log = LoggerFactory.getLogger(GeminiClient.class);
 
   private final Executor executor;
@@ -49,6 +69,17 @@ public final class GeminiClient implements Closeable {
   private final EventLoopGroup eventLoopGroup;
   private final SslContext sslContext;
   private final int maxRedirects;
+  private final ConnectionLimiter connectionLimiter;
+  private final Timeouts timeouts;
+  private final RetryPolicy retryPolicy;
+  private final BackoffScheduler backoffScheduler;
+  @Nullable private final RequestCoalescer requestCoalescer;
+  @Nullable private final ResponseCache responseCache;
+  @Nullable private final PermanentRedirectCache permanentRedirects;
+  private final PreconnectPool preconnectPool;
+  private final HostResolver hostResolver;
+  private final ConnectionRacer connectionRacer;
+  @Nullable private final RequestListener requestListener;
 
   private GeminiClient(final Builder builder) {
     if (builder.executor != null) {
@@ -77,6 +108,35 @@ public final class GeminiClient implements Closeable {
       throw new IllegalStateException("Failed to construct SslContext", e);
     }
     maxRedirects = builder.maxRedirects;
+    connectionLimiter =
+        new ConnectionLimiter(
+            builder.maxConnections,
+            builder.maxConnectionsPerHost,
+            builder.maxQueuedRequestsPerHost,
+            builder.priorityAgingInterval);
+    timeouts =
+        new Timeouts(
+            builder.connectTimeout,
+            builder.handshakeTimeout,
+            builder.headerTimeout,
+            builder.idleTimeout,
+            builder.requestTimeout);
+    retryPolicy = builder.retryPolicy;
+    backoffScheduler = new BackoffScheduler(eventLoopGroup);
+    requestCoalescer = builder.coalesceRequests ? new RequestCoalescer(executor) : null;
+    responseCache = builder.responseCache;
+    permanentRedirects =
+        builder.maxPermanentRedirects > 0
+            ? new PermanentRedirectCache(builder.maxPermanentRedirects)
+            : null;
+    preconnectPool = new PreconnectPool(builder.preconnectTtl);
+    hostResolver =
+        new CachingHostResolver(
+            builder.hostResolver != null ? builder.hostResolver : HostResolver.system(executor),
+            builder.dnsCacheTtl,
+            builder.dnsNegativeCacheTtl);
+    connectionRacer = new ConnectionRacer(eventLoopGroup, builder.connectionAttemptDelay);
+    requestListener = builder.requestListener;
   }
 
   /**
@@ -134,6 +194,25 @@ public final class GeminiClient implements Closeable {
     return getResponse(sendAsync(uri, responseBodyHandler));
   }
 
+  /**
+   * Sends a request for the given URI using the given options, blocking if necessary until the
+   * response is ready or the request is interrupted.
+   *
+   * @param uri the URI to request. The request is sent to the host and port specified in the URI.
+   * @param responseBodyHandler the response body handler
+   * @param options the options for this request, overriding the defaults of this client
+   * @param <T> the type of the decoded response body
+   * @return a {@link GeminiResponse} containing the response details
+   * @throws IOException if an I/O-related exception occurs while executing the request, including a
+   *     {@link GeminiTimeoutException} if the request times out
+   * @throws InterruptedException if the request is interrupted before it completes
+   */
+  public <T> GeminiResponse<T> send(
+      final URI uri, final BodyHandler<T> responseBodyHandler, final RequestOptions options)
+      throws IOException, InterruptedException {
+    return getResponse(sendAsync(uri, responseBodyHandler, options));
+  }
+
   /**
    * Sends a request for the given URI, blocking if necessary until the response is ready or the
    * request is interrupted.
@@ -188,11 +267,26 @@ public final class GeminiClient implements Closeable {
    */
   public <T> CompletableFuture<GeminiResponse<T>> sendAsync(
       final URI uri, final BodyHandler<T> responseBodyHandler) {
+    return sendAsync(uri, responseBodyHandler, RequestOptions.defaults());
+  }
+
+  /**
+   * Sends an asynchronous request for the given URI using the given options.
+   *
+   * @param uri the URI to request. The request is sent to the host and port specified in the URI.
+   * @param responseBodyHandler the response body handler
+   * @param options the options for this request, overriding the defaults of this client
+   * @param <T> the type of the decoded response body
+   * @return a {@link CompletableFuture} that will eventually complete with the received response
+   *     details or an error encountered while handling the request
+   */
+  public <T> CompletableFuture<GeminiResponse<T>> sendAsync(
+      final URI uri, final BodyHandler<T> responseBodyHandler, final RequestOptions options) {
     if (uri.getScheme() != null && !GEMINI_SCHEME.equalsIgnoreCase(uri.getScheme())) {
       throw new IllegalArgumentException("URI scheme must be gemini");
     }
 
-    return sendAsync(uri.getHost(), uri.getPort(), uri, responseBodyHandler);
+    return sendAsync(uri.getHost(), uri.getPort(), uri, responseBodyHandler, options);
   }
 
   /**
@@ -208,8 +302,163 @@ public final class GeminiClient implements Closeable {
    */
   public <T> CompletableFuture<GeminiResponse<T>> sendAsync(
       final String host, final int port, final URI uri, final BodyHandler<T> responseBodyHandler) {
+    return sendAsync(host, port, uri, responseBodyHandler, RequestOptions.defaults());
+  }
+
+  /**
+   * Sends an asynchronous request for the given URI using the given options.
+   *
+   * <p>If the request does not complete within one of its timeouts, the returned future completes
+   * exceptionally with a {@link GeminiTimeoutException}. If a timeout expires after the response
+   * header has been received, the response body fails with a {@link GeminiTimeoutException}
+   * instead.
+   *
+   * @param host the host of the server to which to send the request
+   * @param port the the port of the server to which to send the request
+   * @param uri the URI to request
+   * @param responseBodyHandler the response body handler
+   * @param options the options for this request, overriding the defaults of this client
+   * @param <T> the type of the decoded response body
+   * @return a {@link CompletableFuture} that will eventually complete with the received response
+   *     details or an error encountered while handling the request
+   */
+  public <T> CompletableFuture<GeminiResponse<T>> sendAsync(
+      final String host,
+      final int port,
+      final URI uri,
+      final BodyHandler<T> responseBodyHandler,
+      final RequestOptions options) {
+    requireNonNull(options, "options");
+    if (host == null || host.isEmpty()) {
+      throw new IllegalArgumentException("Invalid host");
+    }
+    if (requestCoalescer == null) {
+      return fetch(host, port, uri, responseBodyHandler, options);
+    }
+
     final var future = new FutureImpl<GeminiResponse<T>>();
-    sendAsync(host, port, uri, responseBodyHandler, new ArrayList<>())
+    // URI equality ignores the case of the scheme and host
+    final var key =
+        List.of(
+            host.toLowerCase(Locale.ROOT),
+            port != -1 ? port : GEMINI_PORT,
+            uri.normalize(),
+            options);
+    requestCoalescer.send(
+        key, responseBodyHandler, handler -> fetch(host, port, uri, handler, options), future);
+    return future;
+  }
+
+  /**
+   * Fetches each URI published by the given publisher, using the default bulk fetch options.
+   *
+   * @param uris the URIs to fetch
+   * @param responseBodyHandler the response body handler
+   * @param <T> the type of the decoded response body
+   * @return a publisher of the result of each fetch
+   * @see #fetchAll(Publisher, BodyHandler, BulkFetchOptions)
+   */
+  public <T> Publisher<FetchResult<T>> fetchAll(
+      final Publisher<URI> uris, final BodyHandler<T> responseBodyHandler) {
+    return fetchAll(uris, responseBodyHandler, BulkFetchOptions.defaults());
+  }
+
+  /**
+   * Fetches each URI published by the given publisher.
+   *
+   * <p>URIs are only requested from the given publisher, and fetched, as results are requested from
+   * the returned publisher, and no more than the maximum numbers of requests given by the options
+   * are in flight at once, so that arbitrarily many URIs can be fetched without overwhelming this
+   * client or any server. Results are published in the order in which they complete. A failed fetch
+   * is published as a failed {@link FetchResult} rather than ending the stream of results, which
+   * only fails if the given publisher fails.
+   *
+   * <p>The returned publisher can only be subscribed to once. Cancelling the subscription cancels
+   * all requests in flight.
+   *
+   * @param uris the URIs to fetch
+   * @param responseBodyHandler the response body handler
+   * @param options the options for the bulk fetch
+   * @param <T> the type of the decoded response body
+   * @return a publisher of the result of each fetch
+   */
+  public <T> Publisher<FetchResult<T>> fetchAll(
+      final Publisher<URI> uris,
+      final BodyHandler<T> responseBodyHandler,
+      final BulkFetchOptions options) {
+    requireNonNull(uris, "uris");
+    requireNonNull(responseBodyHandler, "responseBodyHandler");
+    requireNonNull(options, "options");
+    return new BulkFetch<>(this, uris, responseBodyHandler, options);
+  }
+
+  /**
+   * Fetches each URI of the given stream, using the default bulk fetch options.
+   *
+   * @param uris the URIs to fetch
+   * @param responseBodyHandler the response body handler
+   * @param <T> the type of the decoded response body
+   * @return a publisher of the result of each fetch
+   * @see #fetchAll(Publisher, BodyHandler, BulkFetchOptions)
+   */
+  public <T> Publisher<FetchResult<T>> fetchAll(
+      final Stream<URI> uris, final BodyHandler<T> responseBodyHandler) {
+    return fetchAll(uris, responseBodyHandler, BulkFetchOptions.defaults());
+  }
+
+  /**
+   * Fetches each URI of the given stream. The stream is consumed lazily, as results are requested
+   * from the returned publisher.
+   *
+   * @param uris the URIs to fetch
+   * @param responseBodyHandler the response body handler
+   * @param options the options for the bulk fetch
+   * @param <T> the type of the decoded response body
+   * @return a publisher of the result of each fetch
+   * @see #fetchAll(Publisher, BodyHandler, BulkFetchOptions)
+   */
+  public <T> Publisher<FetchResult<T>> fetchAll(
+      final Stream<URI> uris,
+      final BodyHandler<T> responseBodyHandler,
+      final BulkFetchOptions options) {
+    requireNonNull(uris, "uris");
+    return fetchAll(new IteratorPublisher<>(uris.iterator()), responseBodyHandler, options);
+  }
+
+  private <T> CompletableFuture<GeminiResponse<T>> fetch(
+      final String host,
+      final int port,
+      final URI uri,
+      final BodyHandler<T> responseBodyHandler,
+      final RequestOptions options) {
+    final var future = new FutureImpl<GeminiResponse<T>>();
+    final var context =
+        new RequestContext(
+            timeouts.with(options),
+            options.retryPolicy().orElse(retryPolicy),
+            options.followRedirects(),
+            options.priority());
+    if (!context.timeouts.request.isZero()) {
+      final var deadlineTimer =
+          eventLoopGroup.schedule(
+              () ->
+                  future.completeExceptionally(
+                      new GeminiTimeoutException(Phase.REQUEST, context.timeouts.request)),
+              context.timeouts.request.toNanos(),
+              TimeUnit.NANOSECONDS);
+      future.whenComplete((response, e) -> deadlineTimer.cancel(false));
+    }
+    // A request which fails or is cancelled no longer needs the connection (or the place in the
+    // connection queue) of its current hop
+    future.whenComplete(
+        (response, e) -> {
+          context.completed = true;
+          final var hop = context.hop;
+          if (e != null && hop != null) {
+            hop.completeExceptionally(e);
+          }
+        });
+    sendAsync(host, port, uri, responseBodyHandler, context)
         .whenComplete(
             (response, t) -> {
               if (response != null) {
@@ -220,63 +469,97 @@ public final class GeminiClient implements Closeable {
                 future.completeExceptionally(t);
               }
             });
+    if (requestListener != null) {
+      future.whenComplete((response, e) -> notifyListener(uri, response, e));
+    }
     return future;
   }
 
+  private void notifyListener(
+      final URI uri,
+      @Nullable final GeminiResponse<?> response,
+      @Nullable final Throwable failure) {
+    try {
+      if (response != null) {
+        requestListener.onResponse(response);
+      } else {
+        requestListener.onFailure(uri, failure);
+      }
+    } catch (final RuntimeException e) {
+      log.warn("Request listener failed for {}", uri, e);
+    }
+  }
+
   private <T> CompletableFuture<GeminiResponse<T>> sendAsync(
       final String host,
       final int providedPort,
       final URI uri,
       final BodyHandler<T> responseBodyHandler,
-      final List<Redirect> redirects) {
+      final RequestContext context) {
+    final var redirects = context.redirects;
     if (redirects.size() > maxRedirects) {
       return CompletableFuture.failedFuture(new TooManyRedirectsException(redirects));
     } else if (host == null || host.isEmpty()) {
       throw new IllegalArgumentException("Invalid host");
     }
+    if (permanentRedirects != null && context.followRememberedRedirects) {
+      final var hops = permanentRedirects.resolve(uri, maxRedirects - redirects.size());
+      if (!hops.isEmpty()) {
+        return sendRedirected(host, providedPort, uri, hops, responseBodyHandler, context);
+      }
+    }
     final var port = providedPort != -1 ? providedPort : GEMINI_PORT;
-
-    log.debug("Connecting to host {} on port {}", host, port);
+    final var hostKey = uri.getHost().toLowerCase(Locale.ROOT);
 
     final CompletableFuture<GeminiResponse<T>> future = new FutureImpl<>();
-    new Bootstrap()
-        .group(eventLoopGroup)
-        .channel(NioSocketChannel.class)
-        .handler(
-            new ChannelInitializer<SocketChannel>() {
-              @Override
-              protected void initChannel(final SocketChannel ch) {
-                ch.pipeline()
-                    .addLast("ssl", sslContext.newHandler(ch.alloc(), uri.getHost(), port))
-                    .addLast(new GeminiRequestEncoder())
-                    .addLast(new GeminiResponseDecoder<>(uri, responseBodyHandler, future));
-              }
-            })
-        .connect(uri.getHost(), port)
-        .addListener(
-            (final ChannelFuture channelFuture) -> {
-              if (!channelFuture.isSuccess()) {
-                future.completeExceptionally(channelFuture.cause());
-                return;
-              }
-
-              final var channel = channelFuture.channel();
-              future.whenComplete((response, e) -> channel.close());
-
-              channel
-                  .writeAndFlush(uri)
-                  .addListener(
-                      writeFuture -> {
-                        if (!writeFuture.isSuccess()) {
-                          future.completeExceptionally(writeFuture.cause());
-                        }
-                      });
-            });
+    context.hop = future;
+    final var cached =
+        responseCache != null ? responseCache.get(uri) : Optional.<CachedResponse>empty();
+    if (cached.isPresent()) {
+      log.debug("Using cached response for {}", uri);
+      executor.execute(() -> complete(uri, cached.get(), responseBodyHandler, future));
+    } else {
+      final var timer = new RequestTimer(uri, context.redirects.size());
+      final var bodyHandler =
+          responseCache != null ? caching(uri, responseBodyHandler) : responseBodyHandler;
+      // Requests to a host which has asked us to slow down wait before even queueing for a
+      // connection, so that they do not hold up requests to other hosts
+      final var backoffFuture = backoffScheduler.await(hostKey);
+      backoffFuture.thenRun(
+          () -> {
+            final var parked = preconnectPool.claim(PreconnectPool.key(hostKey, port));
+            if (parked != null) {
+              log.debug("Using preconnected connection to host {} on port {}", host, port);
+              send(parked, host, port, uri, bodyHandler, future, context, timer);
+            } else {
+              acquireAndConnect(host, port, uri, bodyHandler, future, context, timer);
+            }
+          });
+      future.whenComplete((response, e) -> backoffFuture.cancel(false));
+    }
 
     return future.thenCompose(
         response -> {
+          final var retryDelay =
+              context.retryPolicy.retryDelay(response.status(), response.meta(), context.retries);
+          if (retryDelay.isPresent()) {
+            context.retries++;
+            log.debug(
+                "Retrying request for {} after {} in {}", uri, response.status(), retryDelay.get());
+            final CompletableFuture<Void> delayFuture;
+            if (response.status() == StandardGeminiStatus.SLOW_DOWN) {
+              backoffScheduler.park(hostKey, retryDelay.get());
+              delayFuture = backoffScheduler.await(hostKey);
+            } else {
+              delayFuture = backoffScheduler.delay(retryDelay.get());
+            }
+            context.hop = delayFuture;
+            return delayFuture.thenCompose(
+                v -> sendAsync(host, providedPort, uri, responseBodyHandler, context));
+          }
+
           final var redirectFuture = new FutureImpl<GeminiResponse<T>>();
-          if (response.status().kind() == Kind.REDIRECT) {
+          if (response.status().kind() == Kind.REDIRECT && context.followRedirects) {
             final URI redirectUri;
             try {
               redirectUri = uri.resolve(new URI(response.meta().strip()));
@@ -297,21 +580,423 @@ public final class GeminiClient implements Closeable {
               redirectFuture.complete(response);
               return redirectFuture;
             }
-            redirects.add(
-                Redirect.of(
-                    redirectUri, response.status() == StandardGeminiStatus.PERMANENT_REDIRECT));
+            final var permanent = response.status() == StandardGeminiStatus.PERMANENT_REDIRECT;
+            redirects.add(Redirect.of(redirectUri, permanent));
+            if (permanent && permanentRedirects != null) {
+              permanentRedirects.put(uri, redirectUri);
+            }
             return sendAsync(
                 redirectUri.getHost(),
                 redirectUri.getPort(),
                 redirectUri,
                 responseBodyHandler,
-                redirects);
+                context);
           }
           redirectFuture.complete(response);
           return redirectFuture;
         });
   }
 
+  /**
+   * Sends a request for a URI which is known to have permanently moved straight to its new
+   * location. Each remembered redirect is recorded as a redirect of the request, just as if it had
+   * been received again. If the new location cannot be reached, or responds that it is gone, the
+   * redirect is forgotten and the request is sent to the original URI instead, in case the content
+   * has moved again. Any other response from the new location, including other failures, is
+   * returned as is.
+   */
+  private <T> CompletableFuture<GeminiResponse<T>> sendRedirected(
+      final String host,
+      final int providedPort,
+      final URI uri,
+      final List<URI> hops,
+      final BodyHandler<T> responseBodyHandler,
+      final RequestContext context) {
+    final var target = hops.get(hops.size() - 1);
+    log.debug("Following remembered permanent redirect from {} to {}", uri, target);
+    // At most one remembered redirect is followed per request, which rules out redirect loops
+    context.followRememberedRedirects = false;
+    final var redirectsBefore = context.redirects.size();
+    for (final var hop : hops) {
+      context.redirects.add(Redirect.of(hop, true));
+    }
+    // A request sent through a proxy is still sent through the proxy
+    final var direct = host.equalsIgnoreCase(uri.getHost());
+    return sendAsync(
+            direct ? target.getHost() : host,
+            direct ? target.getPort() : providedPort,
+            target,
+            responseBodyHandler,
+            context)
+        .handle(
+            (response, e) -> {
+              if (e == null ? !isStaleRedirect(response.status()) : !isConnectionFailure(e)) {
+                return e != null
+                    ? CompletableFuture.<GeminiResponse<T>>failedFuture(e)
+                    : CompletableFuture.completedFuture(response);
+              }
+              permanentRedirects.invalidate(target);
+              // The original URI is requested as if the redirect had never been remembered
+              context.redirects.subList(redirectsBefore, context.redirects.size()).clear();
+              if (context.completed) {
+                return e != null
+                    ? CompletableFuture.<GeminiResponse<T>>failedFuture(e)
+                    : CompletableFuture.completedFuture(response);
+              }
+              log.debug("Remembered redirect target {} failed; retrying {}", target, uri);
+              return sendAsync(host, providedPort, uri, responseBodyHandler, context);
+            })
+        .thenCompose(Function.identity());
+  }
+
+  /** Returns whether a response from a remembered redirect target suggests it has moved on. */
+  private static boolean isStaleRedirect(final GeminiStatus status) {
+    return status.code() == StandardGeminiStatus.GONE.code()
+        || status.code() == StandardGeminiStatus.PROXY_REQUEST_REFUSED.code();
+  }
+
+  /** Returns whether the given failure of a request means the server could not be reached. */
+  private static boolean isConnectionFailure(final Throwable e) {
+    final var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    if (cause instanceof GeminiTimeoutException) {
+      final var phase = ((GeminiTimeoutException) cause).phase();
+      return phase == Phase.CONNECT || phase == Phase.HANDSHAKE;
+    }
+    // Other Gemini exceptions are failures of a server which was reached
+    return cause instanceof IOException && !(cause instanceof GeminiException);
+  }
+
+  /** Wraps a body handler so that the bodies it receives are offered to the response cache. */
+  private <T> BodyHandler<T> caching(final URI uri, final BodyHandler<T> responseBodyHandler) {
+    return mimeType ->
+        new CachingBodySubscriber<>(
+            responseBodyHandler.apply(mimeType),
+            responseCache,
+            uri,
+            mimeType.toString(),
+            responseCache.maxBodyBytes());
+  }
+
+  /** Completes a request using a cached response, without any network activity. */
+  private static <T> void complete(
+      final URI uri,
+      final CachedResponse cached,
+      final BodyHandler<T> responseBodyHandler,
+      final CompletableFuture<GeminiResponse<T>> future) {
+    final var responseBuilder =
+        GeminiResponse.<T>newBuilder()
+            .uri(uri)
+            .status(StandardGeminiStatus.SUCCESS)
+            .meta(cached.meta());
+    final BodySubscriber<T> subscriber;
+    try {
+      subscriber = responseBodyHandler.apply(MimeType.parse(cached.meta()));
+    } catch (final MimeTypeSyntaxException e) {
+      future.completeExceptionally(new MalformedResponseException("Invalid MIME type", e));
+      return;
+    } catch (final RuntimeException e) {
+      future.completeExceptionally(e);
+      return;
+    }
+    subscriber
+        .getBody()
+        .whenComplete(
+            (body, e) -> {
+              if (e == null) {
+                future.complete(
+                    body != null ? responseBuilder.body(body).build() : responseBuilder.build());
+              } else {
+                future.completeExceptionally(e);
+              }
+            });
+    subscriber.onSubscribe(new CachedBodySubscription(subscriber, cached.body()));
+  }
+
+  /** Waits for a connection permit and then opens a new connection for the request. */
+  private <T> void acquireAndConnect(
+      final String host,
+      final int port,
+      final URI uri,
+      final BodyHandler<T> responseBodyHandler,
+      final CompletableFuture<GeminiResponse<T>> future,
+      final RequestContext context,
+      final RequestTimer timer) {
+    final var permitFuture =
+        connectionLimiter.acquire(uri.getHost().toLowerCase(Locale.ROOT), context.priority);
+    permitFuture.whenComplete(
+        (permit, e) -> {
+          if (permit != null) {
+            connect(host, port, uri, responseBodyHandler, future, permit, context, timer);
+          } else if (!permitFuture.isCancelled()) {
+            future.completeExceptionally(e);
+          }
+        });
+    // A request which completes while still waiting for a connection (for example, because it was
+    // cancelled) no longer needs one
+    future.whenComplete((response, e) -> permitFuture.cancel(false));
+  }
+
+  /**
+   * Sends the request on a connection which was opened ahead of time. The connection already holds
+   * a connection permit, which is released when it closes. If it has closed since being claimed, a
+   * new connection is opened instead.
+   */
+  private <T> void send(
+      final Channel channel,
+      final String host,
+      final int port,
+      final URI uri,
+      final BodyHandler<T> responseBodyHandler,
+      final CompletableFuture<GeminiResponse<T>> future,
+      final RequestContext context,
+      final RequestTimer timer) {
+    channel
+        .eventLoop()
+        .execute(
+            () -> {
+              if (!channel.isActive()) {
+                acquireAndConnect(host, port, uri, responseBodyHandler, future, context, timer);
+                return;
+              }
+              final var pipeline = channel.pipeline();
+              pipeline.remove(ParkingHandler.class);
+              pipeline.addAfter(SSL_HANDLER, null, timer);
+              pipeline.replace(
+                  TIMEOUT_HANDLER,
+                  TIMEOUT_HANDLER,
+                  new TimeoutHandler(
+                      pipeline.get(SslHandler.class), context.timeouts, context.deadline));
+              pipeline
+                  .addLast(new GeminiRequestEncoder())
+                  .addLast(new GeminiResponseDecoder<>(uri, responseBodyHandler, future, timer));
+              writeRequest(channel, uri, future);
+            });
+  }
+
+  /**
+   * Opens a connection to the given server ahead of time, so that the next request to it does not
+   * have to wait for the connection to be established. The connection is opened and its TLS
+   * handshake completed as if for a request, but no request is sent: instead, the connection is
+   * kept until the next request to the same host and port, which uses it instead of opening a new
+   * connection. If no such request is sent within the preconnect TTL, the connection is closed.
+   *
+   * <p>This is useful when a request is likely to be made soon, for example, when the user of a
+   * browser hovers over a link. Opening a connection ahead of time is speculative, so no connection
+   * is opened if the connection limits of this client are already reached.
+   *
+   * @param host the host of the server
+   * @param port the port of the server, or {@code -1} for the default Gemini port
+   * @return a future which completes with {@code true} once the connection is ready for a request,
+   *     with {@code false} if no connection was opened because of the connection limits, or
+   *     exceptionally if the connection could not be established
+   * @see Builder#preconnectTtl(Duration)
+   */
+  public CompletableFuture<Boolean> preconnect(final String host, final int port) {
+    if (host == null || host.isEmpty()) {
+      throw new IllegalArgumentException("Invalid host");
+    }
+    final var actualPort = port != -1 ? port : GEMINI_PORT;
+    final var hostKey = host.toLowerCase(Locale.ROOT);
+    final var future = new FutureImpl<Boolean>();
+    final var permitFuture = connectionLimiter.acquire(hostKey);
+    if (!permitFuture.isDone() || permitFuture.isCompletedExceptionally()) {
+      permitFuture.cancel(false);
+      future.complete(false);
+      return future;
+    }
+    final var permit = permitFuture.join();
+    log.debug("Preconnecting to host {} on port {}", host, actualPort);
+
+    final var preconnectTimeouts =
+        new Timeouts(
+            timeouts.connect, timeouts.handshake, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+    final var channelFuture = open(host, actualPort, timeouts.connect, null);
+    channelFuture.whenComplete(
+        (channel, e) -> {
+          if (e != null) {
+            permit.release();
+            future.completeExceptionally(e);
+            return;
+          }
+          channel.closeFuture().addListener(closeFuture -> permit.release());
+          channel
+              .eventLoop()
+              .execute(
+                  () -> {
+                    final var sslHandler = newSslHandler(channel, host, actualPort);
+                    channel
+                        .pipeline()
+                        .addLast(SSL_HANDLER, sslHandler)
+                        .addLast(
+                            TIMEOUT_HANDLER, new TimeoutHandler(sslHandler, preconnectTimeouts, 0))
+                        .addLast(new ParkingHandler(future));
+                    sslHandler
+                        .handshakeFuture()
+                        .addListener(
+                            handshakeFuture -> {
+                              if (handshakeFuture.isSuccess()) {
+                                preconnectPool.park(
+                                    PreconnectPool.key(hostKey, actualPort), channel);
+                                future.complete(true);
+                              } else {
+                                future.completeExceptionally(handshakeFuture.cause());
+                              }
+                            });
+                  });
+        });
+    return future;
+  }
+
+  /**
+   * Opens a connection to the given host and port. The host is resolved using the host resolver, so
+   * that the event loops never block on a name lookup, and connection attempts to its addresses are
+   * raced against each other. The pipeline of the returned connection is empty. Cancelling the
+   * returned future cancels any connection attempts still in progress.
+   */
+  private CompletableFuture<Channel> open(
+      final String host,
+      final int port,
+      final Duration connectTimeout,
+      @Nullable final RequestTimer timer) {
+    final var future = new CompletableFuture<Channel>();
+    ClientEvents.connectionOpened(host, port, future);
+    final var bootstrap = newBootstrap(connectTimeout);
+    if (timer != null) {
+      timer.resolveStarted();
+    }
+    hostResolver
+        .resolve(host)
+        .whenComplete(
+            (addresses, e) -> {
+              if (timer != null) {
+                timer.resolved();
+              }
+              if (e != null) {
+                future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                return;
+              } else if (future.isDone()) {
+                return;
+              }
+              final var race =
+                  connectionRacer.connect(
+                      host.toLowerCase(Locale.ROOT), addresses, port, bootstrap::connect);
+              future.whenComplete((channel, t) -> race.cancel(false));
+              race.whenComplete(
+                  (channel, t) -> {
+                    if (t instanceof ConnectTimeoutException) {
+                      future.completeExceptionally(
+                          new GeminiTimeoutException(Phase.CONNECT, connectTimeout));
+                    } else if (t != null) {
+                      future.completeExceptionally(t);
+                    } else {
+                      if (timer != null) {
+                        timer.connected();
+                      }
+                      if (!future.complete(channel)) {
+                        channel.close();
+                      }
+                    }
+                  });
+            });
+    return future;
+  }
+
+  private Bootstrap newBootstrap(final Duration connectTimeout) {
+    return new Bootstrap()
+        .group(eventLoopGroup)
+        .channel(NioSocketChannel.class)
+        .option(
+            ChannelOption.CONNECT_TIMEOUT_MILLIS,
+            (int) Math.min(connectTimeout.toMillis(), Integer.MAX_VALUE))
+        .handler(
+            new ChannelInitializer<SocketChannel>() {
+              @Override
+              protected void initChannel(final SocketChannel ch) {
+                // The pipeline is set up once a connection attempt has won the race
+              }
+            });
+  }
+
+  private SslHandler newSslHandler(final Channel channel, final String host, final int port) {
+    final var sslHandler = sslContext.newHandler(channel.alloc(), host, port);
+    // The handshake timeout is enforced by the timeout handler instead
+    sslHandler.setHandshakeTimeoutMillis(0);
+    ClientEvents.tlsHandshake(sslHandler, host, port);
+    return sslHandler;
+  }
+
+  private <T> void connect(
+      final String host,
+      final int port,
+      final URI uri,
+      final BodyHandler<T> responseBodyHandler,
+      final CompletableFuture<GeminiResponse<T>> future,
+      final Permit permit,
+      final RequestContext context,
+      final RequestTimer timer) {
+    log.debug("Connecting to host {} on port {}", host, port);
+
+    final var channelFuture = open(uri.getHost(), port, context.timeouts.connect, timer);
+    // A request which completes while still connecting (for example, because it was cancelled) no
+    // longer needs the connection
+    future.whenComplete((response, e) -> channelFuture.cancel(false));
+    channelFuture.whenComplete(
+        (channel, e) -> {
+          if (e != null) {
+            permit.release();
+            future.completeExceptionally(e);
+            return;
+          }
+          channel.closeFuture().addListener(closeFuture -> permit.release());
+          channel
+              .eventLoop()
+              .execute(
+                  () -> {
+                    final var sslHandler = newSslHandler(channel, uri.getHost(), port);
+                    sslHandler
+                        .handshakeFuture()
+                        .addListener(
+                            handshakeFuture -> {
+                              if (handshakeFuture.isSuccess()) {
+                                timer.handshaken(sslHandler.engine().getSession());
+                              }
+                            });
+                    channel
+                        .pipeline()
+                        .addLast(SSL_HANDLER, sslHandler)
+                        .addLast(timer)
+                        .addLast(
+                            TIMEOUT_HANDLER,
+                            new TimeoutHandler(sslHandler, context.timeouts, context.deadline))
+                        .addLast(new GeminiRequestEncoder())
+                        .addLast(
+                            new GeminiResponseDecoder<>(uri, responseBodyHandler, future, timer));
+                    writeRequest(channel, uri, future);
+                  });
+        });
+  }
+
+  private static void writeRequest(
+      final Channel channel, final URI uri, final CompletableFuture<?> future) {
+    // On success, the response decoder takes care of closing the channel once the response body
+    // has been fully received
+    future.whenComplete(
+        (response, e) -> {
+          if (e != null) {
+            channel.close();
+          }
+        });
+
+    channel
+        .writeAndFlush(uri)
+        .addListener(
+            writeFuture -> {
+              if (!writeFuture.isSuccess()) {
+                future.completeExceptionally(writeFuture.cause());
+              }
+            });
+  }
+
   /**
    * Returns the {@link Executor} configured with this client, if one was provided by the user.
    *
@@ -321,11 +1006,53 @@ public final class GeminiClient implements Closeable {
     return userProvidedExecutor ? Optional.of(executor) : Optional.empty();
   }
 
+  /**
+   * Forgets any remembered permanent redirects from or to the given URI, so that the next request
+   * for it is sent to the URI itself.
+   *
+   * @param uri the URI
+   * @see Builder#maxPermanentRedirects(int)
+   */
+  public void forgetPermanentRedirects(final URI uri) {
+    if (permanentRedirects != null) {
+      permanentRedirects.invalidate(requireNonNull(uri, "uri"));
+    }
+  }
+
+  /**
+   * Returns statistics about the connections currently open by this client and the requests waiting
+   * for a connection.
+   *
+   * @return statistics about the connections and queued requests of this client
+   */
+  public ConnectionStatistics connectionStatistics() {
+    return connectionLimiter.statistics();
+  }
+
   /** A builder for {@link GeminiClient GeminiClients}. */
   public static final class Builder {
     private Executor executor;
     private TrustManager trustManager;
     private int maxRedirects = 5;
+    private int maxConnections = 128;
+    private int maxConnectionsPerHost = 8;
+    private int maxQueuedRequestsPerHost = Integer.MAX_VALUE;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration handshakeTimeout = Duration.ofSeconds(10);
+    private Duration headerTimeout = Duration.ofSeconds(30);
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    private Duration requestTimeout = Duration.ZERO;
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    private boolean coalesceRequests;
+    private ResponseCache responseCache;
+    private int maxPermanentRedirects;
+    private Duration preconnectTtl = Duration.ofSeconds(10);
+    private HostResolver hostResolver;
+    private Duration dnsCacheTtl = Duration.ofSeconds(30);
+    private Duration dnsNegativeCacheTtl = Duration.ofSeconds(10);
+    private Duration connectionAttemptDelay = Duration.ofMillis(250);
+    private Duration priorityAgingInterval = Duration.ofSeconds(5);
+    private RequestListener requestListener;
 
     private Builder() {}
 
@@ -380,6 +1107,335 @@ public final class GeminiClient implements Closeable {
       return this;
     }
 
+    /**
+     * Sets the maximum number of connections the client may have open at once, across all hosts.
+     * Requests sent while this many connections are open wait until a connection is closed.
+     *
+     * <p>If no maximum is explicitly provided using this method, the default number is 128.
+     *
+     * @param maxConnections the maximum number of connections to have open at once
+     * @return {@code this}
+     */
+    public Builder maxConnections(final int maxConnections) {
+      if (maxConnections < 1) {
+        throw new IllegalArgumentException("maxConnections must be positive");
+      }
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of connections the client may have open at once to a single host.
+     * Requests sent to a host while this many connections to it are open wait until one of them is
+     * closed. Requests waiting for different hosts are served in round-robin order as connections
+     * become available, so that many requests to one host do not delay requests to other hosts
+     * until they have all been sent.
+     *
+     * <p>If no maximum is explicitly provided using this method, the default number is 8.
+     *
+     * @param maxConnectionsPerHost the maximum number of connections to have open at once to a
+     *     single host
+     * @return {@code this}
+     */
+    public Builder maxConnectionsPerHost(final int maxConnectionsPerHost) {
+      if (maxConnectionsPerHost < 1) {
+        throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+      }
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests which may be waiting for a connection to a single host.
+     * Requests sent to a host which already has this many waiting requests fail with a {@link
+     * RequestQueueFullException}.
+     *
+     * <p>If no maximum is explicitly provided using this method, there is no limit.
+     *
+     * @param maxQueuedRequestsPerHost the maximum number of requests which may be waiting for a
+     *     connection to a single host
+     * @return {@code this}
+     */
+    public Builder maxQueuedRequestsPerHost(final int maxQueuedRequestsPerHost) {
+      if (maxQueuedRequestsPerHost < 0) {
+        throw new IllegalArgumentException("maxQueuedRequestsPerHost must not be negative");
+      }
+      this.maxQueuedRequestsPerHost = maxQueuedRequestsPerHost;
+      return this;
+    }
+
+    /**
+     * Sets how long a request must wait for a connection before it is treated as one {@link
+     * RequestPriority priority} level higher. When the connection limits have been reached, waiting
+     * requests of higher priority are given a connection first; aging ensures that requests of
+     * lower priority are still given a connection eventually, however many higher priority requests
+     * arrive.
+     *
+     * <p>If no interval is explicitly provided using this method, the default is 5 seconds.
+     *
+     * @param priorityAgingInterval how long a request must wait before being treated as one
+     *     priority level higher
+     * @return {@code this}
+     * @see RequestOptions#priority()
+     */
+    public Builder priorityAgingInterval(final Duration priorityAgingInterval) {
+      if (requireNonNull(priorityAgingInterval, "priorityAgingInterval").isNegative()
+          || priorityAgingInterval.isZero()) {
+        throw new IllegalArgumentException("priorityAgingInterval must be positive");
+      }
+      this.priorityAgingInterval = priorityAgingInterval;
+      return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for a connection to the server to be established. A timeout of
+     * {@link Duration#ZERO} disables the timeout.
+     *
+     * <p>If no timeout is explicitly provided using this method, the default is 10 seconds.
+     *
+     * @param connectTimeout the maximum time to wait for a connection to be established
+     * @return {@code this}
+     */
+    public Builder connectTimeout(final Duration connectTimeout) {
+      this.connectTimeout = requireNonNegative(connectTimeout, "connectTimeout");
+      return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for the TLS handshake with the server to complete once the
+     * connection has been established. A timeout of {@link Duration#ZERO} disables the timeout.
+     *
+     * <p>If no timeout is explicitly provided using this method, the default is 10 seconds.
+     *
+     * @param handshakeTimeout the maximum time to wait for the TLS handshake to complete
+     * @return {@code this}
+     */
+    public Builder handshakeTimeout(final Duration handshakeTimeout) {
+      this.handshakeTimeout = requireNonNegative(handshakeTimeout, "handshakeTimeout");
+      return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for the response header once the TLS handshake has completed. A
+     * timeout of {@link Duration#ZERO} disables the timeout.
+     *
+     * <p>If no timeout is explicitly provided using this method, the default is 30 seconds.
+     *
+     * @param headerTimeout the maximum time to wait for the response header
+     * @return {@code this}
+     */
+    public Builder headerTimeout(final Duration headerTimeout) {
+      this.headerTimeout = requireNonNegative(headerTimeout, "headerTimeout");
+      return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for more of the response body to be received once the header
+     * has been received. If this timeout expires, the response body fails with a {@link
+     * GeminiTimeoutException}. A timeout of {@link Duration#ZERO} disables the timeout.
+     *
+     * <p>If no timeout is explicitly provided using this method, the default is 60 seconds.
+     *
+     * @param idleTimeout the maximum time to wait for more of the response body
+     * @return {@code this}
+     */
+    public Builder idleTimeout(final Duration idleTimeout) {
+      this.idleTimeout = requireNonNegative(idleTimeout, "idleTimeout");
+      return this;
+    }
+
+    /**
+     * Sets the maximum time for a whole request to complete, including waiting for a connection,
+     * following redirects and receiving the whole response body. A timeout of {@link Duration#ZERO}
+     * disables the timeout.
+     *
+     * <p>If no timeout is explicitly provided using this method, there is no limit.
+     *
+     * @param requestTimeout the maximum time for a whole request to complete
+     * @return {@code this}
+     */
+    public Builder requestTimeout(final Duration requestTimeout) {
+      this.requestTimeout = requireNonNegative(requestTimeout, "requestTimeout");
+      return this;
+    }
+
+    /**
+     * Sets the policy for retrying requests which fail with a temporary failure ({@code 4x})
+     * status, including honoring {@code 44 SLOW_DOWN} responses by delaying further requests to the
+     * same host.
+     *
+     * <p>If no policy is explicitly provided using this method, requests are never retried.
+     *
+     * @param retryPolicy the policy for retrying requests
+     * @return {@code this}
+     */
+    public Builder retryPolicy(final RetryPolicy retryPolicy) {
+      this.retryPolicy = requireNonNull(retryPolicy, "retryPolicy");
+      return this;
+    }
+
+    /**
+     * Sets whether identical concurrent requests should share a single network fetch. Requests are
+     * identical if they are sent to the same host and port for the same normalized URI with the
+     * same {@link RequestOptions}. Each request still decodes the response body using its own body
+     * handler, even if it is made while the body of the shared response is already being received.
+     *
+     * <p>If this is not explicitly set using this method, requests are not coalesced.
+     *
+     * @param coalesceRequests whether to coalesce identical concurrent requests
+     * @return {@code this}
+     */
+    public Builder coalesceRequests(final boolean coalesceRequests) {
+      this.coalesceRequests = coalesceRequests;
+      return this;
+    }
+
+    /**
+     * Sets the cache to use for successful responses. Requests for URIs with a cached response,
+     * including redirect targets, are answered from the cache without any network activity, and
+     * successful responses received from the network are offered to the cache once their body has
+     * been fully received.
+     *
+     * <p>If no cache is explicitly provided using this method, responses are not cached.
+     *
+     * @param responseCache the cache to use for successful responses
+     * @return {@code this}
+     */
+    public Builder responseCache(final ResponseCache responseCache) {
+      this.responseCache = requireNonNull(responseCache, "responseCache");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of permanent redirects to remember. Once a URI has been permanently
+     * redirected ({@code 31}), later requests for it are sent straight to its new location without
+     * a request to the old location. If a request to a remembered location fails, the redirect is
+     * forgotten and the original URI is requested instead. When the maximum is reached, the least
+     * recently used redirect is forgotten.
+     *
+     * <p>A remembered redirect still counts towards the maximum number of redirects of a request,
+     * and is included in the redirects of its {@link ResponseTimings}.
+     *
+     * <p>If no maximum is explicitly provided using this method, permanent redirects are not
+     * remembered.
+     *
+     * @param maxPermanentRedirects the maximum number of permanent redirects to remember
+     * @return {@code this}
+     */
+    public Builder maxPermanentRedirects(final int maxPermanentRedirects) {
+      if (maxPermanentRedirects < 0) {
+        throw new IllegalArgumentException("maxPermanentRedirects must not be negative");
+      }
+      this.maxPermanentRedirects = maxPermanentRedirects;
+      return this;
+    }
+
+    /**
+     * Sets how long a connection opened ahead of time by {@link GeminiClient#preconnect(String,
+     * int)} is kept waiting for a request before it is closed.
+     *
+     * <p>If no TTL is explicitly provided using this method, the default is 10 seconds.
+     *
+     * @param preconnectTtl how long to keep a connection opened ahead of time
+     * @return {@code this}
+     */
+    public Builder preconnectTtl(final Duration preconnectTtl) {
+      if (requireNonNull(preconnectTtl, "preconnectTtl").isNegative() || preconnectTtl.isZero()) {
+        throw new IllegalArgumentException("preconnectTtl must be positive");
+      }
+      this.preconnectTtl = preconnectTtl;
+      return this;
+    }
+
+    /**
+     * Sets the resolver to use to look up the addresses of hosts. The client never performs a
+     * blocking name lookup on its event loop threads, so the resolver must not block the thread
+     * calling it.
+     *
+     * <p>If no resolver is explicitly provided using this method, the client uses {@link
+     * HostResolver#system(Executor) the resolver of the JVM}, running lookups on the executor of
+     * the client.
+     *
+     * @param hostResolver the resolver to use to look up the addresses of hosts
+     * @return {@code this}
+     */
+    public Builder hostResolver(final HostResolver hostResolver) {
+      this.hostResolver = requireNonNull(hostResolver, "hostResolver");
+      return this;
+    }
+
+    /**
+     * Sets how long the addresses of a host are cached after looking them up. A TTL of zero
+     * disables caching of addresses.
+     *
+     * <p>If no TTL is explicitly provided using this method, the default is 30 seconds, the same as
+     * the default TTL of the JVM's own cache.
+     *
+     * @param dnsCacheTtl how long to cache the addresses of a host
+     * @return {@code this}
+     */
+    public Builder dnsCacheTtl(final Duration dnsCacheTtl) {
+      this.dnsCacheTtl = requireNonNegative(dnsCacheTtl, "dnsCacheTtl");
+      return this;
+    }
+
+    /**
+     * Sets how long the failure to look up a host which does not exist is cached. A TTL of zero
+     * disables caching of such failures. Other failures, which may be transient, are never cached.
+     *
+     * <p>If no TTL is explicitly provided using this method, the default is 10 seconds, the same as
+     * the default negative TTL of the JVM's own cache.
+     *
+     * @param dnsNegativeCacheTtl how long to cache the failure to look up a host
+     * @return {@code this}
+     */
+    public Builder dnsNegativeCacheTtl(final Duration dnsNegativeCacheTtl) {
+      this.dnsNegativeCacheTtl = requireNonNegative(dnsNegativeCacheTtl, "dnsNegativeCacheTtl");
+      return this;
+    }
+
+    /**
+     * Sets the head start given to each connection attempt before the next one is started, when
+     * connecting to a host with several addresses. Connection attempts to the addresses of a host
+     * are raced against each other as described by RFC 8305 ("Happy Eyeballs"), alternating between
+     * IPv6 and IPv4 addresses, so that a broken address does not hold up the connection until the
+     * connect timeout expires. The first attempt to succeed is used, and the address family it used
+     * is tried first for later connections to the same host.
+     *
+     * <p>If no delay is explicitly provided using this method, the default is 250 milliseconds, as
+     * recommended by RFC 8305.
+     *
+     * @param connectionAttemptDelay the head start given to each connection attempt
+     * @return {@code this}
+     */
+    public Builder connectionAttemptDelay(final Duration connectionAttemptDelay) {
+      this.connectionAttemptDelay =
+          requireNonNegative(connectionAttemptDelay, "connectionAttemptDelay");
+      return this;
+    }
+
+    /**
+     * Sets the listener to notify as each request completes, for example to collect metrics about
+     * the requests made by the client.
+     *
+     * <p>If no listener is explicitly provided using this method, no listener is notified.
+     *
+     * @param requestListener the listener to notify as each request completes
+     * @return {@code this}
+     * @see ClientMetrics
+     */
+    public Builder requestListener(final RequestListener requestListener) {
+      this.requestListener = requireNonNull(requestListener, "requestListener");
+      return this;
+    }
+
+    private static Duration requireNonNegative(final Duration timeout, final String name) {
+      if (requireNonNull(timeout, name).isNegative()) {
+        throw new IllegalArgumentException(name + " must not be negative");
+      }
+      return timeout;
+    }
+
     /**
      * Builds a new {@link GeminiClient} using the configuration specified using this {@link
      * Builder}.
@@ -392,6 +1448,33 @@ public final class GeminiClient implements Closeable {
     }
   }
 
+  /** The state of a single request, shared by all the hops of its redirect chain. */
+  private static final class RequestContext {
+    private final List<Redirect> redirects = new ArrayList<>();
+    private final Timeouts timeouts;
+    private final RetryPolicy retryPolicy;
+    private final long deadline;
+    private volatile CompletableFuture<?> hop;
+    private volatile int retries;
+    private final boolean followRedirects;
+    private final RequestPriority priority;
+    private volatile boolean followRememberedRedirects;
+    private volatile boolean completed;
+
+    private RequestContext(
+        final Timeouts timeouts,
+        final RetryPolicy retryPolicy,
+        final boolean followRedirects,
+        final RequestPriority priority) {
+      this.timeouts = timeouts;
+      this.retryPolicy = retryPolicy;
+      this.followRedirects = followRedirects;
+      this.priority = priority;
+      followRememberedRedirects = followRedirects;
+      deadline = System.nanoTime() + timeouts.request.toNanos();
+    }
+  }
+
   final class FutureImpl<T> extends CompletableFuture<T> {
     private FutureImpl() {}
 
@@ -4,16 +4,23 @@ import com.google.auto.value.AutoValue;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.function.Function;
+import xyz.ianjohnson.gemini.GeminiContent;
+import xyz.ianjohnson.gemini.GeminiLinkScanner;
 import xyz.ianjohnson.gemini.GeminiStatus;
 import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.Nullable;
 import xyz.ianjohnson.gemini.client.BodySubscriberImpls.Discarding;
 import xyz.ianjohnson.gemini.client.BodySubscriberImpls.Mapping;
 import xyz.ianjohnson.gemini.client.BodySubscriberImpls.OfByteArray;
+import xyz.ianjohnson.gemini.client.BodySubscriberImpls.OfGeminiContent;
+import xyz.ianjohnson.gemini.client.BodySubscriberImpls.OfLinks;
 
 /**
  * A decoded response from a Gemini server.
@@ -49,6 +56,12 @@ public abstract class GeminiResponse<T> {
   /** The decoded response body, if any. */
   public abstract Optional<T> body();
 
+  /**
+   * The timings of the request which received this response from the network. This is empty for
+   * responses which were not received from the network, such as cached responses.
+   */
+  public abstract Optional<ResponseTimings> timings();
+
   /** Details about a redirect requested by the server. */
   @AutoValue
   public abstract static class Redirect {
@@ -116,8 +129,40 @@ public abstract class GeminiResponse<T> {
      * @return a {@link BodyHandler} that collects the response body into a string
      */
     public static BodyHandler<String> ofString() {
-      return mimeType ->
-          BodySubscribers.ofString(Charset.forName(mimeType.parameter("charset").orElse("UTF-8")));
+      return mimeType -> BodySubscribers.ofString(mimeType.charset(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a {@link BodyHandler} that parses the response body as a Gemini document, publishing
+     * each item of content as soon as it has been received. The {@code charset} parameter of the
+     * MIME type passed to the body handler will be used to determine the charset to use to decode
+     * the response body; a default of UTF-8 is assumed.
+     *
+     * @return a {@link BodyHandler} that publishes the parsed content of the response body
+     * @see BodySubscribers#ofGeminiContent(Charset)
+     */
+    public static BodyHandler<Publisher<GeminiContent>> ofGeminiContent() {
+      return mimeType -> BodySubscribers.ofGeminiContent(mimeType.charset(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a {@link BodyHandler} that collects the URIs of the links in the response body,
+     * resolved against the given base URI, without parsing the rest of the document. The {@code
+     * charset} parameter of the MIME type passed to the body handler will be used to determine the
+     * charset to use to decode the response body; a default of UTF-8 is assumed. If the response
+     * body is not a Gemini document, it is discarded and no links are returned.
+     *
+     * @param base the URI against which to resolve the links, usually the URI of the request
+     * @return a {@link BodyHandler} that collects the URIs of the links in the response body
+     * @see BodySubscribers#ofLinks(Charset, URI)
+     */
+    public static BodyHandler<List<URI>> ofLinks(@Nullable final URI base) {
+      return mimeType -> {
+        if (!mimeType.sameType(MimeType.TEXT_GEMINI)) {
+          return BodySubscribers.mapping(BodySubscribers.discarding(), body -> List.of());
+        }
+        return BodySubscribers.ofLinks(mimeType.charset(StandardCharsets.UTF_8), base);
+      };
     }
   }
 
@@ -169,6 +214,38 @@ public abstract class GeminiResponse<T> {
       return mapping(ofByteArray(), bytes -> new String(bytes, charset));
     }
 
+    /**
+     * Returns a {@link BodySubscriber} that parses the response body as a Gemini document, decoding
+     * it with the given {@link Charset}.
+     *
+     * <p>The returned subscriber's body is available as soon as the response header has been
+     * received, and is a {@link Publisher} that emits each item of content as soon as the line
+     * completing it has been received. The publisher accepts only a single subscriber, and the
+     * response body is only read as fast as that subscriber requests content. Cancelling the
+     * subscription closes the underlying connection.
+     *
+     * @param charset the charset to use to decode the response body
+     * @return a {@link BodySubscriber} that publishes the parsed content of the response body
+     */
+    public static BodySubscriber<Publisher<GeminiContent>> ofGeminiContent(final Charset charset) {
+      return new OfGeminiContent(charset);
+    }
+
+    /**
+     * Returns a {@link BodySubscriber} that collects the URIs of the links in a Gemini document,
+     * decoding it with the given {@link Charset}. Only link lines are decoded, and each link is
+     * resolved against the given base URI.
+     *
+     * @param charset the charset to use to decode the response body
+     * @param base the URI against which to resolve the links, or {@code null} to leave them as-is
+     * @return a {@link BodySubscriber} that collects the URIs of the links in the response body
+     * @see GeminiLinkScanner
+     */
+    public static BodySubscriber<List<URI>> ofLinks(
+        final Charset charset, @Nullable final URI base) {
+      return new OfLinks(charset, base);
+    }
+
     /**
      * Returns a {@link BodySubscriber} that decodes the body using another {@link BodySubscriber}
      * and then applies a function to convert it into its final form.
@@ -197,6 +274,10 @@ public abstract class GeminiResponse<T> {
 
     public abstract Builder<T> body(T body);
 
+    public abstract Builder<T> timings(ResponseTimings timings);
+
+    public abstract Builder<T> timings(Optional<ResponseTimings> timings);
+
     public abstract GeminiResponse<T> build();
   }
 }
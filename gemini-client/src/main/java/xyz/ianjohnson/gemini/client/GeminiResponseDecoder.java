@@ -23,15 +23,25 @@ final class GeminiResponseDecoder<T> extends DelimiterBasedFrameDecoder {
   private final URI uri;
   private final BodyHandler<T> bodyHandler;
   private final CompletableFuture<GeminiResponse<T>> future;
+  private final RequestTimer timer;
 
   public GeminiResponseDecoder(
       final URI uri,
       final BodyHandler<T> bodyHandler,
       final CompletableFuture<GeminiResponse<T>> future) {
+    this(uri, bodyHandler, future, new RequestTimer(uri, 0));
+  }
+
+  public GeminiResponseDecoder(
+      final URI uri,
+      final BodyHandler<T> bodyHandler,
+      final CompletableFuture<GeminiResponse<T>> future,
+      final RequestTimer timer) {
     super(MAX_HEADER_LENGTH, true, true, Delimiters.lineDelimiter());
     this.uri = uri;
     this.bodyHandler = bodyHandler;
     this.future = future;
+    this.timer = timer;
   }
 
   @Override
@@ -57,7 +67,6 @@ final class GeminiResponseDecoder<T> extends DelimiterBasedFrameDecoder {
     if (header == null) {
       return null;
     }
-
     if (header.readableBytes() < 2) {
       throw new MalformedResponseException("Incomplete response header");
     }
@@ -84,6 +93,7 @@ final class GeminiResponseDecoder<T> extends DelimiterBasedFrameDecoder {
     final var metaBytes = new byte[header.readableBytes()];
     header.readBytes(metaBytes);
     final var meta = new String(metaBytes, StandardCharsets.UTF_8);
+    timer.headerReceived(status, meta);
 
     final var responseBuilder = GeminiResponse.<T>newBuilder().uri(uri).status(status).meta(meta);
     if (status.kind() == Kind.SUCCESS) {
@@ -94,22 +104,33 @@ final class GeminiResponseDecoder<T> extends DelimiterBasedFrameDecoder {
         throw new MalformedResponseException("Invalid MIME type", e);
       }
       final var subscriber = bodyHandler.apply(mimeType);
+      final var channel = ctx.channel();
+      // The body may be available before it has been fully received (for example, if it is a
+      // publisher of streamed content), so the connection is only closed early on failure or if
+      // the subscriber cancels its subscription. A body which is left unconsumed pauses reading
+      // from the connection, which is then closed by the idle timeout.
       subscriber
           .getBody()
           .whenComplete(
               (body, e) -> {
                 if (e == null) {
-                  future.complete(
-                      body != null ? responseBuilder.body(body).build() : responseBuilder.build());
+                  if (body != null) {
+                    responseBuilder.body(body);
+                  }
+                  future.complete(responseBuilder.timings(timer.timings()).build());
                 } else {
                   future.completeExceptionally(e);
+                  channel.close();
                 }
-                ctx.close();
               });
       ctx.pipeline()
-          .replace(this, ctx.name(), new GeminiBodyDecoder(subscriber, future.defaultExecutor()));
+          .replace(
+              this,
+              ctx.name(),
+              new GeminiBodyDecoder(subscriber, future.defaultExecutor(), channel::close));
     } else {
-      future.complete(responseBuilder.build());
+      timer.completeWithHeader();
+      future.complete(responseBuilder.timings(timer.timings()).build());
       ctx.close();
     }
 
@@ -0,0 +1,73 @@
+package xyz.ianjohnson.gemini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import xyz.ianjohnson.gemini.GeminiException;
+
+/**
+ * An exception indicating that a request did not complete within one of the timeouts configured for
+ * it.
+ *
+ * @see GeminiClient.Builder
+ * @see RequestOptions
+ */
+public class GeminiTimeoutException extends GeminiException {
+  private final Phase phase;
+  private final Duration timeout;
+
+  /**
+   * Constructs a new {@link GeminiTimeoutException}.
+   *
+   * @param phase the phase of the request which timed out
+   * @param timeout the timeout which expired
+   */
+  public GeminiTimeoutException(final Phase phase, final Duration timeout) {
+    super(
+        "Request timed out "
+            + requireNonNull(phase, "phase").description
+            + " (timeout "
+            + timeout.toMillis()
+            + " ms)");
+    this.phase = phase;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Returns the phase of the request which timed out.
+   *
+   * @return the phase of the request which timed out
+   */
+  public Phase phase() {
+    return phase;
+  }
+
+  /**
+   * Returns the timeout which expired.
+   *
+   * @return the timeout which expired
+   */
+  public Duration timeout() {
+    return timeout;
+  }
+
+  /** A phase of a request which may time out. */
+  public enum Phase {
+    /** Establishing the TCP connection to the server. */
+    CONNECT("connecting to server"),
+    /** Performing the TLS handshake with the server. */
+    HANDSHAKE("during TLS handshake"),
+    /** Waiting for the response header after the TLS handshake has completed. */
+    HEADER("waiting for response header"),
+    /** Waiting for more of the response body after some of the response has been received. */
+    IDLE("waiting for response body"),
+    /** The request as a whole, from sending it until the whole response has been received. */
+    REQUEST("before completing");
+
+    private final String description;
+
+    Phase(final String description) {
+      this.description = description;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package xyz.ianjohnson.gemini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves host names to addresses for a {@link GeminiClient}.
+ *
+ * <p>Resolution is asynchronous: the client calls resolvers from its event loop threads, so {@link
+ * #resolve(String)} must never block the calling thread on a name lookup. A resolver which has to
+ * perform blocking lookups must hand them off to another thread, as the {@link #system(Executor)
+ * system resolver} does.
+ *
+ * <p>The client caches the addresses returned by its resolver, as well as failures to resolve a
+ * host, so resolvers do not need to cache their results themselves. Implementations must be safe
+ * for use by multiple threads.
+ *
+ * @see GeminiClient.Builder#hostResolver(HostResolver)
+ */
+@FunctionalInterface
+public interface HostResolver {
+  /**
+   * Returns a resolver which performs lookups using the resolver of the JVM ({@link
+   * InetAddress#getAllByName(String)}), running each blocking lookup on the given executor.
+   *
+   * @param executor the executor on which to perform lookups
+   * @return a resolver using the resolver of the JVM
+   */
+  static HostResolver system(final Executor executor) {
+    requireNonNull(executor, "executor");
+    return host ->
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return List.of(InetAddress.getAllByName(host));
+              } catch (final UnknownHostException e) {
+                throw new CompletionException(e);
+              }
+            },
+            executor);
+  }
+
+  /**
+   * Resolves the given host name to its addresses.
+   *
+   * @param host the host name to resolve, or a literal IP address
+   * @return a future which completes with the addresses of the host, in order of preference, or
+   *     exceptionally with an {@link java.net.UnknownHostException} if the host has no addresses
+   */
+  CompletableFuture<List<InetAddress>> resolve(String host);
+}
@@ -0,0 +1,89 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publisher of the items of an iterator, which are produced on the thread requesting them. The
+ * iterator can only be published to a single subscriber.
+ */
+final class IteratorPublisher<T> implements Publisher<T> {
+  private final Iterator<? extends T> iterator;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  IteratorPublisher(final Iterator<? extends T> iterator) {
+    this.iterator = iterator;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super T> subscriber) {
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(final long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("Iterator can only be published once"));
+      return;
+    }
+    subscriber.onSubscribe(new IteratorSubscription(subscriber));
+  }
+
+  private final class IteratorSubscription implements Subscription {
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger emitting = new AtomicInteger();
+    private volatile boolean done;
+
+    private IteratorSubscription(final Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+        return;
+      }
+      demand.getAndAccumulate(
+          n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+      // Items requested from within onNext are emitted by the loop already running
+      if (emitting.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        while (!done && demand.get() > 0) {
+          final T item;
+          try {
+            if (!iterator.hasNext()) {
+              done = true;
+              subscriber.onComplete();
+              return;
+            }
+            item = iterator.next();
+          } catch (final RuntimeException e) {
+            done = true;
+            subscriber.onError(e);
+            return;
+          }
+          demand.decrementAndGet();
+          subscriber.onNext(item);
+        }
+      } while (emitting.decrementAndGet() != 0);
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * A snapshot of a histogram of latencies, whose buckets double in size from one millisecond up to
+ * about a minute, with all longer latencies counted in a final bucket.
+ *
+ * @see ClientMetrics
+ */
+public final class LatencyHistogram {
+  /** The number of buckets, where the upper bound of bucket {@code i} is {@code 2^i} ms. */
+  static final int BUCKETS = 18;
+
+  private final long[] counts;
+  private final long totalNanos;
+  private final long maxNanos;
+
+  LatencyHistogram(final long[] counts, final long totalNanos, final long maxNanos) {
+    this.counts = counts.clone();
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+  }
+
+  /** Returns the index of the bucket which counts the given latency. */
+  static int bucket(final long nanos) {
+    final var millis = Math.max(0, (nanos + 999_999) / 1_000_000);
+    final var bucket = millis <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(millis - 1);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  /**
+   * Returns the number of latencies recorded.
+   *
+   * @return the number of latencies recorded
+   */
+  public long count() {
+    return Arrays.stream(counts).sum();
+  }
+
+  /**
+   * Returns the longest latency recorded.
+   *
+   * @return the longest latency recorded, or zero if none has been recorded
+   */
+  public Duration max() {
+    return Duration.ofNanos(maxNanos);
+  }
+
+  /**
+   * Returns the mean of the latencies recorded.
+   *
+   * @return the mean of the latencies recorded, or zero if none has been recorded
+   */
+  public Duration mean() {
+    final var count = count();
+    return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos / count);
+  }
+
+  /**
+   * Returns an upper bound for the given percentile of the latencies recorded, which is the upper
+   * bound of the bucket in which the percentile falls, or the longest latency recorded if that is
+   * lower.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return an upper bound for the percentile, or zero if no latency has been recorded
+   */
+  public Duration percentile(final double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    final var count = count();
+    if (count == 0) {
+      return Duration.ZERO;
+    }
+    final var rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    var seen = 0L;
+    for (var i = 0; i < BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        final var bound = Duration.ofMillis(1L << i);
+        return bound.compareTo(max()) < 0 ? bound : max();
+      }
+    }
+    return max();
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{"
+        + "count="
+        + count()
+        + ", mean="
+        + mean()
+        + ", p50="
+        + percentile(50)
+        + ", p99="
+        + percentile(99)
+        + ", max="
+        + max()
+        + '}';
+  }
+}
@@ -0,0 +1,556 @@
+package xyz.ianjohnson.gemini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link CertificateManager} backed by an append-only log file.
+ *
+ * <p>Each call to {@link #setCertificate(String, X509Certificate)} appends a record to the log
+ * containing the host, the SHA-256 fingerprint and DER encoding of the certificate, the time at
+ * which it was trusted and its validity period. Each record is protected by a CRC-32 checksum, so a
+ * record left incomplete by a crash is detected and discarded when the log is next opened, without
+ * affecting the records before it. The latest record for a host determines its certificate.
+ *
+ * <p>Records are written behind: {@link #setCertificate(String, X509Certificate)} updates the
+ * in-memory state and returns immediately, and a background thread writes all records set within
+ * the commit delay in a single batch, followed by a single {@code fsync}. Calling {@link #flush()}
+ * or {@link #close()} writes any pending records immediately. When the log contains more than twice
+ * as many records as there are hosts, it is compacted by writing the latest record for each host to
+ * a new file which atomically replaces the old one. The log is closed while it is replaced and
+ * reopened afterwards, since some platforms, notably Windows, refuse to replace a file which is
+ * still open by a handle that does not allow deletion.
+ *
+ * <p>On opening, the log file is read and scanned once; certificates are only decoded when they are
+ * first requested, so startup time depends very little on the number of known hosts. The file is
+ * deliberately read rather than memory-mapped, since a mapped file cannot be truncated or replaced
+ * on Windows while the mapping is reachable, and every record is copied out of it anyway.
+ *
+ * <p>Existing certificates, for example those stored in a {@link KeyStoreManager}, can be migrated
+ * using {@link #importFrom(CertificateManager)}.
+ */
+public final class LogCertificateManager implements CertificateManager, Closeable {
+  /** The default delay between setting a certificate and writing it to the log. */
+  public static final Duration DEFAULT_COMMIT_DELAY = Duration.ofMillis(100);
+
+  private static final Logger log = LoggerFactory.getLogger(LogCertificateManager.class);
+  private static final byte[] MAGIC = {'G', 'K', 'H', 'L'};
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int FINGERPRINT_SIZE = 32;
+  private static final int MIN_PAYLOAD_SIZE =
+      Short.BYTES + 3 * Long.BYTES + FINGERPRINT_SIZE + Integer.BYTES;
+  private static final int MIN_RECORDS_TO_COMPACT = 1024;
+
+  private final Path path;
+  private final long commitDelayNanos;
+  private final ConcurrentMap<String, Entry> entries;
+  private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean writeScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService writer =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            final var thread = new Thread(r, "gemini-certificate-log-writer");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private FileChannel channel;
+  private int records;
+  private volatile IOException writeError;
+  private volatile boolean closed;
+
+  private LogCertificateManager(
+      final Path path,
+      final Duration commitDelay,
+      final FileChannel channel,
+      final ConcurrentMap<String, Entry> entries,
+      final int records) {
+    this.path = path;
+    commitDelayNanos = commitDelay.toNanos();
+    this.channel = channel;
+    this.entries = entries;
+    this.records = records;
+  }
+
+  /**
+   * Opens the log at the given path with the {@link #DEFAULT_COMMIT_DELAY default commit delay},
+   * creating it if it does not exist.
+   *
+   * @param path the path of the log file
+   * @return a {@link LogCertificateManager} for the log
+   * @throws IOException if the log cannot be opened or is not a certificate log
+   */
+  public static LogCertificateManager open(final Path path) throws IOException {
+    return open(path, DEFAULT_COMMIT_DELAY);
+  }
+
+  /**
+   * Opens the log at the given path, creating it if it does not exist. If the log ends with an
+   * incomplete or corrupted record, for example due to a crash while it was being written, it is
+   * truncated to the last valid record.
+   *
+   * @param path the path of the log file
+   * @param commitDelay the maximum delay between setting a certificate and writing it to the log;
+   *     certificates set within this delay of each other are written and synced together
+   * @return a {@link LogCertificateManager} for the log
+   * @throws IOException if the log cannot be opened or is not a certificate log
+   */
+  public static LogCertificateManager open(final Path path, final Duration commitDelay)
+      throws IOException {
+    requireNonNull(path, "path");
+    if (commitDelay.isNegative()) {
+      throw new IllegalArgumentException("Commit delay must not be negative");
+    }
+    final var parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    final var channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      final var entries = new ConcurrentHashMap<String, Entry>();
+      final var size = channel.size();
+      if (size == 0) {
+        writeFully(channel, header());
+        channel.force(true);
+        return new LogCertificateManager(path, commitDelay, channel, entries, 0);
+      }
+
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Certificate log is too large: " + size + " bytes");
+      }
+      final var buffer = ByteBuffer.allocate((int) size);
+      readFully(channel, buffer);
+      buffer.flip();
+      final var records = load(buffer, entries);
+      final var end = buffer.position();
+      if (end < size) {
+        log.warn(
+            "Discarding {} bytes of incomplete or corrupted records at the end of {}",
+            size - end,
+            path);
+        channel.truncate(end);
+        channel.force(true);
+      }
+      channel.position(end);
+      log.info("Loaded {} known hosts from {}", entries.size(), path);
+      return new LogCertificateManager(path, commitDelay, channel, entries, records);
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Copies all the certificates from the given {@link CertificateManager} into this one. This can
+   * be used to migrate certificates from a {@link KeyStoreManager}.
+   *
+   * @param other the {@link CertificateManager} whose certificates to copy
+   * @throws KeyStoreException if the certificates cannot be read from {@code other} or written to
+   *     this manager
+   */
+  public void importFrom(final CertificateManager other) throws KeyStoreException {
+    for (final var host : other.hosts()) {
+      final var certificate = other.getCertificate(host);
+      if (certificate.isPresent()) {
+        setCertificate(host, certificate.get());
+      }
+    }
+  }
+
+  @Override
+  public List<String> hosts() {
+    return new ArrayList<>(entries.keySet());
+  }
+
+  @Override
+  public Optional<X509Certificate> getCertificate(final String host) throws KeyStoreException {
+    final var entry = entries.get(host);
+    return entry != null ? Optional.of(entry.certificate()) : Optional.empty();
+  }
+
+  /**
+   * Sets the trusted certificate for the given host. The certificate is available from this manager
+   * immediately, but is only written to the log after the commit delay, or when {@link #flush()} or
+   * {@link #close()} is called.
+   *
+   * @param host the host for which to set the trusted certificate
+   * @param certificate the new trusted certificate for the given host
+   * @throws KeyStoreException if this manager is closed, a previous write to the log failed, or the
+   *     certificate cannot be encoded
+   */
+  @Override
+  public void setCertificate(final String host, final X509Certificate certificate)
+      throws KeyStoreException {
+    if (closed) {
+      throw new KeyStoreException("Certificate log is closed");
+    }
+    if (writeError != null) {
+      throw new KeyStoreException("Could not write to certificate log", writeError);
+    }
+    if (host.getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+      throw new KeyStoreException("Host name is too long");
+    }
+    final Entry entry;
+    try {
+      entry = Entry.of(host, certificate, System.currentTimeMillis());
+    } catch (final CertificateEncodingException e) {
+      throw new KeyStoreException("Could not encode certificate", e);
+    }
+    entries.put(host, entry);
+    pending.add(entry.encode());
+    if (writeScheduled.compareAndSet(false, true)) {
+      writer.schedule(this::writePending, commitDelayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Writes all pending records to the log and syncs it to storage.
+   *
+   * @throws IOException if the records cannot be written
+   */
+  public void flush() throws IOException {
+    runOnWriter(this::writePending);
+  }
+
+  /**
+   * Compacts the log, leaving only the latest record for each host.
+   *
+   * @throws IOException if the log cannot be compacted
+   */
+  public void compact() throws IOException {
+    runOnWriter(
+        () -> {
+          writePending();
+          if (writeError == null) {
+            compactNow();
+          }
+        });
+  }
+
+  /**
+   * Writes all pending records to the log and closes it. Closing a manager which is already closed
+   * has no effect.
+   *
+   * @throws IOException if the pending records cannot be written or the log cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      runOnWriter(
+          () -> {
+            writePending();
+            try {
+              channel.close();
+            } catch (final IOException e) {
+              writeError = e;
+            }
+          });
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  private void runOnWriter(final Runnable task) throws IOException {
+    if (writer.isShutdown()) {
+      throw new IOException("Certificate log is closed");
+    }
+    try {
+      writer.submit(task).get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for certificate log");
+    } catch (final ExecutionException e) {
+      throw new IOException("Certificate log writer failed", e.getCause());
+    }
+    if (writeError != null) {
+      throw new IOException("Could not write to certificate log", writeError);
+    }
+  }
+
+  /** Writes all pending records. Must only be called on the writer thread. */
+  private void writePending() {
+    writeScheduled.set(false);
+    if (writeError != null || !channel.isOpen()) {
+      return;
+    }
+    final var batch = new ArrayList<ByteBuffer>();
+    ByteBuffer record;
+    while ((record = pending.poll()) != null) {
+      batch.add(record);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      for (final var buffer : batch) {
+        writeFully(channel, buffer);
+      }
+      channel.force(false);
+      records += batch.size();
+      if (records >= MIN_RECORDS_TO_COMPACT && records > 2 * entries.size()) {
+        compactNow();
+      }
+    } catch (final IOException e) {
+      log.error("Could not write to certificate log {}", path, e);
+      writeError = e;
+    }
+  }
+
+  /**
+   * Rewrites the log with only the latest entry for each host. Must only be called on the writer
+   * thread.
+   */
+  private void compactNow() {
+    final var compacted = path.resolveSibling(path.getFileName() + ".compact");
+    try {
+      final var snapshot = new ArrayList<>(entries.values());
+      try (final var out =
+          FileChannel.open(
+              compacted,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        writeFully(out, header());
+        for (final var entry : snapshot) {
+          writeFully(out, entry.encode());
+        }
+        out.force(true);
+      }
+      channel.close();
+      try {
+        Files.move(
+            compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        // Either the compacted log or, if it could not replace the old one, the old log
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+      }
+      log.debug("Compacted {} records in {} to {}", records, path, snapshot.size());
+      records = snapshot.size();
+    } catch (final IOException e) {
+      log.error("Could not compact certificate log {}", path, e);
+      writeError = e;
+    }
+  }
+
+  private static int load(final ByteBuffer buffer, final ConcurrentMap<String, Entry> entries)
+      throws IOException {
+    final var magic = new byte[MAGIC.length];
+    if (buffer.remaining() < HEADER_SIZE) {
+      throw new IOException("Not a certificate log: file is too short");
+    }
+    buffer.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a certificate log: bad magic number");
+    }
+    final var version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported certificate log version: " + version);
+    }
+
+    var records = 0;
+    final var crc = new CRC32();
+    while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+      final var start = buffer.position();
+      final var length = buffer.getInt();
+      final var checksum = buffer.getInt();
+      if (length < MIN_PAYLOAD_SIZE || length > buffer.remaining()) {
+        buffer.position(start);
+        break;
+      }
+      final var payload = buffer.slice().limit(length);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        buffer.position(start);
+        break;
+      }
+      final var entry = Entry.decode(payload);
+      if (entry == null) {
+        buffer.position(start);
+        break;
+      }
+      entries.put(entry.host, entry);
+      buffer.position(buffer.position() + length);
+      records++;
+    }
+    return records;
+  }
+
+  private static ByteBuffer header() {
+    return ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putInt(VERSION).flip();
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) == -1) {
+        break;
+      }
+    }
+  }
+
+  private static void writeFully(final FileChannel channel, final ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /** The latest record for a host. */
+  private static final class Entry {
+    private final String host;
+    private final long trustedAt;
+    private final long notBefore;
+    private final long notAfter;
+    private final byte[] fingerprint;
+    private final byte[] encoded;
+    private volatile X509Certificate certificate;
+
+    private Entry(
+        final String host,
+        final long trustedAt,
+        final long notBefore,
+        final long notAfter,
+        final byte[] fingerprint,
+        final byte[] encoded,
+        final X509Certificate certificate) {
+      this.host = host;
+      this.trustedAt = trustedAt;
+      this.notBefore = notBefore;
+      this.notAfter = notAfter;
+      this.fingerprint = fingerprint;
+      this.encoded = encoded;
+      this.certificate = certificate;
+    }
+
+    static Entry of(final String host, final X509Certificate certificate, final long trustedAt)
+        throws CertificateEncodingException {
+      final var encoded = certificate.getEncoded();
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (final NoSuchAlgorithmException e) {
+        throw new AssertionError("SHA-256 must be supported by MessageDigest", e);
+      }
+      return new Entry(
+          host,
+          trustedAt,
+          certificate.getNotBefore().getTime(),
+          certificate.getNotAfter().getTime(),
+          digest.digest(encoded),
+          encoded,
+          certificate);
+    }
+
+    /**
+     * Decodes an entry from the payload of a record, returning {@code null} if the payload is
+     * malformed.
+     */
+    static Entry decode(final ByteBuffer payload) {
+      final var hostLength = Short.toUnsignedInt(payload.getShort());
+      if (hostLength > payload.remaining() - (MIN_PAYLOAD_SIZE - Short.BYTES)) {
+        return null;
+      }
+      final var hostBytes = new byte[hostLength];
+      payload.get(hostBytes);
+      final var trustedAt = payload.getLong();
+      final var notBefore = payload.getLong();
+      final var notAfter = payload.getLong();
+      final var fingerprint = new byte[FINGERPRINT_SIZE];
+      payload.get(fingerprint);
+      final var encodedLength = payload.getInt();
+      if (encodedLength != payload.remaining()) {
+        return null;
+      }
+      final var encoded = new byte[encodedLength];
+      payload.get(encoded);
+      return new Entry(
+          new String(hostBytes, StandardCharsets.UTF_8),
+          trustedAt,
+          notBefore,
+          notAfter,
+          fingerprint,
+          encoded,
+          null);
+    }
+
+    X509Certificate certificate() throws KeyStoreException {
+      var certificate = this.certificate;
+      if (certificate == null) {
+        try {
+          certificate =
+              (X509Certificate)
+                  CertificateFactory.getInstance("X.509")
+                      .generateCertificate(new ByteArrayInputStream(encoded));
+        } catch (final CertificateException | ClassCastException e) {
+          throw new KeyStoreException("Could not decode certificate for " + host, e);
+        }
+        this.certificate = certificate;
+      }
+      return certificate;
+    }
+
+    /** Returns a buffer containing the complete record for this entry, including its header. */
+    ByteBuffer encode() {
+      final var hostBytes = host.getBytes(StandardCharsets.UTF_8);
+      final var length = MIN_PAYLOAD_SIZE + hostBytes.length + encoded.length;
+      final var buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+      buffer.putInt(length).putInt(0);
+      buffer
+          .putShort((short) hostBytes.length)
+          .put(hostBytes)
+          .putLong(trustedAt)
+          .putLong(notBefore)
+          .putLong(notAfter)
+          .put(fingerprint)
+          .putInt(encoded.length)
+          .put(encoded);
+      final var crc = new CRC32();
+      crc.update(buffer.array(), RECORD_HEADER_SIZE, length);
+      return buffer.putInt(Integer.BYTES, (int) crc.getValue()).flip();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of permanent redirects, so that requests for a URI which has permanently moved
+ * can be sent straight to its new location.
+ *
+ * <p>The cache holds at most a fixed number of redirects, evicting the least recently used one when
+ * it is full. Chains of permanent redirects are followed when resolving a URI, up to a given number
+ * of hops, which also guards against cycles.
+ */
+final class PermanentRedirectCache {
+  private final LinkedHashMap<URI, URI> redirects;
+
+  PermanentRedirectCache(final int maxEntries) {
+    redirects =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<URI, URI> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Remembers that the given URI has permanently moved to the given target.
+   *
+   * @param from the URI which has moved
+   * @param to the new location of the URI
+   */
+  synchronized void put(final URI from, final URI to) {
+    final var key = from.normalize();
+    final var target = to.normalize();
+    if (key.equals(target)) {
+      redirects.remove(key);
+    } else {
+      redirects.put(key, target);
+    }
+  }
+
+  /**
+   * Returns the targets of the remembered permanent redirects from the given URI, in the order they
+   * are followed.
+   *
+   * @param uri the URI to resolve
+   * @param maxHops the maximum number of redirects to follow
+   * @return the targets of the redirects from the URI, ending with its final target, or an empty
+   *     list if the URI has not moved or its redirects form a chain longer than {@code maxHops}
+   */
+  synchronized List<URI> resolve(final URI uri, final int maxHops) {
+    var target = redirects.get(uri.normalize());
+    if (target == null) {
+      return List.of();
+    }
+    final var hops = new ArrayList<URI>();
+    while (hops.size() < maxHops) {
+      hops.add(target);
+      target = redirects.get(target);
+      if (target == null) {
+        return hops;
+      }
+    }
+    return List.of();
+  }
+
+  /**
+   * Forgets all redirects from or to the given URI, for example because requests to it have failed.
+   *
+   * @param uri the URI
+   */
+  synchronized void invalidate(final URI uri) {
+    final var key = uri.normalize();
+    redirects.remove(key);
+    redirects.values().removeIf(key::equals);
+  }
+
+  /**
+   * Returns the number of remembered redirects.
+   *
+   * @return the number of remembered redirects
+   */
+  synchronized int size() {
+    return redirects.size();
+  }
+}
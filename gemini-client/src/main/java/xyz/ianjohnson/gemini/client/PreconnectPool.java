@@ -0,0 +1,134 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * Connections which have been opened ahead of time, and are parked until a request to the same host
+ * and port claims them.
+ *
+ * <p>A parked connection has completed its TLS handshake but has not yet sent a request. Parked
+ * connections are closed if they are not claimed within the TTL of the pool, since servers tend to
+ * close connections on which no request arrives soon after the handshake. A connection closed by
+ * the server while parked is removed from the pool immediately.
+ */
+final class PreconnectPool {
+  private final Duration ttl;
+  private final Map<String, ArrayDeque<Parked>> parked = new HashMap<>();
+
+  PreconnectPool(final Duration ttl) {
+    this.ttl = ttl;
+  }
+
+  /** Returns the key under which connections to the given host and port are parked. */
+  static String key(final String host, final int port) {
+    return host + ':' + port;
+  }
+
+  /**
+   * Parks the given connection until it is claimed or its TTL expires. The connection must have
+   * completed its handshake, and its pipeline must end with a {@link ParkingHandler}.
+   *
+   * @param key the key of the host and port of the connection
+   * @param channel the connection
+   */
+  synchronized void park(final String key, final Channel channel) {
+    final var entry = new Parked(key, channel);
+    // The reaper cannot run before the connection is in the pool, since it needs the lock
+    entry.reaper =
+        channel
+            .eventLoop()
+            .schedule(
+                () -> {
+                  if (remove(entry)) {
+                    channel.close();
+                  }
+                },
+                ttl.toNanos(),
+                TimeUnit.NANOSECONDS);
+    parked.computeIfAbsent(key, k -> new ArrayDeque<>()).add(entry);
+    channel.closeFuture().addListener(f -> remove(entry));
+  }
+
+  /**
+   * Removes and returns a parked connection to the given host and port, if there is one which is
+   * still open.
+   *
+   * @param key the key of the host and port
+   * @return a parked connection, or {@code null} if there is none
+   */
+  synchronized @Nullable Channel claim(final String key) {
+    final var queue = parked.get(key);
+    if (queue == null) {
+      return null;
+    }
+    Parked entry;
+    while ((entry = queue.poll()) != null && !entry.channel.isActive()) {
+      // Closed, but its close listener has not yet removed it
+    }
+    if (queue.isEmpty()) {
+      parked.remove(key);
+    }
+    if (entry == null) {
+      return null;
+    }
+    entry.reaper.cancel(false);
+    return entry.channel;
+  }
+
+  private synchronized boolean remove(final Parked entry) {
+    final var queue = parked.get(entry.key);
+    if (queue == null || !queue.remove(entry)) {
+      return false;
+    }
+    if (queue.isEmpty()) {
+      parked.remove(entry.key);
+    }
+    return true;
+  }
+
+  private static final class Parked {
+    private final String key;
+    private final Channel channel;
+    private ScheduledFuture<?> reaper;
+
+    private Parked(final String key, final Channel channel) {
+      this.key = key;
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * The last handler of a connection being opened ahead of time. It fails the preconnect future if
+   * the connection fails before it is claimed, and discards anything the server sends before a
+   * request has been made. It must be removed when the connection is claimed.
+   */
+  static final class ParkingHandler extends ChannelInboundHandlerAdapter {
+    private final CompletableFuture<Boolean> future;
+
+    ParkingHandler(final CompletableFuture<Boolean> future) {
+      this.future = future;
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+      ReferenceCountUtil.release(msg);
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+      future.completeExceptionally(cause);
+      ctx.close();
+    }
+  }
+}
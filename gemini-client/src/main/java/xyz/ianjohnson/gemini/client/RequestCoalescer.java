@@ -0,0 +1,254 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandler;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
+
+/**
+ * Coalesces identical concurrent requests into a single network fetch.
+ *
+ * <p>The first request for a key starts a fetch, whose body is received into a {@link SharedBody}.
+ * Requests for the same key made while the fetch is in flight (including while its body is still
+ * being received) join it, and each feeds the shared body to the {@link BodySubscriber} of its own
+ * body handler. Once the fetch has completed, the next request for the key starts a new one.
+ *
+ * <p>If every request sharing a fetch is cancelled, or cancels its body subscription, before the
+ * fetch has completed, the fetch is abandoned and its connection closed.
+ */
+final class RequestCoalescer {
+  private final ConcurrentHashMap<Object, Fetch> inFlight = new ConcurrentHashMap<>();
+  private final Executor executor;
+
+  /**
+   * Constructs a new {@link RequestCoalescer}.
+   *
+   * @param executor the executor on which to attach body subscribers to shared responses
+   */
+  RequestCoalescer(final Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Sends a request, joining an identical request which is already in flight if there is one.
+   *
+   * @param key the key identifying identical requests
+   * @param responseBodyHandler the body handler of this request
+   * @param fetcher performs the network fetch if there is no identical request in flight
+   * @param future the future to complete with the response to this request
+   * @param <T> the type of the decoded response body
+   */
+  <T> void send(
+      final Object key,
+      final BodyHandler<T> responseBodyHandler,
+      final Fetcher fetcher,
+      final CompletableFuture<GeminiResponse<T>> future) {
+    final var request = new Request<>(responseBodyHandler, future);
+    while (true) {
+      final var newFetch = new Fetch(key);
+      final var fetch = inFlight.putIfAbsent(key, newFetch);
+      if (fetch == null) {
+        newFetch.join(request);
+        newFetch.start(fetcher);
+        return;
+      } else if (fetch.join(request)) {
+        return;
+      }
+      // The fetch was abandoned by all its requests just as we tried to join it
+      inFlight.remove(key, fetch);
+    }
+  }
+
+  /**
+   * Returns the number of distinct fetches currently in flight.
+   *
+   * @return the number of distinct fetches currently in flight
+   */
+  int inFlight() {
+    return inFlight.size();
+  }
+
+  /** Performs the network fetch for a request, receiving the body into the given handler. */
+  @FunctionalInterface
+  interface Fetcher {
+    CompletableFuture<GeminiResponse<SharedBody>> fetch(BodyHandler<SharedBody> handler);
+  }
+
+  /** A single network fetch shared by one or more requests. */
+  private final class Fetch {
+    private final Object key;
+    /** The requests waiting for the response header. */
+    private final Set<Request<?>> waiting = new LinkedHashSet<>();
+
+    private CompletableFuture<GeminiResponse<SharedBody>> network;
+    private boolean done;
+    private GeminiResponse<SharedBody> response;
+    private Throwable failure;
+    private boolean abandoned;
+
+    private Fetch(final Object key) {
+      this.key = key;
+    }
+
+    private void start(final Fetcher fetcher) {
+      final var networkFuture =
+          fetcher.fetch(mimeType -> new SharedBody(mimeType, () -> inFlight.remove(key, this)));
+      final boolean cancel;
+      synchronized (this) {
+        network = networkFuture;
+        cancel = abandoned;
+      }
+      if (cancel) {
+        networkFuture.cancel(false);
+      }
+      networkFuture.whenComplete(this::complete);
+    }
+
+    /**
+     * Joins this fetch on behalf of the given request.
+     *
+     * @return whether the fetch could be joined, which is not the case if it has been abandoned
+     */
+    private boolean join(final Request<?> request) {
+      synchronized (this) {
+        if (abandoned) {
+          return false;
+        }
+        if (!done) {
+          waiting.add(request);
+          request.future.whenComplete(
+              (r, e) -> {
+                if (request.future.isCancelled()) {
+                  leave(request);
+                }
+              });
+          return true;
+        }
+        if (response != null && response.body().isPresent() && !response.body().get().retain()) {
+          return false;
+        }
+      }
+      request.deliver(response, failure);
+      return true;
+    }
+
+    private void complete(final GeminiResponse<SharedBody> response, final Throwable failure) {
+      final List<Request<?>> toDeliver;
+      final var body = response != null ? response.body().orElse(null) : null;
+      synchronized (this) {
+        done = true;
+        this.response = response;
+        this.failure = failure;
+        toDeliver = new ArrayList<>(waiting);
+        waiting.clear();
+        if (body != null) {
+          // Each waiting request holds a reference to the body until it has subscribed to it
+          for (var i = 0; i < toDeliver.size(); i++) {
+            body.retain();
+          }
+        }
+      }
+      if (body == null) {
+        // There is no body to wait for
+        inFlight.remove(key, this);
+      } else if (toDeliver.isEmpty() && body.retain()) {
+        // Every request left just as the header arrived, so nobody wants the body
+        body.release();
+      }
+      toDeliver.forEach(request -> request.deliver(response, failure));
+    }
+
+    /** Stops waiting for the response header on behalf of a cancelled request. */
+    private void leave(final Request<?> request) {
+      final CompletableFuture<GeminiResponse<SharedBody>> toCancel;
+      synchronized (this) {
+        if (!waiting.remove(request) || !waiting.isEmpty() || done) {
+          return;
+        }
+        abandoned = true;
+        toCancel = network;
+      }
+      // Nobody is waiting for the response any more, so give up the connection
+      inFlight.remove(key, this);
+      if (toCancel != null) {
+        toCancel.cancel(false);
+      }
+    }
+  }
+
+  /** A single request sharing a fetch. */
+  private final class Request<T> {
+    private final BodyHandler<T> responseBodyHandler;
+    private final CompletableFuture<GeminiResponse<T>> future;
+
+    private Request(
+        final BodyHandler<T> responseBodyHandler,
+        final CompletableFuture<GeminiResponse<T>> future) {
+      this.responseBodyHandler = responseBodyHandler;
+      this.future = future;
+    }
+
+    /**
+     * Completes this request with the shared response. If the response has a body, it must already
+     * have been retained on behalf of this request.
+     */
+    private void deliver(final GeminiResponse<SharedBody> shared, final Throwable failure) {
+      if (failure != null) {
+        future.completeExceptionally(failure);
+        return;
+      }
+      executor.execute(() -> attach(shared));
+    }
+
+    private void attach(final GeminiResponse<SharedBody> shared) {
+      final var responseBuilder =
+          GeminiResponse.<T>newBuilder()
+              .uri(shared.uri())
+              .status(shared.status())
+              .meta(shared.meta())
+              .timings(shared.timings());
+      if (shared.body().isEmpty()) {
+        future.complete(responseBuilder.build());
+        return;
+      }
+      final var body = shared.body().get();
+      if (future.isDone()) {
+        body.release();
+        return;
+      }
+      final BodySubscriber<T> subscriber;
+      try {
+        subscriber = responseBodyHandler.apply(body.mimeType());
+      } catch (final RuntimeException e) {
+        body.release();
+        future.completeExceptionally(e);
+        return;
+      }
+      subscriber
+          .getBody()
+          .whenComplete(
+              (value, e) -> {
+                if (e == null) {
+                  future.complete(
+                      value != null
+                          ? responseBuilder.body(value).build()
+                          : responseBuilder.build());
+                } else {
+                  future.completeExceptionally(e);
+                }
+              });
+      final var subscription = body.subscribe(subscriber);
+      future.whenComplete(
+          (r, e) -> {
+            if (future.isCancelled()) {
+              subscription.cancel();
+            }
+          });
+    }
+  }
+}
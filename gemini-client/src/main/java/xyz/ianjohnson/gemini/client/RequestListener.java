@@ -0,0 +1,32 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+
+/**
+ * A listener notified by a {@link GeminiClient} as each request completes, for example to collect
+ * metrics about the requests made by the client.
+ *
+ * <p>Listeners are called on the thread which completes the request, so they must be quick and must
+ * not block. Implementations must be safe for use by multiple threads. An exception thrown by a
+ * listener is logged and otherwise ignored.
+ *
+ * @see GeminiClient.Builder#requestListener(RequestListener)
+ * @see ClientMetrics
+ */
+public interface RequestListener {
+  /**
+   * Called when a request completes with a response, after following any redirects. The {@link
+   * GeminiResponse#timings() timings} of the response describe how it was received.
+   *
+   * @param response the response to the request
+   */
+  default void onResponse(final GeminiResponse<?> response) {}
+
+  /**
+   * Called when a request fails, including when it times out or is cancelled.
+   *
+   * @param uri the URI originally requested
+   * @param failure the reason the request failed
+   */
+  default void onFailure(final URI uri, final Throwable failure) {}
+}
@@ -0,0 +1,125 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Options for an individual request, overriding the defaults configured in the {@link
+ * GeminiClient}. Any option which is not set uses the client's default.
+ *
+ * <p>As with {@link GeminiClient.Builder}, a timeout of {@link Duration#ZERO} disables the
+ * corresponding timeout.
+ */
+@AutoValue
+public abstract class RequestOptions {
+  private static final RequestOptions DEFAULTS = newBuilder().build();
+
+  RequestOptions() {}
+
+  /**
+   * Returns options which do not override any of the client's defaults.
+   *
+   * @return options which do not override any of the client's defaults
+   */
+  public static RequestOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * Returns a new {@link RequestOptions.Builder}.
+   *
+   * @return a new {@link RequestOptions.Builder}
+   */
+  public static Builder newBuilder() {
+    return new AutoValue_RequestOptions.Builder()
+        .followRedirects(true)
+        .priority(RequestPriority.NORMAL);
+  }
+
+  /** The maximum time to wait for a connection to the server to be established. */
+  public abstract Optional<Duration> connectTimeout();
+
+  /** The maximum time to wait for the TLS handshake with the server to complete. */
+  public abstract Optional<Duration> handshakeTimeout();
+
+  /** The maximum time to wait for the response header once the TLS handshake has completed. */
+  public abstract Optional<Duration> headerTimeout();
+
+  /** The maximum time to wait for more of the response body once the header has been received. */
+  public abstract Optional<Duration> idleTimeout();
+
+  /**
+   * The maximum time for the whole request to complete, including waiting for a connection,
+   * following redirects and receiving the response body.
+   */
+  public abstract Optional<Duration> requestTimeout();
+
+  /** The policy for retrying this request if it fails with a temporary failure status. */
+  public abstract Optional<RetryPolicy> retryPolicy();
+
+  /**
+   * Whether to follow redirects. If {@code false}, a redirect response is returned as-is, as is a
+   * permanent redirect remembered by the client. The default is {@code true}.
+   */
+  public abstract boolean followRedirects();
+
+  /**
+   * The priority of this request when waiting for a connection. The default is {@link
+   * RequestPriority#NORMAL}.
+   */
+  public abstract RequestPriority priority();
+
+  /**
+   * Returns a new {@link RequestOptions.Builder} initialized with these options.
+   *
+   * @return a new {@link RequestOptions.Builder} initialized with these options
+   */
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    Builder() {}
+
+    public abstract Builder connectTimeout(Duration connectTimeout);
+
+    public abstract Builder handshakeTimeout(Duration handshakeTimeout);
+
+    public abstract Builder headerTimeout(Duration headerTimeout);
+
+    public abstract Builder idleTimeout(Duration idleTimeout);
+
+    public abstract Builder requestTimeout(Duration requestTimeout);
+
+    public abstract Builder retryPolicy(RetryPolicy retryPolicy);
+
+    public abstract Builder followRedirects(boolean followRedirects);
+
+    public abstract Builder priority(RequestPriority priority);
+
+    abstract RequestOptions autoBuild();
+
+    /**
+     * Builds a new {@link RequestOptions} using the options set on this {@link Builder}.
+     *
+     * @return a new {@link RequestOptions}
+     * @throws IllegalArgumentException if any timeout is negative
+     */
+    public RequestOptions build() {
+      final var options = autoBuild();
+      for (final var timeout :
+          List.of(
+              options.connectTimeout(),
+              options.handshakeTimeout(),
+              options.headerTimeout(),
+              options.idleTimeout(),
+              options.requestTimeout())) {
+        if (timeout.isPresent() && timeout.get().isNegative()) {
+          throw new IllegalArgumentException("Timeouts must not be negative");
+        }
+      }
+      return options;
+    }
+  }
+}
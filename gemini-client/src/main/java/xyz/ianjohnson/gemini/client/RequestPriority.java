@@ -0,0 +1,21 @@
+package xyz.ianjohnson.gemini.client;
+
+/**
+ * The priority of a request, which decides the order in which waiting requests are given a
+ * connection when the connection limits of a {@link GeminiClient} have been reached.
+ *
+ * <p>Waiting requests of higher priority are given a connection first. So that a steady stream of
+ * higher priority requests cannot starve requests of lower priority, a waiting request is treated
+ * as one level higher for each {@link
+ * GeminiClient.Builder#priorityAgingInterval(java.time.Duration) aging interval} it has waited.
+ *
+ * @see RequestOptions#priority()
+ */
+public enum RequestPriority {
+  /** Background work which nobody is waiting on, such as refreshing feeds. */
+  LOW,
+  /** The default priority. */
+  NORMAL,
+  /** Work which a user is actively waiting on, such as loading the page they just opened. */
+  HIGH
+}
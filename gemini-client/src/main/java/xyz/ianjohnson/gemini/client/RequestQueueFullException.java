@@ -0,0 +1,32 @@
+package xyz.ianjohnson.gemini.client;
+
+import xyz.ianjohnson.gemini.GeminiException;
+
+/**
+ * An exception indicating that a request was rejected because the maximum number of requests are
+ * already waiting for a connection to its host.
+ *
+ * @see GeminiClient.Builder#maxQueuedRequestsPerHost(int)
+ */
+public class RequestQueueFullException extends GeminiException {
+  private final String host;
+
+  /**
+   * Constructs a new {@link RequestQueueFullException} for a request to the given host.
+   *
+   * @param host the host to which the request was to be sent
+   */
+  public RequestQueueFullException(final String host) {
+    super("Too many requests waiting for a connection to host " + host);
+    this.host = host;
+  }
+
+  /**
+   * Returns the host to which the rejected request was to be sent.
+   *
+   * @return the host to which the rejected request was to be sent
+   */
+  public String host() {
+    return host;
+  }
+}
@@ -0,0 +1,148 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import java.net.URI;
+import java.time.Duration;
+import javax.net.ssl.SSLSession;
+import xyz.ianjohnson.gemini.GeminiStatus;
+import xyz.ianjohnson.gemini.GeminiStatus.Kind;
+import xyz.ianjohnson.gemini.Nullable;
+import xyz.ianjohnson.gemini.client.ClientEvents.BodyCompleted;
+import xyz.ianjohnson.gemini.client.ClientEvents.ResponseHeaderReceived;
+
+/**
+ * Records the progress of a request to a single URI, from which the {@link ResponseTimings} of its
+ * response are taken.
+ *
+ * <p>The timer is also the handler immediately after the TLS handler in the pipeline of the
+ * connection, where it counts the bytes received and notes when the connection is closed, which
+ * marks the end of the response.
+ *
+ * <p>If they are enabled, the timer also emits the {@link ResponseHeaderReceived} and {@link
+ * BodyCompleted} events of the request.
+ */
+final class RequestTimer extends ChannelInboundHandlerAdapter {
+  private static final long UNSET = Long.MIN_VALUE;
+
+  private final long start = System.nanoTime();
+  private final URI uri;
+  private final int redirects;
+  @Nullable private final ResponseHeaderReceived headerEvent;
+  @Nullable private volatile BodyCompleted bodyEvent;
+  private volatile long resolveStarted = UNSET;
+  private volatile long resolved = UNSET;
+  private volatile long connected = UNSET;
+  private volatile long connectedAtMillis;
+  private volatile long handshaken = UNSET;
+  private volatile long header = UNSET;
+  private volatile long lastByte = UNSET;
+  private volatile long bytesReceived;
+  private volatile boolean sessionResumed;
+
+  /**
+   * @param uri the URI of the request
+   * @param redirects the number of redirects followed before this request
+   */
+  RequestTimer(final URI uri, final int redirects) {
+    this.uri = uri;
+    this.redirects = redirects;
+    headerEvent =
+        ClientEvents.begin(ClientEvents.RESPONSE_HEADER_RECEIVED, ResponseHeaderReceived::new);
+  }
+
+  void resolveStarted() {
+    resolveStarted = System.nanoTime();
+  }
+
+  void resolved() {
+    resolved = System.nanoTime();
+  }
+
+  void connected() {
+    connected = System.nanoTime();
+    connectedAtMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Notes that the TLS handshake has completed. A session created before the connection was opened
+   * must have been resumed from an earlier connection.
+   */
+  void handshaken(final SSLSession session) {
+    handshaken = System.nanoTime();
+    sessionResumed = session.getCreationTime() < connectedAtMillis;
+  }
+
+  void headerReceived(final GeminiStatus status, final String meta) {
+    header = System.nanoTime();
+    if (headerEvent != null) {
+      headerEvent.end();
+      if (headerEvent.shouldCommit()) {
+        headerEvent.host = uri.getHost();
+        headerEvent.path = uri.getRawPath();
+        headerEvent.status = status.code();
+        headerEvent.meta = meta;
+        headerEvent.redirects = redirects;
+        headerEvent.commit();
+      }
+    }
+    if (status.kind() == Kind.SUCCESS) {
+      bodyEvent = ClientEvents.begin(ClientEvents.BODY_COMPLETED, BodyCompleted::new);
+    }
+  }
+
+  /** Notes that the whole response has been received along with its header, as it has no body. */
+  void completeWithHeader() {
+    lastByte = header;
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (msg instanceof ByteBuf) {
+      // Only ever written from the event loop of the connection
+      bytesReceived += ((ByteBuf) msg).readableBytes();
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) {
+    if (header != UNSET && lastByte == UNSET) {
+      lastByte = System.nanoTime();
+    }
+    final var bodyEvent = this.bodyEvent;
+    if (bodyEvent != null) {
+      bodyEvent.end();
+      if (bodyEvent.shouldCommit()) {
+        bodyEvent.host = uri.getHost();
+        bodyEvent.path = uri.getRawPath();
+        bodyEvent.bytes = bytesReceived;
+        bodyEvent.commit();
+      }
+    }
+    ctx.fireChannelInactive();
+  }
+
+  /** Returns the timings recorded so far. */
+  ResponseTimings timings() {
+    final var timings =
+        ResponseTimings.newBuilder()
+            .dnsLookup(between(resolveStarted, resolved))
+            .connect(between(resolved, connected))
+            .handshake(between(connected, handshaken))
+            .timeToHeader(between(start, header))
+            .bytesReceived(bytesReceived)
+            .redirects(redirects)
+            .sessionResumed(sessionResumed);
+    final var lastByte = this.lastByte;
+    if (lastByte != UNSET) {
+      timings.timeToLastByte(between(start, lastByte));
+    }
+    return timings.build();
+  }
+
+  private static Duration between(final long from, final long to) {
+    return from != UNSET && to != UNSET ? Duration.ofNanos(to - from) : Duration.ZERO;
+  }
+}
@@ -0,0 +1,45 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * A cache of successful responses, used by a {@link GeminiClient} to answer requests without any
+ * network activity.
+ *
+ * <p>Responses are keyed by the URI of the request which received them, which is the final URI
+ * after following any redirects. Since Gemini has no caching headers, the cache itself decides how
+ * long each response may be reused for.
+ *
+ * <p>Implementations must be safe for use by multiple threads.
+ *
+ * @see GeminiClient.Builder#responseCache(ResponseCache)
+ * @see TieredResponseCache
+ */
+public interface ResponseCache {
+  /**
+   * Returns the cached response for the given URI, if there is one which has not expired.
+   *
+   * @param uri the URI of the request
+   * @return the cached response for the URI
+   */
+  Optional<CachedResponse> get(URI uri);
+
+  /**
+   * Offers a successful response to the cache. The cache may decline to store it, for example if it
+   * is too large or the cache policy does not allow the URI to be cached.
+   *
+   * @param response the response to cache
+   */
+  void put(CachedResponse response);
+
+  /**
+   * Returns the size of the largest response body this cache may store. The client does not keep a
+   * copy of larger response bodies to offer to the cache.
+   *
+   * @return the size of the largest response body this cache may store
+   */
+  default int maxBodyBytes() {
+    return 8 * 1024 * 1024;
+  }
+}
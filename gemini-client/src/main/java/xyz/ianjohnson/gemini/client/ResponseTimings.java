@@ -0,0 +1,86 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * A breakdown of the time taken to receive a response from the network. The durations of the phases
+ * of the request cover the request for the final URI only, after following any redirects.
+ *
+ * @see GeminiResponse#timings()
+ */
+@AutoValue
+public abstract class ResponseTimings {
+  ResponseTimings() {}
+
+  static Builder newBuilder() {
+    return new AutoValue_ResponseTimings.Builder();
+  }
+
+  /**
+   * The time spent resolving the host of the server, or zero if the request was sent on a
+   * connection opened ahead of time.
+   */
+  public abstract Duration dnsLookup();
+
+  /**
+   * The time spent establishing the TCP connection to the server, or zero if the request was sent
+   * on a connection opened ahead of time.
+   */
+  public abstract Duration connect();
+
+  /**
+   * The time spent performing the TLS handshake with the server, or zero if the request was sent on
+   * a connection opened ahead of time.
+   */
+  public abstract Duration handshake();
+
+  /**
+   * The time from starting the request, including any time spent waiting for a connection, until
+   * the response header was received.
+   */
+  public abstract Duration timeToHeader();
+
+  /**
+   * The time from starting the request until the last byte of the response was received. This is
+   * empty if the response was made available while its body was still being received, as it is for
+   * body handlers which stream the body.
+   */
+  public abstract Optional<Duration> timeToLastByte();
+
+  /**
+   * The number of bytes of the response (header and body) received by the time the response was
+   * made available.
+   */
+  public abstract long bytesReceived();
+
+  /** The number of redirects followed before sending the request for the final URI. */
+  public abstract int redirects();
+
+  /** Whether the TLS session was resumed from an earlier connection to the server. */
+  public abstract boolean sessionResumed();
+
+  @AutoValue.Builder
+  abstract static class Builder {
+    Builder() {}
+
+    abstract Builder dnsLookup(Duration dnsLookup);
+
+    abstract Builder connect(Duration connect);
+
+    abstract Builder handshake(Duration handshake);
+
+    abstract Builder timeToHeader(Duration timeToHeader);
+
+    abstract Builder timeToLastByte(Duration timeToLastByte);
+
+    abstract Builder bytesReceived(long bytesReceived);
+
+    abstract Builder redirects(int redirects);
+
+    abstract Builder sessionResumed(boolean sessionResumed);
+
+    abstract ResponseTimings build();
+  }
+}
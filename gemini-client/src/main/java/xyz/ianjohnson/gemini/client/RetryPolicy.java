@@ -0,0 +1,163 @@
+package xyz.ianjohnson.gemini.client;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import xyz.ianjohnson.gemini.GeminiStatus;
+import xyz.ianjohnson.gemini.GeminiStatus.Kind;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+
+/**
+ * A policy for automatically retrying requests which fail with a temporary failure ({@code 4x})
+ * status.
+ *
+ * <p>A {@link StandardGeminiStatus#SLOW_DOWN SLOW_DOWN} response is retried after the delay given
+ * in its meta, and all further requests to the same host wait until the delay has passed. Other
+ * temporary failures are optionally retried after an exponentially increasing, jittered delay. Once
+ * a request has been retried {@link #maxRetries()} times, or if the server asks to slow down for
+ * longer than {@link #maxSlowDownDelay()}, the failure response is returned as usual.
+ *
+ * <p>Retrying is opt-in: the default policy of {@link GeminiClient} is {@link #none()}.
+ */
+@AutoValue
+public abstract class RetryPolicy {
+  private static final RetryPolicy NONE = newBuilder().maxRetries(0).build();
+
+  RetryPolicy() {}
+
+  /**
+   * Returns a policy which never retries requests.
+   *
+   * @return a policy which never retries requests
+   */
+  public static RetryPolicy none() {
+    return NONE;
+  }
+
+  /**
+   * Returns a new {@link RetryPolicy.Builder}. The builder is initialized with a policy that
+   * retries each request at most 3 times, starting with a backoff of 1 second and doubling it up to
+   * 30 seconds, and which honors {@code SLOW_DOWN} delays of up to 60 seconds.
+   *
+   * @return a new {@link RetryPolicy.Builder}
+   */
+  public static Builder newBuilder() {
+    return new AutoValue_RetryPolicy.Builder()
+        .maxRetries(3)
+        .initialBackoff(Duration.ofSeconds(1))
+        .maxBackoff(Duration.ofSeconds(30))
+        .maxSlowDownDelay(Duration.ofSeconds(60))
+        .retryTemporaryFailures(true);
+  }
+
+  /** The maximum number of times a single request may be retried. */
+  public abstract int maxRetries();
+
+  /** The backoff before the first retry of a temporary failure other than {@code SLOW_DOWN}. */
+  public abstract Duration initialBackoff();
+
+  /** The maximum backoff between retries of a temporary failure other than {@code SLOW_DOWN}. */
+  public abstract Duration maxBackoff();
+
+  /**
+   * The longest {@code SLOW_DOWN} delay which is honored by waiting. Responses asking for a longer
+   * delay are returned without retrying.
+   */
+  public abstract Duration maxSlowDownDelay();
+
+  /**
+   * Whether temporary failures other than {@code SLOW_DOWN} (such as {@link
+   * StandardGeminiStatus#SERVER_UNAVAILABLE SERVER_UNAVAILABLE}) are retried.
+   */
+  public abstract boolean retryTemporaryFailures();
+
+  /**
+   * Returns a new {@link RetryPolicy.Builder} initialized with this policy.
+   *
+   * @return a new {@link RetryPolicy.Builder} initialized with this policy
+   */
+  public abstract Builder toBuilder();
+
+  /**
+   * Returns the delay before retrying a request which received the given response, or an empty
+   * optional if it should not be retried.
+   *
+   * @param status the status of the response
+   * @param meta the meta of the response
+   * @param retries the number of times the request has already been retried
+   */
+  Optional<Duration> retryDelay(final GeminiStatus status, final String meta, final int retries) {
+    if (status.kind() != Kind.TEMPORARY_FAILURE || retries >= maxRetries()) {
+      return Optional.empty();
+    }
+    if (status == StandardGeminiStatus.SLOW_DOWN) {
+      final var delay = slowDownDelay(meta);
+      if (delay.isPresent()) {
+        return delay.get().compareTo(maxSlowDownDelay()) <= 0 ? delay : Optional.empty();
+      }
+    } else if (!retryTemporaryFailures()) {
+      return Optional.empty();
+    }
+    return Optional.of(backoff(retries));
+  }
+
+  /**
+   * Returns the jittered exponential backoff before the given retry: a random duration between half
+   * and all of {@code initialBackoff * 2^retries}, capped at {@link #maxBackoff()}.
+   */
+  Duration backoff(final int retries) {
+    final var max = maxBackoff().toNanos();
+    var backoff = Math.min(initialBackoff().toNanos(), max);
+    for (var i = 0; i < retries && backoff < max; i++) {
+      backoff = backoff < max / 2 ? backoff * 2 : max;
+    }
+    return Duration.ofNanos(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+  }
+
+  /** Parses the delay in seconds from the meta of a {@code SLOW_DOWN} response. */
+  static Optional<Duration> slowDownDelay(final String meta) {
+    try {
+      final var seconds = Long.parseLong(meta.strip());
+      return seconds >= 0 ? Optional.of(Duration.ofSeconds(seconds)) : Optional.empty();
+    } catch (final NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    Builder() {}
+
+    public abstract Builder maxRetries(int maxRetries);
+
+    public abstract Builder initialBackoff(Duration initialBackoff);
+
+    public abstract Builder maxBackoff(Duration maxBackoff);
+
+    public abstract Builder maxSlowDownDelay(Duration maxSlowDownDelay);
+
+    public abstract Builder retryTemporaryFailures(boolean retryTemporaryFailures);
+
+    abstract RetryPolicy autoBuild();
+
+    /**
+     * Builds a new {@link RetryPolicy} using the settings of this {@link Builder}.
+     *
+     * @return a new {@link RetryPolicy}
+     * @throws IllegalArgumentException if {@code maxRetries} or any duration is negative
+     */
+    public RetryPolicy build() {
+      final var policy = autoBuild();
+      if (policy.maxRetries() < 0) {
+        throw new IllegalArgumentException("maxRetries must not be negative");
+      }
+      if (policy.initialBackoff().isNegative()
+          || policy.maxBackoff().isNegative()
+          || policy.maxSlowDownDelay().isNegative()) {
+        throw new IllegalArgumentException("Durations must not be negative");
+      }
+      return policy;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
+
+/**
+ * A response body which is received once and fanned out to any number of subscribers.
+ *
+ * <p>The body is requested from the connection as fast as it arrives and buffered in full, so that
+ * each subscriber receives the whole body from the start regardless of when it subscribes, at its
+ * own pace. The body itself is available as soon as the response header has been received, so that
+ * subscribers may be attached while the rest of the body is still being received.
+ *
+ * <p>Each subscriber must be {@linkplain #retain() retained} before it subscribes (or decides not
+ * to). Once every retained subscriber has cancelled its subscription before the body has been fully
+ * received, the subscription to the connection is cancelled, closing it.
+ */
+final class SharedBody implements BodySubscriber<SharedBody> {
+  private final MimeType mimeType;
+  private final Runnable onDone;
+  private final List<List<ByteBuffer>> items = new ArrayList<>();
+  private final List<Downstream> downstreams = new ArrayList<>();
+  private Subscription upstream;
+  private boolean done;
+  private Throwable error;
+  private int retained;
+  private boolean abandoned;
+
+  /**
+   * Constructs a new {@link SharedBody}.
+   *
+   * @param mimeType the MIME type of the body
+   * @param onDone a callback invoked once the body has been fully received, has failed, or has been
+   *     abandoned by all its subscribers
+   */
+  SharedBody(final MimeType mimeType, final Runnable onDone) {
+    this.mimeType = mimeType;
+    this.onDone = onDone;
+  }
+
+  /** Returns the MIME type of the body. */
+  MimeType mimeType() {
+    return mimeType;
+  }
+
+  /**
+   * Registers interest in the body by a new subscriber, which must later either subscribe or call
+   * {@link #release()}.
+   *
+   * @return whether the subscriber may use the body, which is not the case if all previous
+   *     subscribers have already abandoned it
+   */
+  synchronized boolean retain() {
+    if (abandoned) {
+      return false;
+    }
+    retained++;
+    return true;
+  }
+
+  /** Releases interest in the body by a subscriber which did not subscribe or has cancelled. */
+  void release() {
+    final Subscription toCancel;
+    synchronized (this) {
+      retained--;
+      if (retained > 0 || done || abandoned) {
+        return;
+      }
+      abandoned = true;
+      toCancel = upstream;
+    }
+    if (toCancel != null) {
+      toCancel.cancel();
+    }
+    onDone.run();
+  }
+
+  /**
+   * Subscribes a retained subscriber to the body.
+   *
+   * @param subscriber the subscriber
+   * @return the subscription of the subscriber, which may be cancelled on its behalf
+   */
+  Subscription subscribe(final Subscriber<? super List<ByteBuffer>> subscriber) {
+    final var downstream = new Downstream(subscriber);
+    synchronized (this) {
+      downstreams.add(downstream);
+    }
+    subscriber.onSubscribe(downstream);
+    downstream.drain();
+    return downstream;
+  }
+
+  @Override
+  public CompletionStage<SharedBody> getBody() {
+    return CompletableFuture.completedFuture(this);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    final boolean cancel;
+    synchronized (this) {
+      upstream = subscription;
+      cancel = abandoned;
+    }
+    if (cancel) {
+      subscription.cancel();
+    } else {
+      subscription.request(Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public void onNext(final List<ByteBuffer> item) {
+    final List<Downstream> toDrain;
+    synchronized (this) {
+      items.add(item);
+      toDrain = List.copyOf(downstreams);
+    }
+    toDrain.forEach(Downstream::drain);
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    finish(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    finish(null);
+  }
+
+  private void finish(final Throwable throwable) {
+    final List<Downstream> toDrain;
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+      error = throwable;
+      toDrain = List.copyOf(downstreams);
+    }
+    toDrain.forEach(Downstream::drain);
+    onDone.run();
+  }
+
+  /** A single subscriber to the body, which reads the buffered body at its own pace. */
+  private final class Downstream implements Subscription {
+    private final Subscriber<? super List<ByteBuffer>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger drains = new AtomicInteger();
+    private volatile boolean terminated;
+    private int index;
+
+    private Downstream(final Subscriber<? super List<ByteBuffer>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        terminate(new IllegalArgumentException("Requested items must be positive"));
+        return;
+      }
+      demand.getAndAccumulate(
+          n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      if (!terminated) {
+        terminated = true;
+        detach();
+      }
+    }
+
+    /**
+     * Delivers as much of the body as the subscriber has requested. Only one thread drains at a
+     * time; a drain requested while another is in progress is performed by that thread.
+     */
+    private void drain() {
+      if (drains.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        while (!terminated) {
+          final List<ByteBuffer> item;
+          final boolean finished;
+          final Throwable failure;
+          synchronized (SharedBody.this) {
+            item = index < items.size() && demand.get() > 0 ? items.get(index++) : null;
+            finished = index == items.size() && done;
+            failure = error;
+          }
+          if (item != null) {
+            demand.decrementAndGet();
+            subscriber.onNext(duplicate(item));
+          } else if (finished) {
+            terminated = true;
+            detach();
+            if (failure != null) {
+              subscriber.onError(failure);
+            } else {
+              subscriber.onComplete();
+            }
+          } else {
+            break;
+          }
+        }
+      } while (drains.decrementAndGet() != 0);
+    }
+
+    private void terminate(final Throwable throwable) {
+      if (!terminated) {
+        terminated = true;
+        detach();
+        subscriber.onError(throwable);
+      }
+    }
+
+    private void detach() {
+      synchronized (SharedBody.this) {
+        downstreams.remove(this);
+      }
+      release();
+    }
+  }
+
+  private static List<ByteBuffer> duplicate(final List<ByteBuffer> item) {
+    final var copy = new ArrayList<ByteBuffer>(item.size());
+    for (final var buffer : item) {
+      copy.add(buffer.duplicate());
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,365 @@
+package xyz.ianjohnson.gemini.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * A {@link ResponseCache} with an in-memory tier and an optional disk tier.
+ *
+ * <p>The memory tier holds the most recently used responses, up to a maximum total body size.
+ * Responses evicted from the memory tier, and responses too large for it, are moved to the disk
+ * tier if one is configured. The disk tier stores each body in a file named after the hash of its
+ * contents (so identical bodies are stored once), reads bodies back by memory-mapping their files,
+ * and is itself bounded by a maximum total size. The disk tier survives the cache being recreated
+ * with the same directory.
+ *
+ * <p>How long each response may be reused for is determined by its URI: the TTL of the longest
+ * matching {@linkplain Builder#prefixTtl(String, Duration) URI prefix} is used, then the TTL for
+ * its {@linkplain Builder#hostTtl(String, Duration) host}, and otherwise the {@linkplain
+ * Builder#defaultTtl(Duration) default TTL}. Responses with a TTL of zero are not cached.
+ */
+public final class TieredResponseCache implements ResponseCache {
+  private final long maxMemoryBytes;
+  private final long maxEntryBytes;
+  private final Duration defaultTtl;
+  private final Map<String, Duration> hostTtls;
+  /** The prefix TTLs, longest prefix first. */
+  private final List<Map.Entry<String, Duration>> prefixTtls;
+
+  private final Clock clock;
+  @Nullable private final DiskResponseStore disk;
+
+  private final LinkedHashMap<URI, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryBytes;
+
+  private TieredResponseCache(final Builder builder, @Nullable final DiskResponseStore disk) {
+    maxMemoryBytes = builder.maxMemoryBytes;
+    maxEntryBytes = builder.maxEntryBytes;
+    defaultTtl = builder.defaultTtl;
+    hostTtls = Map.copyOf(builder.hostTtls);
+    final var prefixes = new ArrayList<>(builder.prefixTtls.entrySet());
+    prefixes.sort(
+        Comparator.comparingInt((Map.Entry<String, Duration> e) -> e.getKey().length()).reversed());
+    prefixTtls = List.copyOf(prefixes);
+    clock = builder.clock;
+    this.disk = disk;
+  }
+
+  /**
+   * Returns a new {@link TieredResponseCache.Builder}.
+   *
+   * @return a new {@link TieredResponseCache.Builder}
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public Optional<CachedResponse> get(final URI uri) {
+    final var key = uri.normalize();
+    final var now = clock.instant();
+    synchronized (memory) {
+      final var entry = memory.get(key);
+      if (entry != null) {
+        if (entry.expiresAt.isAfter(now)) {
+          return Optional.of(entry.response);
+        }
+        removeFromMemory(key);
+      }
+    }
+    return disk != null ? disk.get(key, now) : Optional.empty();
+  }
+
+  @Override
+  public void put(final CachedResponse response) {
+    final var key = response.uri().normalize();
+    final var ttl = ttl(key);
+    final var size = response.body().remaining();
+    if (ttl.isZero() || size > maxEntryBytes) {
+      invalidate(key);
+      return;
+    }
+    final var expiresAt = clock.instant().plus(ttl);
+    final var stored = CachedResponse.of(key, response.meta(), response.body());
+    if (size > maxMemoryBytes) {
+      synchronized (memory) {
+        removeFromMemory(key);
+      }
+      if (disk != null) {
+        disk.put(stored, expiresAt);
+      }
+      return;
+    }
+
+    final var evicted = new ArrayList<MemoryEntry>();
+    synchronized (memory) {
+      final var previous = memory.put(key, new MemoryEntry(stored, size, expiresAt));
+      memoryBytes += size - (previous != null ? previous.size : 0);
+      final var iterator = memory.values().iterator();
+      while (memoryBytes > maxMemoryBytes) {
+        final var eldest = iterator.next();
+        iterator.remove();
+        memoryBytes -= eldest.size;
+        evicted.add(eldest);
+      }
+    }
+    if (disk != null) {
+      // The disk tier would otherwise return a stale response once this one leaves memory
+      if (disk.contains(key)) {
+        disk.remove(key);
+      }
+      final var now = clock.instant();
+      for (final var entry : evicted) {
+        if (entry.expiresAt.isAfter(now)) {
+          disk.put(entry.response, entry.expiresAt);
+        }
+      }
+    }
+  }
+
+  @Override
+  public int maxBodyBytes() {
+    return (int) Math.min(maxEntryBytes, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Removes any cached response for the given URI.
+   *
+   * @param uri the URI
+   */
+  public void invalidate(final URI uri) {
+    final var key = uri.normalize();
+    synchronized (memory) {
+      removeFromMemory(key);
+    }
+    if (disk != null) {
+      disk.remove(key);
+    }
+  }
+
+  /**
+   * Returns the total size of the response bodies in the memory tier.
+   *
+   * @return the total size of the response bodies in the memory tier
+   */
+  public long memoryBytes() {
+    synchronized (memory) {
+      return memoryBytes;
+    }
+  }
+
+  /**
+   * Returns the total size of the response bodies in the disk tier.
+   *
+   * @return the total size of the response bodies in the disk tier, or zero if there is no disk
+   *     tier
+   */
+  public long diskBytes() {
+    return disk != null ? disk.bytes() : 0;
+  }
+
+  private void removeFromMemory(final URI key) {
+    final var removed = memory.remove(key);
+    if (removed != null) {
+      memoryBytes -= removed.size;
+    }
+  }
+
+  /** Returns the TTL of responses for the given URI. */
+  Duration ttl(final URI uri) {
+    final var string = uri.toString();
+    for (final var prefix : prefixTtls) {
+      if (string.startsWith(prefix.getKey())) {
+        return prefix.getValue();
+      }
+    }
+    if (uri.getHost() != null) {
+      final var hostTtl = hostTtls.get(uri.getHost().toLowerCase(Locale.ROOT));
+      if (hostTtl != null) {
+        return hostTtl;
+      }
+    }
+    return defaultTtl;
+  }
+
+  private static final class MemoryEntry {
+    private final CachedResponse response;
+    private final long size;
+    private final Instant expiresAt;
+
+    private MemoryEntry(final CachedResponse response, final long size, final Instant expiresAt) {
+      this.response = response;
+      this.size = size;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /** A builder for {@link TieredResponseCache TieredResponseCaches}. */
+  public static final class Builder {
+    private long maxMemoryBytes = 16 * 1024 * 1024;
+    private Path diskDirectory;
+    private long maxDiskBytes = 256 * 1024 * 1024;
+    private long maxEntryBytes = 8 * 1024 * 1024;
+    private Duration defaultTtl = Duration.ofMinutes(5);
+    private final Map<String, Duration> hostTtls = new HashMap<>();
+    private final Map<String, Duration> prefixTtls = new HashMap<>();
+    private Clock clock = Clock.systemUTC();
+
+    private Builder() {}
+
+    /**
+     * Sets the maximum total size of the response bodies held in memory.
+     *
+     * <p>If no maximum is explicitly provided using this method, the default is 16 MiB.
+     *
+     * @param maxMemoryBytes the maximum total size of the response bodies held in memory
+     * @return {@code this}
+     */
+    public Builder maxMemoryBytes(final long maxMemoryBytes) {
+      if (maxMemoryBytes < 0) {
+        throw new IllegalArgumentException("maxMemoryBytes must not be negative");
+      }
+      this.maxMemoryBytes = maxMemoryBytes;
+      return this;
+    }
+
+    /**
+     * Sets the directory of the disk tier. The directory is created if it does not exist, and any
+     * responses already cached in it by a previous cache are reused.
+     *
+     * <p>If no directory is explicitly provided using this method, there is no disk tier.
+     *
+     * @param diskDirectory the directory in which to store cached responses
+     * @return {@code this}
+     */
+    public Builder diskDirectory(final Path diskDirectory) {
+      this.diskDirectory = requireNonNull(diskDirectory, "diskDirectory");
+      return this;
+    }
+
+    /**
+     * Sets the maximum total size of the response bodies stored on disk.
+     *
+     * <p>If no maximum is explicitly provided using this method, the default is 256 MiB.
+     *
+     * @param maxDiskBytes the maximum total size of the response bodies stored on disk
+     * @return {@code this}
+     */
+    public Builder maxDiskBytes(final long maxDiskBytes) {
+      if (maxDiskBytes < 0) {
+        throw new IllegalArgumentException("maxDiskBytes must not be negative");
+      }
+      this.maxDiskBytes = maxDiskBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of the body of a single cached response. Larger responses are not
+     * cached.
+     *
+     * <p>If no maximum is explicitly provided using this method, the default is 8 MiB.
+     *
+     * @param maxEntryBytes the maximum size of the body of a single cached response
+     * @return {@code this}
+     */
+    public Builder maxEntryBytes(final long maxEntryBytes) {
+      if (maxEntryBytes < 0) {
+        throw new IllegalArgumentException("maxEntryBytes must not be negative");
+      }
+      this.maxEntryBytes = maxEntryBytes;
+      return this;
+    }
+
+    /**
+     * Sets the TTL of responses whose URI does not match any host or prefix TTL.
+     *
+     * <p>If no TTL is explicitly provided using this method, the default is 5 minutes.
+     *
+     * @param defaultTtl the default TTL, or {@link Duration#ZERO} to cache only responses matching
+     *     a host or prefix TTL
+     * @return {@code this}
+     */
+    public Builder defaultTtl(final Duration defaultTtl) {
+      this.defaultTtl = requireNonNegative(defaultTtl, "defaultTtl");
+      return this;
+    }
+
+    /**
+     * Sets the TTL of responses from the given host.
+     *
+     * @param host the host
+     * @param ttl the TTL of responses from the host, or {@link Duration#ZERO} to not cache them
+     * @return {@code this}
+     */
+    public Builder hostTtl(final String host, final Duration ttl) {
+      hostTtls.put(
+          requireNonNull(host, "host").toLowerCase(Locale.ROOT), requireNonNegative(ttl, "ttl"));
+      return this;
+    }
+
+    /**
+     * Sets the TTL of responses whose URI starts with the given prefix, such as {@code
+     * gemini://example.com/news/}. Prefix TTLs take precedence over host TTLs, and longer prefixes
+     * over shorter ones.
+     *
+     * @param uriPrefix the URI prefix
+     * @param ttl the TTL of responses matching the prefix, or {@link Duration#ZERO} to not cache
+     *     them
+     * @return {@code this}
+     */
+    public Builder prefixTtl(final String uriPrefix, final Duration ttl) {
+      prefixTtls.put(requireNonNull(uriPrefix, "uriPrefix"), requireNonNegative(ttl, "ttl"));
+      return this;
+    }
+
+    /**
+     * Sets the clock used to determine when responses expire.
+     *
+     * <p>If no clock is explicitly provided using this method, the system UTC clock is used.
+     *
+     * @param clock the clock used to determine when responses expire
+     * @return {@code this}
+     */
+    public Builder clock(final Clock clock) {
+      this.clock = requireNonNull(clock, "clock");
+      return this;
+    }
+
+    private static Duration requireNonNegative(final Duration ttl, final String name) {
+      if (requireNonNull(ttl, name).isNegative()) {
+        throw new IllegalArgumentException(name + " must not be negative");
+      }
+      return ttl;
+    }
+
+    /**
+     * Builds a new {@link TieredResponseCache} using the configuration specified using this {@link
+     * Builder}, opening its disk tier if one is configured.
+     *
+     * @return a new {@link TieredResponseCache}
+     * @throws IOException if the disk tier cannot be opened
+     */
+    public TieredResponseCache build() throws IOException {
+      final var disk =
+          diskDirectory != null
+              ? DiskResponseStore.open(diskDirectory, maxDiskBytes, clock.instant())
+              : null;
+      return new TieredResponseCache(this, disk);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package xyz.ianjohnson.gemini.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import xyz.ianjohnson.gemini.client.GeminiTimeoutException.Phase;
+
+/**
+ * Enforces the handshake, header, idle and request timeouts of a connection. This handler must be
+ * placed directly after the {@link SslHandler} of the connection, so that it sees the decrypted
+ * response.
+ *
+ * <p>The timeouts start when the connection becomes active, or when the handler is added if the
+ * connection is already active (as is a connection opened ahead of time). In the latter case, the
+ * handshake has usually already completed, so the header timeout starts straight away.
+ *
+ * <p>When a timeout expires, a {@link GeminiTimeoutException} is fired through the rest of the
+ * pipeline, so that it fails either the response or the response body, and the connection is
+ * closed.
+ */
+final class TimeoutHandler extends ChannelInboundHandlerAdapter {
+  private final SslHandler sslHandler;
+  private final Timeouts timeouts;
+  private final long deadline;
+
+  private ScheduledFuture<?> timer;
+  private ScheduledFuture<?> deadlineTimer;
+  private boolean headerReceived;
+  private long lastRead;
+  private boolean expired;
+
+  /**
+   * Constructs a new {@link TimeoutHandler}.
+   *
+   * @param sslHandler the {@link SslHandler} of the connection
+   * @param timeouts the timeouts to enforce
+   * @param deadline the {@link System#nanoTime()} by which the whole request must complete, if
+   *     there is a request timeout
+   */
+  TimeoutHandler(final SslHandler sslHandler, final Timeouts timeouts, final long deadline) {
+    this.sslHandler = sslHandler;
+    this.timeouts = timeouts;
+    this.deadline = deadline;
+  }
+
+  @Override
+  public void handlerAdded(final ChannelHandlerContext ctx) {
+    if (ctx.channel().isActive()) {
+      start(ctx);
+    }
+  }
+
+  @Override
+  public void channelActive(final ChannelHandlerContext ctx) {
+    start(ctx);
+    ctx.fireChannelActive();
+  }
+
+  private void start(final ChannelHandlerContext ctx) {
+    if (!timeouts.request.isZero()) {
+      deadlineTimer =
+          schedule(
+              ctx,
+              () -> expire(ctx, Phase.REQUEST, timeouts.request),
+              deadline - System.nanoTime());
+    }
+    if (!timeouts.handshake.isZero()) {
+      timer =
+          schedule(ctx, () -> expire(ctx, Phase.HANDSHAKE, timeouts.handshake), timeouts.handshake);
+    }
+    sslHandler
+        .handshakeFuture()
+        .addListener(
+            future -> {
+              if (future.isSuccess() && !expired) {
+                cancelTimer();
+                if (!headerReceived && !timeouts.header.isZero()) {
+                  timer =
+                      schedule(
+                          ctx, () -> expire(ctx, Phase.HEADER, timeouts.header), timeouts.header);
+                }
+              }
+            });
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    lastRead = System.nanoTime();
+    if (!headerReceived && msg instanceof ByteBuf) {
+      final var buf = (ByteBuf) msg;
+      // The header is the first line of the response
+      if (buf.indexOf(buf.readerIndex(), buf.writerIndex(), (byte) '\n') != -1) {
+        headerReceived = true;
+        cancelTimer();
+        if (!timeouts.idle.isZero()) {
+          timer = schedule(ctx, () -> checkIdle(ctx), timeouts.idle);
+        }
+      }
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) {
+    cancelTimer();
+    if (deadlineTimer != null) {
+      deadlineTimer.cancel(false);
+    }
+    ctx.fireChannelInactive();
+  }
+
+  private void checkIdle(final ChannelHandlerContext ctx) {
+    final var idle = System.nanoTime() - lastRead;
+    final var remaining = timeouts.idle.toNanos() - idle;
+    if (remaining <= 0) {
+      expire(ctx, Phase.IDLE, timeouts.idle);
+    } else {
+      timer = schedule(ctx, () -> checkIdle(ctx), remaining);
+    }
+  }
+
+  private void expire(final ChannelHandlerContext ctx, final Phase phase, final Duration timeout) {
+    if (expired || !ctx.channel().isActive()) {
+      return;
+    }
+    expired = true;
+    cancelTimer();
+    if (deadlineTimer != null) {
+      deadlineTimer.cancel(false);
+    }
+    ctx.fireExceptionCaught(new GeminiTimeoutException(phase, timeout));
+    ctx.close();
+  }
+
+  private void cancelTimer() {
+    if (timer != null) {
+      timer.cancel(false);
+      timer = null;
+    }
+  }
+
+  private static ScheduledFuture<?> schedule(
+      final ChannelHandlerContext ctx, final Runnable task, final Duration delay) {
+    return schedule(ctx, task, delay.toNanos());
+  }
+
+  private static ScheduledFuture<?> schedule(
+      final ChannelHandlerContext ctx, final Runnable task, final long delayNanos) {
+    return ctx.executor().schedule(task, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+  }
+}
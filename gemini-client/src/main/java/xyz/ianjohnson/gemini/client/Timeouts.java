@@ -0,0 +1,38 @@
+package xyz.ianjohnson.gemini.client;
+
+import java.time.Duration;
+
+/** The timeouts which apply to a request, where a timeout of zero is disabled. */
+final class Timeouts {
+  final Duration connect;
+  final Duration handshake;
+  final Duration header;
+  final Duration idle;
+  final Duration request;
+
+  Timeouts(
+      final Duration connect,
+      final Duration handshake,
+      final Duration header,
+      final Duration idle,
+      final Duration request) {
+    this.connect = connect;
+    this.handshake = handshake;
+    this.header = header;
+    this.idle = idle;
+    this.request = request;
+  }
+
+  /** Returns these timeouts, overridden by any timeouts set in the given options. */
+  Timeouts with(final RequestOptions options) {
+    if (options == RequestOptions.defaults()) {
+      return this;
+    }
+    return new Timeouts(
+        options.connectTimeout().orElse(connect),
+        options.handshakeTimeout().orElse(handshake),
+        options.headerTimeout().orElse(header),
+        options.idleTimeout().orElse(idle),
+        options.requestTimeout().orElse(request));
+  }
+}
@@ -4,10 +4,14 @@ import static java.util.Objects.requireNonNull;
 
 import java.net.Socket;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
@@ -28,22 +32,43 @@ import org.slf4j.LoggerFactory;
  * href="https://gemini.circumlunar.space/docs/specification.html">Gemini specification</a>, as it
  * allows servers to use self-signed certificates (avoiding the overhead of getting one from a
  * certificate authority) without forcing clients to trust all certificates indiscriminately.
+ *
+ * <p>Once a certificate has been looked up in or stored to the {@link CertificateManager}, its
+ * SHA-256 fingerprint and validity period are cached in memory, so that subsequent handshakes with
+ * the same host presenting the same certificate are trusted without locking or accessing the
+ * certificate manager. A host presenting a different certificate than the cached one always causes
+ * the certificate manager to be consulted again. At most {@value #MAX_CACHED_CERTIFICATES} hosts
+ * are cached, so the memory used by this class does not grow with the number of hosts contacted;
+ * when a new host would exceed this, the cache is cleared and refilled from the certificate manager
+ * as hosts are contacted again.
  */
 public class TofuClientTrustManager extends X509ExtendedTrustManager {
   private static final Logger log = LoggerFactory.getLogger(TofuClientTrustManager.class);
 
+  /** The maximum number of hosts whose trusted certificates are cached in memory. */
+  public static final int MAX_CACHED_CERTIFICATES = 4096;
+  /** The number of locks shared between all hosts. Must be a power of two. */
+  private static final int HOST_LOCK_STRIPES = 64;
+
   private final CertificateManager certificateManager;
-  private final ConcurrentMap<String, Lock> hostLocks = new ConcurrentHashMap<>();
+  private final Lock[] hostLocks = new Lock[HOST_LOCK_STRIPES];
+  private final ConcurrentMap<String, TrustedCertificate> trustedCertificates =
+      new ConcurrentHashMap<>();
 
   public TofuClientTrustManager(final CertificateManager certificateManager) {
     this.certificateManager = requireNonNull(certificateManager, "certificateManager");
+    for (var i = 0; i < hostLocks.length; i++) {
+      hostLocks[i] = new ReentrantLock();
+    }
   }
 
   /**
    * Given a host, returns a {@link Lock} to control access to the certificates for the given host.
    * Handshakes with a host will hold the corresponding lock for the entire duration of the trust
-   * decision process. Users who update the underlying certificates directly should also use this
-   * lock to prevent any race conditions with trust decisions.
+   * decision process, unless the decision can be made using the in-memory cache of trusted
+   * certificates. Users who update the underlying certificates directly should also use this lock
+   * to prevent any race conditions with trust decisions, and should call {@link
+   * #invalidate(String)} while holding it.
    *
    * <p>The requirement of holding a lock on a per-host basis is to prevent the scenario where two
    * threads make a connection to a previously unknown host within a very short time interval.
@@ -60,11 +85,29 @@ public class TofuClientTrustManager extends X509ExtendedTrustManager {
    * the second connection would fail, as it would see the mismatched host certificate set by the
    * first connection.
    *
+   * <p>The same lock is always returned for the same host, but a lock may also be shared by other
+   * hosts: there are a fixed number of locks, each of which guards the hosts hashing to it. This
+   * keeps the memory used for locks constant no matter how many hosts are contacted, at the cost of
+   * occasionally making unrelated trust decisions wait for each other. Callers must therefore not
+   * hold a host lock while acquiring the lock for another host.
+   *
    * @param host the host whose lock to return
    * @return a {@link Lock} to control access to trust decisions for the given host
    */
   public Lock hostLock(final String host) {
-    return hostLocks.computeIfAbsent(host, h -> new ReentrantLock());
+    final var hash = host.hashCode();
+    return hostLocks[(hash ^ (hash >>> 16)) & (HOST_LOCK_STRIPES - 1)];
+  }
+
+  /**
+   * Removes the cached trusted certificate for the given host, if any, so that the next trust
+   * decision for the host consults the {@link CertificateManager}. This must be called after
+   * updating the certificate for the host directly in the certificate manager.
+   *
+   * @param host the host whose cached trusted certificate to remove
+   */
+  public void invalidate(final String host) {
+    trustedCertificates.remove(host);
   }
 
   /**
@@ -134,10 +177,46 @@ public class TofuClientTrustManager extends X509ExtendedTrustManager {
 
   private void checkServerTrustedForHost(final X509Certificate[] chain, final String host)
       throws CertificateException {
+    if (!ClientEvents.TRUST_DECISION.isEnabled()) {
+      decide(chain, host);
+      return;
+    }
+    final var event = new ClientEvents.TrustDecision();
+    event.begin();
+    try {
+      event.decision = decide(chain, host);
+    } catch (final CertificateChangedException e) {
+      event.decision = ClientEvents.TrustDecision.CHANGED;
+      throw e;
+    } catch (final CertificateException e) {
+      event.decision = ClientEvents.TrustDecision.REJECTED;
+      throw e;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.host = host;
+        event.fingerprint =
+            chain.length > 0 ? Certificates.getFingerprintUnchecked(chain[0]) : null;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Decides whether to trust the given certificate chain presented by the given host, returning the
+   * kind of decision made if it is trusted.
+   */
+  private String decide(final X509Certificate[] chain, final String host)
+      throws CertificateException {
     if (chain.length == 0) {
       throw new CertificateException("No valid certificate supplied by peer");
     }
     final var peerCert = chain[0];
+    final var peerFingerprint = fingerprint(peerCert);
+    final var trusted = trustedCertificates.get(host);
+    if (trusted != null && trusted.matches(peerFingerprint, System.currentTimeMillis())) {
+      return ClientEvents.TrustDecision.CACHED;
+    }
     peerCert.checkValidity();
 
     final var hostLock = hostLock(host);
@@ -168,6 +247,7 @@ public class TofuClientTrustManager extends X509ExtendedTrustManager {
         knownCertValid = false;
       }
 
+      final String decision;
       if (!knownCertValid) {
         log.info(
             "Trusting new certificate for host {} with fingerprint {}",
@@ -176,13 +256,61 @@ public class TofuClientTrustManager extends X509ExtendedTrustManager {
         try {
           certificateManager.setCertificate(host, peerCert);
         } catch (final KeyStoreException e) {
+          trustedCertificates.remove(host);
           throw new CertificateException("Could not store certificate for new host", e);
         }
+        decision = ClientEvents.TrustDecision.NEW;
       } else if (!knownCert.equals(peerCert)) {
+        cacheTrustedCertificate(host, fingerprint(knownCert), knownCert);
         throw new CertificateChangedException(host, peerCert, knownCert);
+      } else {
+        decision = ClientEvents.TrustDecision.KNOWN;
       }
+      cacheTrustedCertificate(host, peerFingerprint, peerCert);
+      return decision;
     } finally {
       hostLock.unlock();
     }
   }
+
+  private void cacheTrustedCertificate(
+      final String host, final byte[] fingerprint, final X509Certificate certificate) {
+    if (trustedCertificates.size() >= MAX_CACHED_CERTIFICATES
+        && !trustedCertificates.containsKey(host)) {
+      trustedCertificates.clear();
+    }
+    trustedCertificates.put(host, new TrustedCertificate(fingerprint, certificate));
+  }
+
+  private static byte[] fingerprint(final X509Certificate certificate)
+      throws CertificateEncodingException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError("SHA-256 must be supported by MessageDigest", e);
+    }
+    return digest.digest(certificate.getEncoded());
+  }
+
+  /** The fingerprint and validity period of a trusted certificate. */
+  private static final class TrustedCertificate {
+    private final byte[] fingerprint;
+    private final long notBefore;
+    private final long notAfter;
+
+    TrustedCertificate(final byte[] fingerprint, final X509Certificate certificate) {
+      this.fingerprint = fingerprint;
+      notBefore = certificate.getNotBefore().getTime();
+      notAfter = certificate.getNotAfter().getTime();
+    }
+
+    /**
+     * Returns whether a certificate with the given fingerprint is this certificate, and whether
+     * this certificate is valid at the given time.
+     */
+    boolean matches(final byte[] fingerprint, final long now) {
+      return now >= notBefore && now <= notAfter && Arrays.equals(this.fingerprint, fingerprint);
+    }
+  }
 }
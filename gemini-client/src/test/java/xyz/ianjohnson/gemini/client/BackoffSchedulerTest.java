@@ -0,0 +1,62 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BackoffSchedulerTest {
+  private DefaultEventLoopGroup eventLoopGroup;
+  private BackoffScheduler scheduler;
+
+  @BeforeEach
+  public void setUp() {
+    eventLoopGroup = new DefaultEventLoopGroup(1);
+    scheduler = new BackoffScheduler(eventLoopGroup);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testAwait_withHostNotParked_completesImmediately() {
+    assertThat(scheduler.await("gemini.test")).isCompleted();
+  }
+
+  @Test
+  public void testAwait_withHostParked_completesAfterDelay() throws Exception {
+    scheduler.park("gemini.test", Duration.ofMillis(200));
+    final var start = System.nanoTime();
+
+    final var future = scheduler.await("gemini.test");
+    assertThat(future).isNotDone();
+    assertThat(scheduler.await("other.gemini.test")).isCompleted();
+
+    future.get(5, TimeUnit.SECONDS);
+    assertThat(Duration.ofNanos(System.nanoTime() - start))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(200));
+  }
+
+  @Test
+  public void testPark_withShorterDelayThanCurrent_keepsLongerDelay() {
+    scheduler.park("gemini.test", Duration.ofDays(1));
+    scheduler.park("gemini.test", Duration.ZERO);
+
+    assertThat(scheduler.await("gemini.test")).isNotDone();
+  }
+
+  @Test
+  public void testDelay_whenCancelled_doesNotComplete() throws Exception {
+    final var future = scheduler.delay(Duration.ofMillis(50));
+    future.cancel(false);
+    Thread.sleep(100);
+
+    assertThat(future).isCancelled();
+  }
+}
@@ -0,0 +1,109 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class CachingHostResolverTest {
+  private static final Duration TTL = Duration.ofSeconds(30);
+  private static final Duration NEGATIVE_TTL = Duration.ofSeconds(10);
+  private static final InetAddress ADDRESS = InetAddress.getLoopbackAddress();
+
+  private final AtomicLong now = new AtomicLong();
+  private final List<String> lookups = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void testResolve_withinTtl_usesCachedAddresses() throws Exception {
+    final var resolver = newResolver(host -> CompletableFuture.completedFuture(List.of(ADDRESS)));
+
+    assertThat(resolver.resolve("gemini.test").get()).containsExactly(ADDRESS);
+    now.addAndGet(TTL.toNanos() - 1);
+    assertThat(resolver.resolve("GEMINI.test").get()).containsExactly(ADDRESS);
+    assertThat(lookups).containsExactly("gemini.test");
+
+    now.incrementAndGet();
+    assertThat(resolver.resolve("gemini.test").get()).containsExactly(ADDRESS);
+    assertThat(lookups).containsExactly("gemini.test", "gemini.test");
+  }
+
+  @Test
+  public void testResolve_withConcurrentLookups_sharesOneLookup() throws Exception {
+    final var lookup = new CompletableFuture<List<InetAddress>>();
+    final var resolver = newResolver(host -> lookup);
+
+    final var first = resolver.resolve("gemini.test");
+    final var second = resolver.resolve("gemini.test");
+    // Completing one caller's future must not affect the other
+    first.cancel(false);
+    lookup.complete(List.of(ADDRESS));
+
+    assertThat(second.get()).containsExactly(ADDRESS);
+    assertThat(lookups).hasSize(1);
+  }
+
+  @Test
+  public void testResolve_withUnknownHost_cachesFailureForNegativeTtl() {
+    final var resolver =
+        newResolver(host -> CompletableFuture.failedFuture(new UnknownHostException(host)));
+
+    assertFailsWith(resolver, UnknownHostException.class);
+    now.addAndGet(NEGATIVE_TTL.toNanos() - 1);
+    assertFailsWith(resolver, UnknownHostException.class);
+    assertThat(lookups).hasSize(1);
+
+    now.incrementAndGet();
+    assertFailsWith(resolver, UnknownHostException.class);
+    assertThat(lookups).hasSize(2);
+  }
+
+  @Test
+  public void testResolve_withOtherFailure_doesNotCacheFailure() {
+    final var resolver =
+        newResolver(host -> CompletableFuture.failedFuture(new IOException("Network down")));
+
+    assertFailsWith(resolver, IOException.class);
+    assertFailsWith(resolver, IOException.class);
+    assertThat(lookups).hasSize(2);
+  }
+
+  @Test
+  public void testResolve_withNoAddresses_failsWithUnknownHostException() {
+    final var resolver = newResolver(host -> CompletableFuture.completedFuture(List.of()));
+
+    assertFailsWith(resolver, UnknownHostException.class);
+  }
+
+  private CachingHostResolver newResolver(final HostResolver resolver) {
+    return new CachingHostResolver(
+        host -> {
+          lookups.add(host);
+          return resolver.resolve(host);
+        },
+        TTL,
+        NEGATIVE_TTL,
+        now::get);
+  }
+
+  private static void assertFailsWith(
+      final HostResolver resolver, final Class<? extends Throwable> type) {
+    final var future = resolver.resolve("gemini.test");
+    assertThat(future).isCompletedExceptionally();
+    try {
+      future.get();
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(type);
+    } catch (final InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
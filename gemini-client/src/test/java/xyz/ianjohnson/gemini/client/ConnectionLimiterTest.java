@@ -0,0 +1,180 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import xyz.ianjohnson.gemini.client.ConnectionLimiter.Permit;
+
+public class ConnectionLimiterTest {
+  private static final Duration AGING = Duration.ofSeconds(5);
+
+  @Test
+  public void testAcquire_belowLimits_grantsPermitImmediately() {
+    final var limiter = new ConnectionLimiter(2, 2, Integer.MAX_VALUE, AGING);
+
+    assertThat(limiter.acquire("a")).isCompleted();
+    assertThat(limiter.acquire("b")).isCompleted();
+    assertThat(limiter.statistics().activeConnections()).isEqualTo(2);
+  }
+
+  @Test
+  public void testAcquire_atPerHostLimit_waitsForPermitOfSameHostToBeReleased() {
+    final var limiter = new ConnectionLimiter(10, 1, Integer.MAX_VALUE, AGING);
+    final var first = limiter.acquire("a");
+    final var second = limiter.acquire("a");
+    final var other = limiter.acquire("b");
+
+    assertThat(second).isNotDone();
+    assertThat(other).isCompleted();
+
+    first.join().release();
+    assertThat(second).isCompleted();
+    assertThat(limiter.statistics().waitedRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRelease_withRequestsForManyHostsWaiting_grantsPermitsInRoundRobinOrder() {
+    final var limiter = new ConnectionLimiter(1, 10, Integer.MAX_VALUE, AGING);
+    final var initial = limiter.acquire("a").join();
+    final var granted = new ArrayList<String>();
+    final var permits = new ArrayDeque<Permit>();
+    for (final var host : List.of("a", "a", "a", "b", "b", "c")) {
+      limiter
+          .acquire(host)
+          .thenAccept(
+              permit -> {
+                granted.add(host);
+                permits.add(permit);
+              });
+    }
+
+    initial.release();
+    // Each permit is released as soon as it is granted, granting the next one
+    while (!permits.isEmpty()) {
+      permits.remove().release();
+    }
+
+    assertThat(granted).containsExactly("a", "b", "c", "a", "b", "a");
+  }
+
+  @Test
+  public void testAcquire_withFullQueue_failsWithRequestQueueFullException() {
+    final var limiter = new ConnectionLimiter(1, 1, 1, AGING);
+    limiter.acquire("a");
+    limiter.acquire("a");
+
+    assertThatThrownBy(() -> limiter.acquire("a").get())
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(RequestQueueFullException.class);
+    assertThat(limiter.statistics().rejectedRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCancel_whileWaiting_removesRequestFromQueue() {
+    final var limiter = new ConnectionLimiter(1, 1, Integer.MAX_VALUE, AGING);
+    final var first = limiter.acquire("a").join();
+    final var cancelled = limiter.acquire("a");
+    final var next = limiter.acquire("a");
+
+    cancelled.cancel(false);
+    assertThat(limiter.statistics().queuedRequests()).isEqualTo(1);
+    first.release();
+
+    assertThat(next).isCompleted();
+  }
+
+  @Test
+  public void testRelease_calledTwice_releasesOnlyOnce() {
+    final var limiter = new ConnectionLimiter(1, 1, Integer.MAX_VALUE, AGING);
+    final var first = limiter.acquire("a").join();
+    final var second = limiter.acquire("a");
+    final var third = limiter.acquire("a");
+
+    first.release();
+    first.release();
+
+    assertThat(second).isCompleted();
+    assertThat(third).isNotDone();
+    assertThat(limiter.statistics().activeConnections()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRelease_withRequestsOfDifferentPrioritiesWaiting_grantsHighestPriorityFirst() {
+    final var limiter = new ConnectionLimiter(1, 10, Integer.MAX_VALUE, AGING);
+    final var initial = limiter.acquire("a").join();
+    final var granted = new ArrayList<String>();
+    final var permits = new ArrayDeque<Permit>();
+    for (final var request :
+        List.of(
+            Map.entry("feed1", RequestPriority.LOW),
+            Map.entry("a", RequestPriority.NORMAL),
+            Map.entry("feed2", RequestPriority.LOW),
+            Map.entry("page", RequestPriority.HIGH),
+            Map.entry("a", RequestPriority.HIGH))) {
+      limiter
+          .acquire(request.getKey(), request.getValue())
+          .thenAccept(
+              permit -> {
+                granted.add(request.getKey() + " " + request.getValue());
+                permits.add(permit);
+              });
+    }
+
+    initial.release();
+    while (!permits.isEmpty()) {
+      permits.remove().release();
+    }
+
+    assertThat(granted)
+        .containsExactly("a HIGH", "page HIGH", "a NORMAL", "feed1 LOW", "feed2 LOW");
+    final var statistics = limiter.statistics();
+    assertThat(statistics.waitedRequestsByPriority())
+        .containsEntry(RequestPriority.HIGH, 2L)
+        .containsEntry(RequestPriority.NORMAL, 1L)
+        .containsEntry(RequestPriority.LOW, 2L);
+  }
+
+  @Test
+  public void testRelease_afterHighPriorityRequestCancelled_restoresHostToItsNextPriority() {
+    final var limiter = new ConnectionLimiter(1, 10, Integer.MAX_VALUE, AGING);
+    final var initial = limiter.acquire("x").join();
+    final var b = limiter.acquire("b");
+    final var a = limiter.acquire("a");
+    limiter.acquire("a", RequestPriority.HIGH).cancel(false);
+
+    initial.release();
+
+    assertThat(b).isCompleted();
+    assertThat(a).isNotDone();
+    assertThat(limiter.statistics().queuedRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRelease_withLowPriorityRequestWaitingLongerThanAging_grantsItBeforeNewerHigh() {
+    final var now = new AtomicLong();
+    final var limiter = new ConnectionLimiter(1, 10, Integer.MAX_VALUE, AGING, now::get);
+    final var initial = limiter.acquire("page").join();
+    final var background = limiter.acquire("feed", RequestPriority.LOW);
+    now.addAndGet(AGING.toNanos());
+    final var normal = limiter.acquire("page", RequestPriority.NORMAL);
+    now.addAndGet(AGING.toNanos());
+    final var interactive = limiter.acquire("page", RequestPriority.HIGH);
+
+    initial.release();
+
+    // The background request has aged to high priority, and has waited the longest
+    assertThat(background).isCompleted();
+    assertThat(normal).isNotDone();
+    assertThat(interactive).isNotDone();
+    assertThat(limiter.statistics().averageQueueWait(RequestPriority.LOW))
+        .isEqualTo(AGING.multipliedBy(2));
+  }
+}
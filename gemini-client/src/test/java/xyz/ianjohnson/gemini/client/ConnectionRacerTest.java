@@ -0,0 +1,167 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionRacerTest {
+  private static final InetAddress IPV6 = address("::1");
+  private static final InetAddress IPV4 = address("127.0.0.1");
+  private static final InetAddress OTHER_IPV4 = address("127.0.0.2");
+  private static final int PORT = 1965;
+
+  private final List<InetAddress> attempts = Collections.synchronizedList(new ArrayList<>());
+  private final Map<InetAddress, ChannelPromise> promises = new ConcurrentHashMap<>();
+  private DefaultEventLoopGroup eventLoopGroup;
+
+  @BeforeEach
+  public void setUp() {
+    eventLoopGroup = new DefaultEventLoopGroup(1);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testConnect_withStalledAttempt_startsNextAfterDelayAndCancelsStalledAttempt()
+      throws Exception {
+    final var racer = new ConnectionRacer(eventLoopGroup, Duration.ofMillis(50));
+    final var stalled = promise(IPV6);
+
+    final var result =
+        racer.connect(
+            "gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> succeed(IPV4)));
+
+    assertThat(attempts).containsExactly(IPV6);
+    assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(promises.get(IPV4).channel());
+    assertThat(attempts).containsExactly(IPV6, IPV4);
+    assertThat(stalled.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testConnect_withFailedAttempt_startsNextAttemptImmediately() throws Exception {
+    final var racer = new ConnectionRacer(eventLoopGroup, Duration.ofDays(1));
+    promise(IPV6).setFailure(new IOException("Connection refused"));
+
+    final var result =
+        racer.connect(
+            "gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> succeed(IPV4)));
+
+    assertThat(result).isCompleted();
+    assertThat(result.get()).isSameAs(promises.get(IPV4).channel());
+  }
+
+  @Test
+  public void testConnect_afterIpv4Wins_triesIpv4FirstForSameHost() throws Exception {
+    final var racer = new ConnectionRacer(eventLoopGroup, Duration.ofDays(1));
+    promise(IPV6).setFailure(new IOException("Connection refused"));
+    racer.connect("gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> succeed(IPV4)));
+    attempts.clear();
+    promises.clear();
+
+    racer.connect("gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> succeed(IPV4)));
+    racer.connect(
+        "other.gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> succeed(IPV6)));
+
+    assertThat(attempts).containsExactly(IPV4, IPV6);
+  }
+
+  @Test
+  public void testConnect_withAllAttemptsFailing_failsWithLastFailure() {
+    final var racer = new ConnectionRacer(eventLoopGroup, Duration.ofDays(1));
+    final var lastFailure = new UnknownHostException("Last");
+    promise(IPV6).setFailure(new IOException("First"));
+
+    final var result =
+        racer.connect(
+            "gemini.test",
+            List.of(IPV6, IPV4),
+            PORT,
+            connector(address -> promise(IPV4).setFailure(lastFailure)));
+
+    assertThat(result).isCompletedExceptionally();
+    try {
+      result.get();
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause()).isSameAs(lastFailure);
+    } catch (final InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test
+  public void testConnect_whenCancelled_cancelsAttemptsInProgress() {
+    final var racer = new ConnectionRacer(eventLoopGroup, Duration.ofDays(1));
+    final var stalled = promise(IPV6);
+
+    racer
+        .connect("gemini.test", List.of(IPV6, IPV4), PORT, connector(address -> null))
+        .cancel(false);
+
+    assertThat(stalled.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testOrder_withBothFamilies_alternatesStartingWithPreferredFamily() {
+    assertThat(ConnectionRacer.order(List.of(IPV4, OTHER_IPV4, IPV6), true))
+        .containsExactly(IPV6, IPV4, OTHER_IPV4);
+    assertThat(ConnectionRacer.order(List.of(IPV6, IPV4, OTHER_IPV4), false))
+        .containsExactly(IPV4, IPV6, OTHER_IPV4);
+  }
+
+  /**
+   * Returns a connector which records each attempt and returns the promise already set up for the
+   * address, if there is one, or otherwise the promise set up by the given function.
+   */
+  private Function<SocketAddress, ChannelFuture> connector(
+      final Function<InetAddress, ChannelPromise> otherwise) {
+    return socketAddress -> {
+      final var address = ((InetSocketAddress) socketAddress).getAddress();
+      attempts.add(address);
+      final var promise = promises.get(address);
+      if (promise != null) {
+        return promise;
+      }
+      final var other = otherwise.apply(address);
+      return other != null ? other : promise(address);
+    };
+  }
+
+  private ChannelPromise promise(final InetAddress address) {
+    return promises.computeIfAbsent(address, a -> new EmbeddedChannel().newPromise());
+  }
+
+  private ChannelPromise succeed(final InetAddress address) {
+    return promise(address).setSuccess();
+  }
+
+  private static InetAddress address(final String literal) {
+    try {
+      return InetAddress.getByName(literal);
+    } catch (final UnknownHostException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,12 +1,47 @@
 package xyz.ianjohnson.gemini.client;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandlers;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
+import xyz.ianjohnson.gemini.client.GeminiTimeoutException.Phase;
+import xyz.ianjohnson.gemini.client.testing.TestServer;
 
 public class GeminiClientTest {
+  private static final Duration SHORT_TIMEOUT = Duration.ofMillis(200);
+
   @Test
   public void testExecutor_withNoUserDefinedExecutor_returnsEmptyOptional() {
     try (final var client = GeminiClient.newGeminiClient()) {
@@ -21,4 +56,851 @@ public class GeminiClientTest {
       assertThat(client.executor()).hasValue(es);
     }
   }
+
+  @Test
+  public void testSend_withServerNotStartingHandshake_timesOutDuringHandshake() throws Exception {
+    try (final var server = TestServer.plain(GeminiClientTest::stall);
+        final var client = newClient().handshakeTimeout(SHORT_TIMEOUT).build()) {
+      assertThatThrownBy(() -> client.send(server.uri("/"), BodyHandlers.ofString()))
+          .isInstanceOfSatisfying(
+              GeminiTimeoutException.class, e -> assertThat(e.phase()).isEqualTo(Phase.HANDSHAKE));
+    }
+  }
+
+  @Test
+  public void testSend_withServerNotSendingHeader_timesOutWaitingForHeader() throws Exception {
+    try (final var server = TestServer.tls(GeminiClientTest::stall);
+        final var client = newClient().headerTimeout(SHORT_TIMEOUT).build()) {
+      assertThatThrownBy(() -> client.send(server.uri("/"), BodyHandlers.ofString()))
+          .isInstanceOfSatisfying(
+              GeminiTimeoutException.class, e -> assertThat(e.phase()).isEqualTo(Phase.HEADER));
+    }
+  }
+
+  @Test
+  public void testSend_withServerStallingDuringBody_timesOutWaitingForBody() throws Exception {
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nPartial"));
+                  socket.getOutputStream().flush();
+                  stall(socket);
+                });
+        final var client = newClient().idleTimeout(SHORT_TIMEOUT).build()) {
+      assertThatThrownBy(() -> client.send(server.uri("/"), BodyHandlers.ofString()))
+          .isInstanceOfSatisfying(
+              GeminiTimeoutException.class, e -> assertThat(e.phase()).isEqualTo(Phase.IDLE));
+    }
+  }
+
+  @Test
+  public void testSend_withServerSendingBodySlowly_timesOutAfterRequestTimeout() throws Exception {
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var output = socket.getOutputStream();
+                  output.write(TestUtils.utf8("20 text/plain\r\n"));
+                  // Each write is well within the idle timeout, but the whole body is not
+                  for (var i = 0; i < 100; i++) {
+                    output.write('a');
+                    output.flush();
+                    Thread.sleep(50);
+                  }
+                });
+        final var client = newClient().requestTimeout(Duration.ofMillis(500)).build()) {
+      assertThatThrownBy(() -> client.send(server.uri("/"), BodyHandlers.ofString()))
+          .isInstanceOfSatisfying(
+              GeminiTimeoutException.class, e -> assertThat(e.phase()).isEqualTo(Phase.REQUEST));
+    }
+  }
+
+  @Test
+  public void testSend_withRequestOptions_overridesClientTimeouts() throws Exception {
+    try (final var server = TestServer.tls(GeminiClientTest::stall);
+        final var client = newClient().headerTimeout(Duration.ofDays(1)).build()) {
+      final var options = RequestOptions.newBuilder().headerTimeout(SHORT_TIMEOUT).build();
+
+      assertThatThrownBy(() -> client.send(server.uri("/"), BodyHandlers.ofString(), options))
+          .isInstanceOfSatisfying(
+              GeminiTimeoutException.class, e -> assertThat(e.phase()).isEqualTo(Phase.HEADER));
+    }
+  }
+
+  @Test
+  public void testSend_withinTimeouts_returnsResponse() throws Exception {
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nHello"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().headerTimeout(SHORT_TIMEOUT).build()) {
+      assertThat(client.send(server.uri("/"), BodyHandlers.ofString()).body()).hasValue("Hello");
+    }
+  }
+
+  @Test
+  public void testSend_withStalledContentSubscriberAndLargeBody_doesNotBlockOtherRequests()
+      throws Exception {
+    try (final var stalledServer =
+            TestServer.tls(
+                socket -> {
+                  final var output = socket.getOutputStream();
+                  output.write(TestUtils.utf8("20 text/gemini\r\n"));
+                  final var line = TestUtils.utf8("x".repeat(1023) + "\n");
+                  // Far more chunks than fit in the buffer of the body publisher
+                  while (true) {
+                    output.write(line);
+                    output.flush();
+                  }
+                });
+        final var server =
+            TestServer.tls(
+                socket -> {
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nHello"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      // The content is never subscribed to, so none of the body is ever consumed
+      client.send(stalledServer.uri("/"), BodyHandlers.ofGeminiContent());
+
+      // Connections take turns between the event loops, so some of these share the stalled one
+      for (var i = 0; i < 4 * Runtime.getRuntime().availableProcessors(); i++) {
+        assertThat(
+                client
+                    .sendAsync(server.uri("/"), BodyHandlers.ofString())
+                    .get(5, TimeUnit.SECONDS)
+                    .body())
+            .hasValue("Hello");
+      }
+    }
+  }
+
+  @Test
+  public void testSend_withSlowDownAndRetryPolicy_retriesAfterDelay() throws Exception {
+    final var requests = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var response =
+                      requests.getAndIncrement() == 0 ? "44 1\r\n" : "20 text/plain\r\nHello";
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().retryPolicy(RetryPolicy.newBuilder().build()).build()) {
+      final var start = System.nanoTime();
+      final var response = client.send(server.uri("/"), BodyHandlers.ofString());
+
+      assertThat(response.status()).isEqualTo(StandardGeminiStatus.SUCCESS);
+      assertThat(requests).hasValue(2);
+      assertThat(Duration.ofNanos(System.nanoTime() - start))
+          .isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+    }
+  }
+
+  @Test
+  public void testSend_withTemporaryFailureExceedingRetryBudget_returnsLastFailure()
+      throws Exception {
+    final var requests = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  requests.incrementAndGet();
+                  socket.getOutputStream().write(TestUtils.utf8("41 Unavailable\r\n"));
+                  socket.getOutputStream().flush();
+                });
+        final var client =
+            newClient()
+                .retryPolicy(
+                    RetryPolicy.newBuilder()
+                        .maxRetries(2)
+                        .initialBackoff(Duration.ofMillis(10))
+                        .build())
+                .build()) {
+      final var response = client.send(server.uri("/"), BodyHandlers.ofString());
+
+      assertThat(response.status()).isEqualTo(StandardGeminiStatus.SERVER_UNAVAILABLE);
+      assertThat(requests).hasValue(3);
+    }
+  }
+
+  @Test
+  public void testSend_withSlowDownAndNoRetryPolicy_returnsSlowDownResponse() throws Exception {
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  socket.getOutputStream().write(TestUtils.utf8("44 1\r\n"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      assertThat(client.send(server.uri("/"), BodyHandlers.ofString()).status())
+          .isEqualTo(StandardGeminiStatus.SLOW_DOWN);
+    }
+  }
+
+  @Test
+  public void testSendAsync_withCoalescingAndIdenticalConcurrentRequests_sharesOneConnection()
+      throws Exception {
+    final var connections = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  connections.incrementAndGet();
+                  Thread.sleep(300);
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nShared"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().coalesceRequests(true).build()) {
+      final var first = client.sendAsync(server.uri("/feed"), BodyHandlers.ofString());
+      final var second = client.sendAsync(server.uri("/./feed"), BodyHandlers.ofString());
+      final var third = client.sendAsync(server.uri("/feed"), BodyHandlers.ofByteArray());
+
+      assertThat(first.get(5, TimeUnit.SECONDS).body()).hasValue("Shared");
+      assertThat(second.get(5, TimeUnit.SECONDS).body()).hasValue("Shared");
+      assertThat(third.get(5, TimeUnit.SECONDS).body()).hasValue(TestUtils.utf8("Shared"));
+      assertThat(connections).hasValue(1);
+    }
+  }
+
+  @Test
+  public void testSendAsync_withCoalescingAndRequestJoiningDuringBody_receivesWholeBody()
+      throws Exception {
+    final var connections = new AtomicInteger();
+    final var headerSent = new CountDownLatch(1);
+    final var finishBody = new CountDownLatch(1);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  connections.incrementAndGet();
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nHello, "));
+                  socket.getOutputStream().flush();
+                  headerSent.countDown();
+                  finishBody.await();
+                  socket.getOutputStream().write(TestUtils.utf8("world!"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().coalesceRequests(true).build()) {
+      final var first = client.sendAsync(server.uri("/"), BodyHandlers.ofString());
+      headerSent.await();
+      Thread.sleep(100);
+      final var second = client.sendAsync(server.uri("/"), BodyHandlers.ofString());
+      finishBody.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS).body()).hasValue("Hello, world!");
+      assertThat(second.get(5, TimeUnit.SECONDS).body()).hasValue("Hello, world!");
+      assertThat(connections).hasValue(1);
+    }
+  }
+
+  @Test
+  public void testSendAsync_withCoalescingAndAllRequestsCancelled_closesSharedConnection()
+      throws Exception {
+    final var connections = new AtomicInteger();
+    final var closed = new CountDownLatch(1);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  if (connections.incrementAndGet() > 1) {
+                    socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nFresh"));
+                    return;
+                  }
+                  while (socket.getInputStream().read() != -1) {
+                    // Wait for the client to close the connection
+                  }
+                  closed.countDown();
+                });
+        final var client = newClient().coalesceRequests(true).build()) {
+      final var first = client.sendAsync(server.uri("/"), BodyHandlers.ofString());
+      final var second = client.sendAsync(server.uri("/"), BodyHandlers.ofString());
+      Thread.sleep(200);
+      first.cancel(true);
+      second.cancel(true);
+
+      assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(client.send(server.uri("/"), BodyHandlers.ofString()).body()).hasValue("Fresh");
+      assertThat(connections).hasValue(2);
+    }
+  }
+
+  @Test
+  public void testSend_withResponseCache_answersRepeatedRequestFromCache() throws Exception {
+    final var connections = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  connections.incrementAndGet();
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/gemini\r\n# Cached"));
+                  socket.getOutputStream().flush();
+                });
+        final var client =
+            newClient().responseCache(TieredResponseCache.newBuilder().build()).build()) {
+      final var first = client.send(server.uri("/"), BodyHandlers.ofString());
+      final var second = client.send(server.uri("/"), BodyHandlers.ofByteArray());
+
+      assertThat(first.body()).hasValue("# Cached");
+      assertThat(second.status()).isEqualTo(StandardGeminiStatus.SUCCESS);
+      assertThat(second.meta()).isEqualTo("text/gemini");
+      assertThat(second.body()).hasValue(TestUtils.utf8("# Cached"));
+      assertThat(connections).hasValue(1);
+    }
+  }
+
+  @Test
+  public void testSend_withResponseCache_cachesExactBodyAndReplaysItReadOnly() throws Exception {
+    final var text = "x".repeat(1500);
+    final var cached = new AtomicReference<CachedResponse>();
+    final var cache =
+        new ResponseCache() {
+          @Override
+          public Optional<CachedResponse> get(final URI uri) {
+            return Optional.ofNullable(cached.get());
+          }
+
+          @Override
+          public void put(final CachedResponse response) {
+            cached.set(response);
+          }
+        };
+    final var replayed = Collections.synchronizedList(new ArrayList<ByteBuffer>());
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\n" + text));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().responseCache(cache).build()) {
+      client.send(server.uri("/"), BodyHandlers.ofString());
+      client.send(server.uri("/"), mimeType -> new RecordingBodySubscriber(replayed));
+
+      assertThat(cached.get().body().remaining()).isEqualTo(text.length());
+      assertThat(cached.get().body().capacity()).isEqualTo(text.length());
+      assertThat(replayed).isNotEmpty().allMatch(ByteBuffer::isReadOnly);
+    }
+  }
+
+  @Test
+  public void testSend_afterPermanentRedirect_sendsLaterRequestsStraightToTarget()
+      throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var request = TestServer.readRequest(socket);
+                  requests.add(URI.create(request).getPath());
+                  final var response =
+                      request.endsWith("/old") ? "31 /new\r\n" : "20 text/plain\r\nMoved";
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().maxPermanentRedirects(16).build()) {
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+      final var response = client.send(server.uri("/old"), BodyHandlers.ofString());
+
+      assertThat(response.uri()).isEqualTo(server.uri("/new"));
+      assertThat(response.body()).hasValue("Moved");
+      assertThat(response.timings().orElseThrow().redirects()).isEqualTo(1);
+      assertThat(requests).containsExactly("/old", "/new", "/new");
+    }
+  }
+
+  @Test
+  public void testSend_withoutMaxPermanentRedirects_requestsOriginalUriEachTime() throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var request = TestServer.readRequest(socket);
+                  requests.add(URI.create(request).getPath());
+                  final var response =
+                      request.endsWith("/old") ? "31 /new\r\n" : "20 text/plain\r\nMoved";
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+
+      assertThat(requests).containsExactly("/old", "/new", "/old", "/new");
+    }
+  }
+
+  @Test
+  public void testSend_withFailingRememberedRedirectTarget_forgetsRedirectAndRetriesOriginal()
+      throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    final var moved = new AtomicBoolean(true);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var path = URI.create(TestServer.readRequest(socket)).getPath();
+                  requests.add(path);
+                  final String response;
+                  if (path.equals("/old")) {
+                    response = moved.get() ? "31 /new\r\n" : "20 text/plain\r\nBack";
+                  } else {
+                    response = moved.get() ? "20 text/plain\r\nMoved" : "52 Gone\r\n";
+                  }
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().maxPermanentRedirects(16).build()) {
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+      moved.set(false);
+      final var response = client.send(server.uri("/old"), BodyHandlers.ofString());
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+
+      assertThat(response.body()).hasValue("Back");
+      assertThat(response.timings().orElseThrow().redirects()).isZero();
+      assertThat(requests).containsExactly("/old", "/new", "/new", "/old", "/old");
+    }
+  }
+
+  @Test
+  public void testSend_withRememberedRedirectTargetNotFound_returnsResponseAndKeepsRedirect()
+      throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    final var moved = new AtomicBoolean(true);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var path = URI.create(TestServer.readRequest(socket)).getPath();
+                  requests.add(path);
+                  final String response;
+                  if (path.equals("/old")) {
+                    response = "31 /new\r\n";
+                  } else {
+                    response = moved.get() ? "20 text/plain\r\nMoved" : "51 Not found\r\n";
+                  }
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().maxPermanentRedirects(16).build()) {
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+      moved.set(false);
+      final var response = client.send(server.uri("/old"), BodyHandlers.ofString());
+      client.send(server.uri("/old"), BodyHandlers.ofString());
+
+      assertThat(response.status()).isEqualTo(StandardGeminiStatus.NOT_FOUND);
+      assertThat(requests).containsExactly("/old", "/new", "/new", "/new");
+    }
+  }
+
+  @Test
+  public void testSend_withFollowRedirectsDisabled_returnsRedirectResponse() throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  requests.add(URI.create(TestServer.readRequest(socket)).getPath());
+                  socket.getOutputStream().write(TestUtils.utf8("31 /new\r\n"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      final var options = RequestOptions.newBuilder().followRedirects(false).build();
+      final var response = client.send(server.uri("/old"), BodyHandlers.ofString(), options);
+
+      assertThat(response.status()).isEqualTo(StandardGeminiStatus.PERMANENT_REDIRECT);
+      assertThat(response.meta()).isEqualTo("/new");
+      assertThat(requests).containsExactly("/old");
+    }
+  }
+
+  @Test
+  public void testFetchAll_withManyUris_limitsRequestsPerHostAndPublishesEveryResult()
+      throws Exception {
+    final var active = new AtomicInteger();
+    final var maxActive = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var path = URI.create(TestServer.readRequest(socket)).getPath();
+                  maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                  Thread.sleep(20);
+                  active.decrementAndGet();
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\n" + path));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      final var uris = new ArrayList<URI>();
+      for (var i = 0; i < 20; i++) {
+        uris.add(server.uri("/" + i));
+      }
+      uris.add(URI.create("gemini:///no-host"));
+      final var options = BulkFetchOptions.newBuilder().maxParallelismPerHost(3).build();
+
+      final var results =
+          collect(client.fetchAll(uris.stream(), BodyHandlers.ofString(), options))
+              .get(10, TimeUnit.SECONDS);
+
+      assertThat(results).hasSize(21);
+      assertThat(results).filteredOn(FetchResult::isSuccess).hasSize(20);
+      assertThat(results)
+          .filteredOn(result -> !result.isSuccess())
+          .extracting(FetchResult::uri)
+          .containsExactly(URI.create("gemini:///no-host"));
+      assertThat(maxActive).hasValueBetween(1, 3);
+    }
+  }
+
+  @Test
+  public void testFetchAll_withLimitedDemand_startsOnlyRequestedFetches() throws Exception {
+    final var requests = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  TestServer.readRequest(socket);
+                  requests.incrementAndGet();
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nHello"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      final var uris = Stream.generate(() -> server.uri("/"));
+      final var received = new CountDownLatch(2);
+      final var results = Collections.synchronizedList(new ArrayList<FetchResult<String>>());
+      client
+          .fetchAll(uris, BodyHandlers.ofString())
+          .subscribe(
+              new Subscriber<>() {
+                @Override
+                public void onSubscribe(final Subscription subscription) {
+                  subscription.request(2);
+                }
+
+                @Override
+                public void onNext(final FetchResult<String> item) {
+                  results.add(item);
+                  received.countDown();
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {}
+
+                @Override
+                public void onComplete() {}
+              });
+
+      assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+      Thread.sleep(SHORT_TIMEOUT.toMillis());
+      assertThat(results).hasSize(2).allMatch(FetchResult::isSuccess);
+      assertThat(requests).hasValue(2);
+    }
+  }
+
+  @Test
+  public void testFetchAll_withSlowAndFastResponses_publishesResultsInCompletionOrder()
+      throws Exception {
+    final var slowReleased = new CountDownLatch(1);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var path = URI.create(TestServer.readRequest(socket)).getPath();
+                  if (path.equals("/slow")) {
+                    slowReleased.await();
+                  }
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\n" + path));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      final var uris = Stream.of(server.uri("/slow"), server.uri("/fast"));
+      final var results = new CompletableFuture<List<URI>>();
+      client
+          .fetchAll(uris, BodyHandlers.ofString())
+          .subscribe(
+              new Subscriber<>() {
+                private final List<URI> received = new ArrayList<>();
+
+                @Override
+                public void onSubscribe(final Subscription subscription) {
+                  subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(final FetchResult<String> item) {
+                  received.add(item.uri());
+                  // The slow response is only sent once another result has been published
+                  slowReleased.countDown();
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                  results.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                  results.complete(received);
+                }
+              });
+
+      assertThat(results.get(10, TimeUnit.SECONDS))
+          .containsExactly(server.uri("/fast"), server.uri("/slow"));
+    }
+  }
+
+  @Test
+  public void testPreconnect_thenSend_usesPreconnectedConnection() throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  requests.add(TestServer.readRequest(socket));
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nReady"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build()) {
+      final var uri = server.uri("/");
+      assertThat(client.preconnect(uri.getHost(), uri.getPort()).get(5, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("Ready");
+      assertThat(requests).containsExactly(uri.toString());
+    }
+  }
+
+  @Test
+  public void testPreconnect_withExpiredTtl_closesConnectionAndSendOpensNewOne() throws Exception {
+    final var requests = Collections.synchronizedList(new ArrayList<String>());
+    final var closed = new CountDownLatch(1);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var request = TestServer.readRequest(socket);
+                  if (request.isEmpty()) {
+                    closed.countDown();
+                    return;
+                  }
+                  requests.add(request);
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nFresh"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().preconnectTtl(Duration.ofMillis(100)).build()) {
+      final var uri = server.uri("/");
+      assertThat(client.preconnect(uri.getHost(), uri.getPort()).get(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("Fresh");
+      assertThat(requests).containsExactly(uri.toString());
+    }
+  }
+
+  @Test
+  public void testPreconnect_withNoConnectionAvailable_returnsFalse() throws Exception {
+    final var connected = new CountDownLatch(1);
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  connected.countDown();
+                  stall(socket);
+                });
+        final var client = newClient().maxConnectionsPerHost(1).build()) {
+      final var uri = server.uri("/");
+      final var pending = client.sendAsync(uri, BodyHandlers.ofString());
+      assertThat(connected.await(5, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(client.preconnect(uri.getHost(), uri.getPort()).get(5, TimeUnit.SECONDS))
+          .isFalse();
+      pending.cancel(true);
+    }
+  }
+
+  @Test
+  public void testSend_withHostResolver_connectsToResolvedAddressAndCachesIt() throws Exception {
+    final var lookups = new AtomicInteger();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  TestServer.readRequest(socket);
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nResolved"));
+                  socket.getOutputStream().flush();
+                });
+        final var client =
+            newClient()
+                .hostResolver(
+                    host -> {
+                      lookups.incrementAndGet();
+                      return host.equals("capsule.test")
+                          ? CompletableFuture.completedFuture(
+                              List.of(InetAddress.getLoopbackAddress()))
+                          : CompletableFuture.failedFuture(new UnknownHostException(host));
+                    })
+                .build()) {
+      final var uri = URI.create("gemini://capsule.test:" + server.uri("/").getPort() + "/");
+
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("Resolved");
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("Resolved");
+      assertThat(lookups).hasValue(1);
+      assertThatThrownBy(
+              () -> client.send(URI.create("gemini://missing.test/"), BodyHandlers.ofString()))
+          .isInstanceOf(UnknownHostException.class);
+    }
+  }
+
+  @Test
+  public void testSend_withUnreachableIpv6Address_connectsUsingIpv4Address() throws Exception {
+    // The server only listens on the IPv4 loopback address
+    final var addresses = List.of(InetAddress.getByName("::1"), InetAddress.getByName("127.0.0.1"));
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  TestServer.readRequest(socket);
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nIPv4"));
+                  socket.getOutputStream().flush();
+                });
+        final var client =
+            newClient()
+                .hostResolver(host -> CompletableFuture.completedFuture(addresses))
+                .connectionAttemptDelay(Duration.ofDays(1))
+                .build()) {
+      final var uri = URI.create("gemini://dual.test:" + server.uri("/").getPort() + "/");
+
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("IPv4");
+      assertThat(client.send(uri, BodyHandlers.ofString()).body()).hasValue("IPv4");
+    }
+  }
+
+  @Test
+  public void testSend_withRequestListener_reportsTimingsAndFailures() throws Exception {
+    final var metrics = new ClientMetrics();
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  final var path = URI.create(TestServer.readRequest(socket)).getPath();
+                  final var response =
+                      path.equals("/old") ? "31 /new\r\n" : "20 text/plain\r\nTimed body";
+                  socket.getOutputStream().write(TestUtils.utf8(response));
+                  socket.getOutputStream().flush();
+                });
+        final var stalled = TestServer.plain(GeminiClientTest::stall);
+        final var client =
+            newClient().handshakeTimeout(SHORT_TIMEOUT).requestListener(metrics).build()) {
+      final var response = client.send(server.uri("/old"), BodyHandlers.ofString());
+      assertThatThrownBy(() -> client.send(stalled.uri("/"), BodyHandlers.ofString()))
+          .isInstanceOf(GeminiTimeoutException.class);
+
+      final var timings = response.timings().orElseThrow();
+      assertThat(timings.redirects()).isEqualTo(1);
+      assertThat(timings.bytesReceived()).isEqualTo("20 text/plain\r\nTimed body".length());
+      assertThat(timings.handshake()).isPositive();
+      assertThat(timings.timeToHeader())
+          .isGreaterThan(timings.handshake())
+          .isLessThanOrEqualTo(timings.timeToLastByte().orElseThrow());
+      assertThat(metrics.timeToHeaderByHost().get("127.0.0.1").count()).isEqualTo(1);
+      assertThat(metrics.failuresByType())
+          .containsExactly(Map.entry(GeminiTimeoutException.class.getName(), 1L));
+    }
+  }
+
+  @Test
+  public void testSend_withFlightRecording_emitsRequestEvents(@TempDir final Path tempDir)
+      throws Exception {
+    final var file = tempDir.resolve("recording.jfr");
+    try (final var server =
+            TestServer.tls(
+                socket -> {
+                  TestServer.readRequest(socket);
+                  socket.getOutputStream().write(TestUtils.utf8("20 text/plain\r\nRecorded"));
+                  socket.getOutputStream().flush();
+                });
+        final var client = newClient().build();
+        final var recording = new Recording()) {
+      for (final var event :
+          List.of("ConnectionOpened", "TlsHandshake", "ResponseHeaderReceived", "BodyCompleted")) {
+        recording.enable("xyz.ianjohnson.gemini.client." + event);
+      }
+      recording.start();
+      client.send(server.uri("/recorded"), BodyHandlers.ofString());
+      recording.stop();
+      recording.dump(file);
+    }
+
+    final var events =
+        RecordingFile.readAllEvents(file).stream()
+            .collect(Collectors.toMap(event -> event.getEventType().getLabel(), event -> event));
+    assertThat(events.get("Connection Opened").getString("host")).isEqualTo("127.0.0.1");
+    assertThat(events.get("TLS Handshake").getString("protocol")).startsWith("TLS");
+    final var header = events.get("Response Header Received");
+    assertThat(header.getString("path")).isEqualTo("/recorded");
+    assertThat(header.getInt("status")).isEqualTo(20);
+    assertThat(header.getString("meta")).isEqualTo("text/plain");
+    assertThat(events.get("Body Completed").getLong("bytes"))
+        .isEqualTo("20 text/plain\r\nRecorded".length());
+  }
+
+  @Test
+  public void testConnectTimeout_withNegativeDuration_throwsIllegalArgumentException() {
+    assertThatThrownBy(() -> GeminiClient.newBuilder().connectTimeout(Duration.ofSeconds(-1)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("connectTimeout must not be negative");
+  }
+
+  private static GeminiClient.Builder newClient() {
+    return GeminiClient.newBuilder().trustManager(TestServer.TRUST_ALL);
+  }
+
+  private static <T> CompletableFuture<List<T>> collect(final Publisher<T> publisher) {
+    final var future = new CompletableFuture<List<T>>();
+    publisher.subscribe(
+        new Subscriber<>() {
+          private final List<T> items = new ArrayList<>();
+
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+          }
+
+          @Override
+          public void onNext(final T item) {
+            items.add(item);
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            future.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            future.complete(items);
+          }
+        });
+    return future;
+  }
+
+  private static void stall(final Socket socket) throws InterruptedException {
+    new CountDownLatch(1).await();
+  }
+
+  /** A body subscriber which records the buffers it receives. */
+  private static final class RecordingBodySubscriber implements BodySubscriber<Void> {
+    private final List<ByteBuffer> buffers;
+    private final CompletableFuture<Void> body = new CompletableFuture<>();
+
+    private RecordingBodySubscriber(final List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> item) {
+      buffers.addAll(item);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      body.complete(null);
+    }
+  }
 }
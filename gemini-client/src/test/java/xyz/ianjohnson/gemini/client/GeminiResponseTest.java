@@ -5,15 +5,26 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static xyz.ianjohnson.gemini.client.TestUtils.utf8;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
+import xyz.ianjohnson.gemini.GeminiContent;
+import xyz.ianjohnson.gemini.GeminiHeadingLine;
+import xyz.ianjohnson.gemini.GeminiLinkLine;
+import xyz.ianjohnson.gemini.GeminiPreformattedText;
+import xyz.ianjohnson.gemini.GeminiTextLine;
 import xyz.ianjohnson.gemini.MimeType;
 import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandlers;
 import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscribers;
@@ -29,6 +40,35 @@ public class GeminiResponseTest {
     }
   }
 
+  private static <T> CompletableFuture<List<T>> collect(final Publisher<T> publisher) {
+    final var future = new CompletableFuture<List<T>>();
+    publisher.subscribe(
+        new Subscriber<>() {
+          private final List<T> items = new ArrayList<>();
+
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+          }
+
+          @Override
+          public void onNext(final T item) {
+            items.add(item);
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            future.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            future.complete(items);
+          }
+        });
+    return future;
+  }
+
   public static class BodyHandlersTest {
     @Test
     public void testDiscarding_returnsBodySubscriberDiscardingAllData() throws Throwable {
@@ -72,6 +112,20 @@ public class GeminiResponseTest {
       }
       assertThat(getResult(result)).isEqualTo("Hello, world!\n");
     }
+
+    @Test
+    public void testOfLinks_withNonGeminiMimeType_returnsBodySubscriberReturningNoLinks()
+        throws Throwable {
+      final var ofLinks =
+          BodyHandlers.ofLinks(URI.create("gemini://gemini.test/"))
+              .apply(MimeType.of("text", "plain"));
+      final var result = ofLinks.getBody();
+      try (final var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+        publisher.subscribe(ofLinks);
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("=> gemini://gemini.test Link\n"))));
+      }
+      assertThat(getResult(result)).isEmpty();
+    }
   }
 
   @Test
@@ -221,5 +275,108 @@ public class GeminiResponseTest {
       }
       assertThatThrownBy(() -> getResult(result)).isInstanceOf(NumberFormatException.class);
     }
+
+    @Test
+    public void testOfGeminiContent_withSuccessfulData_publishesParsedContent() throws Throwable {
+      final var ofGeminiContent = BodySubscribers.ofGeminiContent(StandardCharsets.UTF_8);
+      final var result = ofGeminiContent.getBody();
+      try (final var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+        publisher.subscribe(ofGeminiContent);
+        final var content = collect(getResult(result));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("# Heading\r"))));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("\n=> gemini://gemini.test Link\n``"))));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("`\nPreformatted\n```\nText"))));
+        publisher.close();
+
+        assertThat(getResult(content))
+            .containsExactly(
+                GeminiHeadingLine.of(1, "Heading"),
+                GeminiLinkLine.of(URI.create("gemini://gemini.test"), "Link"),
+                GeminiPreformattedText.of("Preformatted\n"),
+                GeminiTextLine.of("Text"));
+      }
+    }
+
+    @Test
+    public void testOfLinks_withSuccessfulData_collectsResolvedLinks() throws Throwable {
+      final var ofLinks =
+          BodySubscribers.ofLinks(StandardCharsets.UTF_8, URI.create("gemini://gemini.test/dir/"));
+      final var result = ofLinks.getBody();
+      try (final var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+        publisher.subscribe(ofLinks);
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("# Heading\r\n=> page.gmi Relat"))));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("ive\r\n```\n=> not-a-link\n```\n"))));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("=> gemini://other.test"))));
+      }
+      assertThat(getResult(result))
+          .containsExactly(
+              URI.create("gemini://gemini.test/dir/page.gmi"), URI.create("gemini://other.test"));
+    }
+
+    @Test
+    public void testOfLinks_withFailure_resultsInFailure() {
+      final var ofLinks = BodySubscribers.ofLinks(StandardCharsets.UTF_8, null);
+      final var result = ofLinks.getBody();
+      try (final var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+        publisher.subscribe(ofLinks);
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("=> link\n"))));
+        publisher.closeExceptionally(new IOException("Read error"));
+      }
+      assertThatThrownBy(() -> getResult(result))
+          .isInstanceOf(IOException.class)
+          .hasMessage("Read error");
+    }
+
+    @Test
+    public void testOfGeminiContent_withFailure_resultsInFailure() throws Throwable {
+      final var ofGeminiContent = BodySubscribers.ofGeminiContent(StandardCharsets.UTF_8);
+      final var result = ofGeminiContent.getBody();
+      try (final var publisher = new SubmissionPublisher<List<ByteBuffer>>()) {
+        publisher.subscribe(ofGeminiContent);
+        final CompletionStage<List<GeminiContent>> content = collect(getResult(result));
+        publisher.submit(List.of(ByteBuffer.wrap(utf8("Text\n"))));
+        publisher.closeExceptionally(new IOException("Read error"));
+
+        assertThatThrownBy(() -> getResult(content))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Read error");
+      }
+    }
+
+    @Test
+    public void testOfGeminiContent_withCancelledSubscription_cancelsUpstreamSubscription()
+        throws Throwable {
+      final var ofGeminiContent = BodySubscribers.ofGeminiContent(StandardCharsets.UTF_8);
+      final var upstreamCancelled = new CompletableFuture<Void>();
+      ofGeminiContent.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(final long n) {}
+
+            @Override
+            public void cancel() {
+              upstreamCancelled.complete(null);
+            }
+          });
+      getResult(ofGeminiContent.getBody())
+          .subscribe(
+              new Subscriber<>() {
+                @Override
+                public void onSubscribe(final Subscription subscription) {
+                  subscription.cancel();
+                }
+
+                @Override
+                public void onNext(final GeminiContent item) {}
+
+                @Override
+                public void onError(final Throwable throwable) {}
+
+                @Override
+                public void onComplete() {}
+              });
+
+      assertThat(upstreamCancelled).isDone();
+    }
   }
 }
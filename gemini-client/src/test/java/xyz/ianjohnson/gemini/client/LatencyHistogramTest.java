@@ -0,0 +1,46 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+  @Test
+  public void testBucket_withLatencies_usesPowerOfTwoMillisecondBounds() {
+    assertThat(LatencyHistogram.bucket(0)).isEqualTo(0);
+    assertThat(LatencyHistogram.bucket(Duration.ofMillis(1).toNanos())).isEqualTo(0);
+    assertThat(LatencyHistogram.bucket(Duration.ofMillis(1).toNanos() + 1)).isEqualTo(1);
+    assertThat(LatencyHistogram.bucket(Duration.ofMillis(4).toNanos())).isEqualTo(2);
+    assertThat(LatencyHistogram.bucket(Duration.ofMillis(5).toNanos())).isEqualTo(3);
+    assertThat(LatencyHistogram.bucket(Duration.ofHours(1).toNanos()))
+        .isEqualTo(LatencyHistogram.BUCKETS - 1);
+  }
+
+  @Test
+  public void testPercentile_withRecordedLatencies_returnsBucketUpperBound() {
+    final var counts = new long[LatencyHistogram.BUCKETS];
+    // 90 latencies of up to 8 ms, and 10 of 100 ms
+    counts[3] = 90;
+    counts[7] = 10;
+    final var histogram =
+        new LatencyHistogram(
+            counts,
+            Duration.ofMillis(90 * 5 + 10 * 100).toNanos(),
+            Duration.ofMillis(100).toNanos());
+
+    assertThat(histogram.count()).isEqualTo(100);
+    assertThat(histogram.mean()).isEqualTo(Duration.ofMillis(14).plusNanos(500_000));
+    assertThat(histogram.percentile(50)).isEqualTo(Duration.ofMillis(8));
+    assertThat(histogram.percentile(90)).isEqualTo(Duration.ofMillis(8));
+    assertThat(histogram.percentile(99)).isEqualTo(Duration.ofMillis(100));
+  }
+
+  @Test
+  public void testPercentile_withNoLatencies_returnsZero() {
+    final var histogram = new LatencyHistogram(new long[LatencyHistogram.BUCKETS], 0, 0);
+
+    assertThat(histogram.percentile(50)).isZero();
+    assertThat(histogram.mean()).isZero();
+  }
+}
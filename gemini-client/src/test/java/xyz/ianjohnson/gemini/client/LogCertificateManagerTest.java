@@ -0,0 +1,173 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.client.testing.CertificateGenerator;
+
+public class LogCertificateManagerTest {
+  private static X509Certificate cert;
+  private static X509Certificate cert2;
+
+  @BeforeAll
+  public static void createCerts() {
+    final var oneYearAgo = Instant.now().minus(365, ChronoUnit.DAYS);
+    final var oneYearFromNow = Instant.now().plus(365, ChronoUnit.DAYS);
+    cert = CertificateGenerator.generateCertificate(oneYearAgo, oneYearFromNow);
+    cert2 = CertificateGenerator.generateCertificate(oneYearAgo, oneYearFromNow);
+  }
+
+  @Test
+  public void testOpen_afterClose_loadsLatestCertificates(@TempDir final Path tempDir)
+      throws Exception {
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path)) {
+      manager.setCertificate("gemini.test", cert);
+      manager.setCertificate("other.gemini.test", cert);
+      manager.setCertificate("gemini.test", cert2);
+    }
+
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.hosts()).containsExactlyInAnyOrder("gemini.test", "other.gemini.test");
+      assertThat(manager.getCertificate("gemini.test")).hasValue(cert2);
+      assertThat(manager.getCertificate("other.gemini.test")).hasValue(cert);
+      assertThat(manager.getCertificate("unknown.gemini.test")).isEmpty();
+    }
+  }
+
+  @Test
+  public void testFlush_withPendingCertificates_writesCertificatesBeforeClose(
+      @TempDir final Path tempDir) throws Exception {
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path, Duration.ofDays(1))) {
+      manager.setCertificate("gemini.test", cert);
+      manager.flush();
+
+      try (final var reader = LogCertificateManager.open(path.toAbsolutePath())) {
+        assertThat(reader.getCertificate("gemini.test")).hasValue(cert);
+      }
+    }
+  }
+
+  @Test
+  public void testOpen_withIncompleteLastRecord_discardsOnlyLastRecord(@TempDir final Path tempDir)
+      throws Exception {
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path)) {
+      manager.setCertificate("gemini.test", cert);
+      manager.flush();
+      manager.setCertificate("other.gemini.test", cert2);
+    }
+    final var contents = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(contents, contents.length - 10));
+
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.hosts()).containsExactly("gemini.test");
+      manager.setCertificate("other.gemini.test", cert2);
+    }
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.getCertificate("gemini.test")).hasValue(cert);
+      assertThat(manager.getCertificate("other.gemini.test")).hasValue(cert2);
+    }
+  }
+
+  @Test
+  public void testOpen_withCorruptedRecord_discardsCorruptedAndFollowingRecords(
+      @TempDir final Path tempDir) throws Exception {
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path)) {
+      manager.setCertificate("gemini.test", cert);
+      manager.flush();
+      manager.setCertificate("other.gemini.test", cert2);
+    }
+    final var contents = Files.readAllBytes(path);
+    contents[contents.length - 100] ^= 1;
+    Files.write(path, contents);
+
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.hosts()).containsExactly("gemini.test");
+    }
+  }
+
+  @Test
+  public void testOpen_withOtherFile_throwsIOException(@TempDir final Path tempDir)
+      throws IOException {
+    final var path = tempDir.resolve("keystore.p12");
+    Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, StandardOpenOption.CREATE_NEW);
+
+    assertThatThrownBy(() -> LogCertificateManager.open(path))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Not a certificate log: bad magic number");
+  }
+
+  @Test
+  public void testCompact_withManyUpdates_shrinksLogAndKeepsLatestCertificates(
+      @TempDir final Path tempDir) throws Exception {
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path, Duration.ofDays(1))) {
+      for (var i = 0; i < 100; i++) {
+        manager.setCertificate("gemini.test", i % 2 == 0 ? cert : cert2);
+        manager.setCertificate("other.gemini.test", cert);
+      }
+      manager.flush();
+      final var sizeBefore = Files.size(path);
+      manager.compact();
+
+      assertThat(Files.size(path)).isLessThan(sizeBefore / 10);
+      manager.setCertificate("third.gemini.test", cert2);
+    }
+
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.hosts())
+          .containsExactlyInAnyOrder("gemini.test", "other.gemini.test", "third.gemini.test");
+      assertThat(manager.getCertificate("gemini.test")).hasValue(cert2);
+      assertThat(manager.getCertificate("third.gemini.test")).hasValue(cert2);
+    }
+  }
+
+  @Test
+  public void testImportFrom_withKeyStoreManager_copiesAllCertificates(@TempDir final Path tempDir)
+      throws Exception {
+    final var keyStore = KeyStore.getInstance("PKCS12");
+    keyStore.load(null, null);
+    final var keyStoreManager = new KeyStoreManager(keyStore);
+    keyStoreManager.setCertificate("gemini.test", cert);
+    keyStoreManager.setCertificate("other.gemini.test", cert2);
+
+    final var path = tempDir.resolve("known-hosts");
+    try (final var manager = LogCertificateManager.open(path)) {
+      manager.importFrom(keyStoreManager);
+    }
+
+    try (final var manager = LogCertificateManager.open(path)) {
+      assertThat(manager.hosts()).containsExactlyInAnyOrder("gemini.test", "other.gemini.test");
+      assertThat(manager.getCertificate("gemini.test")).hasValue(cert);
+      assertThat(manager.getCertificate("other.gemini.test")).hasValue(cert2);
+    }
+  }
+
+  @Test
+  public void testSetCertificate_afterClose_throwsKeyStoreException(@TempDir final Path tempDir)
+      throws Exception {
+    final var manager = LogCertificateManager.open(tempDir.resolve("known-hosts"));
+    manager.close();
+
+    assertThatThrownBy(() -> manager.setCertificate("gemini.test", cert))
+        .isInstanceOf(KeyStoreException.class)
+        .hasMessage("Certificate log is closed");
+  }
+}
@@ -0,0 +1,66 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import org.junit.jupiter.api.Test;
+
+public class PermanentRedirectCacheTest {
+  private static final URI A = URI.create("gemini://gemini.test/a");
+  private static final URI B = URI.create("gemini://gemini.test/b");
+  private static final URI C = URI.create("gemini://other.gemini.test/c");
+
+  @Test
+  public void testResolve_withChainOfRedirects_returnsEachTarget() {
+    final var cache = new PermanentRedirectCache(10);
+    cache.put(A, B);
+    cache.put(B, C);
+
+    assertThat(cache.resolve(A, 5)).containsExactly(B, C);
+    assertThat(cache.resolve(URI.create("gemini://gemini.test/./b"), 5)).containsExactly(C);
+    assertThat(cache.resolve(C, 5)).isEmpty();
+  }
+
+  @Test
+  public void testResolve_withChainLongerThanMaxHops_returnsEmptyList() {
+    final var cache = new PermanentRedirectCache(10);
+    cache.put(A, B);
+    cache.put(B, C);
+
+    assertThat(cache.resolve(A, 1)).isEmpty();
+  }
+
+  @Test
+  public void testResolve_withCycle_returnsEmptyList() {
+    final var cache = new PermanentRedirectCache(10);
+    cache.put(A, B);
+    cache.put(B, A);
+
+    assertThat(cache.resolve(A, 5)).isEmpty();
+  }
+
+  @Test
+  public void testPut_beyondMaxEntries_evictsLeastRecentlyUsed() {
+    final var cache = new PermanentRedirectCache(2);
+    cache.put(A, C);
+    cache.put(B, C);
+    cache.resolve(A, 5);
+    cache.put(URI.create("gemini://gemini.test/d"), C);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.resolve(A, 5)).containsExactly(C);
+    assertThat(cache.resolve(B, 5)).isEmpty();
+  }
+
+  @Test
+  public void testInvalidate_withTarget_forgetsRedirectsToTarget() {
+    final var cache = new PermanentRedirectCache(10);
+    cache.put(A, C);
+    cache.put(B, C);
+    cache.put(C, URI.create("gemini://gemini.test/d"));
+
+    cache.invalidate(C);
+
+    assertThat(cache.size()).isZero();
+  }
+}
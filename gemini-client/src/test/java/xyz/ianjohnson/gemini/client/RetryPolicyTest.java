@@ -0,0 +1,78 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+
+public class RetryPolicyTest {
+  private static final RetryPolicy POLICY =
+      RetryPolicy.newBuilder()
+          .maxRetries(3)
+          .initialBackoff(Duration.ofSeconds(1))
+          .maxBackoff(Duration.ofSeconds(5))
+          .maxSlowDownDelay(Duration.ofSeconds(60))
+          .build();
+
+  @Test
+  public void testRetryDelay_withSlowDown_returnsDelayFromMeta() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SLOW_DOWN, "30", 0))
+        .hasValue(Duration.ofSeconds(30));
+  }
+
+  @Test
+  public void testRetryDelay_withSlowDownLongerThanMaximum_returnsEmptyOptional() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SLOW_DOWN, "3600", 0)).isEmpty();
+  }
+
+  @Test
+  public void testRetryDelay_withSlowDownWithInvalidMeta_returnsBackoff() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SLOW_DOWN, "soon", 0))
+        .hasValueSatisfying(
+            delay -> assertThat(delay).isBetween(Duration.ofMillis(500), Duration.ofSeconds(1)));
+  }
+
+  @Test
+  public void testRetryDelay_withOtherTemporaryFailure_returnsBackoff() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SERVER_UNAVAILABLE, "", 1))
+        .hasValueSatisfying(
+            delay -> assertThat(delay).isBetween(Duration.ofSeconds(1), Duration.ofSeconds(2)));
+  }
+
+  @Test
+  public void testRetryDelay_withTemporaryFailuresNotRetried_returnsEmptyOptional() {
+    final var policy = POLICY.toBuilder().retryTemporaryFailures(false).build();
+
+    assertThat(policy.retryDelay(StandardGeminiStatus.SERVER_UNAVAILABLE, "", 0)).isEmpty();
+    assertThat(policy.retryDelay(StandardGeminiStatus.SLOW_DOWN, "1", 0))
+        .hasValue(Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void testRetryDelay_afterMaxRetries_returnsEmptyOptional() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SLOW_DOWN, "1", 3)).isEmpty();
+  }
+
+  @Test
+  public void testRetryDelay_withOtherStatus_returnsEmptyOptional() {
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.NOT_FOUND, "", 0)).isEmpty();
+    assertThat(POLICY.retryDelay(StandardGeminiStatus.SUCCESS, "text/gemini", 0)).isEmpty();
+  }
+
+  @Test
+  public void testBackoff_withManyRetries_isCappedAtMaxBackoff() {
+    for (var retries = 0; retries < 100; retries++) {
+      assertThat(POLICY.backoff(retries)).isLessThanOrEqualTo(Duration.ofSeconds(5));
+    }
+    assertThat(POLICY.backoff(100)).isGreaterThanOrEqualTo(Duration.ofMillis(2500));
+  }
+
+  @Test
+  public void testBuild_withNegativeMaxRetries_throwsIllegalArgumentException() {
+    assertThatThrownBy(() -> RetryPolicy.newBuilder().maxRetries(-1).build())
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("maxRetries must not be negative");
+  }
+}
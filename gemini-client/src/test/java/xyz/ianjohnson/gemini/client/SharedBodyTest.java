@@ -0,0 +1,96 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static xyz.ianjohnson.gemini.client.TestUtils.utf8;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscribers;
+
+public class SharedBodyTest {
+  @Test
+  public void testSubscribe_afterPartOfBodyReceived_receivesWholeBody() {
+    final var body = new SharedBody(MimeType.TEXT_GEMINI, () -> {});
+    body.onSubscribe(subscription(new AtomicBoolean()));
+    final var early = BodySubscribers.ofString(StandardCharsets.UTF_8);
+    body.retain();
+    body.subscribe(early);
+    body.onNext(List.of(ByteBuffer.wrap(utf8("Hello, "))));
+
+    final var late = BodySubscribers.ofString(StandardCharsets.UTF_8);
+    body.retain();
+    body.subscribe(late);
+    body.onNext(List.of(ByteBuffer.wrap(utf8("world!"))));
+    body.onComplete();
+
+    assertThat(early.getBody().toCompletableFuture()).isCompletedWithValue("Hello, world!");
+    assertThat(late.getBody().toCompletableFuture()).isCompletedWithValue("Hello, world!");
+  }
+
+  @Test
+  public void testSubscribe_afterBodyFailed_receivesError() {
+    final var body = new SharedBody(MimeType.TEXT_GEMINI, () -> {});
+    body.onSubscribe(subscription(new AtomicBoolean()));
+    body.onNext(List.of(ByteBuffer.wrap(utf8("Partial"))));
+    body.onError(new MalformedResponseException("Connection reset"));
+
+    final var subscriber = BodySubscribers.ofString(StandardCharsets.UTF_8);
+    body.retain();
+    body.subscribe(subscriber);
+
+    assertThat(subscriber.getBody().toCompletableFuture())
+        .hasFailedWithThrowableThat()
+        .isInstanceOf(MalformedResponseException.class);
+  }
+
+  @Test
+  public void testCancel_byAllSubscribers_cancelsUpstreamAndRejectsNewSubscribers() {
+    final var done = new AtomicBoolean();
+    final var body = new SharedBody(MimeType.TEXT_GEMINI, () -> done.set(true));
+    final var cancelled = new AtomicBoolean();
+    body.onSubscribe(subscription(cancelled));
+    body.retain();
+    body.retain();
+    final var first = body.subscribe(BodySubscribers.ofString(StandardCharsets.UTF_8));
+    final var second = body.subscribe(BodySubscribers.ofString(StandardCharsets.UTF_8));
+
+    first.cancel();
+    assertThat(cancelled).isFalse();
+    second.cancel();
+
+    assertThat(cancelled).isTrue();
+    assertThat(done).isTrue();
+    assertThat(body.retain()).isFalse();
+  }
+
+  @Test
+  public void testCancel_afterBodyReceived_doesNotCancelUpstream() {
+    final var body = new SharedBody(MimeType.TEXT_GEMINI, () -> {});
+    final var cancelled = new AtomicBoolean();
+    body.onSubscribe(subscription(cancelled));
+    body.retain();
+    final var subscription = body.subscribe(BodySubscribers.discarding());
+    body.onComplete();
+
+    subscription.cancel();
+
+    assertThat(cancelled).isFalse();
+  }
+
+  private static Subscription subscription(final AtomicBoolean cancelled) {
+    return new Subscription() {
+      @Override
+      public void request(final long n) {}
+
+      @Override
+      public void cancel() {
+        cancelled.set(true);
+      }
+    };
+  }
+}
@@ -0,0 +1,181 @@
+package xyz.ianjohnson.gemini.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static xyz.ianjohnson.gemini.client.TestUtils.utf8;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TieredResponseCacheTest {
+  private static final URI URI_1 = URI.create("gemini://gemini.test/one");
+  private static final URI URI_2 = URI.create("gemini://gemini.test/two");
+  private static final URI URI_3 = URI.create("gemini://gemini.test/three");
+
+  private final MutableClock clock = new MutableClock();
+
+  @Test
+  public void testGet_afterPut_returnsResponse() throws Exception {
+    final var cache = TieredResponseCache.newBuilder().clock(clock).build();
+    cache.put(response(URI_1, "Hello"));
+
+    assertThat(cache.get(URI_1)).hasValueSatisfying(r -> assertThat(body(r)).isEqualTo("Hello"));
+    assertThat(cache.get(URI.create("gemini://gemini.test/./one"))).isPresent();
+    assertThat(cache.get(URI_2)).isEmpty();
+  }
+
+  @Test
+  public void testGet_afterTtl_returnsEmptyOptional() throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder().clock(clock).defaultTtl(Duration.ofMinutes(1)).build();
+    cache.put(response(URI_1, "Hello"));
+
+    clock.advance(Duration.ofSeconds(59));
+    assertThat(cache.get(URI_1)).isPresent();
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(cache.get(URI_1)).isEmpty();
+    assertThat(cache.memoryBytes()).isZero();
+  }
+
+  @Test
+  public void testTtl_withHostAndPrefixTtls_usesMostSpecificTtl() throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder()
+            .defaultTtl(Duration.ofMinutes(1))
+            .hostTtl("Gemini.Test", Duration.ofMinutes(2))
+            .prefixTtl("gemini://gemini.test/news/", Duration.ofMinutes(3))
+            .prefixTtl("gemini://gemini.test/news/live/", Duration.ZERO)
+            .build();
+
+    assertThat(cache.ttl(URI.create("gemini://other.test/"))).isEqualTo(Duration.ofMinutes(1));
+    assertThat(cache.ttl(URI.create("gemini://gemini.test/"))).isEqualTo(Duration.ofMinutes(2));
+    assertThat(cache.ttl(URI.create("gemini://gemini.test/news/today")))
+        .isEqualTo(Duration.ofMinutes(3));
+    assertThat(cache.ttl(URI.create("gemini://gemini.test/news/live/now"))).isZero();
+  }
+
+  @Test
+  public void testPut_withZeroTtl_doesNotCacheResponse() throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder().hostTtl("gemini.test", Duration.ZERO).build();
+    cache.put(response(URI_1, "Hello"));
+
+    assertThat(cache.get(URI_1)).isEmpty();
+  }
+
+  @Test
+  public void testPut_beyondMemoryLimit_evictsLeastRecentlyUsed() throws Exception {
+    final var cache = TieredResponseCache.newBuilder().maxMemoryBytes(10).build();
+    cache.put(response(URI_1, "12345"));
+    cache.put(response(URI_2, "12345"));
+    cache.get(URI_1);
+    cache.put(response(URI_3, "12345"));
+
+    assertThat(cache.get(URI_1)).isPresent();
+    assertThat(cache.get(URI_2)).isEmpty();
+    assertThat(cache.get(URI_3)).isPresent();
+    assertThat(cache.memoryBytes()).isEqualTo(10);
+  }
+
+  @Test
+  public void testPut_withDiskTier_movesEvictedResponsesToMappedFiles(@TempDir final Path tempDir)
+      throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder().maxMemoryBytes(5).diskDirectory(tempDir).build();
+    cache.put(response(URI_1, "Hello"));
+    cache.put(response(URI_2, "World"));
+
+    assertThat(cache.memoryBytes()).isEqualTo(5);
+    assertThat(cache.diskBytes()).isEqualTo(5);
+    assertThat(cache.get(URI_1))
+        .hasValueSatisfying(
+            r -> {
+              assertThat(r.body().isDirect()).isTrue();
+              assertThat(body(r)).isEqualTo("Hello");
+            });
+  }
+
+  @Test
+  public void testPut_withIdenticalBodiesOnDisk_storesBodyOnce(@TempDir final Path tempDir)
+      throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder().maxMemoryBytes(0).diskDirectory(tempDir).build();
+    cache.put(response(URI_1, "Same body"));
+    cache.put(response(URI_2, "Same body"));
+
+    assertThat(cache.diskBytes()).isEqualTo(9);
+    try (final var files = Files.list(tempDir)) {
+      assertThat(files.filter(f -> f.toString().endsWith(".body"))).hasSize(1);
+    }
+
+    cache.invalidate(URI_1);
+    assertThat(cache.get(URI_2))
+        .hasValueSatisfying(r -> assertThat(body(r)).isEqualTo("Same body"));
+    cache.invalidate(URI_2);
+    try (final var files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  public void testBuild_withExistingDiskTier_reusesUnexpiredResponses(@TempDir final Path tempDir)
+      throws Exception {
+    final var cache =
+        TieredResponseCache.newBuilder()
+            .clock(clock)
+            .maxMemoryBytes(0)
+            .diskDirectory(tempDir)
+            .hostTtl("gemini.test", Duration.ofMinutes(10))
+            .build();
+    cache.put(response(URI_1, "Hello"));
+    cache.put(response(URI.create("gemini://other.test/"), "Short-lived"));
+
+    clock.advance(Duration.ofMinutes(6));
+    final var reopened =
+        TieredResponseCache.newBuilder().clock(clock).diskDirectory(tempDir).build();
+
+    assertThat(reopened.get(URI_1)).hasValueSatisfying(r -> assertThat(body(r)).isEqualTo("Hello"));
+    assertThat(reopened.get(URI.create("gemini://other.test/"))).isEmpty();
+    assertThat(reopened.diskBytes()).isEqualTo(5);
+  }
+
+  private static CachedResponse response(final URI uri, final String body) {
+    return CachedResponse.of(uri, "text/plain", ByteBuffer.wrap(utf8(body)));
+  }
+
+  private static String body(final CachedResponse response) {
+    return StandardCharsets.UTF_8.decode(response.body().duplicate()).toString();
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+    void advance(final Duration duration) {
+      instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -3,25 +3,35 @@ package xyz.ianjohnson.gemini.client;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Path;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.client.testing.CertificateGenerator;
 
 public class TofuClientTrustManagerTest {
   private static X509Certificate validCert;
@@ -60,6 +70,37 @@ public class TofuClientTrustManagerTest {
     assertThat(certificateManager.certificates()).isEqualTo(Map.of("gemini.test", validCert));
   }
 
+  @Test
+  public void testCheckServerTrusted_withFlightRecording_emitsTrustDecisionEvents(
+      @TempDir final Path tempDir) throws Exception {
+    final var file = tempDir.resolve("recording.jfr");
+    try (final var recording = new Recording()) {
+      recording.enable("xyz.ianjohnson.gemini.client.TrustDecision");
+      recording.start();
+      trustManager.checkServerTrusted(
+          new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+      trustManager.checkServerTrusted(
+          new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+      assertThatThrownBy(
+              () ->
+                  trustManager.checkServerTrusted(
+                      new X509Certificate[] {validCert2}, "RSA", mockEngine("gemini.test")))
+          .isInstanceOf(CertificateChangedException.class);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    assertThat(RecordingFile.readAllEvents(file))
+        .extracting(
+            event -> event.getString("host"),
+            event -> event.getString("fingerprint"),
+            event -> event.getString("decision"))
+        .containsExactly(
+            tuple("gemini.test", Certificates.getFingerprint(validCert), "new"),
+            tuple("gemini.test", Certificates.getFingerprint(validCert), "cached"),
+            tuple("gemini.test", Certificates.getFingerprint(validCert2), "changed"));
+  }
+
   @Test
   public void testCheckServerTrusted_withSSLSocketAndNewCertificate_trustsNewCertificate() {
     assertThatCode(
@@ -131,7 +172,82 @@ public class TofuClientTrustManagerTest {
     assertThat(certificateManager.certificates()).isEqualTo(Map.of("gemini.test", validCert));
   }
 
-  @SuppressWarnings("SameParameterValue")
+  @Test
+  public void testCheckServerTrusted_withKnownCertificate_doesNotLookUpCertificateAgain()
+      throws Exception {
+    certificateManager.setCertificate("gemini.test", validCert);
+    for (var i = 0; i < 3; i++) {
+      trustManager.checkServerTrusted(
+          new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+    }
+
+    assertThat(certificateManager.lookups()).hasValue(1);
+  }
+
+  @Test
+  public void testCheckServerTrusted_afterCacheFilled_cachesNewlyContactedHosts() throws Exception {
+    for (var i = 0; i < TofuClientTrustManager.MAX_CACHED_CERTIFICATES; i++) {
+      trustManager.checkServerTrusted(
+          new X509Certificate[] {validCert}, "RSA", mockEngine("host" + i + ".gemini.test"));
+    }
+    final var lookups = certificateManager.lookups().get();
+
+    for (var i = 0; i < 3; i++) {
+      trustManager.checkServerTrusted(
+          new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+    }
+
+    assertThat(certificateManager.lookups()).hasValue(lookups + 1);
+  }
+
+  @Test
+  public void
+      testCheckServerTrusted_withCertificateChangedAfterCaching_throwsCertificateChangedException()
+          throws Exception {
+    trustManager.checkServerTrusted(
+        new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+
+    assertThatThrownBy(
+            () ->
+                trustManager.checkServerTrusted(
+                    new X509Certificate[] {validCert2}, "RSA", mockEngine("gemini.test")))
+        .isInstanceOf(CertificateChangedException.class);
+    assertThat(certificateManager.certificates()).isEqualTo(Map.of("gemini.test", validCert));
+  }
+
+  @Test
+  public void testInvalidate_afterCertificateReplaced_trustsOnlyReplacementCertificate()
+      throws Exception {
+    trustManager.checkServerTrusted(
+        new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test"));
+    certificateManager.setCertificate("gemini.test", validCert2);
+    trustManager.invalidate("gemini.test");
+
+    assertThatCode(
+            () ->
+                trustManager.checkServerTrusted(
+                    new X509Certificate[] {validCert2}, "RSA", mockEngine("gemini.test")))
+        .doesNotThrowAnyException();
+    assertThatThrownBy(
+            () ->
+                trustManager.checkServerTrusted(
+                    new X509Certificate[] {validCert}, "RSA", mockEngine("gemini.test")))
+        .isInstanceOf(CertificateChangedException.class);
+  }
+
+  @Test
+  public void testHostLock_withManyHosts_returnsSameLockForSameHostFromBoundedSet() {
+    final var locks = Collections.newSetFromMap(new IdentityHashMap<Lock, Boolean>());
+    for (var i = 0; i < 1_000_000; i++) {
+      final var host = "host" + i + ".gemini.test";
+      final var lock = trustManager.hostLock(host);
+      assertThat(trustManager.hostLock(host)).isSameAs(lock);
+      locks.add(lock);
+    }
+
+    assertThat(locks).hasSizeLessThanOrEqualTo(64);
+  }
+
   private SSLEngine mockEngine(final String host) {
     final var engine = mock(SSLEngine.class);
     final var session = mockSession(host);
@@ -155,11 +271,16 @@ public class TofuClientTrustManagerTest {
 
   private static final class SimpleCertificateManager implements CertificateManager {
     private final ConcurrentMap<String, X509Certificate> certificates = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
 
     public ConcurrentMap<String, X509Certificate> certificates() {
       return certificates;
     }
 
+    public AtomicInteger lookups() {
+      return lookups;
+    }
+
     @Override
     public List<String> hosts() {
       return List.copyOf(certificates.keySet());
@@ -167,6 +288,7 @@ public class TofuClientTrustManagerTest {
 
     @Override
     public Optional<X509Certificate> getCertificate(final String host) {
+      lookups.incrementAndGet();
       return Optional.ofNullable(certificates.get(host));
     }
 
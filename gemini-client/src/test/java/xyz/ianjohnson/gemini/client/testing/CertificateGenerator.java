@@ -1,11 +1,17 @@
-package xyz.ianjohnson.gemini.client;
+package xyz.ianjohnson.gemini.client.testing;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import javax.security.auth.x500.X500Principal;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
@@ -14,10 +20,40 @@ import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
-final class CertificateGenerator {
+public final class CertificateGenerator {
+  public static final char[] KEY_STORE_PASSWORD = "password".toCharArray();
+
   private CertificateGenerator() {}
 
-  static X509Certificate generateCertificate(final Instant notBefore, final Instant notAfter) {
+  public static X509Certificate generateCertificate(
+      final Instant notBefore, final Instant notAfter) {
+    return generateCertificate(generateKeyPair(), notBefore, notAfter);
+  }
+
+  /**
+   * Generates a key store containing a private key and a self-signed certificate for it, suitable
+   * for use by a test server. The key is stored under the alias {@code server} with the password
+   * {@link #KEY_STORE_PASSWORD}.
+   */
+  public static KeyStore generateKeyStore() {
+    final var keyPair = generateKeyPair();
+    final var certificate =
+        generateCertificate(
+            keyPair,
+            Instant.now().minus(1, ChronoUnit.DAYS),
+            Instant.now().plus(1, ChronoUnit.DAYS));
+    try {
+      final var keyStore = KeyStore.getInstance("PKCS12");
+      keyStore.load(null, null);
+      keyStore.setKeyEntry(
+          "server", keyPair.getPrivate(), KEY_STORE_PASSWORD, new Certificate[] {certificate});
+      return keyStore;
+    } catch (final GeneralSecurityException | IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static KeyPair generateKeyPair() {
     final KeyPairGenerator keyPairGenerator;
     try {
       keyPairGenerator = KeyPairGenerator.getInstance("RSA");
@@ -25,7 +61,11 @@ final class CertificateGenerator {
       throw new IllegalStateException(e);
     }
     keyPairGenerator.initialize(2048);
-    final var keyPair = keyPairGenerator.generateKeyPair();
+    return keyPairGenerator.generateKeyPair();
+  }
+
+  private static X509Certificate generateCertificate(
+      final KeyPair keyPair, final Instant notBefore, final Instant notAfter) {
     final var subject = new X500Principal("CN=gemini.test");
     final ContentSigner contentSigner;
     try {
@@ -0,0 +1,127 @@
+package xyz.ianjohnson.gemini.client.testing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * A minimal server for testing clients against real connections. Each accepted connection is passed
+ * to the handler on its own thread, and is closed once the handler returns.
+ */
+public final class TestServer implements Closeable {
+  /** A trust manager which trusts the certificate of any test server. */
+  public static final TrustManager TRUST_ALL =
+      new X509TrustManager() {
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType) {}
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType) {}
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+          return new X509Certificate[0];
+        }
+      };
+
+  private final ServerSocket serverSocket;
+
+  private TestServer(final ServerSocket serverSocket, final Handler handler) {
+    this.serverSocket = serverSocket;
+    final var acceptThread =
+        new Thread(
+            () -> {
+              while (!serverSocket.isClosed()) {
+                try {
+                  final var socket = serverSocket.accept();
+                  final var thread =
+                      new Thread(
+                          () -> {
+                            try (socket) {
+                              handler.handle(socket);
+                            } catch (final IOException | InterruptedException ignored) {
+                              // The client is allowed to give up on the connection
+                            }
+                          });
+                  thread.setDaemon(true);
+                  thread.start();
+                } catch (final IOException ignored) {
+                  // The server socket has been closed
+                }
+              }
+            });
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+  }
+
+  /** Starts a server which accepts TCP connections but does not speak TLS. */
+  public static TestServer plain(final Handler handler) throws IOException {
+    return new TestServer(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()), handler);
+  }
+
+  /**
+   * Starts a server which completes the TLS handshake of each connection before passing it to the
+   * handler.
+   */
+  public static TestServer tls(final Handler handler) throws IOException {
+    final SSLContext sslContext;
+    try {
+      final var keyManagerFactory =
+          KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagerFactory.init(
+          CertificateGenerator.generateKeyStore(), CertificateGenerator.KEY_STORE_PASSWORD);
+      sslContext = SSLContext.getInstance("TLSv1.2");
+      sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+    } catch (final GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    final var serverSocket =
+        sslContext
+            .getServerSocketFactory()
+            .createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    return new TestServer(
+        serverSocket,
+        socket -> {
+          ((SSLSocket) socket).startHandshake();
+          handler.handle(socket);
+        });
+  }
+
+  /** Reads the request line sent on the given connection, without its terminating CRLF. */
+  public static String readRequest(final Socket socket) throws IOException {
+    final var request = new StringBuilder();
+    final var input = socket.getInputStream();
+    int b;
+    while ((b = input.read()) != -1 && b != '\n') {
+      if (b != '\r') {
+        request.append((char) b);
+      }
+    }
+    return request.toString();
+  }
+
+  /** Returns a Gemini URI on this server with the given path. */
+  public URI uri(final String path) {
+    return URI.create("gemini://127.0.0.1:" + serverSocket.getLocalPort() + path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  @FunctionalInterface
+  public interface Handler {
+    void handle(Socket socket) throws IOException, InterruptedException;
+  }
+}
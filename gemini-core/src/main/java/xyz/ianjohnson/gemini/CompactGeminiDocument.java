@@ -0,0 +1,194 @@
+package xyz.ianjohnson.gemini;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A {@link GeminiDocument} that keeps the text of the document once, along with the offset, length
+ * and type of each item of content, creating {@link GeminiContent} objects only when they are
+ * accessed.
+ *
+ * <p>Each item of content corresponds to a range of the text. For most items, this is the line the
+ * item was parsed from (not including its line terminator). Blank lines are stored as empty ranges,
+ * and preformatted text is stored as the range from the start of its opening toggle line to the end
+ * of its last line of text.
+ */
+final class CompactGeminiDocument extends GeminiDocument {
+  private static final byte PREFORMATTED_TEXT = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String text;
+  private final int[] offsets;
+  private final int[] lengths;
+  private final byte[] types;
+  private final List<GeminiContent> content = new ContentView();
+
+  private CompactGeminiDocument(
+      final String text, final int[] offsets, final int[] lengths, final byte[] types) {
+    this.text = text;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.types = types;
+  }
+
+  static CompactGeminiDocument of(final CharSequence document) {
+    return new Builder(document.toString()).build();
+  }
+
+  @Override
+  public List<GeminiContent> content() {
+    return content;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (o == this) {
+      return true;
+    }
+    return o instanceof GeminiDocument && content.equals(((GeminiDocument) o).content());
+  }
+
+  @Override
+  public int hashCode() {
+    // Consistent with the AutoValue implementation
+    return 1000003 ^ content.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "GeminiDocument{content=" + content + "}";
+  }
+
+  private GeminiContent materialize(final int index) {
+    final var start = offsets[index];
+    final var end = start + lengths[index];
+    final var type = types[index];
+    return type == PREFORMATTED_TEXT
+        ? preformattedText(start, end)
+        : GemtextLines.content(text, start, end, type);
+  }
+
+  private GeminiPreformattedText preformattedText(final int start, final int end) {
+    final var toggleEnd = text.indexOf('\n', start);
+    if (toggleEnd == -1 || toggleEnd >= end) {
+      return GeminiPreformattedText.of("", GemtextLines.altText(text, start, end));
+    }
+    final var altText = GemtextLines.altText(text, start, toggleEnd);
+
+    final var sb = new StringBuilder(end - toggleEnd);
+    var i = toggleEnd + 1;
+    while (i < end) {
+      final var lf = text.indexOf('\n', i);
+      if (lf == -1 || lf >= end) {
+        // Unterminated last line of the document
+        sb.append(text, i, end).append('\n');
+        break;
+      }
+      sb.append(text, i, lf > i && text.charAt(lf - 1) == '\r' ? lf - 1 : lf).append('\n');
+      i = lf + 1;
+    }
+    return GeminiPreformattedText.of(sb.toString(), altText);
+  }
+
+  private final class ContentView extends AbstractList<GeminiContent> implements RandomAccess {
+    @Override
+    public GeminiContent get(final int index) {
+      if (index < 0 || index >= types.length) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + types.length);
+      }
+      return materialize(index);
+    }
+
+    @Override
+    public int size() {
+      return types.length;
+    }
+  }
+
+  /**
+   * Scans a document, recording the range of each item of content. The content produced is the same
+   * as that of {@link GeminiParser}.
+   */
+  private static final class Builder {
+    private final String text;
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    Builder(final String text) {
+      this.text = text;
+    }
+
+    CompactGeminiDocument build() {
+      final var length = text.length();
+      var pendingBlankLines = 0;
+      var preformattedStart = -1;
+      var preformattedEnd = -1;
+      var start = 0;
+      while (start < length) {
+        final var lf = text.indexOf('\n', start);
+        final int end;
+        final int next;
+        if (lf == -1) {
+          end = length;
+          next = length;
+        } else {
+          end = lf > start && text.charAt(lf - 1) == '\r' ? lf - 1 : lf;
+          next = lf + 1;
+        }
+
+        if (start == end) {
+          // As in GeminiParser, blank lines are only added once some other content follows them
+          pendingBlankLines++;
+        } else {
+          if (preformattedStart == -1) {
+            for (; pendingBlankLines > 0; pendingBlankLines--) {
+              add(start, 0, GemtextLines.TEXT);
+            }
+          }
+          pendingBlankLines = 0;
+
+          if (GemtextLines.isPreformattedToggle(text, start, end)) {
+            if (preformattedStart == -1) {
+              preformattedStart = start;
+              preformattedEnd = next;
+            } else {
+              add(preformattedStart, start - preformattedStart, PREFORMATTED_TEXT);
+              preformattedStart = -1;
+            }
+          } else if (preformattedStart != -1) {
+            preformattedEnd = next;
+          } else {
+            add(start, end - start, GemtextLines.type(text, start, end));
+          }
+        }
+        start = next;
+      }
+      if (preformattedStart != -1) {
+        add(preformattedStart, preformattedEnd - preformattedStart, PREFORMATTED_TEXT);
+      }
+
+      return new CompactGeminiDocument(
+          text,
+          Arrays.copyOf(offsets, size),
+          Arrays.copyOf(lengths, size),
+          Arrays.copyOf(types, size));
+    }
+
+    private void add(final int offset, final int length, final byte type) {
+      if (size == types.length) {
+        final var capacity = size * 2;
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        types = Arrays.copyOf(types, capacity);
+      }
+      offsets[size] = offset;
+      lengths[size] = length;
+      types[size] = type;
+      size++;
+    }
+  }
+}
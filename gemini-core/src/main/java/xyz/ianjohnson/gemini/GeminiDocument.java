@@ -1,8 +1,6 @@
 package xyz.ianjohnson.gemini;
 
 import com.google.auto.value.AutoValue;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,68 +12,39 @@ public abstract class GeminiDocument {
     return new AutoValue_GeminiDocument(List.copyOf(content));
   }
 
-  public static GeminiDocument parse(final String document) {
+  /**
+   * Parses the given Gemini document.
+   *
+   * @param document the text of the document
+   * @return the parsed document
+   * @see GeminiParser
+   */
+  public static GeminiDocument parse(final CharSequence document) {
     final List<GeminiContent> content = new ArrayList<>();
-    String altText = null;
-    StringBuilder preformatted = null;
-    for (final var line : document.split("\r?\n")) {
-      if (line.startsWith("```")) {
-        if (preformatted == null) {
-          // Start of preformatted text
-          altText = line.substring(3).strip();
-          if (altText.isEmpty()) {
-            altText = null;
-          }
-          preformatted = new StringBuilder();
-        } else {
-          content.add(GeminiPreformattedText.of(preformatted.toString(), altText));
-          altText = null;
-          preformatted = null;
-        }
-      } else if (preformatted != null) {
-        preformatted.append(line);
-        preformatted.append("\n");
-      } else if (line.startsWith("=>")) {
-        final var parts = line.substring(2).stripLeading().split("\\s+", 2);
-        final URI uri;
-        try {
-          uri = new URI(parts[0]);
-        } catch (final URISyntaxException e) {
-          // Invalid link; treat as text
-          content.add(GeminiTextLine.of(line));
-          continue;
-        }
-        final var title = parts.length > 1 && !parts[1].isBlank() ? parts[1].strip() : null;
-        content.add(GeminiLinkLine.of(uri, title));
-      } else if (line.startsWith("#")) {
-        final int level;
-        final String text;
-        if (line.startsWith("###")) {
-          level = 3;
-          text = line.substring(3);
-        } else if (line.startsWith("##")) {
-          level = 2;
-          text = line.substring(2);
-        } else {
-          level = 1;
-          text = line.substring(1);
-        }
-        content.add(GeminiHeadingLine.of(level, text.strip()));
-      } else if (line.startsWith("* ")) {
-        content.add(GeminiUnorderedListItem.of(line.substring(2).strip()));
-      } else if (line.startsWith(">")) {
-        content.add(GeminiQuoteLine.of(line.substring(1).strip()));
-      } else {
-        content.add(GeminiTextLine.of(line.strip()));
-      }
-    }
-    // Handle unterminated preformatted content
-    if (preformatted != null) {
-      content.add(GeminiPreformattedText.of(preformatted.toString(), altText));
-    }
+    final var parser = new GeminiParser(content::add);
+    parser.feed(document);
+    parser.finish();
     return of(content);
   }
 
+  /**
+   * Parses the given Gemini document into a compact representation suitable for very large
+   * documents.
+   *
+   * <p>The returned document keeps a single copy of the text of the document, along with the
+   * position and type of each item of content, and its {@link #content()} is a view which creates
+   * each {@link GeminiContent} item when it is accessed. This uses much less memory than {@link
+   * #parse(CharSequence)} for large documents, at the cost of creating a new object each time an
+   * item of content is accessed. The content of the returned document is equal to that of a
+   * document returned by {@link #parse(CharSequence)}.
+   *
+   * @param document the text of the document
+   * @return the parsed document
+   */
+  public static GeminiDocument parseCompact(final CharSequence document) {
+    return CompactGeminiDocument.of(document);
+  }
+
   /** The content of the document. */
   public abstract List<GeminiContent> content();
 }
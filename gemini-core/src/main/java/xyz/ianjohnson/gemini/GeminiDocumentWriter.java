@@ -0,0 +1,356 @@
+package xyz.ianjohnson.gemini;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A writer which serializes {@link GeminiContent} as a UTF-8 encoded Gemini document, publishing
+ * the encoded document as a stream of {@link ByteBuffer ByteBuffers}.
+ *
+ * <p>Content is encoded directly into fixed-size buffers, each of which is published as soon as it
+ * is full (or when {@link #flush()} or {@link #close()} is called), so a subscriber such as a
+ * server response can start sending a large document before all of it has been generated. At most a
+ * fixed number of full buffers are held waiting for the subscriber to request them; once that limit
+ * is reached, writing blocks until the subscriber catches up. A writer may therefore be used from a
+ * different thread than its subscriber, with the subscriber's demand limiting how far ahead of it
+ * the writer can get. Buffers written before a subscriber has subscribed are held until it does.
+ *
+ * <p>The content written can be parsed back into the same content using {@link
+ * GeminiDocument#parse(CharSequence)}, with the exception of text lines which themselves look like
+ * other types of line (for example, text starting with {@code #}).
+ *
+ * <p>The writing methods of this class must be called from a single thread at a time. A writer
+ * accepts only a single subscriber.
+ */
+public final class GeminiDocumentWriter implements Publisher<ByteBuffer>, AutoCloseable {
+  /** The default size of each published buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  /** The default maximum number of full buffers held waiting for the subscriber. */
+  public static final int DEFAULT_MAX_PENDING_BUFFERS = 16;
+
+  private final int bufferSize;
+  private final int maxPendingBuffers;
+  private final CharsetEncoder encoder =
+      StandardCharsets.UTF_8
+          .newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private ByteBuffer buffer;
+  private boolean closed;
+
+  private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final AtomicReference<Subscriber<? super ByteBuffer>> downstream =
+      new AtomicReference<>();
+  private final AtomicLong demand = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private volatile boolean done;
+  private volatile Throwable error;
+  private volatile boolean terminated;
+
+  /**
+   * Constructs a new {@link GeminiDocumentWriter} with the default buffer size and maximum number
+   * of pending buffers.
+   */
+  public GeminiDocumentWriter() {
+    this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_PENDING_BUFFERS);
+  }
+
+  /**
+   * Constructs a new {@link GeminiDocumentWriter}.
+   *
+   * @param bufferSize the size of each published buffer
+   * @param maxPendingBuffers the maximum number of full buffers to hold waiting for the subscriber
+   *     before writing blocks, or {@link Integer#MAX_VALUE} to never block
+   */
+  public GeminiDocumentWriter(final int bufferSize, final int maxPendingBuffers) {
+    if (bufferSize < 16) {
+      throw new IllegalArgumentException("Buffer size must be at least 16");
+    }
+    if (maxPendingBuffers < 1) {
+      throw new IllegalArgumentException("Maximum pending buffers must be positive");
+    }
+    this.bufferSize = bufferSize;
+    this.maxPendingBuffers = maxPendingBuffers;
+  }
+
+  /**
+   * Writes the given content.
+   *
+   * @param content the content to write
+   * @return this writer
+   * @throws InterruptedIOException if the thread is interrupted while waiting for the subscriber
+   * @throws IOException if the writer has been closed or the subscriber has cancelled its
+   *     subscription
+   */
+  public GeminiDocumentWriter write(final GeminiContent content) throws IOException {
+    if (content instanceof GeminiTextLine) {
+      writeLine(((GeminiTextLine) content).text());
+    } else if (content instanceof GeminiLinkLine) {
+      final var link = (GeminiLinkLine) content;
+      append("=> ");
+      append(link.uriString());
+      if (link.title().isPresent()) {
+        append(" ");
+        append(link.title().get());
+      }
+      append("\n");
+    } else if (content instanceof GeminiHeadingLine) {
+      final var heading = (GeminiHeadingLine) content;
+      append("###", 0, heading.level());
+      append(" ");
+      writeLine(heading.text());
+    } else if (content instanceof GeminiUnorderedListItem) {
+      append("* ");
+      writeLine(((GeminiUnorderedListItem) content).text());
+    } else if (content instanceof GeminiQuoteLine) {
+      append("> ");
+      writeLine(((GeminiQuoteLine) content).text());
+    } else if (content instanceof GeminiPreformattedText) {
+      final var preformatted = (GeminiPreformattedText) content;
+      append("```");
+      writeLine(preformatted.altText().orElse(""));
+      final var text = preformatted.text();
+      append(text);
+      if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') {
+        append("\n");
+      }
+      append("```\n");
+    } else {
+      throw new IllegalArgumentException("Unsupported content: " + content);
+    }
+    return this;
+  }
+
+  /**
+   * Writes all the content of the given document.
+   *
+   * @param document the document to write
+   * @return this writer
+   * @throws InterruptedIOException if the thread is interrupted while waiting for the subscriber
+   * @throws IOException if the writer has been closed or the subscriber has cancelled its
+   *     subscription
+   */
+  public GeminiDocumentWriter write(final GeminiDocument document) throws IOException {
+    for (final var content : document.content()) {
+      write(content);
+    }
+    return this;
+  }
+
+  /**
+   * Publishes any content written so far which has not yet been published, even if the current
+   * buffer is not full.
+   *
+   * @throws InterruptedIOException if the thread is interrupted while waiting for the subscriber
+   * @throws IOException if the writer has been closed or the subscriber has cancelled its
+   *     subscription
+   */
+  public void flush() throws IOException {
+    checkOpen();
+    if (buffer != null && buffer.position() > 0) {
+      publish();
+    }
+  }
+
+  /**
+   * Publishes any remaining content and completes the published stream. This method never blocks,
+   * and has no effect if the writer has already been closed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (buffer != null && buffer.position() > 0) {
+      enqueue(buffer.flip());
+    }
+    buffer = null;
+    done = true;
+    drain();
+  }
+
+  /**
+   * Completes the published stream with the given error, discarding any content which has not yet
+   * been published. This method has no effect if the writer has already been closed.
+   *
+   * @param throwable the error with which to complete the stream
+   */
+  public void abort(final Throwable throwable) {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    buffer = null;
+    error = throwable;
+    done = true;
+    drain();
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+    if (!downstream.compareAndSet(null, subscriber)) {
+      subscriber.onSubscribe(
+          new Subscription() {
+            @Override
+            public void request(final long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+      return;
+    }
+
+    subscriber.onSubscribe(
+        new Subscription() {
+          @Override
+          public void request(final long n) {
+            if (n <= 0) {
+              error = new IllegalArgumentException("Requested items must be positive");
+              done = true;
+              discardPending();
+            } else {
+              demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            drain();
+          }
+
+          @Override
+          public void cancel() {
+            terminated = true;
+            discardPending();
+          }
+        });
+    drain();
+  }
+
+  private void writeLine(final String text) throws IOException {
+    append(text);
+    append("\n");
+  }
+
+  private void append(final String s) throws IOException {
+    append(s, 0, s.length());
+  }
+
+  private void append(final String s, final int start, final int end) throws IOException {
+    checkOpen();
+    final var chars = CharBuffer.wrap(s, start, end);
+    while (true) {
+      if (buffer == null) {
+        buffer = ByteBuffer.allocate(bufferSize);
+      }
+      final CoderResult result = encoder.encode(chars, buffer, true);
+      if (!result.isOverflow()) {
+        break;
+      }
+      publish();
+    }
+    encoder.reset();
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Writer is closed");
+    }
+    if (terminated) {
+      throw new IOException("Subscription has been cancelled");
+    }
+  }
+
+  private void publish() throws IOException {
+    lock.lock();
+    try {
+      while (pendingCount.get() >= maxPendingBuffers && !terminated) {
+        notFull.await();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for subscriber");
+    } finally {
+      lock.unlock();
+    }
+    checkOpen();
+    enqueue(buffer.flip());
+    buffer = null;
+    drain();
+  }
+
+  private void enqueue(final ByteBuffer buf) {
+    pendingCount.incrementAndGet();
+    pending.add(buf);
+  }
+
+  private void discardPending() {
+    pending.clear();
+    pendingCount.set(0);
+    signalNotFull();
+  }
+
+  private void signalNotFull() {
+    lock.lock();
+    try {
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    var missed = 1;
+    do {
+      final var subscriber = downstream.get();
+      if (subscriber != null && !terminated) {
+        var emitted = false;
+        ByteBuffer item;
+        while (demand.get() > 0 && (item = pending.poll()) != null) {
+          pendingCount.decrementAndGet();
+          demand.decrementAndGet();
+          emitted = true;
+          subscriber.onNext(item);
+        }
+        if (emitted) {
+          signalNotFull();
+        }
+        if (done && (error != null || pending.isEmpty())) {
+          terminated = true;
+          discardPending();
+          if (error != null) {
+            subscriber.onError(error);
+          } else {
+            subscriber.onComplete();
+          }
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  @Override
+  public String toString() {
+    return "GeminiDocumentWriter{}";
+  }
+}
@@ -1,6 +1,7 @@
 package xyz.ianjohnson.gemini;
 
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import java.net.URI;
 import java.util.Optional;
 
@@ -13,10 +14,24 @@ public abstract class GeminiLinkLine extends GeminiContent {
   }
 
   public static GeminiLinkLine of(final URI uri, @Nullable final String title) {
+    return ofUnchecked(uri.toString(), title);
+  }
+
+  /**
+   * Returns a {@link GeminiLinkLine} with the given URI, which must already be known to be valid.
+   * The {@link URI} itself is only constructed if {@link #uri()} is called.
+   */
+  static GeminiLinkLine ofUnchecked(final String uri, @Nullable final String title) {
     return new AutoValue_GeminiLinkLine(uri, Optional.ofNullable(title));
   }
 
-  public abstract URI uri();
+  /** The URI of the link, in its original string form. */
+  abstract String uriString();
+
+  @Memoized
+  public URI uri() {
+    return URI.create(uriString());
+  }
 
   public abstract Optional<String> title();
 }
@@ -0,0 +1,436 @@
+package xyz.ianjohnson.gemini;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * An iterator over the URIs of the links in a Gemini document, for uses such as crawling where the
+ * rest of the content of the document is not needed.
+ *
+ * <p>Unlike {@link GeminiDocument#parse(CharSequence)}, a scanner only examines the first few
+ * characters of each line, skipping lines in preformatted blocks and all other lines which are not
+ * link lines without creating any objects for them. When scanning bytes in an ASCII-compatible
+ * charset such as UTF-8, only link lines are decoded. The links found are the same as the {@link
+ * GeminiLinkLine} content of the parsed document, and each URI is resolved against the base URI
+ * given when creating the scanner.
+ *
+ * <p>For documents which are received in chunks, {@link #incremental(Consumer, Charset, URI)}
+ * returns an {@link Incremental} scanner which passes each link to a sink as it is found.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class GeminiLinkScanner implements Iterator<URI> {
+  private final CharSequence chars;
+  private final byte[] bytes;
+  private final Charset charset;
+  private final URI base;
+  private final int limit;
+  private int position;
+  private boolean preformatted;
+  private URI next;
+  private String line;
+  private int titleStart;
+  private String currentLine;
+  private int currentTitleStart;
+
+  private GeminiLinkScanner(
+      final CharSequence chars,
+      final byte[] bytes,
+      final int offset,
+      final int length,
+      final Charset charset,
+      final URI base) {
+    this.chars = chars;
+    this.bytes = bytes;
+    this.charset = charset;
+    this.base = base;
+    position = offset;
+    limit = offset + length;
+  }
+
+  /**
+   * Returns a scanner over the links in the given document.
+   *
+   * @param document the text of the document
+   * @param base the URI against which to resolve the links, or {@code null} to leave them as-is
+   * @return a scanner over the links in the document
+   */
+  public static GeminiLinkScanner of(final CharSequence document, @Nullable final URI base) {
+    return new GeminiLinkScanner(
+        requireNonNull(document, "document"), null, 0, document.length(), null, base);
+  }
+
+  /**
+   * Returns a scanner over the links in the given document.
+   *
+   * @param document the document, encoded using {@code charset}
+   * @param charset the charset of the document
+   * @param base the URI against which to resolve the links, or {@code null} to leave them as-is
+   * @return a scanner over the links in the document
+   */
+  public static GeminiLinkScanner of(
+      final byte[] document, final Charset charset, @Nullable final URI base) {
+    return of(document, 0, document.length, charset, base);
+  }
+
+  /**
+   * Returns a scanner over the links in the given range of bytes.
+   *
+   * @param document the array containing the document, encoded using {@code charset}
+   * @param offset the offset of the start of the document in the array
+   * @param length the length of the document
+   * @param charset the charset of the document
+   * @param base the URI against which to resolve the links, or {@code null} to leave them as-is
+   * @return a scanner over the links in the document
+   */
+  public static GeminiLinkScanner of(
+      final byte[] document,
+      final int offset,
+      final int length,
+      final Charset charset,
+      @Nullable final URI base) {
+    requireNonNull(document, "document");
+    requireNonNull(charset, "charset");
+    if (offset < 0 || length < 0 || offset + length > document.length) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + offset + ", " + offset + " + " + length + ") out of bounds");
+    }
+    if (!isAsciiCompatible(charset)) {
+      return of(new String(document, offset, length, charset), base);
+    }
+    return new GeminiLinkScanner(null, document, offset, length, charset, base);
+  }
+
+  /**
+   * Returns a push-based scanner which decodes bytes using the given charset and passes the URI of
+   * each link to the given sink as soon as the line containing it has been received.
+   *
+   * @param sink the consumer to which link URIs are passed
+   * @param charset the charset of the document
+   * @param base the URI against which to resolve the links, or {@code null} to leave them as-is
+   * @return a new incremental scanner
+   */
+  public static Incremental incremental(
+      final Consumer<? super URI> sink, final Charset charset, @Nullable final URI base) {
+    return new Incremental(requireNonNull(sink, "sink"), requireNonNull(charset, "charset"), base);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = bytes != null ? scanBytes() : scanChars();
+    }
+    return next != null;
+  }
+
+  @Override
+  public URI next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final var uri = next;
+    next = null;
+    currentLine = line;
+    currentTitleStart = titleStart;
+    return uri;
+  }
+
+  /**
+   * Returns the title of the link most recently returned by {@link #next()}. The title is only
+   * extracted from the link line when this method is called.
+   *
+   * @return the title of the most recent link, if it has one
+   * @throws IllegalStateException if {@link #next()} has not yet been called
+   */
+  public Optional<String> title() {
+    if (currentLine == null) {
+      throw new IllegalStateException("No link has been returned yet");
+    }
+    final var title = GemtextLines.strip(currentLine, currentTitleStart, currentLine.length());
+    return title.isEmpty() ? Optional.empty() : Optional.of(title);
+  }
+
+  private URI scanChars() {
+    while (position < limit) {
+      final var start = position;
+      final var lf = indexOfLineFeed(chars, start, limit);
+      position = lf < limit ? lf + 1 : limit;
+      final var end = lf < limit && lf > start && chars.charAt(lf - 1) == '\r' ? lf - 1 : lf;
+
+      if (GemtextLines.isPreformattedToggle(chars, start, end)) {
+        preformatted = !preformatted;
+      } else if (!preformatted
+          && end - start >= 2
+          && chars.charAt(start) == '='
+          && chars.charAt(start + 1) == '>') {
+        final var lineText = chars.subSequence(start, end).toString();
+        final var uri = linkUri(lineText);
+        if (uri != null) {
+          return uri;
+        }
+      }
+    }
+    return null;
+  }
+
+  private URI scanBytes() {
+    while (position < limit) {
+      final var start = position;
+      final var lf = indexOfLineFeed(bytes, start, limit);
+      position = lf < limit ? lf + 1 : limit;
+      final var end = lf < limit && lf > start && bytes[lf - 1] == '\r' ? lf - 1 : lf;
+
+      if (isPreformattedToggle(bytes, start, end)) {
+        preformatted = !preformatted;
+      } else if (!preformatted && isLinkLine(bytes, start, end)) {
+        final var uri = linkUri(new String(bytes, start, end - start, charset));
+        if (uri != null) {
+          return uri;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the resolved URI of the given link line, or {@code null} if it is not a valid link, and
+   * records the line for {@link #title()}.
+   */
+  private URI linkUri(final String lineText) {
+    final var uriStart = GemtextLines.linkUriStart(lineText, 0, lineText.length());
+    final var uriEnd = GemtextLines.linkUriEnd(lineText, uriStart, lineText.length());
+    final var uri = resolve(base, lineText.substring(uriStart, uriEnd));
+    if (uri != null) {
+      line = lineText;
+      titleStart = uriEnd;
+    }
+    return uri;
+  }
+
+  private static URI resolve(final URI base, final String uri) {
+    final URI parsed;
+    try {
+      parsed = new URI(uri);
+    } catch (final URISyntaxException e) {
+      return null;
+    }
+    if (base == null) {
+      return parsed;
+    }
+    if (base.getRawAuthority() != null && base.getRawPath().isEmpty()) {
+      // URI.resolve does not add the "/" needed between the authority and a relative path
+      return base.resolve("/").resolve(parsed);
+    }
+    return base.resolve(parsed);
+  }
+
+  private static int indexOfLineFeed(final CharSequence chars, final int from, final int limit) {
+    if (chars instanceof String) {
+      final var lf = ((String) chars).indexOf('\n', from);
+      return lf == -1 ? limit : Math.min(lf, limit);
+    }
+    var i = from;
+    while (i < limit && chars.charAt(i) != '\n') {
+      i++;
+    }
+    return i;
+  }
+
+  private static int indexOfLineFeed(final byte[] bytes, final int from, final int limit) {
+    var i = from;
+    while (i < limit && bytes[i] != '\n') {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isPreformattedToggle(final byte[] bytes, final int start, final int end) {
+    return end - start >= 3
+        && bytes[start] == '`'
+        && bytes[start + 1] == '`'
+        && bytes[start + 2] == '`';
+  }
+
+  private static boolean isLinkLine(final byte[] bytes, final int start, final int end) {
+    return end - start >= 2 && bytes[start] == '=' && bytes[start + 1] == '>';
+  }
+
+  /**
+   * Returns whether lines in the given charset can be classified by looking at their raw bytes:
+   * that is, whether ASCII characters are encoded as single bytes with their ASCII values, and no
+   * other character is encoded using bytes in the ASCII range.
+   */
+  private static boolean isAsciiCompatible(final Charset charset) {
+    if (charset.equals(StandardCharsets.UTF_8)
+        || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1)) {
+      return true;
+    }
+    // Other single-byte charsets are ASCII-compatible if they encode these characters as ASCII
+    if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1) {
+      return false;
+    }
+    final var test = "\n\r=>` \t";
+    return Arrays.equals(test.getBytes(charset), test.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * A push-based link scanner, accepting a document in chunks of bytes.
+   *
+   * @see GeminiLinkScanner#incremental(Consumer, Charset, URI)
+   */
+  public static final class Incremental {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Consumer<? super URI> sink;
+    private final Charset charset;
+    private final URI base;
+    private final GeminiParser parser;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean skippingLine;
+    private boolean preformatted;
+    private boolean finished;
+
+    private Incremental(final Consumer<? super URI> sink, final Charset charset, final URI base) {
+      this.sink = sink;
+      this.charset = charset;
+      this.base = base;
+      if (isAsciiCompatible(charset)) {
+        parser = null;
+      } else {
+        // The fast path cannot be used, so fall back to parsing the whole document
+        parser =
+            new GeminiParser(
+                content -> {
+                  if (content instanceof GeminiLinkLine) {
+                    final var uri = resolve(base, ((GeminiLinkLine) content).uriString());
+                    if (uri != null) {
+                      sink.accept(uri);
+                    }
+                  }
+                },
+                charset);
+      }
+    }
+
+    /**
+     * Scans the given chunk of bytes. All remaining bytes in the buffer are consumed.
+     *
+     * @param bytes the bytes to scan
+     * @throws IllegalStateException if {@link #finish()} has already been called
+     */
+    public void feed(final ByteBuffer bytes) {
+      if (finished) {
+        throw new IllegalStateException("Scanner has already finished");
+      }
+      if (parser != null) {
+        parser.feed(bytes);
+        return;
+      }
+      if (bytes.hasArray()) {
+        final var offset = bytes.arrayOffset();
+        scan(bytes.array(), offset + bytes.position(), offset + bytes.limit());
+        bytes.position(bytes.limit());
+      } else {
+        final var chunk = new byte[Math.min(bytes.remaining(), CHUNK_SIZE)];
+        while (bytes.hasRemaining()) {
+          final var length = Math.min(bytes.remaining(), chunk.length);
+          bytes.get(chunk, 0, length);
+          scan(chunk, 0, length);
+        }
+      }
+    }
+
+    /**
+     * Signals that the whole document has been supplied, passing any link on the final unterminated
+     * line to the sink. This method has no effect if it has already been called.
+     */
+    public void finish() {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      if (parser != null) {
+        parser.finish();
+      } else if (!skippingLine && lineLength > 0) {
+        handleLine();
+      }
+    }
+
+    private void scan(final byte[] bytes, final int from, final int to) {
+      var i = from;
+      while (i < to) {
+        final var lf = indexOfLineFeed(bytes, i, to);
+        // Lines which are not link lines are skipped as soon as their type is known
+        while (!skippingLine && lineLength < 3 && i < lf) {
+          append(bytes[i++]);
+        }
+        if (!skippingLine && i < lf) {
+          append(bytes, i, lf);
+        }
+        if (lf == to) {
+          return;
+        }
+        if (!skippingLine) {
+          handleLine();
+        }
+        lineLength = 0;
+        skippingLine = false;
+        i = lf + 1;
+      }
+    }
+
+    private void append(final byte[] bytes, final int from, final int to) {
+      final var length = to - from;
+      if (lineLength + length > line.length) {
+        line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+      }
+      System.arraycopy(bytes, from, line, lineLength, length);
+      lineLength += length;
+    }
+
+    private void append(final byte b) {
+      if (lineLength == line.length) {
+        line = Arrays.copyOf(line, line.length * 2);
+      }
+      line[lineLength++] = b;
+      // Only link lines need to be kept in full; the type of a line is known by its third byte
+      if (lineLength == 3) {
+        if (isPreformattedToggle(line, 0, 3)) {
+          preformatted = !preformatted;
+          skippingLine = true;
+        } else if (preformatted || !isLinkLine(line, 0, 3)) {
+          skippingLine = true;
+        }
+      }
+    }
+
+    private void handleLine() {
+      final var end = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+      if (preformatted || !isLinkLine(line, 0, end)) {
+        return;
+      }
+      final var lineText = new String(line, 0, end, charset);
+      final var uriStart = GemtextLines.linkUriStart(lineText, 0, lineText.length());
+      final var uri =
+          resolve(
+              base,
+              lineText.substring(
+                  uriStart, GemtextLines.linkUriEnd(lineText, uriStart, lineText.length())));
+      if (uri != null) {
+        sink.accept(uri);
+      }
+    }
+  }
+}
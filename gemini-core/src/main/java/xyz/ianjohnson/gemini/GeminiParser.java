@@ -0,0 +1,217 @@
+package xyz.ianjohnson.gemini;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A push-based, incremental parser for Gemini documents.
+ *
+ * <p>Input may be supplied in chunks of any size, either as characters or as bytes to be decoded
+ * using the charset given at construction. Each {@link GeminiContent} item is passed to the sink as
+ * soon as the line completing it has been received, so the consumer can begin processing a document
+ * before all of it is available. Line endings and preformatted toggle lines may be split across
+ * chunks arbitrarily. Once all input has been supplied, {@link #finish()} must be called to handle
+ * any final unterminated line or preformatted block.
+ *
+ * <p>The content produced for a complete document is the same as that of {@link
+ * GeminiDocument#parse(CharSequence)}. In particular, blank lines at the end of a document are
+ * ignored, so a blank line is only passed to the sink once a non-blank line follows it.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public final class GeminiParser {
+  private static final int DECODE_BUFFER_SIZE = 8192;
+
+  private final Consumer<? super GeminiContent> sink;
+  private final Charset charset;
+  private final StringBuilder line = new StringBuilder();
+  private CharsetDecoder decoder;
+  private CharBuffer decoded;
+  private ByteBuffer undecoded;
+  private int pendingBlankLines;
+  private StringBuilder preformatted;
+  private String altText;
+  private boolean finished;
+
+  /**
+   * Constructs a new {@link GeminiParser} decoding any byte input as UTF-8.
+   *
+   * @param sink the consumer to which parsed content is passed
+   */
+  public GeminiParser(final Consumer<? super GeminiContent> sink) {
+    this(sink, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Constructs a new {@link GeminiParser}.
+   *
+   * @param sink the consumer to which parsed content is passed
+   * @param charset the charset to use to decode byte input passed to {@link #feed(ByteBuffer)}
+   */
+  public GeminiParser(final Consumer<? super GeminiContent> sink, final Charset charset) {
+    this.sink = requireNonNull(sink, "sink");
+    this.charset = requireNonNull(charset, "charset");
+  }
+
+  /**
+   * Parses the given chunk of characters.
+   *
+   * @param chars the characters to parse
+   * @throws IllegalStateException if {@link #finish()} has already been called
+   */
+  public void feed(final CharSequence chars) {
+    checkNotFinished();
+    final var length = chars.length();
+    var start = 0;
+    for (var lf = indexOfLineFeed(chars, 0); lf != -1; lf = indexOfLineFeed(chars, start)) {
+      if (line.length() == 0) {
+        // Common case: the whole line is in this chunk, so it can be parsed in place
+        handleLine(chars, start, lf > start && chars.charAt(lf - 1) == '\r' ? lf - 1 : lf);
+      } else {
+        line.append(chars, start, lf);
+        final var len = line.length();
+        handleLine(line, 0, line.charAt(len - 1) == '\r' ? len - 1 : len);
+        line.setLength(0);
+      }
+      start = lf + 1;
+    }
+    line.append(chars, start, length);
+  }
+
+  /**
+   * Decodes and parses the given chunk of bytes. All remaining bytes in the buffer are consumed. A
+   * multi-byte character may be split across chunks.
+   *
+   * @param bytes the bytes to parse
+   * @throws IllegalStateException if {@link #finish()} has already been called
+   */
+  public void feed(final ByteBuffer bytes) {
+    checkNotFinished();
+    if (decoder == null) {
+      decoder =
+          charset
+              .newDecoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      decoded = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+      undecoded = ByteBuffer.allocate(16);
+    }
+
+    // Complete any character left incomplete at the end of the previous chunk
+    while (undecoded.position() > 0 && bytes.hasRemaining()) {
+      undecoded.put(bytes.get()).flip();
+      decode(undecoded, false);
+      undecoded.compact();
+    }
+    decode(bytes, false);
+    if (bytes.hasRemaining()) {
+      if (bytes.remaining() > undecoded.remaining()) {
+        final var larger = ByteBuffer.allocate(undecoded.position() + bytes.remaining());
+        undecoded = larger.put(undecoded.flip());
+      }
+      undecoded.put(bytes);
+    }
+  }
+
+  /**
+   * Signals that all input has been supplied, passing any remaining content to the sink. This
+   * method has no effect if it has already been called.
+   */
+  public void finish() {
+    if (finished) {
+      return;
+    }
+    if (decoder != null) {
+      undecoded.flip();
+      decode(undecoded, true);
+      while (decoder.flush(decoded).isOverflow()) {
+        drainDecoded();
+      }
+      drainDecoded();
+    }
+    finished = true;
+
+    if (line.length() > 0) {
+      handleLine(line, 0, line.length());
+      line.setLength(0);
+    }
+    // Handle unterminated preformatted content
+    if (preformatted != null) {
+      sink.accept(GeminiPreformattedText.of(preformatted.toString(), altText));
+      altText = null;
+      preformatted = null;
+    }
+  }
+
+  private void checkNotFinished() {
+    if (finished) {
+      throw new IllegalStateException("Parser has already finished");
+    }
+  }
+
+  private void decode(final ByteBuffer bytes, final boolean endOfInput) {
+    CoderResult result;
+    do {
+      result = decoder.decode(bytes, decoded, endOfInput);
+      drainDecoded();
+    } while (result.isOverflow());
+  }
+
+  private void drainDecoded() {
+    decoded.flip();
+    feed(decoded);
+    decoded.clear();
+  }
+
+  private static int indexOfLineFeed(final CharSequence chars, final int from) {
+    if (chars instanceof String) {
+      return ((String) chars).indexOf('\n', from);
+    }
+    for (var i = from; i < chars.length(); i++) {
+      if (chars.charAt(i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void handleLine(final CharSequence s, final int start, final int end) {
+    if (start == end) {
+      // Trailing blank lines are ignored, so we can only handle a blank line once we know some
+      // other content follows it
+      pendingBlankLines++;
+      return;
+    }
+    for (; pendingBlankLines > 0; pendingBlankLines--) {
+      parseLine("", 0, 0);
+    }
+    parseLine(s, start, end);
+  }
+
+  private void parseLine(final CharSequence s, final int start, final int end) {
+    if (GemtextLines.isPreformattedToggle(s, start, end)) {
+      if (preformatted == null) {
+        // Start of preformatted text
+        altText = GemtextLines.altText(s, start, end);
+        preformatted = new StringBuilder();
+      } else {
+        sink.accept(GeminiPreformattedText.of(preformatted.toString(), altText));
+        altText = null;
+        preformatted = null;
+      }
+    } else if (preformatted != null) {
+      preformatted.append(s, start, end);
+      preformatted.append('\n');
+    } else {
+      sink.accept(GemtextLines.content(s, start, end));
+    }
+  }
+}
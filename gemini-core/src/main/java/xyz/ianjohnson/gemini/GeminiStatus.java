@@ -11,22 +11,23 @@ public interface GeminiStatus {
    * StandardGeminiStatus}. Otherwise, if the given code is of a valid {@link Kind}, returns a
    * non-standard implementation describing the code and its associated kind.
    *
+   * <p>Statuses are looked up in a precomputed table, so this method returns the same instance each
+   * time it is called with the same code.
+   *
    * @param code the code to convert to a {@link GeminiStatus}
    * @return the associated {@link GeminiStatus}
    * @throws IllegalArgumentException if the given code is not a two-digit number or does not fall
    *     into one of the recognized {@link Kind Kinds}
    */
   static GeminiStatus valueOf(final int code) {
+    final var status = GeminiStatusTable.get(code);
+    if (status != null) {
+      return status;
+    }
     if (code < 10 || code > 99) {
       throw new IllegalArgumentException("Invalid Gemini status code: " + code);
     }
-
-    try {
-      return StandardGeminiStatus.valueOf(code);
-    } catch (final IllegalArgumentException ignored) {
-    }
-    final var kind = Kind.valueOf(code / 10);
-    return NonStandardGeminiStatus.of(kind, code);
+    throw new IllegalArgumentException("Unrecognized response status kind: " + code / 10);
   }
 
   /** The general kind or category of the response status, indicating how it should be handled. */
@@ -48,6 +49,14 @@ public interface GeminiStatus {
     CLIENT_CERTIFICATE_REQUIRED(6),
     ;
 
+    private static final Kind[] BY_FIRST_DIGIT = new Kind[10];
+
+    static {
+      for (final var kind : values()) {
+        BY_FIRST_DIGIT[kind.firstDigit()] = kind;
+      }
+    }
+
     private final int firstDigit;
 
     Kind(final int firstDigit) {
@@ -55,12 +64,12 @@ public interface GeminiStatus {
     }
 
     public static Kind valueOf(final int firstDigit) {
-      for (final var kind : values()) {
-        if (kind.firstDigit() == firstDigit) {
-          return kind;
-        }
+      final var kind =
+          firstDigit >= 0 && firstDigit < BY_FIRST_DIGIT.length ? BY_FIRST_DIGIT[firstDigit] : null;
+      if (kind == null) {
+        throw new IllegalArgumentException("Unrecognized response status kind: " + firstDigit);
       }
-      throw new IllegalArgumentException("Unrecognized response status kind: " + firstDigit);
+      return kind;
     }
 
     /**
@@ -0,0 +1,33 @@
+package xyz.ianjohnson.gemini;
+
+import xyz.ianjohnson.gemini.GeminiStatus.Kind;
+
+/**
+ * A lookup table of the {@link GeminiStatus} for every two-digit status code of a recognized {@link
+ * Kind}, used to implement {@link GeminiStatus#valueOf(int)} without searching or allocating.
+ */
+final class GeminiStatusTable {
+  private static final GeminiStatus[] STATUSES = new GeminiStatus[100];
+
+  static {
+    for (final var kind : Kind.values()) {
+      for (var code = 10 * kind.firstDigit(); code < 10 * kind.firstDigit() + 10; code++) {
+        STATUSES[code] = NonStandardGeminiStatus.of(kind, code);
+      }
+    }
+    for (final var status : StandardGeminiStatus.values()) {
+      STATUSES[status.code()] = status;
+    }
+  }
+
+  private GeminiStatusTable() {}
+
+  /**
+   * Returns the status for the given code, or {@code null} if the code is not a two-digit number of
+   * a recognized {@link Kind}.
+   */
+  @Nullable
+  static GeminiStatus get(final int code) {
+    return code >= 10 && code <= 99 ? STATUSES[code] : null;
+  }
+}
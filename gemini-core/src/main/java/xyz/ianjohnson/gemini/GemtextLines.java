@@ -0,0 +1,244 @@
+package xyz.ianjohnson.gemini;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Static methods for classifying and parsing individual lines of a Gemini document.
+ *
+ * <p>All methods operate on a range of a {@link CharSequence} (not including any line terminator),
+ * so that lines can be scanned in place without first being copied into their own strings. Lines
+ * are classified by their first few characters, and strings are only created for the parts of a
+ * line that end up in the parsed content.
+ */
+final class GemtextLines {
+  static final byte TEXT = 0;
+  static final byte LINK = 1;
+  static final byte HEADING_1 = 2;
+  static final byte HEADING_2 = 3;
+  static final byte HEADING_3 = 4;
+  static final byte UNORDERED_LIST_ITEM = 5;
+  static final byte QUOTE = 6;
+  static final byte PREFORMATTED_TOGGLE = 7;
+
+  private GemtextLines() {}
+
+  /**
+   * Returns the type of the given line, as one of the constants of this class. Lines that look like
+   * links but whose URI is invalid are of type {@link #TEXT}. The type of a line inside a
+   * preformatted block is only meaningful if it is {@link #PREFORMATTED_TOGGLE}.
+   */
+  static byte type(final CharSequence s, final int start, final int end) {
+    if (end == start) {
+      return TEXT;
+    }
+    switch (s.charAt(start)) {
+      case '=':
+        if (end - start >= 2 && s.charAt(start + 1) == '>') {
+          final var uriStart = linkUriStart(s, start, end);
+          return isValidUri(s, uriStart, linkUriEnd(s, uriStart, end)) ? LINK : TEXT;
+        }
+        return TEXT;
+      case '#':
+        if (end - start >= 2 && s.charAt(start + 1) == '#') {
+          return end - start >= 3 && s.charAt(start + 2) == '#' ? HEADING_3 : HEADING_2;
+        }
+        return HEADING_1;
+      case '*':
+        return end - start >= 2 && s.charAt(start + 1) == ' ' ? UNORDERED_LIST_ITEM : TEXT;
+      case '>':
+        return QUOTE;
+      case '`':
+        return isPreformattedToggle(s, start, end) ? PREFORMATTED_TOGGLE : TEXT;
+      default:
+        return TEXT;
+    }
+  }
+
+  /** Returns whether the given line is a preformatted toggle line. */
+  static boolean isPreformattedToggle(final CharSequence s, final int start, final int end) {
+    return end - start >= 3
+        && s.charAt(start) == '`'
+        && s.charAt(start + 1) == '`'
+        && s.charAt(start + 2) == '`';
+  }
+
+  /**
+   * Returns the alt text of the given preformatted toggle line, or {@code null} if there is none.
+   */
+  static String altText(final CharSequence s, final int start, final int end) {
+    final var text = strip(s, start + 3, end);
+    return text.isEmpty() ? null : text;
+  }
+
+  /**
+   * Returns the content of the given line, which must not be a preformatted toggle line or inside a
+   * preformatted block.
+   */
+  static GeminiContent content(final CharSequence s, final int start, final int end) {
+    return content(s, start, end, type(s, start, end));
+  }
+
+  /**
+   * Returns the content of the given line, which must be of the given type (as returned by {@link
+   * #type(CharSequence, int, int)}).
+   */
+  static GeminiContent content(
+      final CharSequence s, final int start, final int end, final byte type) {
+    switch (type) {
+      case LINK:
+        final var uriStart = linkUriStart(s, start, end);
+        final var uriEnd = linkUriEnd(s, uriStart, end);
+        final var title = strip(s, uriEnd, end);
+        return GeminiLinkLine.ofUnchecked(
+            s.subSequence(uriStart, uriEnd).toString(), title.isEmpty() ? null : title);
+      case HEADING_1:
+        return GeminiHeadingLine.of(1, strip(s, start + 1, end));
+      case HEADING_2:
+        return GeminiHeadingLine.of(2, strip(s, start + 2, end));
+      case HEADING_3:
+        return GeminiHeadingLine.of(3, strip(s, start + 3, end));
+      case UNORDERED_LIST_ITEM:
+        return GeminiUnorderedListItem.of(strip(s, start + 2, end));
+      case QUOTE:
+        return GeminiQuoteLine.of(strip(s, start + 1, end));
+      case TEXT:
+        if (end - start >= 2 && s.charAt(start) == '=' && s.charAt(start + 1) == '>') {
+          // Invalid link, which is kept as-is
+          return GeminiTextLine.of(s.subSequence(start, end).toString());
+        }
+        return GeminiTextLine.of(strip(s, start, end));
+      default:
+        throw new IllegalArgumentException("Unexpected line type: " + type);
+    }
+  }
+
+  /** Returns the start of the URI in the given link line. */
+  static int linkUriStart(final CharSequence s, final int start, final int end) {
+    var i = start + 2;
+    while (i < end && Character.isWhitespace(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Returns the end of the URI in a link line, given the start of the URI. */
+  static int linkUriEnd(final CharSequence s, final int uriStart, final int end) {
+    var i = uriStart;
+    while (i < end && !isAsciiWhitespace(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Returns whether the given range is a valid URI. In the common case, this is decided by a
+   * conservative scan that accepts only URIs which {@link URI#URI(String)} is known to accept, so
+   * that the actual {@link URI} need not be constructed until it is used. Anything else is checked
+   * by constructing the {@link URI}.
+   */
+  static boolean isValidUri(final CharSequence s, final int start, final int end) {
+    if (isSimpleUri(s, start, end)) {
+      return true;
+    }
+    try {
+      new URI(s.subSequence(start, end).toString());
+      return true;
+    } catch (final URISyntaxException e) {
+      return false;
+    }
+  }
+
+  private static boolean isSimpleUri(final CharSequence s, final int start, final int end) {
+    var i = start;
+    // A colon before any of "/?#" ends the scheme, which must be valid and followed by a non-empty
+    // scheme-specific part
+    var schemeEnd = -1;
+    for (var j = start; j < end; j++) {
+      final var c = s.charAt(j);
+      if (c == ':') {
+        schemeEnd = j;
+        break;
+      } else if (c == '/' || c == '?' || c == '#') {
+        break;
+      }
+    }
+    if (schemeEnd != -1) {
+      if (schemeEnd == start || !isAsciiLetter(s.charAt(start))) {
+        return false;
+      }
+      for (var j = start + 1; j < schemeEnd; j++) {
+        final var c = s.charAt(j);
+        if (!isAsciiLetter(c) && !isAsciiDigit(c) && c != '+' && c != '-' && c != '.') {
+          return false;
+        }
+      }
+      if (schemeEnd + 1 == end || s.charAt(schemeEnd + 1) == '#') {
+        return false;
+      }
+      i = schemeEnd + 1;
+    }
+    // An authority may only be empty if something follows it
+    if (end - i == 2 && s.charAt(i) == '/' && s.charAt(i + 1) == '/') {
+      return false;
+    }
+
+    var seenFragment = false;
+    for (; i < end; i++) {
+      final var c = s.charAt(i);
+      if (c == '%') {
+        if (i + 2 >= end || !isHexDigit(s.charAt(i + 1)) || !isHexDigit(s.charAt(i + 2))) {
+          return false;
+        }
+        i += 2;
+      } else if (c == '#') {
+        if (seenFragment) {
+          return false;
+        }
+        seenFragment = true;
+      } else if (c >= 0x80) {
+        // The URI class accepts non-ASCII characters other than spaces and control characters
+        if (Character.isSpaceChar(c) || Character.isISOControl(c)) {
+          return false;
+        }
+      } else if (!isAsciiLetter(c) && !isAsciiDigit(c) && "-_.!~*'();/?:@&=+$,".indexOf(c) == -1) {
+        // Brackets (for IPv6 addresses) are left to the URI class
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the given range with leading and trailing whitespace removed, as by {@link
+   * String#strip()}.
+   */
+  static String strip(final CharSequence s, final int start, final int end) {
+    var i = start;
+    var j = end;
+    while (i < j && Character.isWhitespace(s.charAt(i))) {
+      i++;
+    }
+    while (j > i && Character.isWhitespace(s.charAt(j - 1))) {
+      j--;
+    }
+    return s.subSequence(i, j).toString();
+  }
+
+  /** Returns whether the given character matches the regular expression {@code \s}. */
+  private static boolean isAsciiWhitespace(final char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+
+  private static boolean isAsciiLetter(final char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isAsciiDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHexDigit(final char c) {
+    return isAsciiDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+}
@@ -4,15 +4,29 @@ import static java.util.stream.Collectors.toUnmodifiableMap;
 
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** A MIME type, as defined in RFC 2045. */
 @AutoValue
 public abstract class MimeType {
   public static final MimeType TEXT_GEMINI = of("text", "gemini");
 
+  /**
+   * The maximum number of parsed values to cache. Servers use very few distinct MIME types in
+   * practice, so once the cache is full, it is simply cleared to make room for the values seen from
+   * then on. This keeps lookups lock-free, which matters since every response header is parsed.
+   */
+  private static final int MAX_CACHED = 256;
+
+  private static final ConcurrentMap<String, MimeType> PARSE_CACHE = new ConcurrentHashMap<>();
+
   MimeType() {}
 
   /** Returns a {@link MimeType} with the given type and subtype. */
@@ -30,9 +44,21 @@ public abstract class MimeType {
             .collect(toUnmodifiableMap(e -> e.getKey().toLowerCase(), Entry::getValue)));
   }
 
-  /** Returns a {@link MimeType} parsed from the given value. */
+  /**
+   * Returns a {@link MimeType} parsed from the given value. Successfully parsed values are cached,
+   * so parsing a commonly used value returns the same instance each time without parsing it again.
+   */
   public static MimeType parse(final String value) throws MimeTypeSyntaxException {
-    return new MimeTypeParser(value).parse();
+    final var cached = PARSE_CACHE.get(value);
+    if (cached != null) {
+      return cached;
+    }
+    final var parsed = new MimeTypeParser(value).parse();
+    if (PARSE_CACHE.size() >= MAX_CACHED) {
+      PARSE_CACHE.clear();
+    }
+    final var existing = PARSE_CACHE.putIfAbsent(value, parsed);
+    return existing != null ? existing : parsed;
   }
 
   /** The media type, for example {@code text}. This is always a lowercase value. */
@@ -49,6 +75,32 @@ public abstract class MimeType {
     return Optional.ofNullable(parameters().get(key.toLowerCase()));
   }
 
+  /**
+   * Returns the charset given by the {@code charset} parameter, if any. The charset is only looked
+   * up once per instance.
+   *
+   * @return the charset given by the {@code charset} parameter, if any
+   * @throws IllegalCharsetNameException if the charset name is illegal
+   * @throws UnsupportedCharsetException if the charset is not supported
+   */
+  @Memoized
+  public Optional<Charset> charset() {
+    return parameter("charset").map(Charset::forName);
+  }
+
+  /**
+   * Returns the charset given by the {@code charset} parameter, or the given default charset if
+   * there is none.
+   *
+   * @param defaultCharset the charset to return if there is no {@code charset} parameter
+   * @return the charset given by the {@code charset} parameter, or {@code defaultCharset}
+   * @throws IllegalCharsetNameException if the charset name is illegal
+   * @throws UnsupportedCharsetException if the charset is not supported
+   */
+  public final Charset charset(final Charset defaultCharset) {
+    return charset().orElse(defaultCharset);
+  }
+
   /** Returns whether this MIME type is the same as {@code other}, ignoring any parameters. */
   public final boolean sameType(final MimeType other) {
     return type().equals(other.type()) && subtype().equals(other.subtype());
@@ -31,12 +31,11 @@ public enum StandardGeminiStatus implements GeminiStatus {
   }
 
   public static StandardGeminiStatus valueOf(final int code) {
-    for (final var status : values()) {
-      if (code == status.code()) {
-        return status;
-      }
+    final var status = GeminiStatusTable.get(code);
+    if (!(status instanceof StandardGeminiStatus)) {
+      throw new IllegalArgumentException("Unknown status code: " + code);
     }
-    throw new IllegalArgumentException("Unknown status code: " + code);
+    return (StandardGeminiStatus) status;
   }
 
   @Override
@@ -1,6 +1,7 @@
 package xyz.ianjohnson.gemini;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.net.URI;
 import java.util.List;
@@ -102,6 +103,42 @@ public class GeminiDocumentTest {
     assertThat(GeminiDocument.parse(document)).isEqualTo(parsed);
   }
 
+  @Test
+  public void testParse_withUnusualLinks_parsesLinksIfValid() {
+    final var document =
+        "=> gemini://[::1]:1965/ IPv6 host\n"
+            + "=> gemini://gemini.example/caf%C3%A9 Escaped\n"
+            + "=> gemini://gemini.example/café Unescaped\n"
+            + "=> gemini://gemini.example/#a#b Two fragments\n"
+            + "=> gemini://gemini.example/%zz Bad escape\n"
+            + "=> gemini:// Empty authority\n"
+            + "=> mailto: Empty scheme-specific part\n"
+            + "=> 1gemini://gemini.example Bad scheme\n"
+            + "=> //gemini.example/path Network-path reference\n"
+            + "=>\n";
+
+    final var parsed =
+        GeminiDocument.of(
+            List.of(
+                GeminiLinkLine.of(URI.create("gemini://[::1]:1965/"), "IPv6 host"),
+                GeminiLinkLine.of(URI.create("gemini://gemini.example/caf%C3%A9"), "Escaped"),
+                GeminiLinkLine.of(URI.create("gemini://gemini.example/café"), "Unescaped"),
+                GeminiTextLine.of("=> gemini://gemini.example/#a#b Two fragments"),
+                GeminiTextLine.of("=> gemini://gemini.example/%zz Bad escape"),
+                GeminiTextLine.of("=> gemini:// Empty authority"),
+                GeminiTextLine.of("=> mailto: Empty scheme-specific part"),
+                GeminiTextLine.of("=> 1gemini://gemini.example Bad scheme"),
+                GeminiLinkLine.of(URI.create("//gemini.example/path"), "Network-path reference"),
+                GeminiLinkLine.of(URI.create(""))));
+
+    assertThat(GeminiDocument.parse(document)).isEqualTo(parsed);
+  }
+
+  @Test
+  public void testParse_withEmptyDocument_returnsEmptyDocument() {
+    assertThat(GeminiDocument.parse("").content()).isEmpty();
+  }
+
   @Test
   public void testParse_withPreformattedText_parsesPreformattedText() {
     final var document =
@@ -216,4 +253,38 @@ public class GeminiDocumentTest {
 
     assertThat(GeminiDocument.parse(document)).isEqualTo(parsed);
   }
+
+  @Test
+  public void testParseCompact_withVariousDocuments_hasSameContentAsParse() {
+    final var documents =
+        List.of(
+            "",
+            "\n\n\r\n",
+            "Text\n\n\nMore text\n\n",
+            "# Heading\r\n=> gemini://gemini.example Link\r\n=> !@(\\// Invalid\r\n",
+            "```alt\r\nPreformatted\r\n\r\ntext\r\n```\r\n\r\n* Item\r\n> Quote",
+            "```\nUnterminated\n\nblock\n\n\n",
+            "```\nUnterminated last line\r",
+            "``` Toggle at end",
+            "```\n```\n```\n",
+            "Carriage return at end\r",
+            "\n\n```\n\n```\n\n");
+
+    for (final var document : documents) {
+      final var compact = GeminiDocument.parseCompact(document);
+      final var parsed = GeminiDocument.parse(document);
+      assertThat(compact.content()).as("%s", document).isEqualTo(parsed.content());
+      assertThat(compact).isEqualTo(parsed).hasSameHashCodeAs(parsed);
+      assertThat(parsed).isEqualTo(compact);
+    }
+  }
+
+  @Test
+  public void testParseCompact_content_isImmutable() {
+    final var content = GeminiDocument.parseCompact("Text\n").content();
+
+    assertThatThrownBy(() -> content.add(GeminiTextLine.of("More text")))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> content.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+  }
 }
@@ -0,0 +1,185 @@
+package xyz.ianjohnson.gemini;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class GeminiDocumentWriterTest {
+  private static final int TIMEOUT_MILLISECONDS = 5000;
+
+  private static final GeminiDocument DOCUMENT =
+      GeminiDocument.of(
+          List.of(
+              GeminiHeadingLine.of(1, "Test document"),
+              GeminiTextLine.of(""),
+              GeminiTextLine.of("Héllo, wörld! 😀"),
+              GeminiLinkLine.of(URI.create("gemini://gemini.example"), "An example server"),
+              GeminiLinkLine.of(URI.create("relative.gmi")),
+              GeminiPreformattedText.of("Preformatted\ntext\n", "Alt text"),
+              GeminiPreformattedText.of(""),
+              GeminiHeadingLine.of(2, "Sub-heading"),
+              GeminiHeadingLine.of(3, "Sub-sub-heading"),
+              GeminiUnorderedListItem.of("List item"),
+              GeminiQuoteLine.of("Quote")));
+
+  @Test
+  public void testWrite_withDocument_writesDocumentWhichParsesToSameContent() throws Throwable {
+    final var writer = new GeminiDocumentWriter();
+    final var output = collect(writer, Long.MAX_VALUE);
+    writer.write(DOCUMENT).close();
+
+    assertThat(GeminiDocument.parse(new String(get(output), StandardCharsets.UTF_8)))
+        .isEqualTo(DOCUMENT);
+  }
+
+  @Test
+  public void testWrite_withSmallBuffers_splitsOutputAcrossBuffers() throws Throwable {
+    final var writer = new GeminiDocumentWriter(16, Integer.MAX_VALUE);
+    final var expected = new GeminiDocumentWriter();
+    final var expectedOutput = collect(expected, Long.MAX_VALUE);
+    expected.write(DOCUMENT).close();
+
+    writer.write(DOCUMENT).close();
+
+    assertThat(get(collect(writer, 1))).isEqualTo(get(expectedOutput));
+  }
+
+  @Test
+  public void testWrite_withPreformattedTextWithoutFinalNewline_terminatesText() throws Throwable {
+    final var writer = new GeminiDocumentWriter();
+    final var output = collect(writer, Long.MAX_VALUE);
+    writer.write(GeminiPreformattedText.of("No newline")).close();
+
+    assertThat(new String(get(output), StandardCharsets.UTF_8)).isEqualTo("```\nNo newline\n```\n");
+  }
+
+  @Test
+  public void testWrite_withSlowSubscriber_blocksUntilSubscriberRequestsMore() throws Throwable {
+    final var writer = new GeminiDocumentWriter(16, 2);
+    final var lines = 100;
+    final var producer =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                for (var i = 0; i < lines; i++) {
+                  writer.write(GeminiTextLine.of("Line number " + i));
+                }
+                writer.close();
+              } catch (final IOException e) {
+                writer.abort(e);
+              }
+            });
+
+    final var output = collect(writer, 1);
+    get(producer);
+
+    final var expected = new StringBuilder();
+    for (var i = 0; i < lines; i++) {
+      expected.append("Line number ").append(i).append('\n');
+    }
+    assertThat(new String(get(output), StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void testWrite_afterSubscriptionCancelled_throwsIOException() throws IOException {
+    final var writer = new GeminiDocumentWriter(16, 1);
+    writer.subscribe(
+        new Subscriber<>() {
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            subscription.cancel();
+          }
+
+          @Override
+          public void onNext(final ByteBuffer item) {}
+
+          @Override
+          public void onError(final Throwable throwable) {}
+
+          @Override
+          public void onComplete() {}
+        });
+
+    assertThatThrownBy(() -> writer.write(GeminiTextLine.of("Text")).flush())
+        .isInstanceOf(IOException.class)
+        .hasMessage("Subscription has been cancelled");
+  }
+
+  @Test
+  public void testAbort_withError_completesStreamWithError() throws IOException {
+    final var writer = new GeminiDocumentWriter();
+    final var output = collect(writer, Long.MAX_VALUE);
+    writer.write(GeminiTextLine.of("Text"));
+    writer.abort(new IOException("Generation failed"));
+
+    assertThatThrownBy(() -> get(output))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Generation failed");
+  }
+
+  @Test
+  public void testSubscribe_withSecondSubscriber_signalsError() {
+    final var writer = new GeminiDocumentWriter();
+    collect(writer, Long.MAX_VALUE);
+
+    assertThatThrownBy(() -> get(collect(writer, Long.MAX_VALUE)))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  private static <T> T get(final CompletableFuture<T> future) throws Throwable {
+    try {
+      return future.get(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+    } catch (final ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static CompletableFuture<byte[]> collect(
+      final GeminiDocumentWriter writer, final long batchSize) {
+    final var future = new CompletableFuture<byte[]>();
+    writer.subscribe(
+        new Subscriber<>() {
+          private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+          private Subscription subscription;
+
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batchSize);
+          }
+
+          @Override
+          public void onNext(final ByteBuffer item) {
+            final var bytes = new byte[item.remaining()];
+            item.get(bytes);
+            output.writeBytes(bytes);
+            if (batchSize != Long.MAX_VALUE) {
+              subscription.request(batchSize);
+            }
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            future.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            future.complete(output.toByteArray());
+          }
+        });
+    return future;
+  }
+}
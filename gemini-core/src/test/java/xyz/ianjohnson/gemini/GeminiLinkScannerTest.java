@@ -0,0 +1,146 @@
+package xyz.ianjohnson.gemini;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class GeminiLinkScannerTest {
+  private static final String DOCUMENT =
+      "# Links\r\n"
+          + "=> gemini://gemini.example/ Absolute\r\n"
+          + "=>relative.gmi\r\n"
+          + "=> !@(\\// Invalid link\n"
+          + "```\n"
+          + "=> gemini://gemini.example/preformatted Not a link\n"
+          + "```\n"
+          + "Text => not a link\n"
+          + "=>\t/caf%C3%A9/café\tUnicode\n"
+          + " => not a link either\n"
+          + "=> ../up Unterminated";
+
+  private static final List<URI> LINKS =
+      List.of(
+          URI.create("gemini://gemini.example/"),
+          URI.create("relative.gmi"),
+          URI.create("/caf%C3%A9/café"),
+          URI.create("../up"));
+
+  @Test
+  public void testOf_withCharSequence_returnsSameLinksAsParse() {
+    final var parsed = new ArrayList<URI>();
+    for (final var content : GeminiDocument.parse(DOCUMENT).content()) {
+      if (content instanceof GeminiLinkLine) {
+        parsed.add(((GeminiLinkLine) content).uri());
+      }
+    }
+
+    assertThat(parsed).isEqualTo(LINKS);
+    assertThat(collect(GeminiLinkScanner.of(DOCUMENT, null))).isEqualTo(LINKS);
+  }
+
+  @Test
+  public void testOf_withBytes_returnsLinks() {
+    for (final var charset :
+        List.of(
+            StandardCharsets.UTF_8,
+            StandardCharsets.ISO_8859_1,
+            Charset.forName("windows-1252"),
+            StandardCharsets.UTF_16)) {
+      final var bytes = DOCUMENT.getBytes(charset);
+      final var expected = collect(GeminiLinkScanner.of(new String(bytes, charset), null));
+
+      assertThat(collect(GeminiLinkScanner.of(bytes, charset, null)))
+          .as("%s", charset)
+          .isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testOf_withBaseUri_resolvesLinks() {
+    final var scanner =
+        GeminiLinkScanner.of(DOCUMENT, URI.create("gemini://gemini.example/dir/page.gmi"));
+
+    assertThat(collect(scanner))
+        .containsExactly(
+            URI.create("gemini://gemini.example/"),
+            URI.create("gemini://gemini.example/dir/relative.gmi"),
+            URI.create("gemini://gemini.example/caf%C3%A9/café"),
+            URI.create("gemini://gemini.example/up"));
+  }
+
+  @Test
+  public void testOf_withBaseUriWithEmptyPath_resolvesLinksAgainstRoot() {
+    final var scanner =
+        GeminiLinkScanner.of("=> relative.gmi\n", URI.create("gemini://gemini.example"));
+
+    assertThat(collect(scanner))
+        .containsExactly(URI.create("gemini://gemini.example/relative.gmi"));
+  }
+
+  @Test
+  public void testTitle_afterNext_returnsTitleOfLink() {
+    final var scanner =
+        GeminiLinkScanner.of(
+            DOCUMENT.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, null);
+
+    assertThatThrownBy(scanner::title).isInstanceOf(IllegalStateException.class);
+    scanner.next();
+    assertThat(scanner.title()).hasValue("Absolute");
+    scanner.next();
+    assertThat(scanner.title()).isEqualTo(Optional.empty());
+    scanner.next();
+    assertThat(scanner.title()).hasValue("Unicode");
+  }
+
+  @Test
+  public void testNext_afterLastLink_throwsNoSuchElementException() {
+    final var scanner = GeminiLinkScanner.of("Text\n=> link\n", null);
+    scanner.next();
+
+    assertThat(scanner.hasNext()).isFalse();
+    assertThatThrownBy(scanner::next).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void testIncremental_withBytesSplitAtEveryPosition_returnsSameLinksAsIterator() {
+    for (final var charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16)) {
+      final var bytes = DOCUMENT.getBytes(charset);
+      for (var i = 0; i <= bytes.length; i++) {
+        final var links = new ArrayList<URI>();
+        final var scanner = GeminiLinkScanner.incremental(links::add, charset, null);
+        scanner.feed(ByteBuffer.wrap(bytes, 0, i));
+        scanner.feed(ByteBuffer.wrap(bytes, i, bytes.length - i).asReadOnlyBuffer());
+        scanner.finish();
+
+        assertThat(links).as("%s split at %d", charset, i).isEqualTo(LINKS);
+      }
+    }
+  }
+
+  @Test
+  public void testIncremental_withLongLinkLine_returnsLink() {
+    final var uri = URI.create("gemini://gemini.example/" + "a".repeat(10000));
+    final var links = new ArrayList<URI>();
+    final var scanner = GeminiLinkScanner.incremental(links::add, StandardCharsets.UTF_8, null);
+
+    scanner.feed(ByteBuffer.wrap(("=> " + uri + " Long\n").getBytes(StandardCharsets.UTF_8)));
+    scanner.finish();
+
+    assertThat(links).containsExactly(uri);
+  }
+
+  private static List<URI> collect(final GeminiLinkScanner scanner) {
+    final var links = new ArrayList<URI>();
+    scanner.forEachRemaining(links::add);
+    return links;
+  }
+}
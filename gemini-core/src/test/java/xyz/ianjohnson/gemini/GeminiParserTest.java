@@ -0,0 +1,125 @@
+package xyz.ianjohnson.gemini;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+public class GeminiParserTest {
+  private static final String DOCUMENT =
+      "# Test document\r\n"
+          + "\r\n"
+          + "=> gemini://gemini.example An example server\r\n"
+          + "```Preformatted text\r\n"
+          + "Héllo, wörld! 😀\r\n"
+          + "```\r\n"
+          + "* List item\n"
+          + "> Quote\n"
+          + "Unterminated last line";
+
+  @Test
+  public void testFeed_withCompleteLines_emitsContentBeforeFinish() {
+    final var content = new ArrayList<GeminiContent>();
+    final var parser = new GeminiParser(content::add);
+
+    parser.feed("# Heading\n=> gemini://gemini.example Link\nPartial");
+
+    assertThat(content)
+        .containsExactly(
+            GeminiHeadingLine.of(1, "Heading"),
+            GeminiLinkLine.of(URI.create("gemini://gemini.example"), "Link"));
+
+    parser.feed(" line\n");
+    parser.finish();
+
+    assertThat(content).endsWith(GeminiTextLine.of("Partial line"));
+  }
+
+  @Test
+  public void testFeed_withCharsSplitAtEveryPosition_parsesSameContentAsWholeDocument() {
+    final var expected = GeminiDocument.parse(DOCUMENT).content();
+    for (var i = 0; i <= DOCUMENT.length(); i++) {
+      final var content = new ArrayList<GeminiContent>();
+      final var parser = new GeminiParser(content::add);
+      parser.feed(DOCUMENT.substring(0, i));
+      parser.feed(DOCUMENT.substring(i));
+      parser.finish();
+      assertThat(content).as("split at %d", i).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testFeed_withBytesSplitAtEveryPosition_parsesSameContentAsWholeDocument() {
+    final var expected = GeminiDocument.parse(DOCUMENT).content();
+    final var bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    for (var i = 0; i <= bytes.length; i++) {
+      final var content = new ArrayList<GeminiContent>();
+      final var parser = new GeminiParser(content::add);
+      parser.feed(ByteBuffer.wrap(bytes, 0, i));
+      parser.feed(ByteBuffer.wrap(bytes, i, bytes.length - i));
+      parser.finish();
+      assertThat(content).as("split at %d", i).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testFeed_withSingleByteChunks_parsesSameContentAsWholeDocument() {
+    final var content = new ArrayList<GeminiContent>();
+    final var parser = new GeminiParser(content::add);
+    for (final var b : DOCUMENT.getBytes(StandardCharsets.UTF_8)) {
+      parser.feed(ByteBuffer.wrap(new byte[] {b}));
+    }
+    parser.finish();
+
+    assertThat(content).isEqualTo(GeminiDocument.parse(DOCUMENT).content());
+  }
+
+  @Test
+  public void testFeed_withPreformattedToggleSplitAcrossChunks_parsesPreformattedText() {
+    final var content = new ArrayList<GeminiContent>();
+    final var parser = new GeminiParser(content::add);
+
+    parser.feed("`");
+    parser.feed("`");
+    parser.feed("`alt\r");
+    parser.feed("\n=> not a link\n``");
+    assertThat(content).isEmpty();
+    parser.feed("`\r\n");
+
+    assertThat(content).containsExactly(GeminiPreformattedText.of("=> not a link\n", "alt"));
+  }
+
+  @Test
+  public void testFeed_withTrailingBlankLines_ignoresTrailingBlankLines() {
+    final var content = new ArrayList<GeminiContent>();
+    final var parser = new GeminiParser(content::add);
+
+    parser.feed("Text\n\n\n");
+    parser.finish();
+
+    assertThat(content).containsExactly(GeminiTextLine.of("Text"));
+  }
+
+  @Test
+  public void testFeed_withIso88591Charset_decodesBytesUsingCharset() {
+    final var content = new ArrayList<GeminiContent>();
+    final var parser = new GeminiParser(content::add, StandardCharsets.ISO_8859_1);
+
+    parser.feed(ByteBuffer.wrap("Les élèves\n".getBytes(StandardCharsets.ISO_8859_1)));
+    parser.finish();
+
+    assertThat(content).containsExactly(GeminiTextLine.of("Les élèves"));
+  }
+
+  @Test
+  public void testFeed_afterFinish_throwsIllegalStateException() {
+    final var parser = new GeminiParser(content -> {});
+    parser.finish();
+
+    assertThatThrownBy(() -> parser.feed("Text\n")).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -45,4 +45,28 @@ public class GeminiStatusTest {
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessage("Unrecognized response status kind: 9");
   }
+
+  @Test
+  public void testValueOf_withSameNonStandardGeminiStatusCodeTwice_returnsSameInstance() {
+    assertThat(GeminiStatus.valueOf(25)).isSameAs(GeminiStatus.valueOf(25));
+  }
+
+  @Test
+  public void testStandardGeminiStatusValueOf_withNonStandardCode_throwsIllegalArgumentException() {
+    assertThat(StandardGeminiStatus.valueOf(44)).isEqualTo(StandardGeminiStatus.SLOW_DOWN);
+    assertThatThrownBy(() -> StandardGeminiStatus.valueOf(25))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unknown status code: 25");
+  }
+
+  @Test
+  public void testKindValueOf_withUnrecognizedFirstDigit_throwsIllegalArgumentException() {
+    assertThat(Kind.valueOf(3)).isEqualTo(Kind.REDIRECT);
+    assertThatThrownBy(() -> Kind.valueOf(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unrecognized response status kind: 0");
+    assertThatThrownBy(() -> Kind.valueOf(12))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Unrecognized response status kind: 12");
+  }
 }
@@ -3,6 +3,8 @@ package xyz.ianjohnson.gemini;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -63,4 +65,45 @@ public class MimeTypeTest {
     assertThatThrownBy(() -> MimeType.parse("text/plain utf-8"))
         .isInstanceOf(MimeTypeSyntaxException.class);
   }
+
+  @Test
+  public void testParse_withSameValueTwice_returnsSameInstance() throws MimeTypeSyntaxException {
+    final var first = MimeType.parse("text/gemini; charset=utf-8; lang=en");
+
+    assertThat(MimeType.parse("text/gemini; charset=utf-8; lang=en")).isSameAs(first);
+  }
+
+  @Test
+  public void testCharset_withCharsetParameter_returnsCharset() throws MimeTypeSyntaxException {
+    assertThat(MimeType.parse("text/plain; charset=utf-8").charset())
+        .hasValue(StandardCharsets.UTF_8);
+    assertThat(MimeType.parse("text/plain; charset=\"ISO-8859-1\"").charset())
+        .hasValue(StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void testParse_afterManyDistinctValues_stillCachesNewValues()
+      throws MimeTypeSyntaxException {
+    for (var i = 0; i < 1000; i++) {
+      MimeType.parse("application/x-filler-" + i);
+    }
+
+    final var parsed = MimeType.parse("application/x-seen-late");
+
+    assertThat(MimeType.parse("application/x-seen-late")).isSameAs(parsed);
+  }
+
+  @Test
+  public void testCharset_withoutCharsetParameter_returnsDefaultCharset() {
+    assertThat(MimeType.TEXT_GEMINI.charset()).isEmpty();
+    assertThat(MimeType.TEXT_GEMINI.charset(StandardCharsets.UTF_8))
+        .isEqualTo(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testCharset_withUnsupportedCharset_throwsUnsupportedCharsetException() {
+    assertThatThrownBy(
+            () -> MimeType.of("text", "plain", Map.of("charset", "x-no-such-charset")).charset())
+        .isInstanceOf(UnsupportedCharsetException.class);
+  }
 }
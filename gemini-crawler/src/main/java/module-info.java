@@ -0,0 +1,6 @@
+module xyz.ianjohnson.gemini.crawler {
+  requires transitive xyz.ianjohnson.gemini.client;
+  requires org.slf4j;
+
+  exports xyz.ianjohnson.gemini.crawler;
+}
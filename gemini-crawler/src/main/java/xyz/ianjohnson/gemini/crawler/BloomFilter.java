@@ -0,0 +1,99 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A Bloom filter over 128-bit fingerprints. The bit indexes of a fingerprint are derived from its
+ * two halves by double hashing, so no further hashing is needed.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class BloomFilter {
+  private static final int MAGIC = 0x474d424c; // "GMBL"
+
+  private final long[] words;
+  private final long bits;
+  private final int hashes;
+
+  private BloomFilter(final long[] words, final int hashes) {
+    this.words = words;
+    this.bits = (long) words.length * Long.SIZE;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Creates an empty Bloom filter sized to hold the given number of items with the given false
+   * positive rate. The filter can hold more items than this, but its false positive rate rises as
+   * it fills.
+   *
+   * @param expectedItems the number of items the filter is sized for
+   * @param falsePositiveRate the false positive rate of the filter once it holds {@code
+   *     expectedItems} items
+   * @return an empty Bloom filter
+   */
+  static BloomFilter create(final long expectedItems, final double falsePositiveRate) {
+    final var n = Math.max(expectedItems, 1);
+    final var ln2 = Math.log(2);
+    final var bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+    final var words = (int) Math.min((bits + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE - 8);
+    final var hashes = (int) Math.max(1, Math.round((double) words * Long.SIZE / n * ln2));
+    return new BloomFilter(new long[Math.max(words, 1)], hashes);
+  }
+
+  /**
+   * Reads a Bloom filter written by {@link #writeTo(Path)}.
+   *
+   * @param path the file from which to read the filter
+   * @return the filter
+   * @throws IOException if the file could not be read or is not a Bloom filter
+   */
+  static BloomFilter readFrom(final Path path) throws IOException {
+    try (final var input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("Not a Bloom filter: " + path);
+      }
+      final var hashes = input.readInt();
+      final var words = new long[input.readInt()];
+      for (var i = 0; i < words.length; i++) {
+        words[i] = input.readLong();
+      }
+      return new BloomFilter(words, hashes);
+    }
+  }
+
+  boolean mightContain(final long high, final long low) {
+    for (var i = 0; i < hashes; i++) {
+      final var bit = Math.floorMod(high + i * low, bits);
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void put(final long high, final long low) {
+    for (var i = 0; i < hashes; i++) {
+      final var bit = Math.floorMod(high + i * low, bits);
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  void writeTo(final Path path) throws IOException {
+    try (final var output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(hashes);
+      output.writeInt(words.length);
+      for (final var word : words) {
+        output.writeLong(word);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * The manifest of a crawl checkpoint, naming the files which make up the state of the crawl.
+ *
+ * <p>Each checkpoint writes its Bloom filter and in-memory frontier to new files named after its
+ * generation, and then atomically replaces the manifest, so a crash while checkpointing leaves the
+ * previous checkpoint intact. Files not named by the manifest are left over from an interrupted
+ * checkpoint or a later crash, and are deleted when the crawl is resumed.
+ */
+final class Checkpoint {
+  private static final String MANIFEST = "checkpoint.properties";
+
+  final long generation;
+  final DiskQueue.Position queuePosition;
+  final List<String> runs;
+
+  Checkpoint(
+      final long generation, final DiskQueue.Position queuePosition, final List<String> runs) {
+    this.generation = generation;
+    this.queuePosition = queuePosition;
+    this.runs = runs;
+  }
+
+  /**
+   * Reads the manifest of the latest checkpoint in the given directory.
+   *
+   * @param directory the crawl directory
+   * @return the latest checkpoint, or {@code null} if there is none
+   * @throws IOException if the manifest could not be read
+   */
+  @Nullable
+  static Checkpoint read(final Path directory) throws IOException {
+    final var properties = new Properties();
+    try (final InputStream input = Files.newInputStream(directory.resolve(MANIFEST))) {
+      properties.load(input);
+    } catch (final NoSuchFileException e) {
+      return null;
+    }
+    try {
+      final var runs = properties.getProperty("visited.runs", "");
+      return new Checkpoint(
+          Long.parseLong(properties.getProperty("generation")),
+          new DiskQueue.Position(
+              Long.parseLong(properties.getProperty("queue.headSegment")),
+              Long.parseLong(properties.getProperty("queue.headOffset")),
+              Long.parseLong(properties.getProperty("queue.tailSegment")),
+              Long.parseLong(properties.getProperty("queue.tailLength")),
+              Long.parseLong(properties.getProperty("queue.size"))),
+          runs.isEmpty() ? List.of() : Arrays.asList(runs.split(",")));
+    } catch (final NumberFormatException e) {
+      throw new IOException("Invalid checkpoint manifest", e);
+    }
+  }
+
+  /**
+   * Writes this checkpoint as the latest checkpoint in the given directory. The files it names must
+   * already have been written.
+   *
+   * @param directory the crawl directory
+   * @throws IOException if the manifest could not be written
+   */
+  void write(final Path directory) throws IOException {
+    final var properties = new Properties();
+    properties.setProperty("generation", Long.toString(generation));
+    properties.setProperty("queue.headSegment", Long.toString(queuePosition.headSegment));
+    properties.setProperty("queue.headOffset", Long.toString(queuePosition.headOffset));
+    properties.setProperty("queue.tailSegment", Long.toString(queuePosition.tailSegment));
+    properties.setProperty("queue.tailLength", Long.toString(queuePosition.tailLength));
+    properties.setProperty("queue.size", Long.toString(queuePosition.size));
+    properties.setProperty("visited.runs", String.join(",", runs));
+    final var temp = directory.resolve(MANIFEST + ".tmp");
+    try (final OutputStream output = Files.newOutputStream(temp)) {
+      properties.store(output, null);
+    }
+    Files.move(
+        temp,
+        directory.resolve(MANIFEST),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** The name of the file holding the Bloom filter of the visited set. */
+  static String bloomFilterFile(final long generation) {
+    return "visited-" + generation + ".bloom";
+  }
+
+  /** The name of the file holding the URIs queued in memory and in flight. */
+  static String frontierFile(final long generation) {
+    return "frontier-" + generation + ".txt";
+  }
+}
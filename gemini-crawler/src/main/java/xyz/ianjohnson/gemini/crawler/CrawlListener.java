@@ -0,0 +1,39 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.net.URI;
+import java.util.List;
+import xyz.ianjohnson.gemini.client.GeminiResponse;
+
+/**
+ * A listener for the results of a crawl.
+ *
+ * <p>Methods of a listener are called concurrently from the threads of the client, so
+ * implementations must be thread-safe, and should not block for long. A URI which was in flight
+ * when the crawler was stopped or failed is crawled again when the crawl is resumed, so a listener
+ * may be called more than once for the same URI.
+ */
+public interface CrawlListener {
+  /**
+   * Called when a response is received for a URI.
+   *
+   * @param uri the URI which was crawled
+   * @param response the response; its body is the list of absolute URIs linked from the page, which
+   *     is empty if the response was not a Gemini document
+   */
+  void onPage(URI uri, GeminiResponse<List<URI>> response);
+
+  /**
+   * Called when no response could be received for a URI.
+   *
+   * @param uri the URI which was crawled
+   * @param error the error which prevented a response from being received
+   */
+  default void onFailure(final URI uri, final Throwable error) {}
+
+  /**
+   * Called when a URI is not crawled because the robots.txt file of its host disallows it.
+   *
+   * @param uri the URI which was not crawled
+   */
+  default void onDisallowed(final URI uri) {}
+}
@@ -0,0 +1,666 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.Nullable;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.client.GeminiResponse;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandlers;
+
+/**
+ * A crawler of Geminispace, which follows the links of each page it fetches using a {@link
+ * GeminiClient}.
+ *
+ * <p>The state of a crawl is kept in a directory, and its memory use is bounded independently of
+ * the size of the crawl:
+ *
+ * <ul>
+ *   <li>The URIs waiting to be crawled are kept in a per-host politeness queue, so that each host
+ *       has at most one request in flight and is not requested again until the politeness delay has
+ *       passed. Only a bounded number of queued URIs are kept in memory; the rest wait in a queue
+ *       on disk.
+ *   <li>The URIs which have already been seen are recorded in a Bloom filter, backed by an exact
+ *       set of URI fingerprints in sorted files on disk which is only consulted when the filter
+ *       reports a possible match.
+ *   <li>The robots.txt rules of recently crawled hosts are cached, and URIs they disallow are not
+ *       requested.
+ *   <li>Links are extracted as each response body is received, without parsing the rest of the
+ *       document.
+ * </ul>
+ *
+ * <p>The crawler periodically writes a checkpoint of its state to the directory, and also does so
+ * when closed. Opening a crawler on a directory containing a checkpoint resumes the crawl from it.
+ * If the crawler was not closed cleanly, the work done since the last checkpoint is repeated.
+ *
+ * <p>Only {@code gemini} URIs are crawled. Their fragments are removed, and their paths normalized,
+ * before they are checked against the set of seen URIs.
+ */
+public final class Crawler implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(Crawler.class);
+  private static final String MANIFEST_TEMP = "checkpoint.properties.tmp";
+
+  private final GeminiClient client;
+  private final Path directory;
+  private final CrawlListener listener;
+  private final int maxParallelism;
+  private final long checkpointIntervalNanos;
+  private final Predicate<URI> uriFilter;
+  private final RobotsCache robots;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  // All the following state is guarded by lock
+  private final VisitedSet visited;
+  private final DiskQueue queue;
+  private final Frontier frontier;
+  /** The URIs being crawled, with the request for each once it has been sent. */
+  private final Map<URI, CompletableFuture<?>> inFlight = new HashMap<>();
+
+  private long generation;
+  private long lastCheckpoint;
+  private boolean stopped;
+  private boolean closed;
+  @Nullable private IOException failure;
+
+  private Crawler(final Builder builder) throws IOException {
+    client = builder.client;
+    directory = builder.directory;
+    listener = builder.listener;
+    maxParallelism = builder.maxParallelism;
+    checkpointIntervalNanos = builder.checkpointInterval.toNanos();
+    uriFilter = builder.uriFilter;
+    robots =
+        new RobotsCache(
+            client,
+            builder.userAgents,
+            builder.maxRobotsHosts,
+            builder.robotsTtl,
+            Clock.systemUTC());
+
+    Files.createDirectories(directory);
+    final var checkpoint = Checkpoint.read(directory);
+    final BloomFilter bloomFilter;
+    final List<URI> queued;
+    if (checkpoint != null) {
+      generation = checkpoint.generation;
+      bloomFilter = BloomFilter.readFrom(directory.resolve(Checkpoint.bloomFilterFile(generation)));
+      queued =
+          Files.readAllLines(
+                  directory.resolve(Checkpoint.frontierFile(generation)), StandardCharsets.US_ASCII)
+              .stream()
+              .map(URI::create)
+              .collect(Collectors.toList());
+    } else {
+      bloomFilter = BloomFilter.create(builder.expectedUris, builder.falsePositiveRate);
+      queued = List.of();
+    }
+    final var runs = checkpoint != null ? checkpoint.runs : List.<String>of();
+    deleteStaleFiles(runs);
+
+    visited = new VisitedSet(directory, bloomFilter, runs, builder.maxBufferedFingerprints);
+    queue =
+        DiskQueue.open(
+            directory,
+            builder.queueSegmentBytes,
+            checkpoint != null ? checkpoint.queuePosition : DiskQueue.Position.START);
+    frontier = new Frontier(queue, builder.maxQueuedInMemory, builder.politenessDelay.toNanos());
+    for (final var uri : queued) {
+      frontier.add(uri);
+    }
+    lastCheckpoint = System.nanoTime();
+  }
+
+  /**
+   * Returns a new {@link Crawler.Builder}.
+   *
+   * @param client the client with which to fetch pages
+   * @param directory the directory in which to keep the state of the crawl
+   * @param listener the listener to notify of the results of the crawl
+   * @return a new {@link Crawler.Builder}
+   */
+  public static Builder newBuilder(
+      final GeminiClient client, final Path directory, final CrawlListener listener) {
+    return new Builder(client, directory, listener);
+  }
+
+  /**
+   * Adds a URI to the crawl, if it has not already been seen and is accepted by the URI filter.
+   *
+   * @param uri the URI to add
+   * @return whether the URI was added
+   * @throws IOException if the URI could not be queued
+   */
+  public boolean add(final URI uri) throws IOException {
+    final var crawlable = crawlable(uri);
+    if (crawlable == null || !uriFilter.test(crawlable)) {
+      return false;
+    }
+    lock.lock();
+    try {
+      checkOpen();
+      if (!visited.add(crawlable)) {
+        return false;
+      }
+      frontier.add(crawlable);
+      changed.signalAll();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Crawls until there are no more URIs to crawl or {@link #stop()} is called. Requests which are
+   * in flight when the crawler is stopped continue in the background, and the URIs they find are
+   * added to the crawl.
+   *
+   * @throws IOException if the state of the crawl could not be read or written
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  public void run() throws IOException, InterruptedException {
+    lock.lock();
+    try {
+      while (true) {
+        if (failure != null) {
+          throw failure;
+        }
+        if (stopped) {
+          return;
+        }
+        var now = System.nanoTime();
+        if (visited.needsFlush() || checkpointDue(now)) {
+          checkpointLocked();
+          now = System.nanoTime();
+        }
+
+        final var toCrawl = new ArrayList<URI>();
+        URI uri;
+        while (inFlight.size() < maxParallelism && (uri = frontier.poll(now)) != null) {
+          inFlight.put(uri, CompletableFuture.completedFuture(null));
+          toCrawl.add(uri);
+        }
+        if (!toCrawl.isEmpty()) {
+          lock.unlock();
+          try {
+            toCrawl.forEach(this::crawl);
+          } finally {
+            lock.lock();
+          }
+          continue;
+        }
+
+        if (inFlight.isEmpty() && frontier.isEmpty()) {
+          return;
+        }
+        var wait =
+            inFlight.size() < maxParallelism ? frontier.nanosUntilNextRequest(now) : Long.MAX_VALUE;
+        if (checkpointIntervalNanos != 0) {
+          wait = Math.min(wait, lastCheckpoint + checkpointIntervalNanos - now);
+        }
+        changed.awaitNanos(Math.max(wait, 1));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stops the crawl, causing {@link #run()} to return. */
+  public void stop() {
+    lock.lock();
+    try {
+      stopped = true;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes a checkpoint of the state of the crawl, from which it can be resumed.
+   *
+   * @throws IOException if the checkpoint could not be written
+   */
+  public void checkpoint() throws IOException {
+    lock.lock();
+    try {
+      checkOpen();
+      checkpointLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of URIs waiting to be crawled, not including those in flight.
+   *
+   * @return the number of URIs waiting to be crawled
+   */
+  public long queuedUris() {
+    lock.lock();
+    try {
+      return frontier.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops the crawl, cancelling any requests in flight, and writes a final checkpoint. The URIs
+   * whose requests were cancelled are crawled again when the crawl is resumed.
+   *
+   * @throws IOException if the checkpoint could not be written
+   */
+  @Override
+  public void close() throws IOException {
+    final List<CompletableFuture<?>> requests;
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      try {
+        checkpointLocked();
+      } finally {
+        closed = true;
+        stopped = true;
+        requests = List.copyOf(inFlight.values());
+        changed.signalAll();
+        queue.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+    requests.forEach(request -> request.cancel(true));
+  }
+
+  private void crawl(final URI uri) {
+    robots
+        .rules(uri)
+        .thenAccept(
+            rules -> {
+              if (!rules.allows(uri)) {
+                notify(() -> listener.onDisallowed(uri));
+                complete(uri, null);
+                return;
+              }
+              final CompletableFuture<GeminiResponse<List<URI>>> request;
+              try {
+                // Links are resolved against the final URI once any redirects have been followed
+                request = client.sendAsync(uri, BodyHandlers.ofLinks(null));
+              } catch (final RuntimeException e) {
+                notify(() -> listener.onFailure(uri, e));
+                complete(uri, null);
+                return;
+              }
+              lock.lock();
+              try {
+                if (inFlight.containsKey(uri)) {
+                  inFlight.put(uri, request);
+                }
+              } finally {
+                lock.unlock();
+              }
+              request.whenComplete(
+                  (response, e) -> {
+                    if (e != null) {
+                      notify(() -> listener.onFailure(uri, e));
+                      complete(uri, null);
+                    } else {
+                      final var resolved = resolveLinks(response);
+                      notify(() -> listener.onPage(uri, resolved));
+                      complete(uri, resolved);
+                    }
+                  });
+            });
+  }
+
+  private void complete(final URI uri, @Nullable final GeminiResponse<List<URI>> response) {
+    lock.lock();
+    try {
+      if (closed || inFlight.remove(uri) == null) {
+        return;
+      }
+      frontier.release(uri, System.nanoTime());
+      if (response != null) {
+        final var target = crawlable(response.uri());
+        if (target != null && !target.equals(uri)) {
+          // Don't crawl the target of a redirect again
+          visited.add(target);
+        }
+        for (final var link : response.body().orElse(List.of())) {
+          final var crawlable = crawlable(link);
+          if (crawlable != null && uriFilter.test(crawlable) && visited.add(crawlable)) {
+            frontier.add(crawlable);
+          }
+        }
+      }
+    } catch (final IOException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    } finally {
+      changed.signalAll();
+      lock.unlock();
+    }
+  }
+
+  private void checkpointLocked() throws IOException {
+    final var next = generation + 1;
+    final var runs = visited.flush();
+    visited.bloomFilter().writeTo(directory.resolve(Checkpoint.bloomFilterFile(next)));
+    final var queued = new ArrayList<String>();
+    for (final var uri : frontier.inMemory()) {
+      queued.add(uri.toASCIIString());
+    }
+    for (final var uri : inFlight.keySet()) {
+      queued.add(uri.toASCIIString());
+    }
+    Files.write(
+        directory.resolve(Checkpoint.frontierFile(next)), queued, StandardCharsets.US_ASCII);
+    final var position = queue.position();
+    new Checkpoint(next, position, runs).write(directory);
+
+    Files.deleteIfExists(directory.resolve(Checkpoint.bloomFilterFile(generation)));
+    Files.deleteIfExists(directory.resolve(Checkpoint.frontierFile(generation)));
+    generation = next;
+    visited.deleteObsoleteRuns();
+    queue.deleteSegmentsBefore(position.headSegment);
+    lastCheckpoint = System.nanoTime();
+    log.debug("Wrote checkpoint {} with {} queued URIs", generation, frontier.size());
+  }
+
+  /** Deletes files left over from an interrupted checkpoint or a crash since the last one. */
+  private void deleteStaleFiles(final List<String> runs) throws IOException {
+    final var keep =
+        Set.of(
+            Checkpoint.bloomFilterFile(generation),
+            Checkpoint.frontierFile(generation),
+            MANIFEST_TEMP);
+    try (final var files = Files.newDirectoryStream(directory)) {
+      for (final var file : files) {
+        final var name = file.getFileName().toString();
+        final var stale =
+            (VisitedSet.isRunFile(name) && !runs.contains(name))
+                || (name.startsWith("visited-") && name.endsWith(".bloom") && !keep.contains(name))
+                || (name.startsWith("frontier-") && name.endsWith(".txt") && !keep.contains(name))
+                || name.equals(MANIFEST_TEMP);
+        if (stale) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private boolean checkpointDue(final long now) {
+    return checkpointIntervalNanos != 0 && now - lastCheckpoint >= checkpointIntervalNanos;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Crawler is closed");
+    }
+  }
+
+  private void notify(final Runnable notification) {
+    try {
+      notification.run();
+    } catch (final RuntimeException e) {
+      log.error("Crawl listener failed", e);
+    }
+  }
+
+  private static GeminiResponse<List<URI>> resolveLinks(final GeminiResponse<List<URI>> response) {
+    final var builder =
+        GeminiResponse.<List<URI>>newBuilder()
+            .uri(response.uri())
+            .status(response.status())
+            .meta(response.meta());
+    response
+        .body()
+        .ifPresent(
+            links ->
+                builder.body(
+                    links.stream().map(response.uri()::resolve).collect(Collectors.toList())));
+    return builder.build();
+  }
+
+  /**
+   * Returns the form of the given URI which is crawled and recorded as seen, or {@code null} if it
+   * cannot be crawled.
+   */
+  @Nullable
+  static URI crawlable(final URI uri) {
+    if (!"gemini".equalsIgnoreCase(uri.getScheme())
+        || uri.getHost() == null
+        || uri.getRawAuthority() == null) {
+      return null;
+    }
+    final var normalized = uri.normalize();
+    final var path = normalized.getRawPath();
+    final var crawlable = new StringBuilder("gemini://");
+    crawlable.append(normalized.getRawAuthority().toLowerCase(Locale.ROOT));
+    crawlable.append(path == null || path.isEmpty() ? "/" : path);
+    if (normalized.getRawQuery() != null) {
+      crawlable.append('?').append(normalized.getRawQuery());
+    }
+    return URI.create(crawlable.toString());
+  }
+
+  /** A builder for {@link Crawler}s. */
+  public static final class Builder {
+    private final GeminiClient client;
+    private final Path directory;
+    private final CrawlListener listener;
+    private int maxParallelism = 256;
+    private Duration politenessDelay = Duration.ofSeconds(1);
+    private Set<String> userAgents = Set.of();
+    private long expectedUris = 10_000_000;
+    private double falsePositiveRate = 0.01;
+    private int maxQueuedInMemory = 100_000;
+    private int maxBufferedFingerprints = 1 << 18;
+    private int maxRobotsHosts = 10_000;
+    private Duration robotsTtl = Duration.ofDays(1);
+    private Duration checkpointInterval = Duration.ofMinutes(5);
+    private Predicate<URI> uriFilter = uri -> true;
+    private long queueSegmentBytes = 64L * 1024 * 1024;
+
+    private Builder(final GeminiClient client, final Path directory, final CrawlListener listener) {
+      this.client = requireNonNull(client, "client");
+      this.directory = requireNonNull(directory, "directory");
+      this.listener = requireNonNull(listener, "listener");
+    }
+
+    /**
+     * Sets the maximum number of requests in flight at once. The default is 256.
+     *
+     * @param maxParallelism the maximum number of requests in flight at once
+     * @return {@code this}
+     */
+    public Builder maxParallelism(final int maxParallelism) {
+      this.maxParallelism = requirePositive(maxParallelism, "maxParallelism");
+      return this;
+    }
+
+    /**
+     * Sets the time to wait after a request to a host completes before making another request to
+     * it. The default is one second.
+     *
+     * @param politenessDelay the time to wait between requests to the same host
+     * @return {@code this}
+     */
+    public Builder politenessDelay(final Duration politenessDelay) {
+      this.politenessDelay = requireNonNegative(politenessDelay, "politenessDelay");
+      return this;
+    }
+
+    /**
+     * Sets the robots.txt user agents of the crawler, such as the {@code indexer} or {@code
+     * researcher} virtual agents of the Gemini robots.txt specification. Rules for {@code *} always
+     * apply. By default, only rules for {@code *} apply.
+     *
+     * @param userAgents the user agents of the crawler
+     * @return {@code this}
+     */
+    public Builder userAgents(final Set<String> userAgents) {
+      this.userAgents =
+          requireNonNull(userAgents, "userAgents").stream()
+              .map(agent -> agent.toLowerCase(Locale.ROOT))
+              .collect(Collectors.toUnmodifiableSet());
+      return this;
+    }
+
+    /**
+     * Sets the number of URIs the Bloom filter of seen URIs is sized for, which determines its
+     * memory use. Crawls may see more URIs than this, at the cost of more disk lookups. This only
+     * applies to new crawls. The default is 10 million.
+     *
+     * @param expectedUris the number of URIs the crawl is expected to see
+     * @return {@code this}
+     */
+    public Builder expectedUris(final long expectedUris) {
+      if (expectedUris < 1) {
+        throw new IllegalArgumentException("expectedUris must be positive");
+      }
+      this.expectedUris = expectedUris;
+      return this;
+    }
+
+    /**
+     * Sets the false positive rate of the Bloom filter of seen URIs once it holds the expected
+     * number of URIs. A false positive only costs a disk lookup. This only applies to new crawls.
+     * The default is 1%.
+     *
+     * @param falsePositiveRate the false positive rate, between 0 and 1 exclusive
+     * @return {@code this}
+     */
+    public Builder falsePositiveRate(final double falsePositiveRate) {
+      if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+        throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+      }
+      this.falsePositiveRate = falsePositiveRate;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of queued URIs to keep in memory. The rest are kept on disk. The
+     * default is 100,000.
+     *
+     * @param maxQueuedInMemory the maximum number of queued URIs to keep in memory
+     * @return {@code this}
+     */
+    public Builder maxQueuedInMemory(final int maxQueuedInMemory) {
+      this.maxQueuedInMemory = requirePositive(maxQueuedInMemory, "maxQueuedInMemory");
+      return this;
+    }
+
+    /**
+     * Sets the number of seen URI fingerprints to keep in memory before writing them to disk, which
+     * also causes a checkpoint. The default is 262,144.
+     *
+     * @param maxBufferedFingerprints the number of fingerprints to keep in memory
+     * @return {@code this}
+     */
+    public Builder maxBufferedFingerprints(final int maxBufferedFingerprints) {
+      this.maxBufferedFingerprints =
+          requirePositive(maxBufferedFingerprints, "maxBufferedFingerprints");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of hosts whose robots.txt rules are cached. The default is 10,000.
+     *
+     * @param maxRobotsHosts the maximum number of hosts whose robots.txt rules are cached
+     * @return {@code this}
+     */
+    public Builder maxRobotsHosts(final int maxRobotsHosts) {
+      this.maxRobotsHosts = requirePositive(maxRobotsHosts, "maxRobotsHosts");
+      return this;
+    }
+
+    /**
+     * Sets how long the robots.txt rules of a host are cached. The default is one day.
+     *
+     * @param robotsTtl how long the robots.txt rules of a host are cached
+     * @return {@code this}
+     */
+    public Builder robotsTtl(final Duration robotsTtl) {
+      this.robotsTtl = requireNonNegative(robotsTtl, "robotsTtl");
+      return this;
+    }
+
+    /**
+     * Sets the interval between automatic checkpoints, or zero to only write checkpoints when the
+     * in-memory fingerprints are written to disk. The default is five minutes.
+     *
+     * @param checkpointInterval the interval between automatic checkpoints
+     * @return {@code this}
+     */
+    public Builder checkpointInterval(final Duration checkpointInterval) {
+      this.checkpointInterval = requireNonNegative(checkpointInterval, "checkpointInterval");
+      return this;
+    }
+
+    /**
+     * Sets a filter which URIs must pass to be crawled, such as to restrict the crawl to certain
+     * hosts. By default, all {@code gemini} URIs are crawled.
+     *
+     * @param uriFilter the filter which URIs must pass to be crawled
+     * @return {@code this}
+     */
+    public Builder uriFilter(final Predicate<URI> uriFilter) {
+      this.uriFilter = requireNonNull(uriFilter, "uriFilter");
+      return this;
+    }
+
+    Builder queueSegmentBytes(final long queueSegmentBytes) {
+      this.queueSegmentBytes = queueSegmentBytes;
+      return this;
+    }
+
+    /**
+     * Opens the crawler, resuming the crawl from the latest checkpoint in its directory if there is
+     * one.
+     *
+     * @return the crawler
+     * @throws IOException if the state of the crawl could not be read
+     */
+    public Crawler build() throws IOException {
+      return new Crawler(this);
+    }
+
+    private static int requirePositive(final int value, final String name) {
+      if (value < 1) {
+        throw new IllegalArgumentException(name + " must be positive");
+      }
+      return value;
+    }
+
+    private static Duration requireNonNegative(final Duration duration, final String name) {
+      if (requireNonNull(duration, name).isNegative()) {
+        throw new IllegalArgumentException(name + " must not be negative");
+      }
+      return duration;
+    }
+  }
+}
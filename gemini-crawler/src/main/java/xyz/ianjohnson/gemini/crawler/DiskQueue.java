@@ -0,0 +1,235 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * A FIFO queue of URIs stored on disk, used by the {@link Frontier} for URIs which do not fit in
+ * memory.
+ *
+ * <p>URIs are appended, one per line, to a sequence of segment files, and read back from the oldest
+ * segment. A {@link Position} records how far the queue has been read and written, so that a queue
+ * can be reopened at the position recorded by a checkpoint: any URIs appended after it are
+ * discarded, and any read after it are read again. Segments which have been read completely are
+ * only deleted by {@link #deleteSegmentsBefore(long)}, once no checkpoint refers to them.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class DiskQueue implements Closeable {
+  private static final String SEGMENT_PREFIX = "queue-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final long segmentBytes;
+  private long headSegment;
+  private long headOffset;
+  @Nullable private InputStream reader;
+  private long tailSegment;
+  private long tailLength;
+  private OutputStream writer;
+  private long size;
+
+  private DiskQueue(final Path directory, final long segmentBytes, final Position position) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    headSegment = position.headSegment;
+    headOffset = position.headOffset;
+    tailSegment = position.tailSegment;
+    tailLength = position.tailLength;
+    size = position.size;
+  }
+
+  /**
+   * Opens a queue at the given position, discarding any segments and data outside it.
+   *
+   * @param directory the directory containing the segment files
+   * @param segmentBytes the size after which a new segment file is started
+   * @param position the position at which to open the queue
+   * @return the queue
+   * @throws IOException if the segment files could not be opened
+   */
+  static DiskQueue open(final Path directory, final long segmentBytes, final Position position)
+      throws IOException {
+    final var queue = new DiskQueue(directory, segmentBytes, position);
+    try (final var files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+      for (final var file : files) {
+        final var segment = segmentId(file.getFileName().toString());
+        if (segment != -1 && (segment < position.headSegment || segment > position.tailSegment)) {
+          Files.delete(file);
+        }
+      }
+    }
+    final var tail = queue.segmentPath(position.tailSegment);
+    try (final var channel =
+        FileChannel.open(tail, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      if (channel.size() < position.tailLength) {
+        throw new IOException("Queue segment is shorter than expected: " + tail);
+      }
+      channel.truncate(position.tailLength);
+    }
+    queue.writer = new BufferedOutputStream(Files.newOutputStream(tail, StandardOpenOption.APPEND));
+    return queue;
+  }
+
+  /**
+   * Adds a URI to the end of this queue.
+   *
+   * @param uri the URI to add
+   * @throws IOException if the URI could not be written
+   */
+  void add(final URI uri) throws IOException {
+    final var bytes = uri.toASCIIString().getBytes(StandardCharsets.US_ASCII);
+    writer.write(bytes);
+    writer.write('\n');
+    tailLength += bytes.length + 1;
+    size++;
+    if (tailLength >= segmentBytes) {
+      writer.close();
+      tailSegment++;
+      tailLength = 0;
+      writer = new BufferedOutputStream(Files.newOutputStream(segmentPath(tailSegment)));
+    }
+  }
+
+  /**
+   * Removes and returns the URI at the start of this queue.
+   *
+   * @return the URI at the start of this queue, or {@code null} if the queue is empty
+   * @throws IOException if the URI could not be read
+   */
+  @Nullable
+  URI poll() throws IOException {
+    if (size == 0) {
+      return null;
+    }
+    // Make sure the complete lines written so far can be read, including when reading moves on to
+    // the tail segment below
+    if (headSegment == tailSegment) {
+      writer.flush();
+    }
+    final var line = new StringBuilder();
+    while (true) {
+      if (reader == null) {
+        if (headSegment == tailSegment) {
+          writer.flush();
+        }
+        final var channel = FileChannel.open(segmentPath(headSegment));
+        channel.position(headOffset);
+        reader = new BufferedInputStream(Channels.newInputStream(channel));
+      }
+      final var b = reader.read();
+      if (b == '\n') {
+        break;
+      } else if (b != -1) {
+        line.append((char) b);
+      } else if (line.length() == 0 && headSegment < tailSegment) {
+        reader.close();
+        reader = null;
+        headSegment++;
+        headOffset = 0;
+      } else {
+        throw new IOException("Queue segment is truncated: " + segmentPath(headSegment));
+      }
+    }
+    headOffset += line.length() + 1;
+    size--;
+    return URI.create(line.toString());
+  }
+
+  /** The number of URIs in this queue. */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Writes any buffered URIs to disk and returns the current position of this queue.
+   *
+   * @return the current position of this queue
+   * @throws IOException if the buffered URIs could not be written
+   */
+  Position position() throws IOException {
+    writer.flush();
+    return new Position(headSegment, headOffset, tailSegment, tailLength, size);
+  }
+
+  /**
+   * Deletes the segment files before the given one, which must already have been read.
+   *
+   * @param segment the first segment to keep
+   * @throws IOException if a segment file could not be deleted
+   */
+  void deleteSegmentsBefore(final long segment) throws IOException {
+    try (final var files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+      for (final var file : files) {
+        final var id = segmentId(file.getFileName().toString());
+        if (id != -1 && id < Math.min(segment, headSegment)) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.close();
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
+  private Path segmentPath(final long segment) {
+    return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+  }
+
+  private static long segmentId(final String name) {
+    if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** A position in a queue: where reading and writing will continue, and its size. */
+  static final class Position {
+    /** The position of an empty queue which has never been written. */
+    static final Position START = new Position(0, 0, 0, 0, 0);
+
+    final long headSegment;
+    final long headOffset;
+    final long tailSegment;
+    final long tailLength;
+    final long size;
+
+    Position(
+        final long headSegment,
+        final long headOffset,
+        final long tailSegment,
+        final long tailLength,
+        final long size) {
+      this.headSegment = headSegment;
+      this.headOffset = headOffset;
+      this.tailSegment = tailSegment;
+      this.tailLength = tailLength;
+      this.size = size;
+    }
+  }
+}
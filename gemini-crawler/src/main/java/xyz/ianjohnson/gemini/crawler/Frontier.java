@@ -0,0 +1,210 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * The URIs waiting to be crawled, with a politeness queue for each host.
+ *
+ * <p>Each host has at most one request in flight at once, and its next request may only start once
+ * the politeness delay has passed since the previous one completed. Hosts with queued URIs are
+ * ordered by the time at which they may next be requested, so finding the next URI to crawl takes
+ * logarithmic time in the number of hosts.
+ *
+ * <p>At most {@code maxInMemory} URIs are queued in memory. Once that limit is reached, further
+ * URIs are appended to a {@link DiskQueue}, and they are moved back into the per-host queues as
+ * memory becomes available. Hosts are forgotten once they have no queued URIs and their politeness
+ * delay has passed, so the memory used does not grow with the number of hosts crawled over time.
+ *
+ * <p>Times are given in nanoseconds, as returned by {@link System#nanoTime()}. Instances of this
+ * class are not thread-safe.
+ */
+final class Frontier {
+  private static final int GEMINI_PORT = 1965;
+
+  private final DiskQueue overflow;
+  private final int maxInMemory;
+  private final long delayNanos;
+  private final Map<String, Host> hosts = new HashMap<>();
+  /** Hosts which have queued URIs and no request in flight, by the time they may be requested. */
+  private final PriorityQueue<Host> waiting =
+      new PriorityQueue<>(
+          Comparator.<Host, Boolean>comparing(host -> host.delayed)
+              .thenComparingLong(host -> host.nextRequestAt));
+  /** Hosts which have no queued URIs, in the order in which their delays expire. */
+  private final ArrayDeque<Host> idle = new ArrayDeque<>();
+
+  private int inMemory;
+
+  Frontier(final DiskQueue overflow, final int maxInMemory, final long delayNanos) {
+    this.overflow = overflow;
+    this.maxInMemory = maxInMemory;
+    this.delayNanos = delayNanos;
+  }
+
+  /**
+   * Returns the key identifying the host of the given URI for the purposes of politeness.
+   *
+   * @param uri the URI
+   * @return the key identifying the host of the URI
+   */
+  static String hostKey(final URI uri) {
+    final var port = uri.getPort() != -1 ? uri.getPort() : GEMINI_PORT;
+    return uri.getHost().toLowerCase(Locale.ROOT) + ':' + port;
+  }
+
+  /**
+   * Adds a URI to the end of the queue of its host.
+   *
+   * @param uri the URI to add, which must have a host
+   * @throws IOException if the URI needed to be written to disk and could not be
+   */
+  void add(final URI uri) throws IOException {
+    // Once URIs have overflowed to disk, later ones must follow them to keep the crawl order
+    if (inMemory >= maxInMemory || overflow.size() > 0) {
+      overflow.add(uri);
+    } else {
+      enqueue(uri);
+    }
+  }
+
+  /**
+   * Removes and returns the next URI which may be requested at the given time. The host of the URI
+   * is considered busy until {@link #release(URI, long)} is called for it.
+   *
+   * @param now the current time
+   * @return the next URI which may be requested, or {@code null} if there is none
+   * @throws IOException if URIs needed to be read from disk and could not be
+   */
+  @Nullable
+  URI poll(final long now) throws IOException {
+    expireIdleHosts(now);
+    if (inMemory <= maxInMemory / 2) {
+      refill();
+    }
+    final var host = waiting.peek();
+    if (host == null || !host.isReady(now)) {
+      return null;
+    }
+    waiting.remove();
+    host.busy = true;
+    inMemory--;
+    return host.queue.remove();
+  }
+
+  /**
+   * Marks the request for the given URI, previously returned by {@link #poll(long)}, as complete,
+   * starting the politeness delay of its host.
+   *
+   * @param uri the URI whose request is complete
+   * @param now the current time
+   */
+  void release(final URI uri, final long now) {
+    final var host = hosts.get(hostKey(uri));
+    if (host == null || !host.busy) {
+      return;
+    }
+    host.busy = false;
+    host.delayed = true;
+    host.nextRequestAt = now + delayNanos;
+    if (host.queue.isEmpty()) {
+      idle.add(host);
+    } else {
+      waiting.add(host);
+    }
+  }
+
+  /**
+   * Returns how long it will be until the next queued URI may be requested, if no request completes
+   * before then.
+   *
+   * @param now the current time
+   * @return the number of nanoseconds until the next queued URI may be requested, or {@link
+   *     Long#MAX_VALUE} if no URI is waiting
+   */
+  long nanosUntilNextRequest(final long now) {
+    final var host = waiting.peek();
+    if (host == null) {
+      return Long.MAX_VALUE;
+    }
+    return host.isReady(now) ? 0 : host.nextRequestAt - now;
+  }
+
+  /** Returns whether there are no queued URIs, either in memory or on disk. */
+  boolean isEmpty() {
+    return inMemory == 0 && overflow.size() == 0;
+  }
+
+  /** The number of queued URIs, both in memory and on disk. */
+  long size() {
+    return inMemory + overflow.size();
+  }
+
+  /** Returns the URIs queued in memory, which must be saved with a checkpoint. */
+  List<URI> inMemory() {
+    final var uris = new ArrayList<URI>(inMemory);
+    for (final var host : hosts.values()) {
+      uris.addAll(host.queue);
+    }
+    return uris;
+  }
+
+  private void enqueue(final URI uri) {
+    final var key = hostKey(uri);
+    var host = hosts.get(key);
+    if (host == null) {
+      host = new Host(key);
+      hosts.put(key, host);
+    }
+    host.queue.add(uri);
+    inMemory++;
+    if (host.queue.size() == 1 && !host.busy) {
+      // The host may still be in the idle queue, where it is skipped once it has URIs again
+      waiting.add(host);
+    }
+  }
+
+  private void refill() throws IOException {
+    URI uri;
+    while (inMemory < maxInMemory && (uri = overflow.poll()) != null) {
+      enqueue(uri);
+    }
+  }
+
+  private void expireIdleHosts(final long now) {
+    Host host;
+    while ((host = idle.peek()) != null && host.isReady(now)) {
+      idle.remove();
+      if (!host.busy && host.queue.isEmpty() && hosts.get(host.key) == host) {
+        hosts.remove(host.key);
+      }
+    }
+  }
+
+  private static final class Host {
+    private final String key;
+    private final ArrayDeque<URI> queue = new ArrayDeque<>();
+    private boolean busy;
+    /** Whether the host has been requested, so that {@link #nextRequestAt} applies. */
+    private boolean delayed;
+
+    private long nextRequestAt;
+
+    private Host(final String key) {
+      this.key = key;
+    }
+
+    private boolean isReady(final long now) {
+      return !delayed || nextRequestAt - now <= 0;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.GeminiStatus.Kind;
+import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.MimeTypeSyntaxException;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.client.GeminiResponse;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodyHandlers;
+
+/**
+ * A cache of the robots.txt rules of each host, holding at most a fixed number of hosts.
+ *
+ * <p>The rules of a host are fetched the first time one of its URIs is checked, and again once they
+ * are older than the TTL. Concurrent checks for the same host share a single fetch. A host whose
+ * robots.txt cannot be fetched, or is not a plain text file, allows every URI.
+ */
+final class RobotsCache {
+  private static final Logger log = LoggerFactory.getLogger(RobotsCache.class);
+  private static final MimeType TEXT_PLAIN = MimeType.of("text", "plain");
+
+  private final GeminiClient client;
+  private final Set<String> userAgents;
+  private final Duration ttl;
+  private final Clock clock;
+  private final Map<String, Entry> entries;
+
+  RobotsCache(
+      final GeminiClient client,
+      final Set<String> userAgents,
+      final int maxEntries,
+      final Duration ttl,
+      final Clock clock) {
+    this.client = client;
+    this.userAgents = userAgents;
+    this.ttl = ttl;
+    this.clock = clock;
+    entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Returns the robots.txt rules of the host of the given URI.
+   *
+   * @param uri the URI whose host's rules to return
+   * @return a future which completes with the rules of the host of the URI; it never completes
+   *     exceptionally
+   */
+  CompletableFuture<RobotsRules> rules(final URI uri) {
+    final var key = Frontier.hostKey(uri);
+    final var now = clock.instant();
+    final CompletableFuture<RobotsRules> future;
+    synchronized (this) {
+      final var entry = entries.get(key);
+      if (entry != null && entry.expiresAt.isAfter(now)) {
+        return entry.rules;
+      }
+      future = new CompletableFuture<>();
+      entries.put(key, new Entry(future, now.plus(ttl)));
+    }
+    fetch(uri.resolve("/robots.txt"), future);
+    return future;
+  }
+
+  private void fetch(final URI robotsUri, final CompletableFuture<RobotsRules> future) {
+    final CompletableFuture<GeminiResponse<String>> response;
+    try {
+      response = client.sendAsync(robotsUri, BodyHandlers.ofString());
+    } catch (final RuntimeException e) {
+      log.debug("Failed to request {}", robotsUri, e);
+      future.complete(RobotsRules.ALLOW_ALL);
+      return;
+    }
+    response.whenComplete(
+        (r, e) -> {
+          if (e != null) {
+            log.debug("Failed to fetch {}", robotsUri, e);
+            future.complete(RobotsRules.ALLOW_ALL);
+          } else if (r.status().kind() == Kind.SUCCESS && isPlainText(r.meta())) {
+            future.complete(RobotsRules.parse(r.body().orElse(""), userAgents));
+          } else {
+            future.complete(RobotsRules.ALLOW_ALL);
+          }
+        });
+  }
+
+  private static boolean isPlainText(final String meta) {
+    try {
+      return MimeType.parse(meta).sameType(TEXT_PLAIN);
+    } catch (final MimeTypeSyntaxException e) {
+      return false;
+    }
+  }
+
+  private static final class Entry {
+    private final CompletableFuture<RobotsRules> rules;
+    private final Instant expiresAt;
+
+    private Entry(final CompletableFuture<RobotsRules> rules, final Instant expiresAt) {
+      this.rules = rules;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The rules of a robots.txt file which apply to a crawler, as described by the Gemini robots.txt
+ * companion specification.
+ *
+ * <p>The file consists of groups of {@code User-agent} lines followed by {@code Disallow} lines.
+ * The rules of every group naming one of the crawler's user agents, or {@code *}, apply to it, and
+ * a URI is disallowed if its path starts with the path of any applicable {@code Disallow} line.
+ */
+final class RobotsRules {
+  /** Rules allowing every URI, used for hosts without a robots.txt file. */
+  static final RobotsRules ALLOW_ALL = new RobotsRules(List.of());
+
+  private final List<String> disallowed;
+
+  private RobotsRules(final List<String> disallowed) {
+    this.disallowed = disallowed;
+  }
+
+  /**
+   * Parses the rules applying to the given user agents from the content of a robots.txt file.
+   *
+   * @param content the content of the file
+   * @param userAgents the user agents of the crawler, in lower case
+   * @return the rules applying to the crawler
+   */
+  static RobotsRules parse(final String content, final Set<String> userAgents) {
+    final var disallowed = new ArrayList<String>();
+    var inAgents = false;
+    var applies = false;
+    for (final var rawLine : content.split("\r?\n")) {
+      final var comment = rawLine.indexOf('#');
+      final var line = (comment != -1 ? rawLine.substring(0, comment) : rawLine).strip();
+      final var colon = line.indexOf(':');
+      if (colon == -1) {
+        continue;
+      }
+      final var field = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+      final var value = line.substring(colon + 1).strip();
+      if (field.equals("user-agent")) {
+        if (!inAgents) {
+          // A User-agent line after the rules of a group starts a new group
+          inAgents = true;
+          applies = false;
+        }
+        final var agent = value.toLowerCase(Locale.ROOT);
+        applies |= agent.equals("*") || userAgents.contains(agent);
+      } else if (field.equals("disallow")) {
+        inAgents = false;
+        if (applies && !value.isEmpty()) {
+          disallowed.add(value);
+        }
+      }
+    }
+    return disallowed.isEmpty() ? ALLOW_ALL : new RobotsRules(List.copyOf(disallowed));
+  }
+
+  /**
+   * Returns whether the crawler may request the given URI.
+   *
+   * @param uri the URI
+   * @return whether the crawler may request the URI
+   */
+  boolean allows(final URI uri) {
+    final var rawPath = uri.getRawPath();
+    final var path = rawPath == null || rawPath.isEmpty() ? "/" : rawPath;
+    for (final var prefix : disallowed) {
+      if (path.startsWith(prefix)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
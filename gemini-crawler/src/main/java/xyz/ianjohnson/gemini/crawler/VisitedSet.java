@@ -0,0 +1,349 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The set of URIs which have been seen by a crawler, with memory use bounded independently of the
+ * number of URIs.
+ *
+ * <p>Each URI is identified by a 128-bit fingerprint taken from its SHA-256 hash. Fingerprints are
+ * first checked against a {@link BloomFilter}, which answers most lookups for new URIs without
+ * touching the disk. Only when the filter reports a possible match is the exact set consulted: the
+ * fingerprints added since the last flush are held in memory, and older ones are stored in sorted
+ * run files which are memory-mapped and binary searched. Each flush writes a new run, and once
+ * there are too many runs the smaller ones are merged. If more URIs are added than the Bloom filter
+ * was sized for, its false positive rate rises and more lookups fall through to the runs, but the
+ * answers remain exact.
+ *
+ * <p>Runs replaced by a merge are not deleted until {@link #deleteObsoleteRuns()} is called, so
+ * that they remain available to a checkpoint which still refers to them.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class VisitedSet {
+  private static final int ENTRY_BYTES = 16;
+  private static final int MAX_RUNS = 8;
+  private static final long MAX_RUN_ENTRIES = Integer.MAX_VALUE / ENTRY_BYTES;
+  private static final String RUN_PREFIX = "visited-";
+  private static final String RUN_SUFFIX = ".run";
+
+  private final Path directory;
+  private final BloomFilter bloomFilter;
+  private final int maxBuffered;
+  private final MessageDigest digest;
+  private final Set<Fingerprint> buffer = new HashSet<>();
+  private final List<Run> runs = new ArrayList<>();
+  private final List<Run> obsoleteRuns = new ArrayList<>();
+  private long nextRunId;
+
+  /**
+   * Opens a visited set.
+   *
+   * @param directory the directory containing the run files
+   * @param bloomFilter the Bloom filter containing every fingerprint in the given runs
+   * @param runNames the names of the run files in the directory belonging to the set
+   * @param maxBuffered the number of fingerprints to buffer in memory before {@link #needsFlush()}
+   *     returns {@code true}
+   * @throws IOException if a run file could not be opened
+   */
+  VisitedSet(
+      final Path directory,
+      final BloomFilter bloomFilter,
+      final List<String> runNames,
+      final int maxBuffered)
+      throws IOException {
+    this.directory = directory;
+    this.bloomFilter = bloomFilter;
+    this.maxBuffered = maxBuffered;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+    for (final var name : runNames) {
+      runs.add(Run.open(directory, name));
+      nextRunId = Math.max(nextRunId, runId(name) + 1);
+    }
+  }
+
+  /**
+   * Returns whether the given file name is that of a run file.
+   *
+   * @param name the file name
+   * @return whether the file name is that of a run file
+   */
+  static boolean isRunFile(final String name) {
+    return name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX);
+  }
+
+  /**
+   * Adds a URI to this set.
+   *
+   * @param uri the URI to add
+   * @return {@code true} if the URI was not already in this set
+   */
+  boolean add(final URI uri) {
+    final var hash =
+        ByteBuffer.wrap(digest.digest(uri.toASCIIString().getBytes(StandardCharsets.US_ASCII)));
+    final var high = hash.getLong();
+    final var low = hash.getLong();
+    final var fingerprint = new Fingerprint(high, low);
+    if (bloomFilter.mightContain(high, low)) {
+      if (buffer.contains(fingerprint)) {
+        return false;
+      }
+      for (final var run : runs) {
+        if (run.contains(high, low)) {
+          return false;
+        }
+      }
+    }
+    bloomFilter.put(high, low);
+    buffer.add(fingerprint);
+    return true;
+  }
+
+  /**
+   * Returns whether enough fingerprints have been buffered in memory that this set should be
+   * flushed.
+   *
+   * @return whether this set should be flushed
+   */
+  boolean needsFlush() {
+    return buffer.size() >= maxBuffered;
+  }
+
+  /**
+   * Writes the fingerprints buffered in memory to a new run file, merging runs if there are too
+   * many.
+   *
+   * @return the names of the run files which now make up this set
+   * @throws IOException if a run file could not be written
+   */
+  List<String> flush() throws IOException {
+    if (!buffer.isEmpty()) {
+      final var fingerprints = buffer.toArray(new Fingerprint[0]);
+      Arrays.sort(fingerprints);
+      final var name = nextRunName();
+      try (final var output = newRunOutput(name)) {
+        for (final var fingerprint : fingerprints) {
+          output.writeLong(fingerprint.high);
+          output.writeLong(fingerprint.low);
+        }
+      }
+      runs.add(Run.open(directory, name));
+      buffer.clear();
+    }
+    if (runs.size() > MAX_RUNS) {
+      merge();
+    }
+    return runs.stream().map(run -> run.name).collect(Collectors.toList());
+  }
+
+  /**
+   * Deletes the run files which have been replaced by merges since the last call to this method.
+   *
+   * @throws IOException if a run file could not be deleted
+   */
+  void deleteObsoleteRuns() throws IOException {
+    for (final var run : obsoleteRuns) {
+      Files.deleteIfExists(directory.resolve(run.name));
+    }
+    obsoleteRuns.clear();
+  }
+
+  /** The Bloom filter of this set, which must be saved alongside its runs. */
+  BloomFilter bloomFilter() {
+    return bloomFilter;
+  }
+
+  /** Merges as many of the smallest runs as fit in a single run. */
+  private void merge() throws IOException {
+    final var candidates = new ArrayList<>(runs);
+    candidates.sort(Comparator.comparingInt(run -> run.count));
+    final var selected = new ArrayList<Run>();
+    var total = 0L;
+    for (final var run : candidates) {
+      if (total + run.count > MAX_RUN_ENTRIES) {
+        break;
+      }
+      selected.add(run);
+      total += run.count;
+    }
+    if (selected.size() < 2) {
+      return;
+    }
+
+    final var name = nextRunName();
+    final var cursors = new PriorityQueue<RunCursor>();
+    for (final var run : selected) {
+      if (run.count > 0) {
+        cursors.add(new RunCursor(run));
+      }
+    }
+    try (final var output = newRunOutput(name)) {
+      var first = true;
+      var lastHigh = 0L;
+      var lastLow = 0L;
+      RunCursor cursor;
+      while ((cursor = cursors.poll()) != null) {
+        final var high = cursor.high();
+        final var low = cursor.low();
+        if (first || high != lastHigh || low != lastLow) {
+          output.writeLong(high);
+          output.writeLong(low);
+          first = false;
+          lastHigh = high;
+          lastLow = low;
+        }
+        if (cursor.advance()) {
+          cursors.add(cursor);
+        }
+      }
+    }
+    runs.removeAll(selected);
+    runs.add(Run.open(directory, name));
+    obsoleteRuns.addAll(selected);
+  }
+
+  private String nextRunName() {
+    return RUN_PREFIX + nextRunId++ + RUN_SUFFIX;
+  }
+
+  private DataOutputStream newRunOutput(final String name) throws IOException {
+    return new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(directory.resolve(name))));
+  }
+
+  private static long runId(final String name) {
+    return Long.parseLong(name.substring(RUN_PREFIX.length(), name.length() - RUN_SUFFIX.length()));
+  }
+
+  private static int compare(
+      final long high, final long low, final long otherHigh, final long otherLow) {
+    final var result = Long.compareUnsigned(high, otherHigh);
+    return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+  }
+
+  private static final class Fingerprint implements Comparable<Fingerprint> {
+    private final long high;
+    private final long low;
+
+    private Fingerprint(final long high, final long low) {
+      this.high = high;
+      this.low = low;
+    }
+
+    @Override
+    public int compareTo(final Fingerprint o) {
+      return compare(high, low, o.high, o.low);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Fingerprint)) {
+        return false;
+      }
+      final var other = (Fingerprint) o;
+      return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+      // The fingerprint is already a hash
+      return (int) low;
+    }
+  }
+
+  /** A sorted run of fingerprints in a memory-mapped file. */
+  private static final class Run {
+    private final String name;
+    private final MappedByteBuffer entries;
+    private final int count;
+
+    private Run(final String name, final MappedByteBuffer entries) {
+      this.name = name;
+      this.entries = entries;
+      this.count = entries.capacity() / ENTRY_BYTES;
+    }
+
+    static Run open(final Path directory, final String name) throws IOException {
+      try (final var channel = FileChannel.open(directory.resolve(name))) {
+        return new Run(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+    }
+
+    boolean contains(final long high, final long low) {
+      var lo = 0;
+      var hi = count - 1;
+      while (lo <= hi) {
+        final var mid = (lo + hi) >>> 1;
+        final var result = compare(high(mid), low(mid), high, low);
+        if (result < 0) {
+          lo = mid + 1;
+        } else if (result > 0) {
+          hi = mid - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    long high(final int index) {
+      return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    long low(final int index) {
+      return entries.getLong(index * ENTRY_BYTES + Long.BYTES);
+    }
+  }
+
+  private static final class RunCursor implements Comparable<RunCursor> {
+    private final Run run;
+    private int index;
+
+    private RunCursor(final Run run) {
+      this.run = run;
+    }
+
+    long high() {
+      return run.high(index);
+    }
+
+    long low() {
+      return run.low(index);
+    }
+
+    boolean advance() {
+      return ++index < run.count;
+    }
+
+    @Override
+    public int compareTo(final RunCursor o) {
+      return compare(high(), low(), o.high(), o.low());
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.client.GeminiResponse;
+import xyz.ianjohnson.gemini.client.testing.TestServer;
+
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+public class CrawlerTest {
+  private static final Map<String, String> SITE =
+      Map.of(
+          "/robots.txt", "20 text/plain\r\nUser-agent: *\nDisallow: /secret\n",
+          "/", "20 text/gemini\r\n=> a.gmi\n=> /b.gmi#section\n=> secret/page.gmi\n",
+          "/a.gmi", "20 text/gemini\r\n=> /\n=> old.gmi\n=> https://example.com/\n",
+          "/old.gmi", "31 /b.gmi\r\n",
+          "/b.gmi", "20 text/plain\r\n=> /not-a-link.gmi\n");
+
+  private static final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+  private static TestServer server;
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    server =
+        TestServer.tls(
+            socket -> {
+              final var path = URI.create(TestServer.readRequest(socket)).getPath();
+              requests.add(path);
+              final var response = SITE.getOrDefault(path, "51 Not found\r\n");
+              socket.getOutputStream().write(response.getBytes(StandardCharsets.UTF_8));
+              socket.getOutputStream().flush();
+            });
+  }
+
+  @AfterAll
+  public static void stopServer() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void testRun_withSite_crawlsEachAllowedPageOnce(@TempDir final Path tempDir)
+      throws Exception {
+    requests.clear();
+    final var listener = new RecordingListener();
+    try (final var client = newClient();
+        final var crawler = newCrawler(client, tempDir, listener).build()) {
+      crawler.add(server.uri("/"));
+      crawler.run();
+    }
+
+    assertThat(listener.pages)
+        .containsExactlyInAnyOrder(
+            server.uri("/"), server.uri("/a.gmi"), server.uri("/b.gmi"), server.uri("/old.gmi"));
+    assertThat(listener.disallowed).containsExactly(server.uri("/secret/page.gmi"));
+    // The client follows the redirect from /old.gmi to /b.gmi
+    assertThat(requests)
+        .containsExactlyInAnyOrder("/robots.txt", "/", "/a.gmi", "/b.gmi", "/old.gmi", "/b.gmi");
+  }
+
+  @Test
+  public void testOnPage_withGeminiDocument_receivesAbsoluteLinks(@TempDir final Path tempDir)
+      throws Exception {
+    final var links = Collections.synchronizedList(new ArrayList<URI>());
+    try (final var client = newClient();
+        final var crawler =
+            newCrawler(
+                    client,
+                    tempDir,
+                    (uri, response) -> {
+                      if (uri.getPath().equals("/")) {
+                        links.addAll(response.body().orElseThrow());
+                      }
+                    })
+                .build()) {
+      crawler.add(server.uri("/"));
+      crawler.run();
+    }
+
+    assertThat(links)
+        .containsExactly(
+            server.uri("/a.gmi"), server.uri("/b.gmi#section"), server.uri("/secret/page.gmi"));
+  }
+
+  @Test
+  public void testBuild_afterStoppedCrawlClosed_resumesCrawl(@TempDir final Path tempDir)
+      throws Exception {
+    final var listener = new RecordingListener();
+    try (final var client = newClient()) {
+      try (final var crawler = newCrawler(client, tempDir, listener).build()) {
+        listener.onFirstPage = crawler::stop;
+        crawler.add(server.uri("/"));
+        crawler.run();
+      }
+      assertThat(listener.pages).hasSize(1);
+
+      listener.onFirstPage = () -> {};
+      try (final var crawler = newCrawler(client, tempDir, listener).build()) {
+        assertThat(crawler.add(server.uri("/"))).isFalse();
+        crawler.run();
+      }
+    }
+
+    assertThat(new HashSet<>(listener.pages))
+        .containsExactlyInAnyOrder(
+            server.uri("/"), server.uri("/a.gmi"), server.uri("/b.gmi"), server.uri("/old.gmi"));
+  }
+
+  private static GeminiClient newClient() {
+    return GeminiClient.newBuilder().trustManager(TestServer.TRUST_ALL).build();
+  }
+
+  private static Crawler.Builder newCrawler(
+      final GeminiClient client, final Path directory, final CrawlListener listener) {
+    return Crawler.newBuilder(client, directory, listener)
+        .politenessDelay(Duration.ZERO)
+        .expectedUris(100);
+  }
+
+  private static final class RecordingListener implements CrawlListener {
+    private final List<URI> pages = Collections.synchronizedList(new ArrayList<>());
+    private final Set<URI> disallowed = Collections.synchronizedSet(new HashSet<>());
+    private volatile Runnable onFirstPage = () -> {};
+
+    @Override
+    public void onPage(final URI uri, final GeminiResponse<List<URI>> response) {
+      pages.add(uri);
+      if (pages.size() == 1) {
+        onFirstPage.run();
+      }
+    }
+
+    @Override
+    public void onDisallowed(final URI uri) {
+      disallowed.add(uri);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskQueueTest {
+  @Test
+  public void testPoll_withUrisAcrossSegments_returnsUrisInOrder(@TempDir final Path tempDir)
+      throws Exception {
+    try (final var queue = DiskQueue.open(tempDir, 64, DiskQueue.Position.START)) {
+      for (var i = 0; i < 20; i++) {
+        queue.add(uri(i));
+      }
+      for (var i = 0; i < 10; i++) {
+        assertThat(queue.poll()).isEqualTo(uri(i));
+      }
+      queue.add(uri(20));
+      for (var i = 10; i <= 20; i++) {
+        assertThat(queue.poll()).isEqualTo(uri(i));
+      }
+
+      assertThat(queue.poll()).isNull();
+      assertThat(queue.size()).isZero();
+    }
+  }
+
+  @Test
+  public void testPoll_movingIntoUnflushedTailSegment_returnsBufferedUris(
+      @TempDir final Path tempDir) throws Exception {
+    // Each URI is 23 bytes long, so every second URI starts a new segment
+    try (final var queue = DiskQueue.open(tempDir, 40, DiskQueue.Position.START)) {
+      queue.add(uri(0));
+      queue.add(uri(1));
+      queue.add(uri(2));
+
+      assertThat(queue.poll()).isEqualTo(uri(0));
+      assertThat(queue.poll()).isEqualTo(uri(1));
+      assertThat(queue.poll()).isEqualTo(uri(2));
+      assertThat(queue.poll()).isNull();
+    }
+  }
+
+  @Test
+  public void testDeleteSegmentsBefore_withReadSegments_deletesOnlyReadSegments(
+      @TempDir final Path tempDir) throws Exception {
+    try (final var queue = DiskQueue.open(tempDir, 64, DiskQueue.Position.START)) {
+      for (var i = 0; i < 20; i++) {
+        queue.add(uri(i));
+      }
+      final var segmentsBefore = segmentCount(tempDir);
+      for (var i = 0; i < 10; i++) {
+        queue.poll();
+      }
+      queue.deleteSegmentsBefore(queue.position().headSegment);
+
+      assertThat(segmentCount(tempDir)).isBetween(1L, segmentsBefore - 1);
+      for (var i = 10; i < 20; i++) {
+        assertThat(queue.poll()).isEqualTo(uri(i));
+      }
+    }
+  }
+
+  @Test
+  public void testOpen_atEarlierPosition_discardsLaterChanges(@TempDir final Path tempDir)
+      throws Exception {
+    final DiskQueue.Position position;
+    try (final var queue = DiskQueue.open(tempDir, 1024, DiskQueue.Position.START)) {
+      queue.add(uri(0));
+      queue.add(uri(1));
+      position = queue.position();
+      queue.add(uri(2));
+      queue.poll();
+    }
+
+    try (final var queue = DiskQueue.open(tempDir, 1024, position)) {
+      assertThat(queue.size()).isEqualTo(2);
+      assertThat(queue.poll()).isEqualTo(uri(0));
+      assertThat(queue.poll()).isEqualTo(uri(1));
+      assertThat(queue.poll()).isNull();
+    }
+  }
+
+  private static URI uri(final int i) {
+    return URI.create("gemini://gemini.test/" + i);
+  }
+
+  private static long segmentCount(final Path directory) throws Exception {
+    try (final var files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
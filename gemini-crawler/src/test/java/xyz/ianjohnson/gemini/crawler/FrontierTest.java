@@ -0,0 +1,62 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FrontierTest {
+  private static final long DELAY = 1000;
+
+  @Test
+  public void testPoll_withBusyHost_returnsUriOfOtherHost(@TempDir final Path tempDir)
+      throws Exception {
+    try (final var queue = DiskQueue.open(tempDir, 1024, DiskQueue.Position.START)) {
+      final var frontier = new Frontier(queue, 100, DELAY);
+      frontier.add(URI.create("gemini://a.test/1"));
+      frontier.add(URI.create("gemini://a.test/2"));
+      frontier.add(URI.create("gemini://b.test/1"));
+
+      assertThat(frontier.poll(0)).isEqualTo(URI.create("gemini://a.test/1"));
+      assertThat(frontier.poll(0)).isEqualTo(URI.create("gemini://b.test/1"));
+      assertThat(frontier.poll(0)).isNull();
+    }
+  }
+
+  @Test
+  public void testPoll_afterRelease_waitsForPolitenessDelay(@TempDir final Path tempDir)
+      throws Exception {
+    try (final var queue = DiskQueue.open(tempDir, 1024, DiskQueue.Position.START)) {
+      final var frontier = new Frontier(queue, 100, DELAY);
+      frontier.add(URI.create("gemini://a.test/1"));
+      frontier.add(URI.create("gemini://A.test:1965/2"));
+
+      final var first = frontier.poll(0);
+      frontier.release(first, 10);
+
+      assertThat(frontier.poll(10 + DELAY - 1)).isNull();
+      assertThat(frontier.nanosUntilNextRequest(10 + DELAY - 1)).isEqualTo(1);
+      assertThat(frontier.poll(10 + DELAY)).isEqualTo(URI.create("gemini://A.test:1965/2"));
+    }
+  }
+
+  @Test
+  public void testAdd_beyondMemoryLimit_spillsToDiskAndRefills(@TempDir final Path tempDir)
+      throws Exception {
+    try (final var queue = DiskQueue.open(tempDir, 1024, DiskQueue.Position.START)) {
+      final var frontier = new Frontier(queue, 2, DELAY);
+      for (var i = 0; i < 10; i++) {
+        frontier.add(URI.create("gemini://host" + i + ".test/"));
+      }
+
+      assertThat(frontier.inMemory()).hasSize(2);
+      assertThat(frontier.size()).isEqualTo(10);
+      for (var i = 0; i < 10; i++) {
+        assertThat(frontier.poll(0)).isEqualTo(URI.create("gemini://host" + i + ".test/"));
+      }
+      assertThat(frontier.isEmpty()).isTrue();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class RobotsRulesTest {
+  private static final String ROBOTS =
+      "# Rules for everyone\n"
+          + "User-agent: *\n"
+          + "Disallow: /private\n"
+          + "\n"
+          + "User-agent: archiver\n"
+          + "User-agent: indexer\n"
+          + "Disallow: /logs/ # Too big\n"
+          + "\n"
+          + "User-agent: webproxy\n"
+          + "Disallow: /\n";
+
+  @Test
+  public void testAllows_withMatchingAgentGroups_appliesRulesOfEachGroup() {
+    final var rules = RobotsRules.parse(ROBOTS, Set.of("indexer"));
+
+    assertThat(rules.allows(URI.create("gemini://gemini.test/"))).isTrue();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/private/page.gmi"))).isFalse();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/logs/today.txt"))).isFalse();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/logs"))).isTrue();
+  }
+
+  @Test
+  public void testAllows_withoutMatchingAgent_appliesOnlyWildcardRules() {
+    final var rules = RobotsRules.parse(ROBOTS, Set.of());
+
+    assertThat(rules.allows(URI.create("gemini://gemini.test"))).isTrue();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/private"))).isFalse();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/logs/today.txt"))).isTrue();
+  }
+
+  @Test
+  public void testAllows_withDisallowAll_disallowsEveryUri() {
+    final var rules = RobotsRules.parse(ROBOTS, Set.of("webproxy"));
+
+    assertThat(rules.allows(URI.create("gemini://gemini.test"))).isFalse();
+    assertThat(rules.allows(URI.create("gemini://gemini.test/page.gmi"))).isFalse();
+  }
+}
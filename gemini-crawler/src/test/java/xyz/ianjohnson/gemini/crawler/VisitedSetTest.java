@@ -0,0 +1,79 @@
+package xyz.ianjohnson.gemini.crawler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class VisitedSetTest {
+  @Test
+  public void testAdd_withMoreUrisThanBloomFilterCapacity_remainsExact(@TempDir final Path tempDir)
+      throws Exception {
+    final var visited = new VisitedSet(tempDir, BloomFilter.create(10, 0.1), List.of(), 100);
+    for (var i = 0; i < 2000; i++) {
+      assertThat(visited.add(uri(i))).isTrue();
+      if (visited.needsFlush()) {
+        visited.flush();
+      }
+    }
+
+    for (var i = 0; i < 2000; i++) {
+      assertThat(visited.add(uri(i))).isFalse();
+    }
+    assertThat(visited.add(uri(2000))).isTrue();
+  }
+
+  @Test
+  public void testFlush_withManyRuns_mergesRuns(@TempDir final Path tempDir) throws Exception {
+    final var visited = new VisitedSet(tempDir, BloomFilter.create(1000, 0.01), List.of(), 10);
+    List<String> runs = List.of();
+    for (var i = 0; i < 200; i++) {
+      visited.add(uri(i));
+      if (visited.needsFlush()) {
+        runs = visited.flush();
+      }
+    }
+    visited.deleteObsoleteRuns();
+
+    assertThat(runs).hasSizeLessThanOrEqualTo(9);
+    assertThat(runFiles(tempDir)).containsExactlyInAnyOrderElementsOf(runs);
+    for (var i = 0; i < 200; i++) {
+      assertThat(visited.add(uri(i))).isFalse();
+    }
+  }
+
+  @Test
+  public void testOpen_withSavedBloomFilterAndRuns_remembersUris(@TempDir final Path tempDir)
+      throws Exception {
+    final var visited = new VisitedSet(tempDir, BloomFilter.create(100, 0.01), List.of(), 100);
+    visited.add(uri(1));
+    visited.add(uri(2));
+    final var runs = visited.flush();
+    visited.bloomFilter().writeTo(tempDir.resolve("visited.bloom"));
+
+    final var reopened =
+        new VisitedSet(tempDir, BloomFilter.readFrom(tempDir.resolve("visited.bloom")), runs, 100);
+
+    assertThat(reopened.add(uri(1))).isFalse();
+    assertThat(reopened.add(uri(2))).isFalse();
+    assertThat(reopened.add(uri(3))).isTrue();
+  }
+
+  private static URI uri(final int i) {
+    return URI.create("gemini://gemini.test/page/" + i);
+  }
+
+  private static List<String> runFiles(final Path directory) throws Exception {
+    try (final var files = Files.list(directory)) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(VisitedSet::isRunFile)
+          .collect(Collectors.toList());
+    }
+  }
+}
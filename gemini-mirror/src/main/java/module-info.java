@@ -0,0 +1,14 @@
+module xyz.ianjohnson.gemini.mirror {
+  requires static auto.value.annotations;
+  requires static java.compiler;
+  requires transitive xyz.ianjohnson.gemini.client;
+  requires transitive xyz.ianjohnson.gemini.server;
+  requires info.picocli;
+  requires org.slf4j;
+
+  exports xyz.ianjohnson.gemini.mirror;
+  exports xyz.ianjohnson.gemini.mirror.cli;
+
+  opens xyz.ianjohnson.gemini.mirror.cli to
+      info.picocli;
+}
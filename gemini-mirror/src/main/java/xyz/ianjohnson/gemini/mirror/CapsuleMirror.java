@@ -0,0 +1,383 @@
+package xyz.ianjohnson.gemini.mirror;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.GeminiStatus;
+import xyz.ianjohnson.gemini.MimeType;
+import xyz.ianjohnson.gemini.Nullable;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.client.GeminiResponse;
+import xyz.ianjohnson.gemini.client.RequestOptions;
+import xyz.ianjohnson.gemini.server.MirrorHandler;
+import xyz.ianjohnson.gemini.server.MirrorManifest;
+import xyz.ianjohnson.gemini.server.MirrorManifest.Entry;
+
+/**
+ * Mirrors a capsule to a local directory, which can then be served using a {@link MirrorHandler}.
+ *
+ * <p>Starting from a root URI, the mirror follows the links of each Gemini document it fetches, as
+ * well as redirects, to every page on the same host and port. Redirects are recorded as-is rather
+ * than followed by the client, so that serving the mirror replays them. Up to a configurable number
+ * of requests are in flight at once, and each response body is written to a file as it is received,
+ * hashed along the way, and scanned for links if it is a Gemini document.
+ *
+ * <p>Bodies are stored under their hashes, as described by {@link MirrorManifest}. When an existing
+ * mirror is refreshed, a body which is already stored is discarded rather than written again, and
+ * the manifest is only replaced once all pages have been fetched. Pages which cannot be fetched
+ * (including those receiving a temporary failure response) keep their previous entry, while pages
+ * which are no longer linked are removed from the mirror along with any bodies which are no longer
+ * referenced.
+ */
+public final class CapsuleMirror {
+  private static final String GEMINI_SCHEME = "gemini";
+  private static final int GEMINI_PORT = 1965;
+  private static final RequestOptions REQUEST_OPTIONS =
+      RequestOptions.newBuilder().followRedirects(false).build();
+  private static final Logger log = LoggerFactory.getLogger(CapsuleMirror.class);
+
+  private final GeminiClient client;
+  private final URI root;
+  private final Path directory;
+  private final Path tempDirectory;
+  private final int maxParallelism;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final AtomicLong tempFiles = new AtomicLong();
+  private final ArrayDeque<URI> pending = new ArrayDeque<>();
+  private final Set<String> seen = new HashSet<>();
+  private final Map<String, Entry> entries = new HashMap<>();
+  private long run;
+  private int inFlight;
+  private long pagesFetched;
+  private long bodiesWritten;
+  private long bodiesUnchanged;
+  private long failures;
+  private MirrorManifest previous;
+
+  private CapsuleMirror(final Builder builder) {
+    client = builder.client;
+    root = builder.root;
+    directory = builder.directory;
+    tempDirectory = directory.resolve("tmp");
+    maxParallelism = builder.maxParallelism;
+  }
+
+  /**
+   * Returns a new {@link CapsuleMirror.Builder}.
+   *
+   * @param client the client to use to fetch pages
+   * @param root the URI from which to start mirroring. Only pages on the same host and port are
+   *     mirrored.
+   * @param directory the directory in which to store the mirror
+   * @return a new {@link CapsuleMirror.Builder}
+   */
+  public static Builder newBuilder(
+      final GeminiClient client, final URI root, final Path directory) {
+    return new Builder(client, root, directory);
+  }
+
+  /**
+   * Fetches every page of the capsule and updates the mirror directory. A mirror may only be run
+   * once at a time.
+   *
+   * @return statistics about the run
+   * @throws IOException if the mirror directory could not be read or written
+   * @throws InterruptedException if the calling thread is interrupted, in which case the manifest
+   *     is left unchanged
+   */
+  public MirrorStatistics mirror() throws IOException, InterruptedException {
+    lock.lock();
+    try {
+      if (previous != null) {
+        throw new IllegalStateException("Mirror already running");
+      }
+      Files.createDirectories(directory);
+      previous = MirrorManifest.read(directory);
+      deleteTree(tempDirectory);
+      Files.createDirectories(tempDirectory);
+      run++;
+      addLink(root);
+
+      while (!pending.isEmpty() || inFlight > 0) {
+        while (inFlight < maxParallelism && !pending.isEmpty()) {
+          fetch(pending.remove());
+        }
+        changed.await();
+      }
+
+      final var manifest = MirrorManifest.of(entries.values());
+      manifest.write(directory);
+      deleteUnreferencedBodies(manifest);
+      deleteTree(tempDirectory);
+      return MirrorStatistics.newBuilder()
+          .pagesFetched(pagesFetched)
+          .bodiesWritten(bodiesWritten)
+          .bodiesUnchanged(bodiesUnchanged)
+          .failures(failures)
+          .build();
+    } finally {
+      pending.clear();
+      seen.clear();
+      entries.clear();
+      inFlight = 0;
+      pagesFetched = bodiesWritten = bodiesUnchanged = failures = 0;
+      previous = null;
+      // Responses to requests still in flight from an interrupted run are ignored
+      run++;
+      lock.unlock();
+    }
+  }
+
+  /** Sends a request for the given URI. Must be called while holding the lock. */
+  private void fetch(final URI uri) {
+    final var fetchRun = run;
+    inFlight++;
+    final var target = MirrorManifest.target(uri);
+    client
+        .sendAsync(
+            uri,
+            mimeType ->
+                new FileBodySubscriber(
+                    tempDirectory.resolve("body-" + tempFiles.incrementAndGet()),
+                    mimeType.sameType(MimeType.TEXT_GEMINI)
+                        ? mimeType.charset(StandardCharsets.UTF_8)
+                        : null,
+                    uri),
+            REQUEST_OPTIONS)
+        .whenComplete(
+            (response, e) -> {
+              // The lock must not be held while the body is moved into place
+              Result result = null;
+              if (e != null) {
+                log.atWarn().setCause(e).addKeyValue("uri", uri).log("Failed to fetch page");
+              } else {
+                try {
+                  result = store(uri, target, response);
+                } catch (final RuntimeException storeException) {
+                  log.atWarn()
+                      .setCause(storeException)
+                      .addKeyValue("uri", uri)
+                      .log("Failed to store response");
+                }
+              }
+              lock.lock();
+              try {
+                if (fetchRun != run) {
+                  return;
+                }
+                inFlight--;
+                if (result == null) {
+                  failures++;
+                  previous.get(target).ifPresent(entry -> entries.put(target, entry));
+                } else {
+                  pagesFetched++;
+                  if (result.bodyWritten) {
+                    bodiesWritten++;
+                  } else if (result.bodyUnchanged) {
+                    bodiesUnchanged++;
+                  }
+                  entries.put(target, result.entry);
+                  result.links.forEach(this::addLink);
+                }
+                changed.signalAll();
+              } finally {
+                lock.unlock();
+              }
+            });
+  }
+
+  /**
+   * Moves the body of the given response into place, if it has one, and returns the entry for it,
+   * or {@code null} if the response should be treated as a failure.
+   */
+  private @Nullable Result store(
+      final URI uri, final String target, final GeminiResponse<StoredBody> response) {
+    final GeminiStatus status = response.status();
+    switch (status.kind()) {
+      case TEMPORARY_FAILURE:
+        log.atWarn()
+            .addKeyValue("uri", uri)
+            .addKeyValue("status", status.code())
+            .log("Temporary failure; keeping previous response");
+        return null;
+      case REDIRECT:
+        final URI location;
+        try {
+          location = uri.resolve(response.meta());
+        } catch (final IllegalArgumentException e) {
+          return new Result(
+              Entry.of(target, status, response.meta(), null, 0), List.of(), false, false);
+        }
+        // A redirect within the capsule is stored as a path, so that serving the mirror does not
+        // send clients back to the original host
+        final var meta = isInCapsule(location) ? MirrorManifest.target(location) : response.meta();
+        return new Result(Entry.of(target, status, meta, null, 0), List.of(location), false, false);
+      case SUCCESS:
+        final var body = response.body().orElseThrow();
+        final boolean unchanged;
+        try {
+          final var bodyPath = MirrorManifest.bodyPath(directory, body.sha256);
+          if (Files.exists(bodyPath)) {
+            Files.delete(body.file);
+            unchanged = true;
+          } else {
+            Files.createDirectories(bodyPath.getParent());
+            Files.move(
+                body.file,
+                bodyPath,
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            unchanged = false;
+          }
+        } catch (final IOException e) {
+          log.atWarn().setCause(e).addKeyValue("uri", uri).log("Failed to store body");
+          return null;
+        }
+        return new Result(
+            Entry.of(target, status, response.meta(), body.sha256, body.size),
+            body.links,
+            !unchanged,
+            unchanged);
+      default:
+        return new Result(
+            Entry.of(target, status, response.meta(), null, 0), List.of(), false, false);
+    }
+  }
+
+  /** Queues a linked URI if it is part of the capsule. Must be called while holding the lock. */
+  private void addLink(final URI link) {
+    if (!isInCapsule(link)) {
+      return;
+    }
+    final URI withoutFragment;
+    final String target;
+    try {
+      withoutFragment =
+          new URI(link.getScheme(), link.getRawSchemeSpecificPart(), null).normalize();
+      target = MirrorManifest.target(withoutFragment);
+    } catch (final URISyntaxException | IllegalArgumentException e) {
+      return;
+    }
+    if (seen.add(target)) {
+      pending.add(withoutFragment);
+    }
+  }
+
+  /** Returns whether the given URI is on the same host and port as the root of the mirror. */
+  private boolean isInCapsule(final URI uri) {
+    return GEMINI_SCHEME.equalsIgnoreCase(uri.getScheme())
+        && uri.getHost() != null
+        && uri.getHost().equalsIgnoreCase(root.getHost())
+        && port(uri) == port(root);
+  }
+
+  private static int port(final URI uri) {
+    return uri.getPort() != -1 ? uri.getPort() : GEMINI_PORT;
+  }
+
+  private void deleteUnreferencedBodies(final MirrorManifest manifest) throws IOException {
+    final var bodies = directory.resolve("bodies");
+    if (!Files.isDirectory(bodies)) {
+      return;
+    }
+    final var referenced =
+        manifest.entries().stream()
+            .flatMap(entry -> entry.sha256().stream())
+            .collect(Collectors.toSet());
+    try (final Stream<Path> files = Files.walk(bodies)) {
+      for (final var file : (Iterable<Path>) files::iterator) {
+        if (Files.isRegularFile(file) && !referenced.contains(file.getFileName().toString())) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private static void deleteTree(final Path root) throws IOException {
+    if (!Files.exists(root)) {
+      return;
+    }
+    try (final Stream<Path> files = Files.walk(root)) {
+      final var paths = files.collect(Collectors.toList());
+      for (var i = paths.size() - 1; i >= 0; i--) {
+        Files.delete(paths.get(i));
+      }
+    }
+  }
+
+  /** The outcome of a fetched page. */
+  private static final class Result {
+    private final Entry entry;
+    private final List<URI> links;
+    private final boolean bodyWritten;
+    private final boolean bodyUnchanged;
+
+    private Result(
+        final Entry entry,
+        final List<URI> links,
+        final boolean bodyWritten,
+        final boolean bodyUnchanged) {
+      this.entry = entry;
+      this.links = links;
+      this.bodyWritten = bodyWritten;
+      this.bodyUnchanged = bodyUnchanged;
+    }
+  }
+
+  /** A builder for {@link CapsuleMirror CapsuleMirrors}. */
+  public static final class Builder {
+    private final GeminiClient client;
+    private final URI root;
+    private final Path directory;
+    private int maxParallelism = 8;
+
+    private Builder(final GeminiClient client, final URI root, final Path directory) {
+      this.client = requireNonNull(client, "client");
+      this.directory = requireNonNull(directory, "directory");
+      if (!GEMINI_SCHEME.equalsIgnoreCase(requireNonNull(root, "root").getScheme())
+          || root.getHost() == null) {
+        throw new IllegalArgumentException("root must be an absolute gemini URI");
+      }
+      this.root = root;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight at once. The default is 8.
+     *
+     * @param maxParallelism the maximum number of requests in flight at once
+     * @return {@code this}
+     */
+    public Builder maxParallelism(final int maxParallelism) {
+      if (maxParallelism < 1) {
+        throw new IllegalArgumentException("maxParallelism must be positive");
+      }
+      this.maxParallelism = maxParallelism;
+      return this;
+    }
+
+    public CapsuleMirror build() {
+      return new CapsuleMirror(this);
+    }
+  }
+}
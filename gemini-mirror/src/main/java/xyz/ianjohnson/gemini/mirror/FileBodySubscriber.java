@@ -0,0 +1,153 @@
+package xyz.ianjohnson.gemini.mirror;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import xyz.ianjohnson.gemini.GeminiLinkScanner;
+import xyz.ianjohnson.gemini.Nullable;
+import xyz.ianjohnson.gemini.client.GeminiResponse.BodySubscriber;
+
+/**
+ * A body subscriber which writes each chunk of the body to a file as soon as it is received,
+ * hashing it and scanning it for links along the way, so that the body is never held in memory as a
+ * whole. If the body fails, the file is deleted.
+ */
+final class FileBodySubscriber implements BodySubscriber<StoredBody> {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final Path file;
+  private final GeminiLinkScanner.Incremental scanner;
+  private final List<URI> links = new ArrayList<>();
+  private final MessageDigest digest;
+  private final CompletableFuture<StoredBody> future = new CompletableFuture<>();
+  private FileChannel channel;
+  private Subscription subscription;
+  private long size;
+
+  /**
+   * @param file the file to which to write the body, which must not already exist
+   * @param documentCharset the charset of the body if it is a Gemini document whose links should be
+   *     collected, or {@code null} if it is not
+   * @param base the URI against which to resolve the links
+   */
+  FileBodySubscriber(final Path file, @Nullable final Charset documentCharset, final URI base) {
+    this.file = file;
+    scanner =
+        documentCharset != null
+            ? GeminiLinkScanner.incremental(links::add, documentCharset, base)
+            : null;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java implementation is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String toHex(final byte[] bytes) {
+    final var chars = new char[bytes.length * 2];
+    for (var i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    this.subscription = subscription;
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    } catch (final IOException e) {
+      subscription.cancel();
+      future.completeExceptionally(e);
+      return;
+    }
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(final List<ByteBuffer> item) {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      for (final var buf : item) {
+        size += buf.remaining();
+        digest.update(buf.duplicate());
+        if (scanner != null) {
+          scanner.feed(buf.duplicate());
+        }
+        while (buf.hasRemaining()) {
+          channel.write(buf);
+        }
+      }
+    } catch (final IOException e) {
+      subscription.cancel();
+      fail(e);
+      return;
+    }
+    subscription.request(1);
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    fail(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (final IOException e) {
+      fail(e);
+      return;
+    }
+    if (scanner != null) {
+      scanner.finish();
+    }
+    future.complete(
+        new StoredBody(file, toHex(digest.digest()), size, Collections.unmodifiableList(links)));
+  }
+
+  private void fail(final Throwable throwable) {
+    if (future.isDone()) {
+      return;
+    }
+    if (channel != null) {
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (final IOException e) {
+        throwable.addSuppressed(e);
+      }
+    }
+    future.completeExceptionally(throwable);
+  }
+
+  @Override
+  public CompletionStage<StoredBody> getBody() {
+    return future.minimalCompletionStage();
+  }
+
+  @Override
+  public String toString() {
+    return "FileBodySubscriber{" + "file=" + file + '}';
+  }
+}
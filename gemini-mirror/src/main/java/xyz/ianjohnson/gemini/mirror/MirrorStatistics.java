@@ -0,0 +1,50 @@
+package xyz.ianjohnson.gemini.mirror;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Statistics about a run of a {@link CapsuleMirror}.
+ *
+ * @see CapsuleMirror#mirror()
+ */
+@AutoValue
+public abstract class MirrorStatistics {
+  MirrorStatistics() {}
+
+  static Builder newBuilder() {
+    return new AutoValue_MirrorStatistics.Builder();
+  }
+
+  /** The number of pages for which a response was received. */
+  public abstract long pagesFetched();
+
+  /** The number of response bodies which were not already in the mirror and have been written. */
+  public abstract long bodiesWritten();
+
+  /**
+   * The number of response bodies which were already in the mirror, and so were discarded rather
+   * than written again.
+   */
+  public abstract long bodiesUnchanged();
+
+  /**
+   * The number of pages which could not be fetched. The mirror keeps any previous response for
+   * these pages.
+   */
+  public abstract long failures();
+
+  @AutoValue.Builder
+  abstract static class Builder {
+    Builder() {}
+
+    abstract Builder pagesFetched(long pagesFetched);
+
+    abstract Builder bodiesWritten(long bodiesWritten);
+
+    abstract Builder bodiesUnchanged(long bodiesUnchanged);
+
+    abstract Builder failures(long failures);
+
+    abstract MirrorStatistics build();
+  }
+}
@@ -0,0 +1,20 @@
+package xyz.ianjohnson.gemini.mirror;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+
+/** A response body which has been written to a temporary file. */
+final class StoredBody {
+  final Path file;
+  final String sha256;
+  final long size;
+  final List<URI> links;
+
+  StoredBody(final Path file, final String sha256, final long size, final List<URI> links) {
+    this.file = file;
+    this.sha256 = sha256;
+    this.size = size;
+    this.links = links;
+  }
+}
@@ -0,0 +1,42 @@
+package xyz.ianjohnson.gemini.mirror.cli;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.mirror.CapsuleMirror;
+
+@Command(name = "gemini-mirror")
+public final class GeminiMirrorCli implements Callable<Integer> {
+  @Parameters(index = "0")
+  private URI root;
+
+  @Parameters(index = "1")
+  private Path directory;
+
+  @Option(
+      names = {"-j", "--parallelism"},
+      defaultValue = "8")
+  private int parallelism;
+
+  public static void main(final String... args) {
+    System.exit(new CommandLine(new GeminiMirrorCli()).execute(args));
+  }
+
+  @Override
+  public Integer call() throws Exception {
+    try (final var client = GeminiClient.newGeminiClient()) {
+      final var statistics =
+          CapsuleMirror.newBuilder(client, root, directory)
+              .maxParallelism(parallelism)
+              .build()
+              .mirror();
+      System.out.println(statistics);
+      return statistics.failures() == 0 ? 0 : 1;
+    }
+  }
+}
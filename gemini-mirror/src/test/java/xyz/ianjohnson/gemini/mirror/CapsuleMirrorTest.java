@@ -0,0 +1,149 @@
+package xyz.ianjohnson.gemini.mirror;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.client.GeminiClient;
+import xyz.ianjohnson.gemini.client.testing.TestServer;
+import xyz.ianjohnson.gemini.server.GeminiRequest;
+import xyz.ianjohnson.gemini.server.GeminiResponse;
+import xyz.ianjohnson.gemini.server.MirrorHandler;
+import xyz.ianjohnson.gemini.server.MirrorManifest;
+
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+public class CapsuleMirrorTest {
+  private static final String LARGE_TEXT = "Some text.\n".repeat(10_000);
+
+  private static final Map<String, String> site = new ConcurrentHashMap<>();
+  private static final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+  private static TestServer server;
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    server =
+        TestServer.tls(
+            socket -> {
+              final var path = URI.create(TestServer.readRequest(socket)).getPath();
+              requests.add(path);
+              final var response = site.getOrDefault(path, "51 Not found\r\n");
+              socket.getOutputStream().write(response.getBytes(StandardCharsets.UTF_8));
+              socket.getOutputStream().flush();
+            });
+  }
+
+  @AfterAll
+  public static void stopServer() throws Exception {
+    server.close();
+  }
+
+  @BeforeEach
+  public void resetSite() {
+    site.clear();
+    site.put(
+        "/",
+        "20 text/gemini\r\n=> a.gmi\n=> /b.txt#section\n=> old.gmi\n=> gemini://other.test/\n");
+    site.put("/a.gmi", "20 text/gemini\r\n=> /\n=> b.txt\n=> missing.gmi\n");
+    site.put("/b.txt", "20 text/plain\r\n" + LARGE_TEXT);
+    site.put("/old.gmi", "31 /a.gmi\r\n");
+    requests.clear();
+  }
+
+  @Test
+  public void testMirror_withCapsule_mirrorsEachPageOnceAndIsServable(@TempDir final Path tempDir)
+      throws Exception {
+    final MirrorStatistics statistics;
+    try (final var client = newClient()) {
+      statistics = CapsuleMirror.newBuilder(client, server.uri("/"), tempDir).build().mirror();
+    }
+
+    assertThat(statistics.pagesFetched()).isEqualTo(5);
+    assertThat(statistics.bodiesWritten()).isEqualTo(3);
+    assertThat(statistics.failures()).isZero();
+    // The redirect from /old.gmi is recorded rather than followed
+    assertThat(requests)
+        .containsExactlyInAnyOrder("/", "/a.gmi", "/b.txt", "/old.gmi", "/missing.gmi");
+
+    final var manifest = MirrorManifest.read(tempDir);
+    final var text = manifest.get("/b.txt").orElseThrow();
+    assertThat(text.size()).isEqualTo(LARGE_TEXT.length());
+    assertThat(MirrorManifest.bodyPath(tempDir, text.sha256().orElseThrow()))
+        .hasContent(LARGE_TEXT);
+
+    final var handler = MirrorHandler.open(tempDir);
+    assertThat(handler.apply(newRequest("/b.txt")).meta()).isEqualTo("text/plain");
+    assertThat(handler.apply(newRequest("/old.gmi")))
+        .isEqualTo(GeminiResponse.of(StandardGeminiStatus.PERMANENT_REDIRECT, "/a.gmi"));
+    assertThat(handler.apply(newRequest("/missing.gmi")).status())
+        .isEqualTo(StandardGeminiStatus.NOT_FOUND);
+  }
+
+  @Test
+  public void testMirror_withAbsoluteRedirectWithinCapsule_storesRedirectAsPath(
+      @TempDir final Path tempDir) throws Exception {
+    site.put("/old.gmi", "31 " + server.uri("/a.gmi") + "\r\n");
+    try (final var client = newClient()) {
+      CapsuleMirror.newBuilder(client, server.uri("/"), tempDir).build().mirror();
+    }
+
+    assertThat(MirrorHandler.open(tempDir).apply(newRequest("/old.gmi")))
+        .isEqualTo(GeminiResponse.of(StandardGeminiStatus.PERMANENT_REDIRECT, "/a.gmi"));
+  }
+
+  @Test
+  public void testMirror_withExistingMirror_skipsUnchangedBodiesAndKeepsFailedPages(
+      @TempDir final Path tempDir) throws Exception {
+    try (final var client = newClient()) {
+      final var mirror = CapsuleMirror.newBuilder(client, server.uri("/"), tempDir).build();
+      mirror.mirror();
+      final var oldPage = MirrorManifest.read(tempDir).get("/a.gmi").orElseThrow();
+      site.put("/a.gmi", "20 text/gemini\r\n=> /\n");
+      site.put("/b.txt", "40 Busy\r\n");
+
+      final var statistics = mirror.mirror();
+
+      assertThat(statistics.bodiesWritten()).isEqualTo(1);
+      assertThat(statistics.bodiesUnchanged()).isEqualTo(1);
+      assertThat(statistics.failures()).isEqualTo(1);
+      final var manifest = MirrorManifest.read(tempDir);
+      assertThat(manifest.get("/b.txt").orElseThrow().status())
+          .isEqualTo(StandardGeminiStatus.SUCCESS);
+      assertThat(MirrorManifest.bodyPath(tempDir, oldPage.sha256().orElseThrow())).doesNotExist();
+      // /missing.gmi is no longer linked from any page
+      assertThat(manifest.get("/missing.gmi")).isEmpty();
+      assertThat(tempDir.resolve("tmp")).doesNotExist();
+      try (final var bodies = Files.walk(tempDir.resolve("bodies"))) {
+        assertThat(bodies.filter(Files::isRegularFile)).hasSize(3);
+      }
+    }
+  }
+
+  private static GeminiClient newClient() {
+    return GeminiClient.newBuilder().trustManager(TestServer.TRUST_ALL).build();
+  }
+
+  private static GeminiRequest newRequest(final String path) {
+    final var address = new InetSocketAddress(0);
+    return GeminiRequest.newBuilder()
+        .localAddress(address)
+        .remoteAddress(address)
+        .uri(server.uri(path))
+        .build();
+  }
+}
@@ -4,21 +4,28 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.KeyStore;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 import javax.net.ssl.KeyManagerFactory;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import xyz.ianjohnson.gemini.MimeType;
 import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.server.GeminiRequest;
 import xyz.ianjohnson.gemini.server.GeminiResponse;
 import xyz.ianjohnson.gemini.server.GeminiResponse.BodyPublishers;
 import xyz.ianjohnson.gemini.server.GeminiServer;
+import xyz.ianjohnson.gemini.server.MirrorHandler;
 
 @Command(name = "gemini-server")
 public final class GeminiServerCli implements Callable<Integer> {
   @Parameters(index = "0")
   private Path keyStorePath;
 
+  @Option(names = "--mirror")
+  private Path mirrorDirectory;
+
   public static void main(final String... args) {
     new CommandLine(new GeminiServerCli()).execute(args);
   }
@@ -32,15 +39,15 @@ public final class GeminiServerCli implements Callable<Integer> {
     final var keyManagerFactory = KeyManagerFactory.getInstance("PKIX");
     keyManagerFactory.init(keyStore, "changeit".toCharArray());
 
-    final var server =
-        GeminiServer.newBuilder(
-                r ->
-                    GeminiResponse.of(
-                        StandardGeminiStatus.SUCCESS,
-                        MimeType.TEXT_GEMINI.toString(),
-                        BodyPublishers.ofString("Hello, world!")),
-                keyManagerFactory)
-            .build();
+    final Function<GeminiRequest, GeminiResponse> handler =
+        mirrorDirectory != null
+            ? MirrorHandler.open(mirrorDirectory)
+            : r ->
+                GeminiResponse.of(
+                    StandardGeminiStatus.SUCCESS,
+                    MimeType.TEXT_GEMINI.toString(),
+                    BodyPublishers.ofString("Hello, world!"));
+    final var server = GeminiServer.newBuilder(handler, keyManagerFactory).build();
     server.start().get();
     server.closeFuture().get();
     return 0;
@@ -7,6 +7,7 @@ module xyz.ianjohnson.gemini.server {
   requires io.netty.common;
   requires io.netty.handler;
   requires io.netty.transport;
+  requires jdk.jfr;
   requires org.slf4j;
 
   exports xyz.ianjohnson.gemini.server;
@@ -1,11 +1,16 @@
 package xyz.ianjohnson.gemini.server;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class BodyPublisherImpls {
   private BodyPublisherImpls() {}
@@ -68,4 +73,101 @@ final class BodyPublisherImpls {
       return "OfByteArray{" + "bytes=" + Arrays.toString(bytes) + '}';
     }
   }
+
+  static class OfFile implements Publisher<ByteBuffer> {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final Path path;
+
+    OfFile(final Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+      final FileChannel channel;
+      try {
+        channel = FileChannel.open(path);
+      } catch (final IOException e) {
+        subscriber.onSubscribe(
+            new Subscription() {
+              @Override
+              public void request(final long n) {}
+
+              @Override
+              public void cancel() {}
+            });
+        subscriber.onError(e);
+        return;
+      }
+      subscriber.onSubscribe(new FileSubscription(channel, subscriber));
+    }
+
+    @Override
+    public String toString() {
+      return "OfFile{" + "path=" + path + '}';
+    }
+
+    /** Reads a chunk of the file for each item requested, on the requesting thread. */
+    private static final class FileSubscription implements Subscription {
+      private final FileChannel channel;
+      private final Subscriber<? super ByteBuffer> subscriber;
+      private final AtomicLong demand = new AtomicLong();
+      private final AtomicInteger emitting = new AtomicInteger();
+      private volatile boolean done;
+
+      private FileSubscription(
+          final FileChannel channel, final Subscriber<? super ByteBuffer> subscriber) {
+        this.channel = channel;
+        this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(final long n) {
+        if (n <= 0) {
+          cancel();
+          subscriber.onError(new IllegalArgumentException("Requested items must be positive"));
+          return;
+        }
+        demand.getAndAccumulate(
+            n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+        // Items requested from within onNext are emitted by the loop already running
+        if (emitting.getAndIncrement() != 0) {
+          return;
+        }
+        do {
+          while (!done && demand.get() > 0) {
+            final var chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            final int read;
+            try {
+              read = channel.read(chunk);
+            } catch (final IOException e) {
+              if (!done) {
+                cancel();
+                subscriber.onError(e);
+              }
+              return;
+            }
+            if (read == -1) {
+              cancel();
+              subscriber.onComplete();
+              return;
+            }
+            demand.decrementAndGet();
+            subscriber.onNext(chunk.flip());
+          }
+        } while (emitting.decrementAndGet() != 0);
+      }
+
+      @Override
+      public void cancel() {
+        done = true;
+        try {
+          channel.close();
+        } catch (final IOException ignored) {
+          // Nothing more will be read from the file
+        }
+      }
+    }
+  }
 }
@@ -11,7 +11,9 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import xyz.ianjohnson.gemini.Nullable;
 import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.server.ServerEvents.RequestDecoded;
 
 final class GeminiRequestDecoder extends DelimiterBasedFrameDecoder {
   private static final int MAX_URI_LENGTH = 1024;
@@ -19,6 +21,11 @@ final class GeminiRequestDecoder extends DelimiterBasedFrameDecoder {
   private static final int MAX_REQUEST_LENGTH = MAX_URI_LENGTH + 2;
   private static final Logger log = LoggerFactory.getLogger(GeminiRequestDecoder.class);
 
+  /** The event spanning the receipt of the request, if it is enabled and has been begun. */
+  @Nullable private RequestDecoded event;
+
+  private boolean started;
+
   GeminiRequestDecoder() {
     super(MAX_REQUEST_LENGTH, true, true, Delimiters.lineDelimiter());
   }
@@ -46,17 +53,32 @@ final class GeminiRequestDecoder extends DelimiterBasedFrameDecoder {
   @Override
   protected GeminiRequest decode(final ChannelHandlerContext ctx, final ByteBuf buffer)
       throws Exception {
+    if (!started) {
+      started = true;
+      event = ServerEvents.begin(ServerEvents.REQUEST_DECODED, RequestDecoded::new);
+    }
     final var bytes = (ByteBuf) super.decode(ctx, buffer);
     if (bytes == null) {
       return null;
     }
 
     try {
-      return GeminiRequest.newBuilder()
-          .localAddress(ctx.channel().localAddress())
-          .remoteAddress(ctx.channel().remoteAddress())
-          .uri(new URI(bytes.toString(StandardCharsets.UTF_8)))
-          .build();
+      final var request =
+          GeminiRequest.newBuilder()
+              .localAddress(ctx.channel().localAddress())
+              .remoteAddress(ctx.channel().remoteAddress())
+              .uri(new URI(bytes.toString(StandardCharsets.UTF_8)))
+              .build();
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.remoteAddress = String.valueOf(request.remoteAddress());
+          event.host = request.uri().getHost();
+          event.path = request.uri().getRawPath();
+          event.commit();
+        }
+      }
+      return request;
     } catch (final URISyntaxException | IllegalArgumentException e) {
       log.atWarn()
           .setCause(e)
@@ -33,10 +33,14 @@ final class GeminiRequestHandler extends ChannelInboundHandlerAdapter {
         .addKeyValue("requestUri", request.uri())
         .log("Request received");
 
+    final var event =
+        ServerEvents.begin(ServerEvents.HANDLER_INVOKED, ServerEvents.HandlerInvoked::new);
     GeminiResponse resp;
+    Exception failure = null;
     try {
       resp = handler.apply(request);
     } catch (final Exception e) {
+      failure = e;
       log.atError()
           .setCause(e)
           .addKeyValue("remoteAddress", request.remoteAddress())
@@ -44,6 +48,18 @@ final class GeminiRequestHandler extends ChannelInboundHandlerAdapter {
           .log("Internal error when handling request");
       resp = GeminiResponse.of(StandardGeminiStatus.TEMPORARY_FAILURE, "Internal server error");
     }
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.host = request.uri().getHost();
+        event.path = request.uri().getRawPath();
+        event.status = resp.status().code();
+        if (failure != null) {
+          event.failure = failure.toString();
+        }
+        event.commit();
+      }
+    }
 
     log.atInfo()
         .addKeyValue("remoteAddress", ctx.channel().remoteAddress())
@@ -51,6 +67,7 @@ final class GeminiRequestHandler extends ChannelInboundHandlerAdapter {
         .addKeyValue("status", resp.status().code())
         .addKeyValue("meta", resp.meta())
         .log("Sending response");
+    ServerEvents.responding(ctx.channel(), request);
     ctx.writeAndFlush(resp)
         .addListener(
             (final ChannelFuture f) -> {
@@ -1,13 +1,19 @@
 package xyz.ianjohnson.gemini.server;
 
 import com.google.auto.value.AutoValue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.concurrent.Flow.Publisher;
+import xyz.ianjohnson.gemini.GeminiDocument;
+import xyz.ianjohnson.gemini.GeminiDocumentWriter;
 import xyz.ianjohnson.gemini.GeminiStatus;
 import xyz.ianjohnson.gemini.server.BodyPublisherImpls.Empty;
 import xyz.ianjohnson.gemini.server.BodyPublisherImpls.OfByteArray;
+import xyz.ianjohnson.gemini.server.BodyPublisherImpls.OfFile;
 
 @AutoValue
 public abstract class GeminiResponse {
@@ -46,5 +52,39 @@ public abstract class GeminiResponse {
     public static Publisher<ByteBuffer> ofString(final String s, final Charset charset) {
       return ofByteArray(s.getBytes(charset));
     }
+
+    /**
+     * Returns a publisher of the contents of the given file. The file is opened when the publisher
+     * is subscribed to, and read in chunks as they are requested, so it is never held in memory as
+     * a whole. If the file cannot be opened, the subscriber receives the error.
+     *
+     * @param path the file to publish
+     * @return a publisher of the contents of the file
+     */
+    public static Publisher<ByteBuffer> ofFile(final Path path) {
+      return new OfFile(path);
+    }
+
+    /**
+     * Returns a publisher of the given document, encoded as UTF-8. The document is encoded directly
+     * into the published buffers, without first being serialized to a string. To start sending a
+     * document before all of it has been generated, use a {@link GeminiDocumentWriter} as the body
+     * publisher instead.
+     *
+     * @param document the document to publish
+     * @return a publisher of the encoded document
+     */
+    public static Publisher<ByteBuffer> ofDocument(final GeminiDocument document) {
+      final var writer =
+          new GeminiDocumentWriter(GeminiDocumentWriter.DEFAULT_BUFFER_SIZE, Integer.MAX_VALUE);
+      try {
+        writer.write(document);
+      } catch (final IOException e) {
+        // The writer has no subscriber yet, and never blocks
+        throw new UncheckedIOException(e);
+      }
+      writer.close();
+      return writer;
+    }
   }
 }
@@ -24,6 +24,9 @@ final class GeminiResponseEncoder extends ChannelOutboundHandlerAdapter {
 
     final var resp = (GeminiResponse) msg;
     final var header = resp.status().code() + " " + resp.meta() + "\r\n";
+    final var event =
+        ServerEvents.begin(
+            ServerEvents.RESPONSE_HEADER_WRITTEN, ServerEvents.ResponseHeaderWritten::new);
     ctx.writeAndFlush(wrappedBuffer(header.getBytes(StandardCharsets.UTF_8)))
         .addListener(
             f -> {
@@ -31,6 +34,19 @@ final class GeminiResponseEncoder extends ChannelOutboundHandlerAdapter {
                 promise.setFailure(f.cause());
                 return;
               }
+              if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                  final var request = ServerEvents.respondingTo(ctx.channel());
+                  if (request != null) {
+                    event.host = request.uri().getHost();
+                    event.path = request.uri().getRawPath();
+                  }
+                  event.status = resp.status().code();
+                  event.meta = resp.meta();
+                  event.commit();
+                }
+              }
 
               if (resp.status().kind() == Kind.SUCCESS) {
                 sendBody(resp.bodyPublisher(), ctx, promise);
@@ -44,6 +60,25 @@ final class GeminiResponseEncoder extends ChannelOutboundHandlerAdapter {
       final Publisher<ByteBuffer> bodyPublisher,
       final ChannelHandlerContext ctx,
       final ChannelPromise promise) {
+    final var event =
+        ServerEvents.begin(ServerEvents.BODY_COMPLETED, ServerEvents.BodyCompleted::new);
+    if (event != null) {
+      promise.addListener(
+          f -> {
+            event.end();
+            if (event.shouldCommit()) {
+              final var request = ServerEvents.respondingTo(ctx.channel());
+              if (request != null) {
+                event.host = request.uri().getHost();
+                event.path = request.uri().getRawPath();
+              }
+              if (!f.isSuccess()) {
+                event.failure = String.valueOf(f.cause());
+              }
+              event.commit();
+            }
+          });
+    }
     bodyPublisher.subscribe(
         new Subscriber<>() {
           private Subscription subscription;
@@ -57,7 +92,11 @@ final class GeminiResponseEncoder extends ChannelOutboundHandlerAdapter {
 
           @Override
           public void onNext(final ByteBuffer item) {
-            ctx.write(wrappedBuffer(item))
+            if (event != null) {
+              event.bytes += item.remaining();
+            }
+            // The body may be published asynchronously, so each part is flushed as it arrives
+            ctx.writeAndFlush(wrappedBuffer(item))
                 .addListener(
                     f -> {
                       if (!f.isSuccess()) {
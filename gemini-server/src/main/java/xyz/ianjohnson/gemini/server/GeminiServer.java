@@ -84,8 +84,11 @@ public final class GeminiServer implements Closeable {
                     .addKeyValue("remoteAddress", ch.remoteAddress())
                     .addKeyValue("localAddress", ch.localAddress())
                     .log("Connection received");
+                ServerEvents.connectionAccepted(ch);
+                final var sslHandler = sslContext.newHandler(ch.alloc());
+                ServerEvents.tlsHandshake(ch, sslHandler);
                 ch.pipeline()
-                    .addLast("ssl", sslContext.newHandler(ch.alloc()))
+                    .addLast("ssl", sslHandler)
                     .addLast(new GeminiRequestDecoder())
                     .addLast(new GeminiResponseEncoder())
                     .addLast(new GeminiRequestHandler(handler));
@@ -0,0 +1,64 @@
+package xyz.ianjohnson.gemini.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.server.GeminiResponse.BodyPublishers;
+
+/**
+ * A handler which serves a mirrored capsule from a mirror directory, replaying the response
+ * recorded in its {@link MirrorManifest} for each request target. Bodies are streamed from their
+ * files as they are sent. Requests for targets which are not in the manifest receive a {@link
+ * StandardGeminiStatus#NOT_FOUND} response.
+ *
+ * <p>The manifest is read once, when the handler is opened; a handler must be reopened to serve
+ * changes made to the mirror afterwards.
+ */
+public final class MirrorHandler implements Function<GeminiRequest, GeminiResponse> {
+  private final Path directory;
+  private final MirrorManifest manifest;
+
+  private MirrorHandler(final Path directory, final MirrorManifest manifest) {
+    this.directory = directory;
+    this.manifest = manifest;
+  }
+
+  /**
+   * Returns a handler serving the mirror in the given directory.
+   *
+   * @param directory the mirror directory
+   * @return a handler serving the mirror
+   * @throws IOException if the manifest of the mirror could not be read
+   */
+  public static MirrorHandler open(final Path directory) throws IOException {
+    requireNonNull(directory, "directory");
+    return new MirrorHandler(directory, MirrorManifest.read(directory));
+  }
+
+  @Override
+  public GeminiResponse apply(final GeminiRequest request) {
+    final String target;
+    try {
+      target = MirrorManifest.target(request.uri());
+    } catch (final IllegalArgumentException e) {
+      return GeminiResponse.of(StandardGeminiStatus.BAD_REQUEST, "Invalid path");
+    }
+    return manifest
+        .get(target)
+        .map(
+            entry ->
+                GeminiResponse.of(
+                    entry.status(),
+                    entry.meta(),
+                    entry
+                        .sha256()
+                        .map(
+                            sha256 ->
+                                BodyPublishers.ofFile(MirrorManifest.bodyPath(directory, sha256)))
+                        .orElseGet(BodyPublishers::empty)))
+        .orElseGet(() -> GeminiResponse.of(StandardGeminiStatus.NOT_FOUND, "Not found"));
+  }
+}
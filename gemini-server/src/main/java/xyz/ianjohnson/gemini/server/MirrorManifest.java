@@ -0,0 +1,256 @@
+package xyz.ianjohnson.gemini.server;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.auto.value.AutoValue;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import xyz.ianjohnson.gemini.GeminiStatus;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * The index of a mirrored capsule, mapping each request target (path and query) to the response
+ * which was received for it.
+ *
+ * <p>A mirror directory contains the manifest file {@value #FILE_NAME} and a {@code bodies}
+ * directory of response bodies, each stored under its SHA-256 hash so that identical bodies are
+ * stored only once and unchanged bodies need not be rewritten when a mirror is refreshed. The
+ * manifest is a text file with a header line followed by one tab-separated line per entry, giving
+ * the target, status code, meta, body hash (empty if there is no body) and body size.
+ *
+ * <p>A mirror directory can be served using a {@link MirrorHandler}.
+ */
+public final class MirrorManifest {
+  /** The name of the manifest file in a mirror directory. */
+  public static final String FILE_NAME = "manifest.tsv";
+
+  private static final String HEADER = "# gemini mirror manifest v1";
+
+  private final Map<String, Entry> entries;
+
+  private MirrorManifest(final Map<String, Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Returns a manifest containing the given entries. If several entries have the same target, the
+   * last one is used.
+   *
+   * @param entries the entries of the manifest
+   * @return a manifest containing the given entries
+   */
+  public static MirrorManifest of(final Collection<Entry> entries) {
+    final var map = new TreeMap<String, Entry>();
+    for (final var entry : entries) {
+      map.put(entry.target(), entry);
+    }
+    return new MirrorManifest(Collections.unmodifiableMap(map));
+  }
+
+  /**
+   * Reads the manifest of the given mirror directory. If the directory has no manifest, an empty
+   * manifest is returned.
+   *
+   * @param directory the mirror directory
+   * @return the manifest of the directory
+   * @throws IOException if the manifest could not be read or is malformed
+   */
+  public static MirrorManifest read(final Path directory) throws IOException {
+    final var file = directory.resolve(FILE_NAME);
+    final List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (final NoSuchFileException e) {
+      return new MirrorManifest(Map.of());
+    }
+    if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+      throw new IOException("Not a mirror manifest: " + file);
+    }
+    final var map = new TreeMap<String, Entry>();
+    for (var i = 1; i < lines.size(); i++) {
+      final var fields = lines.get(i).split("\t", -1);
+      if (fields.length != 5) {
+        throw new IOException("Malformed mirror manifest entry on line " + (i + 1));
+      }
+      try {
+        final var entry =
+            Entry.of(
+                fields[0],
+                GeminiStatus.valueOf(Integer.parseInt(fields[1])),
+                unescape(fields[2]),
+                fields[3].isEmpty() ? null : fields[3],
+                Long.parseLong(fields[4]));
+        map.put(entry.target(), entry);
+      } catch (final IllegalArgumentException e) {
+        throw new IOException("Malformed mirror manifest entry on line " + (i + 1), e);
+      }
+    }
+    return new MirrorManifest(Collections.unmodifiableMap(map));
+  }
+
+  /**
+   * Returns the manifest target of the given URI: its normalized path, followed by its raw query if
+   * it has one.
+   *
+   * @param uri the URI
+   * @return the manifest target of the URI
+   * @throws IllegalArgumentException if the path of the URI contains illegal escaped characters
+   * @see GeminiRequest#normalizePath(String)
+   */
+  public static String target(final URI uri) {
+    final var path = GeminiRequest.normalizePath(uri.getRawPath());
+    return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+  }
+
+  /**
+   * Returns the file in which the body with the given hash is stored in a mirror directory.
+   *
+   * @param directory the mirror directory
+   * @param sha256 the lowercase hexadecimal SHA-256 hash of the body
+   * @return the file in which the body is stored
+   */
+  public static Path bodyPath(final Path directory, final String sha256) {
+    return directory.resolve("bodies").resolve(sha256.substring(0, 2)).resolve(sha256);
+  }
+
+  private static String escape(final String s) {
+    return s.replace("\\", "\\\\").replace("\t", "\\t");
+  }
+
+  private static String unescape(final String s) {
+    final var sb = new StringBuilder(s.length());
+    for (var i = 0; i < s.length(); i++) {
+      final var c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        sb.append(s.charAt(++i) == 't' ? '\t' : s.charAt(i));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the entry for the given target, if there is one.
+   *
+   * @param target the target, as returned by {@link #target(URI)}
+   * @return the entry for the target
+   */
+  public Optional<Entry> get(final String target) {
+    return Optional.ofNullable(entries.get(target));
+  }
+
+  /**
+   * Returns the entries of this manifest, ordered by target.
+   *
+   * @return the entries of this manifest
+   */
+  public Collection<Entry> entries() {
+    return entries.values();
+  }
+
+  /**
+   * Writes this manifest to the given mirror directory, replacing any existing manifest. The new
+   * manifest is written to a temporary file first, so an interrupted write leaves the previous
+   * manifest intact.
+   *
+   * @param directory the mirror directory
+   * @throws IOException if the manifest could not be written
+   */
+  public void write(final Path directory) throws IOException {
+    final var temp = directory.resolve(FILE_NAME + ".tmp");
+    try (final var writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (final var entry : entries.values()) {
+        writer.write(entry.target());
+        writer.write('\t');
+        writer.write(Integer.toString(entry.status().code()));
+        writer.write('\t');
+        writer.write(escape(entry.meta()));
+        writer.write('\t');
+        writer.write(entry.sha256().orElse(""));
+        writer.write('\t');
+        writer.write(Long.toString(entry.size()));
+        writer.write('\n');
+      }
+    }
+    Files.move(
+        temp,
+        directory.resolve(FILE_NAME),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** A mirrored response. */
+  @AutoValue
+  public abstract static class Entry {
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    Entry() {}
+
+    /**
+     * Returns a new entry.
+     *
+     * @param target the request target, as returned by {@link MirrorManifest#target(URI)}
+     * @param status the response status
+     * @param meta the response meta
+     * @param sha256 the lowercase hexadecimal SHA-256 hash of the response body, or {@code null} if
+     *     the response has no body
+     * @param size the size of the response body, in bytes
+     * @return the new entry
+     */
+    public static Entry of(
+        final String target,
+        final GeminiStatus status,
+        final String meta,
+        @Nullable final String sha256,
+        final long size) {
+      if (hasLineBreak(requireNonNull(target, "target")) || target.indexOf('\t') != -1) {
+        throw new IllegalArgumentException("target must not contain line breaks or tabs");
+      }
+      if (hasLineBreak(requireNonNull(meta, "meta"))) {
+        throw new IllegalArgumentException("meta must not contain line breaks");
+      }
+      if (sha256 != null && !SHA256.matcher(sha256).matches()) {
+        throw new IllegalArgumentException("sha256 must be a lowercase hexadecimal SHA-256 hash");
+      }
+      if (size < 0) {
+        throw new IllegalArgumentException("size must not be negative");
+      }
+      return new AutoValue_MirrorManifest_Entry(
+          target, status, meta, Optional.ofNullable(sha256), size);
+    }
+
+    private static boolean hasLineBreak(final String s) {
+      return s.indexOf('\n') != -1 || s.indexOf('\r') != -1;
+    }
+
+    /** The request target (path and query). */
+    public abstract String target();
+
+    /** The response status. */
+    public abstract GeminiStatus status();
+
+    /** The response meta. */
+    public abstract String meta();
+
+    /** The SHA-256 hash of the response body, if the response has a body. */
+    public abstract Optional<String> sha256();
+
+    /** The size of the response body, in bytes. */
+    public abstract long size();
+  }
+}
@@ -0,0 +1,224 @@
+package xyz.ianjohnson.gemini.server;
+
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import xyz.ianjohnson.gemini.Nullable;
+
+/**
+ * The JDK Flight Recorder events emitted by the server. Each event spans the phase it describes, so
+ * that its duration can be lined up against other events in the recording, such as garbage
+ * collections and lock contention.
+ *
+ * <p>An event is only allocated, begun and populated after checking that its type is enabled, so
+ * that a disabled event costs no more than the check. Events which span several callbacks are held
+ * by the handler of the connection they describe.
+ */
+final class ServerEvents {
+  private static final String CATEGORY = "Gemini";
+  private static final String SUBCATEGORY = "Server";
+  private static final String PREFIX = "xyz.ianjohnson.gemini.server.";
+
+  static final EventType CONNECTION_ACCEPTED = EventType.getEventType(ConnectionAccepted.class);
+  static final EventType TLS_HANDSHAKE = EventType.getEventType(TlsHandshake.class);
+  static final EventType REQUEST_DECODED = EventType.getEventType(RequestDecoded.class);
+  static final EventType HANDLER_INVOKED = EventType.getEventType(HandlerInvoked.class);
+  static final EventType RESPONSE_HEADER_WRITTEN =
+      EventType.getEventType(ResponseHeaderWritten.class);
+  static final EventType BODY_COMPLETED = EventType.getEventType(BodyCompleted.class);
+
+  /**
+   * The request being responded to on a connection, from which the response events take their host
+   * and path. It is only set if one of those events is enabled.
+   */
+  private static final AttributeKey<GeminiRequest> REQUEST =
+      AttributeKey.valueOf(ServerEvents.class, "request");
+
+  private ServerEvents() {}
+
+  /**
+   * Creates and begins an event of the given type if it is enabled.
+   *
+   * @param type the type of the event
+   * @param factory creates the event, which is only called if the type is enabled
+   * @return the event, or {@code null} if it is not enabled
+   */
+  static <E extends Event> @Nullable E begin(final EventType type, final Supplier<E> factory) {
+    if (!type.isEnabled()) {
+      return null;
+    }
+    final var event = factory.get();
+    event.begin();
+    return event;
+  }
+
+  /** Emits a {@link ConnectionAccepted} event for the given connection. */
+  static void connectionAccepted(final Channel channel) {
+    if (!CONNECTION_ACCEPTED.isEnabled()) {
+      return;
+    }
+    final var event = new ConnectionAccepted();
+    if (event.shouldCommit()) {
+      event.remoteAddress = String.valueOf(channel.remoteAddress());
+      event.localAddress = String.valueOf(channel.localAddress());
+      event.commit();
+    }
+  }
+
+  /**
+   * Emits a {@link TlsHandshake} event spanning from now until the handshake of the given handler
+   * completes.
+   */
+  static void tlsHandshake(final Channel channel, final SslHandler sslHandler) {
+    if (!TLS_HANDSHAKE.isEnabled()) {
+      return;
+    }
+    final var event = new TlsHandshake();
+    final var startedAtMillis = System.currentTimeMillis();
+    event.begin();
+    sslHandler
+        .handshakeFuture()
+        .addListener(
+            f -> {
+              event.end();
+              if (event.shouldCommit()) {
+                event.remoteAddress = String.valueOf(channel.remoteAddress());
+                if (f.isSuccess()) {
+                  final var session = sslHandler.engine().getSession();
+                  event.protocol = session.getProtocol();
+                  event.cipherSuite = session.getCipherSuite();
+                  event.sessionResumed = session.getCreationTime() < startedAtMillis;
+                } else {
+                  event.failure = String.valueOf(f.cause());
+                }
+                event.commit();
+              }
+            });
+  }
+
+  /**
+   * Remembers the request being responded to on the given connection for the response events, if
+   * any of them are enabled.
+   */
+  static void responding(final Channel channel, final GeminiRequest request) {
+    if (RESPONSE_HEADER_WRITTEN.isEnabled() || BODY_COMPLETED.isEnabled()) {
+      channel.attr(REQUEST).set(request);
+    }
+  }
+
+  /**
+   * Returns the request being responded to on the given connection, if it was remembered by {@link
+   * #responding(Channel, GeminiRequest)}.
+   */
+  static @Nullable GeminiRequest respondingTo(final Channel channel) {
+    return channel.hasAttr(REQUEST) ? channel.attr(REQUEST).get() : null;
+  }
+
+  @Name(PREFIX + "ConnectionAccepted")
+  @Label("Connection Accepted")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class ConnectionAccepted extends Event {
+    @Label("Remote Address")
+    String remoteAddress;
+
+    @Label("Local Address")
+    String localAddress;
+  }
+
+  @Name(PREFIX + "TlsHandshake")
+  @Label("TLS Handshake")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class TlsHandshake extends Event {
+    @Label("Remote Address")
+    String remoteAddress;
+
+    @Label("Protocol")
+    String protocol;
+
+    @Label("Cipher Suite")
+    String cipherSuite;
+
+    @Label("Session Resumed")
+    boolean sessionResumed;
+
+    @Label("Failure")
+    String failure;
+  }
+
+  @Name(PREFIX + "RequestDecoded")
+  @Label("Request Decoded")
+  @Description("A request, from when its first bytes are received until it is decoded")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class RequestDecoded extends Event {
+    @Label("Remote Address")
+    String remoteAddress;
+
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+  }
+
+  @Name(PREFIX + "HandlerInvoked")
+  @Label("Handler Invoked")
+  @Description("An invocation of the request handler of the server")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class HandlerInvoked extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Failure")
+    String failure;
+  }
+
+  @Name(PREFIX + "ResponseHeaderWritten")
+  @Label("Response Header Written")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class ResponseHeaderWritten extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Meta")
+    String meta;
+  }
+
+  @Name(PREFIX + "BodyCompleted")
+  @Label("Body Completed")
+  @Description("A response body, from the end of its header until it has been fully written")
+  @Category({CATEGORY, SUBCATEGORY})
+  static final class BodyCompleted extends Event {
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    @Label("Failure")
+    String failure;
+  }
+}
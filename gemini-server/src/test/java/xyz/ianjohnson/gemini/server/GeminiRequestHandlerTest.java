@@ -9,8 +9,15 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.server.GeminiResponse.BodyPublishers;
 
 public class GeminiRequestHandlerTest {
   @Test
@@ -64,6 +71,48 @@ public class GeminiRequestHandlerTest {
             });
   }
 
+  @Test
+  public void testHandle_withFlightRecording_emitsRequestEvents(@TempDir final Path tempDir)
+      throws Exception {
+    final var file = tempDir.resolve("recording.jfr");
+    try (final var recording = new Recording()) {
+      for (final var event :
+          List.of("RequestDecoded", "HandlerInvoked", "ResponseHeaderWritten", "BodyCompleted")) {
+        recording.enable("xyz.ianjohnson.gemini.server." + event);
+      }
+      recording.start();
+      final var channel =
+          new EmbeddedChannel(
+              new GeminiRequestDecoder(),
+              new GeminiResponseEncoder(),
+              new GeminiRequestHandler(
+                  r ->
+                      GeminiResponse.of(
+                          StandardGeminiStatus.SUCCESS,
+                          "text/plain",
+                          BodyPublishers.ofString("Recorded"))));
+      channel.writeInbound(wrappedBuffer(utf8("gemini://gemini.test/recorded\r\n")));
+      channel.finish();
+      channel.checkException();
+      recording.stop();
+      recording.dump(file);
+    }
+
+    final var events =
+        RecordingFile.readAllEvents(file).stream()
+            .collect(Collectors.toMap(event -> event.getEventType().getLabel(), event -> event));
+    assertThat(events)
+        .containsOnlyKeys(
+            "Request Decoded", "Handler Invoked", "Response Header Written", "Body Completed");
+    for (final var event : events.values()) {
+      assertThat(event.getString("host")).isEqualTo("gemini.test");
+      assertThat(event.getString("path")).isEqualTo("/recorded");
+    }
+    assertThat(events.get("Handler Invoked").getInt("status")).isEqualTo(20);
+    assertThat(events.get("Response Header Written").getString("meta")).isEqualTo("text/plain");
+    assertThat(events.get("Body Completed").getLong("bytes")).isEqualTo("Recorded".length());
+  }
+
   @Test
   public void testHandle_withByteBuf_throwsUnsupportedMessageTypeException() {
     final var channel =
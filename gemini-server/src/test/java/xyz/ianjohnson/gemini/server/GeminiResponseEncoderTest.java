@@ -9,11 +9,15 @@ import static xyz.ianjohnson.gemini.server.TestUtils.utf8;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscription;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import xyz.ianjohnson.gemini.GeminiDocumentWriter;
+import xyz.ianjohnson.gemini.GeminiHeadingLine;
+import xyz.ianjohnson.gemini.GeminiTextLine;
 import xyz.ianjohnson.gemini.StandardGeminiStatus;
 import xyz.ianjohnson.gemini.server.GeminiResponse.BodyPublishers;
 
@@ -49,6 +53,27 @@ public class GeminiResponseEncoderTest {
         .isEqualTo(wrappedBuffer(utf8("20 text/plain\r\nHello, world!\n")));
   }
 
+  @Test
+  public void testEncode_withStreamingBody_sendsBodyAsItIsWritten() throws IOException {
+    final var writer = new GeminiDocumentWriter(16, 1);
+    channel.writeOutbound(GeminiResponse.of(StandardGeminiStatus.SUCCESS, "text/gemini", writer));
+
+    assertThat(collectResponse()).isEqualTo(wrappedBuffer(utf8("20 text/gemini\r\n")));
+
+    writer.write(GeminiHeadingLine.of(1, "Streaming"));
+    writer.flush();
+
+    assertThat(collectResponse()).isEqualTo(wrappedBuffer(utf8("# Streaming\n")));
+
+    writer.write(GeminiTextLine.of("More text than fits in one buffer"));
+    writer.close();
+    channel.finish();
+    channel.checkException();
+
+    assertThat(collectResponse())
+        .isEqualTo(wrappedBuffer(utf8("More text than fits in one buffer\n")));
+  }
+
   @Test
   public void testEncode_withByteBuf_throwsUnsupportedMessageTypeException() {
     assertThatThrownBy(
@@ -1,18 +1,23 @@
 package xyz.ianjohnson.gemini.server;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static xyz.ianjohnson.gemini.server.TestUtils.collectBytes;
 import static xyz.ianjohnson.gemini.server.TestUtils.utf8;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Flow.Publisher;
-import java.util.concurrent.Flow.Subscriber;
-import java.util.concurrent.Flow.Subscription;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.GeminiDocument;
+import xyz.ianjohnson.gemini.GeminiHeadingLine;
+import xyz.ianjohnson.gemini.GeminiLinkLine;
 import xyz.ianjohnson.gemini.server.GeminiResponse.BodyPublishers;
 
 public class GeminiResponseTest {
@@ -46,45 +51,34 @@ public class GeminiResponseTest {
           .containsExactly("Hello, world!".getBytes(StandardCharsets.UTF_16BE));
     }
 
-    private byte[] collectBytes(final Publisher<ByteBuffer> publisher) throws Throwable {
-      final var output = new ByteArrayOutputStream();
-      final var future = new CompletableFuture<Void>();
-      publisher.subscribe(
-          new Subscriber<>() {
-            private Subscription subscription;
+    @Test
+    public void testOfDocument_withDocument_publishesSerializedDocument() throws Throwable {
+      final var document =
+          GeminiDocument.of(
+              List.of(
+                  GeminiHeadingLine.of(1, "Héllo"),
+                  GeminiLinkLine.of(URI.create("gemini://gemini.example"), "Link")));
 
-            @Override
-            public void onSubscribe(final Subscription subscription) {
-              this.subscription = subscription;
-              this.subscription.request(1);
-            }
+      assertThat(collectBytes(BodyPublishers.ofDocument(document)))
+          .containsExactly(utf8("# Héllo\n=> gemini://gemini.example Link\n"));
+    }
 
-            @Override
-            public void onNext(final ByteBuffer item) {
-              final var bytes = new byte[item.remaining()];
-              item.get(bytes);
-              synchronized (output) {
-                try {
-                  output.write(bytes);
-                } catch (final IOException ignored) {
-                  // Impossible
-                }
-              }
-              subscription.request(1);
-            }
+    @Test
+    public void testOfFile_withFileLargerThanOneChunk_publishesFileContents(
+        @TempDir final Path tempDir) throws Throwable {
+      final var bytes = new byte[40_000];
+      new Random(1).nextBytes(bytes);
+      final var file = tempDir.resolve("body");
+      Files.write(file, bytes);
 
-            @Override
-            public void onError(final Throwable throwable) {
-              future.completeExceptionally(throwable);
-            }
+      assertThat(collectBytes(BodyPublishers.ofFile(file))).containsExactly(bytes);
+    }
 
-            @Override
-            public void onComplete() {
-              future.complete(null);
-            }
-          });
-      future.get(500, TimeUnit.MILLISECONDS);
-      return output.toByteArray();
+    @Test
+    public void testOfFile_withMissingFile_signalsError(@TempDir final Path tempDir) {
+      assertThatThrownBy(() -> collectBytes(BodyPublishers.ofFile(tempDir.resolve("missing"))))
+          .isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(NoSuchFileException.class);
     }
   }
 }
@@ -0,0 +1,75 @@
+package xyz.ianjohnson.gemini.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static xyz.ianjohnson.gemini.server.TestUtils.collectBytes;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.ianjohnson.gemini.StandardGeminiStatus;
+import xyz.ianjohnson.gemini.server.MirrorManifest.Entry;
+
+public class MirrorHandlerTest {
+  private static final SocketAddress TEST_SOCKET_ADDRESS = new SocketAddress() {};
+
+  private static GeminiRequest newRequest(final String uri) {
+    return GeminiRequest.newBuilder()
+        .localAddress(TEST_SOCKET_ADDRESS)
+        .remoteAddress(TEST_SOCKET_ADDRESS)
+        .uri(URI.create(uri))
+        .build();
+  }
+
+  private static String sha256(final byte[] bytes) throws Exception {
+    final var sb = new StringBuilder();
+    for (final var b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testApply_withMirroredTargets_servesRecordedResponses(@TempDir final Path tempDir)
+      throws Throwable {
+    final var body = "# Index\n=> /a.gmi A\n".getBytes(StandardCharsets.UTF_8);
+    final var hash = sha256(body);
+    Files.createDirectories(MirrorManifest.bodyPath(tempDir, hash).getParent());
+    Files.write(MirrorManifest.bodyPath(tempDir, hash), body);
+    MirrorManifest.of(
+            List.of(
+                Entry.of("/", StandardGeminiStatus.SUCCESS, "text/gemini", hash, body.length),
+                Entry.of("/old", StandardGeminiStatus.PERMANENT_REDIRECT, "/\tnew", null, 0),
+                Entry.of("/search?q", StandardGeminiStatus.INPUT, "Query", null, 0)))
+        .write(tempDir);
+    final var handler = MirrorHandler.open(tempDir);
+
+    final var index = handler.apply(newRequest("gemini://localhost/./"));
+    assertThat(index.status()).isEqualTo(StandardGeminiStatus.SUCCESS);
+    assertThat(index.meta()).isEqualTo("text/gemini");
+    assertThat(collectBytes(index.bodyPublisher())).containsExactly(body);
+    assertThat(handler.apply(newRequest("gemini://localhost/old")))
+        .isEqualTo(GeminiResponse.of(StandardGeminiStatus.PERMANENT_REDIRECT, "/\tnew"));
+    assertThat(handler.apply(newRequest("gemini://localhost/search?q")))
+        .isEqualTo(GeminiResponse.of(StandardGeminiStatus.INPUT, "Query"));
+    assertThat(handler.apply(newRequest("gemini://localhost/missing")))
+        .isEqualTo(GeminiResponse.of(StandardGeminiStatus.NOT_FOUND, "Not found"));
+  }
+
+  @Test
+  public void testOpen_withOtherFileAsManifest_throwsIOException(@TempDir final Path tempDir)
+      throws IOException {
+    Files.writeString(tempDir.resolve(MirrorManifest.FILE_NAME), "not a manifest\n");
+
+    assertThatThrownBy(() -> MirrorHandler.open(tempDir))
+        .isInstanceOf(IOException.class)
+        .hasMessageStartingWith("Not a mirror manifest");
+  }
+}
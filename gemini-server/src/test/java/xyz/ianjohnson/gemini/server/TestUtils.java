@@ -1,6 +1,14 @@
 package xyz.ianjohnson.gemini.server;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
 
 final class TestUtils {
   private TestUtils() {}
@@ -8,4 +16,45 @@ final class TestUtils {
   static byte[] utf8(final String s) {
     return s.getBytes(StandardCharsets.UTF_8);
   }
+
+  static byte[] collectBytes(final Publisher<ByteBuffer> publisher) throws Throwable {
+    final var output = new ByteArrayOutputStream();
+    final var future = new CompletableFuture<Void>();
+    publisher.subscribe(
+        new Subscriber<>() {
+          private Subscription subscription;
+
+          @Override
+          public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            this.subscription.request(1);
+          }
+
+          @Override
+          public void onNext(final ByteBuffer item) {
+            final var bytes = new byte[item.remaining()];
+            item.get(bytes);
+            synchronized (output) {
+              try {
+                output.write(bytes);
+              } catch (final IOException ignored) {
+                // Impossible
+              }
+            }
+            subscription.request(1);
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            future.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            future.complete(null);
+          }
+        });
+    future.get(500, TimeUnit.MILLISECONDS);
+    return output.toByteArray();
+  }
 }